@@ -0,0 +1,75 @@
+package com.tieuluan.laptopstore.auth.config;
+
+import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.bench.BenchmarkData;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sinh và kiểm tra JWT. {@link #authenticateRequest()} lặp lại đúng các lời gọi mà
+ * JWTAuthenticationFilter thực hiện cho mỗi request có token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JWTTokenHelperBenchmark {
+
+    private JWTTokenHelper jwtTokenHelper;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[64];
+        new Random(42).nextBytes(secret);
+
+        jwtTokenHelper = new JWTTokenHelper();
+        ReflectionTestUtils.setField(jwtTokenHelper, "appName", "authapp");
+        ReflectionTestUtils.setField(jwtTokenHelper, "secretKey", Base64.getEncoder().encodeToString(secret));
+        ReflectionTestUtils.setField(jwtTokenHelper, "expiresIn", 86_400_000);
+        jwtTokenHelper.init();
+
+        user = BenchmarkData.user(new Random(42));
+        token = jwtTokenHelper.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenHelper.generateToken(user);
+    }
+
+    // Verify chữ ký thật (lần đầu gặp token), không qua cache claims
+    @Benchmark
+    public Claims parseAndVerify() {
+        return jwtTokenHelper.parseAndVerify(token);
+    }
+
+    @Benchmark
+    public String getUserNameFromToken() {
+        return jwtTokenHelper.getUserNameFromToken(token);
+    }
+
+    @Benchmark
+    public boolean authenticateRequest() {
+        Claims claims = jwtTokenHelper.getAllClaimsFromToken(token);
+        return claims != null && jwtTokenHelper.validateToken(claims, user);
+    }
+}
@@ -0,0 +1,51 @@
+package com.tieuluan.laptopstore.bench;
+
+import com.tieuluan.laptopstore.mapper.BrandMapper;
+import com.tieuluan.laptopstore.mapper.CategoryMapper;
+import com.tieuluan.laptopstore.mapper.CategoryTypeMapper;
+import com.tieuluan.laptopstore.mapper.DiscountMapper;
+import com.tieuluan.laptopstore.mapper.OrderMapper;
+import com.tieuluan.laptopstore.mapper.ProductMapper;
+import com.tieuluan.laptopstore.repositories.ReviewRepository;
+import com.tieuluan.laptopstore.services.FlashSaleService;
+
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Dựng bean thật bằng tay (không khởi động Spring) để benchmark chỉ đo phần mapping.
+ * Repository / FlashSaleService là stub không ghi lại lời gọi (stubOnly) để không
+ * làm sai số liệu cấp phát bộ nhớ.
+ */
+public final class BenchmarkBeans {
+
+    private BenchmarkBeans() {
+    }
+
+    public static ProductMapper productMapper() {
+        ProductMapper productMapper = new ProductMapper();
+        CategoryMapper categoryMapper = new CategoryMapper();
+        CategoryTypeMapper categoryTypeMapper = new CategoryTypeMapper();
+
+        ReflectionTestUtils.setField(categoryMapper, "categoryTypeMapper", categoryTypeMapper);
+        ReflectionTestUtils.setField(categoryTypeMapper, "productMapper", productMapper);
+        ReflectionTestUtils.setField(productMapper, "brandMapper", new BrandMapper());
+        ReflectionTestUtils.setField(productMapper, "categoryMapper", categoryMapper);
+        ReflectionTestUtils.setField(productMapper, "categoryTypeMapper", categoryTypeMapper);
+        return productMapper;
+    }
+
+    public static OrderMapper orderMapper(ProductMapper productMapper) {
+        OrderMapper orderMapper = new OrderMapper();
+        ReflectionTestUtils.setField(orderMapper, "productMapper", productMapper);
+        ReflectionTestUtils.setField(orderMapper, "discountMapper", new DiscountMapper());
+        // findReviewedProductIds trả về tập rỗng, enrichProducts không làm gì (không có Flash Sale)
+        ReflectionTestUtils.setField(orderMapper, "reviewRepository", stub(ReviewRepository.class));
+        ReflectionTestUtils.setField(orderMapper, "flashSaleService", stub(FlashSaleService.class));
+        return orderMapper;
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return Mockito.mock(type, Mockito.withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,200 @@
+package com.tieuluan.laptopstore.bench;
+
+import com.tieuluan.laptopstore.auth.dto.User.UserPublicDto;
+import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.dto.ReviewResponseDto;
+import com.tieuluan.laptopstore.entities.Address;
+import com.tieuluan.laptopstore.entities.Brand;
+import com.tieuluan.laptopstore.entities.Category;
+import com.tieuluan.laptopstore.entities.CategoryType;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.ProductSpecification;
+import com.tieuluan.laptopstore.entities.ProductVariant;
+import com.tieuluan.laptopstore.entities.ProductVariantAttribute;
+import com.tieuluan.laptopstore.entities.Resources;
+import com.tieuluan.laptopstore.entities.ShippingProvider;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Dữ liệu giả lập cho benchmark, kích thước gần với dữ liệu thật của cửa hàng:
+ * 1 laptop có ~8 ảnh, ~24 dòng thông số, ~6 biến thể x 4 thuộc tính; 1 đơn ~5 dòng hàng.
+ * Dùng seed cố định để các lần chạy so sánh được với nhau.
+ */
+public final class BenchmarkData {
+
+    public static final int RESOURCES_PER_PRODUCT = 8;
+    public static final int SPECS_PER_PRODUCT = 24;
+    public static final int VARIANTS_PER_PRODUCT = 6;
+    public static final int ITEMS_PER_ORDER = 5;
+
+    private static final String[] ATTRIBUTES = {"RAM", "SSD", "Màu sắc", "CPU"};
+
+    private BenchmarkData() {
+    }
+
+    // =======================================================================
+    //  SẢN PHẨM
+    // =======================================================================
+    public static Product product(Random random) {
+        Brand brand = Brand.builder()
+                .id(UUID.randomUUID()).name("Lenovo").code("LENOVO")
+                .description("Thương hiệu laptop").logoUrl("https://cdn.example.com/brand/lenovo.png")
+                .build();
+        Category category = Category.builder()
+                .id(UUID.randomUUID()).name("Laptop").code("LAPTOP").description("Máy tính xách tay")
+                .build();
+        CategoryType type = CategoryType.builder()
+                .id(UUID.randomUUID()).name("Gaming").code("GAMING").description("Laptop gaming")
+                .imgCategory("https://cdn.example.com/type/gaming.png").category(category)
+                .build();
+
+        Product product = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Laptop Lenovo Legion 5 Pro " + random.nextInt(10_000))
+                .slug("laptop-lenovo-legion-5-pro-" + random.nextInt(10_000))
+                .description("Mô tả chi tiết sản phẩm ".repeat(40))
+                .price(BigDecimal.valueOf(20_000_000L + random.nextInt(30_000_000)))
+                .discount(BigDecimal.valueOf(random.nextInt(20)))
+                .stock(random.nextInt(500))
+                .rating(3f + random.nextInt(20) / 10f)
+                .createdAt(new Date())
+                .enable(true)
+                .brand(brand)
+                .category(category)
+                .categoryType(type)
+                .build();
+
+        List<Resources> resources = new ArrayList<>();
+        for (int i = 0; i < RESOURCES_PER_PRODUCT; i++) {
+            resources.add(Resources.builder()
+                    .id(UUID.randomUUID()).name("image-" + i + ".jpg")
+                    .url("https://cdn.example.com/products/" + product.getId() + "/" + i + ".jpg")
+                    .type("image").isPrimary(i == 0).product(product)
+                    .build());
+        }
+        product.setResources(resources);
+
+        List<ProductSpecification> specs = new ArrayList<>();
+        for (int i = 0; i < SPECS_PER_PRODUCT; i++) {
+            specs.add(ProductSpecification.builder()
+                    .id(UUID.randomUUID()).name("Thông số " + i).value("Giá trị " + random.nextInt(1000)).product(product)
+                    .build());
+        }
+        product.setSpecifications(specs);
+
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int i = 0; i < VARIANTS_PER_PRODUCT; i++) {
+            ProductVariant variant = ProductVariant.builder()
+                    .id(UUID.randomUUID()).sku("SKU-" + i + "-" + random.nextInt(100_000))
+                    .price(product.getPrice().add(BigDecimal.valueOf(i * 1_000_000L)))
+                    .stockQuantity(random.nextInt(100)).product(product)
+                    .build();
+            List<ProductVariantAttribute> attributes = new ArrayList<>();
+            for (String name : ATTRIBUTES) {
+                attributes.add(ProductVariantAttribute.builder()
+                        .id(UUID.randomUUID()).attributeName(name).attributeValue(name + "-" + i).variant(variant)
+                        .build());
+            }
+            variant.setAttributes(attributes);
+            variants.add(variant);
+        }
+        product.setVariants(variants);
+        return product;
+    }
+
+    // =======================================================================
+    //  ĐƠN HÀNG
+    // =======================================================================
+    public static User user(Random random) {
+        return User.builder()
+                .id(UUID.randomUUID())
+                .firstName("Văn")
+                .lastName("Nguyễn " + random.nextInt(1000))
+                .email("user" + random.nextInt(1_000_000) + "@example.com")
+                .provider("manual")
+                .enabled(true)
+                .authorities(new ArrayList<>())
+                .build();
+    }
+
+    public static Order order(Random random, User user, List<Product> catalog) {
+        Order order = Order.builder()
+                .id(UUID.randomUUID())
+                .orderDate(LocalDateTime.now())
+                .expectedDeliveryDate(LocalDateTime.now().plusDays(3))
+                .user(user)
+                .address(Address.builder().id(UUID.randomUUID()).name("Nhà riêng").street("1 Võ Văn Ngân")
+                        .city("Thủ Đức").state("TP.HCM").zipCode("700000").phoneNumber("0900000000").user(user).build())
+                .shippingProvider(ShippingProvider.builder().id(UUID.randomUUID()).name("GHN")
+                        .imgShip("https://cdn.example.com/ghn.png").contactInfo("1900 636677")
+                        .trackingUrlTemplate("https://ghn.vn/tracking?code={code}").build())
+                .shipmentNumber("SHIP-" + random.nextInt(1_000_000))
+                .orderStatus(OrderStatus.PENDING)
+                .paymentMethod("COD")
+                .note("Giao giờ hành chính")
+                .build();
+
+        List<OrderItem> items = new ArrayList<>();
+        double total = 0;
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            Product product = catalog.get(random.nextInt(catalog.size()));
+            int quantity = 1 + random.nextInt(3);
+            double price = product.getPrice().doubleValue();
+            total += price * quantity;
+            items.add(OrderItem.builder()
+                    .id(UUID.randomUUID()).product(product).order(order)
+                    .productVariantId(product.getVariants().get(0).getId())
+                    .quantity(quantity).itemPrice(price)
+                    .build());
+        }
+        order.setOrderItemList(items);
+        order.setTotalAmount(total);
+        return order;
+    }
+
+    // =======================================================================
+    //  ĐÁNH GIÁ (gốc + trả lời nhiều cấp)
+    // =======================================================================
+    /** {@code replyRatio} phần trăm là trả lời cho một đánh giá đứng trước nó. */
+    public static List<ReviewResponseDto> reviews(Random random, int count, int replyRatio) {
+        List<ReviewResponseDto> reviews = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            boolean reply = i > 0 && random.nextInt(100) < replyRatio;
+            UUID parentId = reply ? reviews.get(random.nextInt(i)).getId() : null;
+            reviews.add(ReviewResponseDto.builder()
+                    .id(UUID.randomUUID())
+                    .user(UserPublicDto.builder().id(UUID.randomUUID()).firstName("Người").lastName("Dùng " + i).build())
+                    .content("Nội dung đánh giá số " + i)
+                    .rating(reply ? null : 1f + random.nextInt(5))
+                    .parentId(parentId)
+                    .createdAt(new Date(now - (count - i) * 60_000L))
+                    .replies(new ArrayList<>())
+                    .build());
+        }
+        return reviews;
+    }
+
+    // buildReviewTree gắn replies vào chính các DTO nên mỗi lần đo cần bản mới
+    public static List<ReviewResponseDto> copyOf(List<ReviewResponseDto> reviews) {
+        List<ReviewResponseDto> copy = new ArrayList<>(reviews.size());
+        for (ReviewResponseDto r : reviews) {
+            copy.add(ReviewResponseDto.builder()
+                    .id(r.getId()).user(r.getUser()).content(r.getContent()).rating(r.getRating())
+                    .parentId(r.getParentId()).createdAt(r.getCreatedAt())
+                    .replies(new ArrayList<>())
+                    .build());
+        }
+        return copy;
+    }
+}
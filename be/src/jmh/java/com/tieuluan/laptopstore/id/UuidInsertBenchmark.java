@@ -0,0 +1,133 @@
+package com.tieuluan.laptopstore.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tốc độ chèn dòng (dòng/giây) vào bảng khóa chính BINARY(16) kiểu order_items, id v4 ngẫu
+ * nhiên so với id v7 tăng dần. Bảng được nạp sẵn {@code preload} dòng cùng kiểu id để đo ở
+ * trạng thái B-tree đã lớn; mỗi lần gọi chèn 1 lô {@value #BATCH} dòng trong 1 transaction.
+ * <p>
+ * Mặc định chạy trên H2 trong bộ nhớ (chỉ so tương đối). Đo trên MySQL thật (biến môi trường
+ * được JVM fork của JMH kế thừa):
+ * <pre>
+ *   BENCH_JDBC_URL=jdbc:mysql://localhost:3306/bench BENCH_JDBC_USER=root BENCH_JDBC_PASSWORD=... \
+ *   mvn -Pjmh test-compile exec:exec -Djmh.include=UuidInsertBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH = 500;
+
+    @Param({"V4", "V7"})
+    private String idVersion;
+
+    @Param({"200000"})
+    private int preload;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+    private Random random;
+    private byte[][] orderIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        random = new Random(42);
+        // order_id / product_id lấy trong 1 tập cố định như dữ liệu thật (nhiều dòng / đơn)
+        orderIds = new byte[1000][];
+        for (int i = 0; i < orderIds.length; i++) orderIds[i] = toBytes(UUID.randomUUID());
+
+        table = "uuid_bench_" + idVersion.toLowerCase();
+        connection = DriverManager.getConnection(
+                env("BENCH_JDBC_URL", "jdbc:h2:mem:uuid_bench;MODE=MySQL;DB_CLOSE_DELAY=-1"),
+                env("BENCH_JDBC_USER", "sa"),
+                env("BENCH_JDBC_PASSWORD", ""));
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+            st.execute("CREATE TABLE " + table + " ("
+                    + "id BINARY(16) NOT NULL PRIMARY KEY, "
+                    + "order_id BINARY(16) NOT NULL, "
+                    + "product_id BINARY(16) NOT NULL, "
+                    + "quantity INT NOT NULL, "
+                    + "item_price DOUBLE)");
+            st.execute("CREATE INDEX idx_" + table + "_order ON " + table + " (order_id)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + table
+                + " (id, order_id, product_id, quantity, item_price) VALUES (?, ?, ?, ?, ?)");
+
+        for (int loaded = 0; loaded < preload; loaded += BATCH) {
+            insertBatch();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            insert.setBytes(1, toBytes(nextId()));
+            insert.setBytes(2, orderIds[random.nextInt(orderIds.length)]);
+            insert.setBytes(3, orderIds[random.nextInt(orderIds.length)]);
+            insert.setInt(4, 1 + random.nextInt(3));
+            insert.setDouble(5, 1_000_000 + random.nextInt(50_000_000));
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        insert.close();
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    private UUID nextId() {
+        return "V7".equals(idVersion) ? UuidV7.next() : UUID.randomUUID();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,81 @@
+package com.tieuluan.laptopstore.mapper;
+
+import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.bench.BenchmarkBeans;
+import com.tieuluan.laptopstore.bench.BenchmarkData;
+import com.tieuluan.laptopstore.dto.OrderDetails;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.Product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order -> OrderDetails: 1 đơn (trang xác nhận / chi tiết) và lịch sử đơn của 1 user.
+ * Truy vấn "đã đánh giá chưa" dùng stub nên chỉ đo chi phí mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMapperBenchmark {
+
+    private static final int CATALOG_SIZE = 100;
+
+    @Param({"10", "100"})
+    private int orderCount;
+
+    private OrderMapper orderMapper;
+    private User user;
+    private Order order;
+    private List<Order> history;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        orderMapper = BenchmarkBeans.orderMapper(BenchmarkBeans.productMapper());
+
+        List<Product> catalog = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(BenchmarkData.product(random));
+        }
+
+        user = BenchmarkData.user(random);
+        order = BenchmarkData.order(random, user, catalog);
+        history = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            history.add(BenchmarkData.order(random, user, catalog));
+        }
+    }
+
+    @Benchmark
+    public OrderDetails mapToOrderDetails() {
+        return orderMapper.mapToOrderDetails(order, user);
+    }
+
+    @Benchmark
+    public List<OrderDetails> mapToOrderDetailsList() {
+        return orderMapper.mapToOrderDetailsList(history);
+    }
+
+    @Benchmark
+    public List<OrderDetails> mapToOrderDetailsAdminList() {
+        return orderMapper.mapToOrderDetailsAdminList(history);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tieuluan.laptopstore.mapper;
+
+import com.tieuluan.laptopstore.bench.BenchmarkBeans;
+import com.tieuluan.laptopstore.bench.BenchmarkData;
+import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.entities.Product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity -> ProductDto: 1 sản phẩm (trang chi tiết) và 1 trang danh sách.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMapperBenchmark {
+
+    // Kích thước trang mặc định / tối đa của GET /api/products
+    @Param({"50", "200"})
+    private int pageSize;
+
+    private ProductMapper productMapper;
+    private Product product;
+    private List<Product> page;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        productMapper = BenchmarkBeans.productMapper();
+        product = BenchmarkData.product(random);
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(BenchmarkData.product(random));
+        }
+    }
+
+    @Benchmark
+    public ProductDto mapToProductDto() {
+        return productMapper.mapToProductDto(product);
+    }
+
+    @Benchmark
+    public List<ProductDto> mapToProductDtos() {
+        return productMapper.mapToProductDtos(page);
+    }
+}
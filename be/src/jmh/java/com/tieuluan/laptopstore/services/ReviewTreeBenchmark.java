@@ -0,0 +1,63 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.bench.BenchmarkData;
+import com.tieuluan.laptopstore.dto.ReviewResponseDto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dựng cây đánh giá (gốc + trả lời) cho trang chi tiết sản phẩm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReviewTreeBenchmark {
+
+    @Param({"20", "200", "2000"})
+    private int reviewCount;
+
+    // Phần trăm đánh giá là câu trả lời
+    @Param({"40"})
+    private int replyRatio;
+
+    private ReviewServiceImpl reviewService;
+    private List<ReviewResponseDto> source;
+    private List<ReviewResponseDto> reviews;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        // buildReviewTree không dùng repository
+        reviewService = new ReviewServiceImpl(null, null, null);
+        source = BenchmarkData.reviews(new Random(42), reviewCount, replyRatio);
+    }
+
+    // buildReviewTree sửa replies của chính các DTO nên mỗi lần gọi cần bản mới.
+    // Mỗi lần gọi tốn hàng chục micro giây trở lên nên chi phí của Level.Invocation không đáng kể.
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        reviews = BenchmarkData.copyOf(source);
+    }
+
+    @Benchmark
+    public List<ReviewResponseDto> buildReviewTree() {
+        return reviewService.buildReviewTree(reviews);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.bench.BenchmarkData;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.Product;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ký URL thanh toán VNPay và kiểm tra chữ ký ở callback (HMAC-SHA512).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VnPayBenchmark {
+
+    private VnPayService vnPayService;
+    private Order order;
+    private Map<String, String> callbackParams;
+
+    @Setup
+    public void setUp() throws Exception {
+        vnPayService = new VnPayService();
+        ReflectionTestUtils.setField(vnPayService, "vnp_TmnCode", "BENCH001");
+        ReflectionTestUtils.setField(vnPayService, "vnp_HashSecret", "BENCHMARKSECRETKEY0123456789ABCDEF");
+        ReflectionTestUtils.setField(vnPayService, "vnp_PayUrl", "https://sandbox.vnpayment.vn/paymentv2/vpcpay.html");
+        ReflectionTestUtils.setField(vnPayService, "vnp_ReturnUrl", "http://localhost:5173/payment/vnpay-return");
+        ReflectionTestUtils.setField(vnPayService, "vnp_Version", "2.1.0");
+        ReflectionTestUtils.setField(vnPayService, "vnp_Command", "pay");
+
+        Random random = new Random(42);
+        List<Product> catalog = List.of(BenchmarkData.product(random), BenchmarkData.product(random));
+        order = BenchmarkData.order(random, BenchmarkData.user(random), catalog);
+
+        // Tham số callback = tham số của chính URL đã ký (VNPay trả lại nguyên các trường vnp_*)
+        String url = vnPayService.buildPaymentUrl(order, "NCB");
+        callbackParams = new HashMap<>();
+        for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            callbackParams.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.US_ASCII),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.US_ASCII));
+        }
+        if (!vnPayService.validateSignature(callbackParams)) {
+            throw new IllegalStateException("Dữ liệu benchmark sai: chữ ký không hợp lệ");
+        }
+    }
+
+    @Benchmark
+    public String createPaymentUrl() throws Exception {
+        return vnPayService.buildPaymentUrl(order, "NCB");
+    }
+
+    @Benchmark
+    public boolean validateSignature() throws Exception {
+        return vnPayService.validateSignature(callbackParams);
+    }
+}
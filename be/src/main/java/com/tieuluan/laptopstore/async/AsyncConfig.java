@@ -0,0 +1,127 @@
+package com.tieuluan.laptopstore.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pool thread cho việc chạy nền, mỗi {@link Workload} 1 bean tên riêng (dùng với
+ * {@code @Async("mailExecutor")} hoặc inject theo {@code @Qualifier}).
+ * <p>
+ * Mặc định là ThreadPoolTaskExecutor có giới hạn thread + hàng đợi: đầy thì từ chối
+ * (TaskRejectedException) thay vì tạo thread mới vô hạn; số lần từ chối đếm ở metric
+ * {@code executor.rejected}. Số liệu hàng đợi / thread đang chạy do actuator tự gắn cho các bean
+ * ThreadPoolTaskExecutor ({@code executor.queued}, {@code executor.active}...).
+ * <p>
+ * {@code app.async.virtual-threads=true} (cần chạy trên JDK 21+): mỗi việc 1 virtual thread,
+ * số việc chạy đồng thời giới hạn bằng max-size, quá thì nơi gửi chờ thay vì xếp hàng.
+ * <p>
+ * Khi tắt ứng dụng, pool ngừng nhận việc mới và chờ việc đang chạy xong tối đa
+ * {@code app.async.await-termination-seconds}.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+    public static final String IMAGE_UPLOAD_EXECUTOR = "imageUploadExecutor";
+    public static final String ANALYTICS_EXECUTOR = "analyticsExecutor";
+    public static final String SSE_EXECUTOR = "sseExecutor";
+
+    @Autowired private Environment environment;
+    @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.async.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.async.await-termination-seconds:30}")
+    private int awaitTerminationSeconds;
+
+    @Bean(MAIL_EXECUTOR)
+    public AsyncTaskExecutor mailExecutor() {
+        return build(Workload.MAIL);
+    }
+
+    @Bean(IMAGE_UPLOAD_EXECUTOR)
+    public AsyncTaskExecutor imageUploadExecutor() {
+        return build(Workload.IMAGE_UPLOAD);
+    }
+
+    @Bean(ANALYTICS_EXECUTOR)
+    public AsyncTaskExecutor analyticsExecutor() {
+        return build(Workload.ANALYTICS);
+    }
+
+    @Bean(SSE_EXECUTOR)
+    public AsyncTaskExecutor sseExecutor() {
+        return build(Workload.SSE);
+    }
+
+    // @Async không ghi tên pool thì chạy trên pool analytics
+    @Override
+    public Executor getAsyncExecutor() {
+        return analyticsExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("Lỗi trong tác vụ @Async {}", method.getName(), ex);
+    }
+
+    private AsyncTaskExecutor build(Workload workload) {
+        String prefix = "app.async." + workload.getKey() + ".";
+        int coreSize = environment.getProperty(prefix + "core-size", Integer.class, workload.getDefaultCoreSize());
+        int maxSize = environment.getProperty(prefix + "max-size", Integer.class, workload.getDefaultMaxSize());
+        int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, workload.getDefaultQueueCapacity());
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(workload.getKey() + "-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxSize);
+            executor.setTaskTerminationTimeout(awaitTerminationSeconds * 1000L);
+            return executor;
+        }
+
+        Counter rejected = rejectedCounter(workload);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(workload.getKey() + "-");
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(Math.max(coreSize, maxSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            if (rejected != null) rejected.increment();
+            throw new RejectedExecutionException("Pool " + workload.getKey() + " đã đầy ("
+                    + pool.getActiveCount() + " đang chạy, " + pool.getQueue().size() + " đang chờ)");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+        return executor;
+    }
+
+    private Counter rejectedCounter(Workload workload) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) return null;
+        return Counter.builder("executor.rejected")
+                .description("Số tác vụ bị từ chối vì pool đã đầy")
+                .tag("name", workload.getBeanName())
+                .register(registry);
+    }
+}
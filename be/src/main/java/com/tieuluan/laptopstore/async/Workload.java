@@ -0,0 +1,37 @@
+package com.tieuluan.laptopstore.async;
+
+/**
+ * Các nhóm việc chạy nền, mỗi nhóm 1 pool riêng để việc chậm (SMTP, Cloudinary) không chiếm
+ * thread của việc khác. Kích thước mặc định ghi đè được bằng {@code app.async.<key>.*}.
+ */
+public enum Workload {
+
+    // Gửi email (consumer EMAIL của outbox)
+    MAIL("mail", AsyncConfig.MAIL_EXECUTOR, 2, 4, 200),
+    // Upload ảnh lên Cloudinary; request chờ kết quả nên hàng đợi ngắn
+    IMAGE_UPLOAD("image-upload", AsyncConfig.IMAGE_UPLOAD_EXECUTOR, 2, 4, 20),
+    // Bảng tổng hợp, snapshot dashboard
+    ANALYTICS("analytics", AsyncConfig.ANALYTICS_EXECUTOR, 2, 4, 500),
+    // Đẩy SSE cho dashboard; 1 thread để client nhận sự kiện đúng thứ tự
+    SSE("sse", AsyncConfig.SSE_EXECUTOR, 1, 1, 1000);
+
+    private final String key;
+    private final String beanName;
+    private final int defaultCoreSize;
+    private final int defaultMaxSize;
+    private final int defaultQueueCapacity;
+
+    Workload(String key, String beanName, int defaultCoreSize, int defaultMaxSize, int defaultQueueCapacity) {
+        this.key = key;
+        this.beanName = beanName;
+        this.defaultCoreSize = defaultCoreSize;
+        this.defaultMaxSize = defaultMaxSize;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+    }
+
+    public String getKey() { return key; }
+    public String getBeanName() { return beanName; }
+    public int getDefaultCoreSize() { return defaultCoreSize; }
+    public int getDefaultMaxSize() { return defaultMaxSize; }
+    public int getDefaultQueueCapacity() { return defaultQueueCapacity; }
+}
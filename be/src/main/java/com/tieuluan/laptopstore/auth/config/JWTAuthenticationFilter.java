@@ -1,5 +1,8 @@
 package com.tieuluan.laptopstore.auth.config;
 
+import com.tieuluan.laptopstore.auth.services.TokenRevocationService;
+
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,12 +21,18 @@ import java.io.IOException;
 @Component
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String ACCOUNT_LOCKED_MESSAGE = "Tài khoản đã bị khóa. Vui lòng liên hệ Admin.";
+    private static final String TOKEN_REVOKED_MESSAGE = "Phiên đăng nhập đã hết hiệu lực. Vui lòng đăng nhập lại.";
+
     private final UserDetailsService userDetailsService;
     private final JWTTokenHelper jwtTokenHelper;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JWTAuthenticationFilter(JWTTokenHelper jwtTokenHelper, UserDetailsService userDetailsService) {
+    public JWTAuthenticationFilter(JWTTokenHelper jwtTokenHelper, UserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtTokenHelper = jwtTokenHelper;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -37,31 +46,16 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             try {
                 String authToken = jwtTokenHelper.getToken(request);
-                System.out.println("auth: " + authToken);
-                
-                String userName = jwtTokenHelper.getUserNameFromToken(authToken);
+
+                // Verify chữ ký 1 lần (hoặc lấy từ cache), dùng lại claims cho cả bước validate
+                Claims claims = jwtTokenHelper.getAllClaimsFromToken(authToken);
+                String userName = claims != null ? claims.getSubject() : null;
 
                 if (userName != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(userName);
-
-                    if (!userDetails.isEnabled()) {
-                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                        response.setContentType("application/json");
-                        response.setCharacterEncoding("UTF-8");
-                        response.getWriter().write("{\"message\": \"Tài khoản đã bị khóa. Vui lòng liên hệ Admin.\"}");
-                        return;
-                    }
-
-                    if (jwtTokenHelper.validateToken(authToken, userDetails)) {
-                        UsernamePasswordAuthenticationToken authenticationToken =
-                                new UsernamePasswordAuthenticationToken(
-                                        userDetails,
-                                        null,
-                                        userDetails.getAuthorities()
-                                );
-                        authenticationToken.setDetails(new WebAuthenticationDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                    }
+                    boolean authenticated = jwtTokenHelper.hasEmbeddedAuthorities(claims)
+                            ? authenticateFromClaims(claims, request, response)
+                            : authenticateFromDatabase(claims, userName, request, response);
+                    if (!authenticated) return;
                 }
             } catch (Exception e) {
                 throw new RuntimeException("JWT Authentication failed", e);
@@ -70,4 +64,62 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Token mới: quyền + trạng thái lấy từ claims, chỉ hỏi Redis xem token có bị thu hồi không
+    private boolean authenticateFromClaims(Claims claims, HttpServletRequest request,
+                                           HttpServletResponse response) throws IOException {
+        TokenRevocationService.Status status = tokenRevocationService.check(claims.getSubject(), claims.getIssuedAt());
+
+        if (!jwtTokenHelper.isEnabled(claims) || status == TokenRevocationService.Status.DISABLED) {
+            writeUnauthorized(response, ACCOUNT_LOCKED_MESSAGE);
+            return false;
+        }
+        if (status == TokenRevocationService.Status.REVOKED) {
+            writeUnauthorized(response, TOKEN_REVOKED_MESSAGE);
+            return false;
+        }
+
+        if (jwtTokenHelper.validateToken(claims)) {
+            // Principal là email: controller/service chỉ dùng principal.getName()
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(
+                            claims.getSubject(),
+                            null,
+                            jwtTokenHelper.getAuthorities(claims)
+                    );
+            authenticationToken.setDetails(new WebAuthenticationDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        }
+        return true;
+    }
+
+    // Token phát hành trước khi có claim quyền: đọc user từ DB như cũ cho tới khi token hết hạn
+    private boolean authenticateFromDatabase(Claims claims, String userName, HttpServletRequest request,
+                                             HttpServletResponse response) throws IOException {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(userName);
+
+        if (!userDetails.isEnabled()) {
+            writeUnauthorized(response, ACCOUNT_LOCKED_MESSAGE);
+            return false;
+        }
+
+        if (jwtTokenHelper.validateToken(claims, userDetails)) {
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities()
+                    );
+            authenticationToken.setDetails(new WebAuthenticationDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        }
+        return true;
+    }
+
+    private void writeUnauthorized(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\": \"" + message + "\"}");
+    }
 }
@@ -1,24 +1,43 @@
 package com.tieuluan.laptopstore.auth.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
 import com.tieuluan.laptopstore.auth.entities.User;
 
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.crypto.SecretKey;
 
 // Đánh dấu đây là một Spring Bean, có thể inject vào chỗ khác
 @Component
 public class JWTTokenHelper {
 
+    // Quyền + trạng thái tài khoản nhúng trong token để filter không phải đọc user từ DB
+    public static final String CLAIM_AUTHORITIES = "authorities";
+    public static final String CLAIM_ENABLED = "enabled";
+
     // Đọc tên ứng dụng từ file application.properties (jwt.auth.app)
     @Value("${jwt.auth.app}")
     private String appName;
@@ -31,25 +50,61 @@ public class JWTTokenHelper {
     @Value("${jwt.auth.expires_in}")
     private int expiresIn;
 
+    // Số token đã xác thực giữ trong cache (mỗi entry vài trăm byte)
+    @Value("${jwt.auth.claims-cache-size:50000}")
+    private long claimsCacheSize = 50_000;
+
+    // Khóa HMAC và parser dựng 1 lần khi khởi động, dùng lại cho mọi request (thread-safe)
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // SHA-256(token) -> claims đã verify; entry tự hết hạn đúng lúc token hết hạn (exp)
+    private Cache<String, Claims> claimsCache;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return nanosUntilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return nanosUntilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     // Hàm tạo token mới dựa trên username
     public String generateToken(User user) {
+        return generateToken(UserSnapshot.of(user));
+    }
+
+    public String generateToken(UserSnapshot user) {
         return Jwts.builder()
                 .issuer(appName)
                 .subject(user.getEmail())
                 .claim("id", user.getId().toString())
                 .claim("username", user.getFirstName()+ " " + user.getLastName())
+                .claim(CLAIM_AUTHORITIES, user.getRoleCodes())
+                .claim(CLAIM_ENABLED, user.isEnabled())
                 .issuedAt(new Date())
                 .expiration(generateExpirationDate())
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // Tạo khóa ký từ secret key (base64 → byte[] → HMAC-SHA)
-    private Key getSigningKey() {
-        byte[] keysBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keysBytes);
-    }
-
     // Sinh thời điểm hết hạn cho token
     private Date generateExpirationDate() {
         return new Date(new Date().getTime() + expiresIn);
@@ -67,30 +122,44 @@ public class JWTTokenHelper {
 
     // Kiểm tra token có hợp lệ với user không
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUserNameFromToken(token);
+        return validateToken(getAllClaimsFromToken(token), userDetails);
+    }
+
+    // Như trên nhưng dùng claims đã parse sẵn (filter chỉ parse token 1 lần)
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
         return (
-                username != null &&
-                username.equals(userDetails.getUsername()) && // token đúng user
-                !isTokenExpired(token)                        // token chưa hết hạn
+                claims != null &&
+                claims.getSubject() != null &&
+                claims.getSubject().equals(userDetails.getUsername()) && // token đúng user
+                !isTokenExpired(claims)                                   // token chưa hết hạn
         );
     }
 
-    // Kiểm tra token hết hạn chưa
-    private boolean isTokenExpired(String token) {
-        Date expireDate = getExpirationDate(token);
-        return expireDate.before(new Date()); // nếu expireDate < hiện tại → hết hạn
+    // Token phát hành trước khi có claim quyền thì filter phải đọc user từ DB như cũ
+    public boolean hasEmbeddedAuthorities(Claims claims) {
+        return claims.get(CLAIM_AUTHORITIES) instanceof Collection<?>;
     }
 
-    // Lấy thời gian hết hạn từ token
-    private Date getExpirationDate(String token) {
-        Date expireDate;
-        try {
-            final Claims claims = this.getAllClaimsFromToken(token);
-            expireDate = claims.getExpiration();
-        } catch (Exception e) {
-            expireDate = null;
-        }
-        return expireDate;
+    // Token hợp lệ (chưa hết hạn) khi không cần so với UserDetails từ DB
+    public boolean validateToken(Claims claims) {
+        return claims != null && claims.getSubject() != null && !isTokenExpired(claims);
+    }
+
+    public boolean isEnabled(Claims claims) {
+        return !Boolean.FALSE.equals(claims.get(CLAIM_ENABLED, Boolean.class));
+    }
+
+    public List<GrantedAuthority> getAuthorities(Claims claims) {
+        Collection<?> codes = (Collection<?>) claims.get(CLAIM_AUTHORITIES);
+        return codes.stream()
+                .map(code -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(code)))
+                .collect(Collectors.toList());
+    }
+
+    // Kiểm tra token hết hạn chưa (entry trong cache có thể sống thêm vài ms sau exp)
+    private boolean isTokenExpired(Claims claims) {
+        Date expireDate = claims.getExpiration();
+        return expireDate == null || expireDate.before(new Date()); // nếu expireDate < hiện tại → hết hạn
     }
 
     // Lấy Authorization header từ request
@@ -100,29 +169,50 @@ public class JWTTokenHelper {
 
     // Lấy username từ token (subject)
     public String getUserNameFromToken(String authToken) {
-        String username;
+        Claims claims = getAllClaimsFromToken(authToken);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    /**
+     * Claims của token đã verify chữ ký, null nếu token sai / hết hạn.
+     * Token đã gặp thì lấy từ cache, không verify lại.
+     */
+    public Claims getAllClaimsFromToken(String token) {
+        if (token == null || token.isBlank()) return null;
+
+        String key = hash(token);
+        Claims claims = claimsCache.getIfPresent(key);
+        if (claims != null) return claims;
+
+        claims = parseAndVerify(token);
+        // Token lỗi không cache: tránh bị lấp đầy cache bằng token rác
+        if (claims != null && claims.getExpiration() != null) {
+            claimsCache.put(key, claims);
+        }
+        return claims;
+    }
+
+    // Parse + verify chữ ký (không qua cache)
+    Claims parseAndVerify(String token) {
         try {
-            final Claims claims = this.getAllClaimsFromToken(authToken);
-            username = claims.getSubject();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (Exception e) {
-            username = null;
+            return null;
         }
-        return username;
     }
 
-    // Parse toàn bộ claims (payload) từ token
-    private Claims getAllClaimsFromToken(String token){
-        Claims claims;
+    private static long nanosUntilExpiration(Claims claims) {
+        long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+        return Math.max(0, millis) * 1_000_000L;
+    }
+
+    // Khóa cache là SHA-256 của token, không giữ nguyên chuỗi token trong bộ nhớ
+    private static String hash(String token) {
         try {
-            claims = Jwts.parser()                 // tạo parser
-                    .setSigningKey(getSigningKey())// set secret key
-                    .build()                       // build parser
-                    .parseClaimsJws(token)         // parse token
-                    .getBody();                    // lấy phần payload (claims)
-        }
-        catch (Exception e){
-            claims = null;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return claims;
     }
 }
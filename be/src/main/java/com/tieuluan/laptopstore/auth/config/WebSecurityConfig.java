@@ -2,6 +2,8 @@ package com.tieuluan.laptopstore.auth.config;
 
 import com.tieuluan.laptopstore.auth.exceptions.RESTAuthenticationEntryPoint;
 
+import jakarta.servlet.DispatcherType;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,6 +44,9 @@ public class WebSecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests((authorize) -> authorize
                 
+                // Dispatch nội bộ của SSE / streaming (request gốc đã được kiểm tra quyền, filter JWT không chạy lại)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                 // ================== 1. PUBLIC (KHÔNG CẦN LOGIN) ==================
                 .requestMatchers(
                     "/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**", "/api/auth/**"
@@ -63,8 +68,8 @@ public class WebSecurityConfig {
                 .requestMatchers("/api/wishlist/**").authenticated()
                 
                 // --- Order (Phần dành cho người mua) ---
-                .requestMatchers(HttpMethod.POST, "/api/order").authenticated()     
-                .requestMatchers(HttpMethod.GET, "/api/order/user").authenticated()   
+                .requestMatchers(HttpMethod.POST, "/api/order", "/api/order/quote").authenticated()     
+                .requestMatchers(HttpMethod.GET, "/api/order/user", "/api/order/user/history").authenticated()
                 .requestMatchers(HttpMethod.POST, "/api/order/cancel/**").authenticated() 
                 .requestMatchers(HttpMethod.GET, "/api/order/search").authenticated()
 
@@ -78,7 +83,9 @@ public class WebSecurityConfig {
                 // ================== 3. ADMIN ONLY (QUẢN TRỊ) ==================
                 
                 // --- Dashboard & Analytics & Roles ---
-                .requestMatchers("/api/analytics/**", "/api/dashboard/**", "/api/roles/**").hasAuthority("ADMIN")
+                .requestMatchers("/api/analytics/**", "/api/dashboard/**", "/api/inventory/**", "/api/roles/**").hasAuthority("ADMIN")
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasAuthority("ADMIN")
 
                 // --- Quản lý User (Trừ profile cá nhân đã cấu hình ở trên) ---
                 .requestMatchers(HttpMethod.GET, "/api/user").hasAuthority("ADMIN")
@@ -127,6 +134,8 @@ public class WebSecurityConfig {
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         config.setAllowedHeaders(List.of("*"));
         config.setAllowCredentials(true);
+        // Cho FE đọc được thông tin phân trang trong header
+        config.setExposedHeaders(List.of("Content-Range", "X-Total-Count", "X-Next-Cursor"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -10,9 +10,11 @@ import com.tieuluan.laptopstore.auth.dto.ForgotPassword.ForgotPasswordRequest;
 import com.tieuluan.laptopstore.auth.dto.ForgotPassword.ResendOtp;
 import com.tieuluan.laptopstore.auth.dto.ForgotPassword.ResetPasswordRequest;
 import com.tieuluan.laptopstore.auth.dto.ForgotPassword.VerifyOtpForgotPassword;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
 import com.tieuluan.laptopstore.auth.dto.User.UserToken;
 import com.tieuluan.laptopstore.auth.entities.User;
 import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
+import com.tieuluan.laptopstore.auth.services.CustomUserDetailService;
 import com.tieuluan.laptopstore.auth.services.OtpService;
 import com.tieuluan.laptopstore.auth.services.RegistrationService;
 
@@ -59,6 +61,9 @@ public class AuthController {
     @Autowired
     UserDetailsService userDetailsService;
 
+    @Autowired
+    CustomUserDetailService customUserDetailService;
+
     @Autowired
     JWTTokenHelper jwtTokenHelper;
 
@@ -88,7 +93,7 @@ public class AuthController {
             Authentication authenticationResponse = this.authenticationManager.authenticate(authentication);
 
             if(authenticationResponse.isAuthenticated()){
-                User user = (User) authenticationResponse.getPrincipal();
+                UserSnapshot user = (UserSnapshot) authenticationResponse.getPrincipal();
 
                 String token = jwtTokenHelper.generateToken(user);
 
@@ -192,6 +197,7 @@ public class AuthController {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        customUserDetailService.evict(email);
 
         return ResponseEntity.ok("Đổi mật khẩu thành công!");
     }
@@ -240,6 +246,7 @@ public class AuthController {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        customUserDetailService.evict(email);
 
         return ResponseEntity.ok("Đổi mật khẩu thành công!");
     }
@@ -257,6 +264,7 @@ public class AuthController {
         String randomPassword = generateRandomPassword(10);
         user.setPassword(passwordEncoder.encode(randomPassword));
         userRepository.save(user);
+        customUserDetailService.evict(email);
 
         // 2. Gọi Service để gửi mail (Code HTML đã được ẩn đi trong Service)
         try {
@@ -1,14 +1,17 @@
 package com.tieuluan.laptopstore.auth.controller;
 
 import com.tieuluan.laptopstore.auth.dto.User.UserDetailsDto;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
 import com.tieuluan.laptopstore.auth.entities.Authority;
 import com.tieuluan.laptopstore.auth.entities.User;
 import com.tieuluan.laptopstore.auth.mapper.UserDetailsMapper;
 import com.tieuluan.laptopstore.auth.repositories.AuthorityRepository;
 import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 import com.tieuluan.laptopstore.auth.services.CloudinaryService;
+import com.tieuluan.laptopstore.auth.services.CustomUserDetailService;
 import com.tieuluan.laptopstore.auth.services.EmailService;
 import com.tieuluan.laptopstore.auth.services.OtpService;
+import com.tieuluan.laptopstore.auth.services.TokenRevocationService;
 
 import org.springframework.http.MediaType;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,13 +20,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -38,7 +41,7 @@ import java.util.UUID;
 @RequestMapping("/api/user")
 public class UserDetailController {
 
-    @Autowired private UserDetailsService userDetailsService;
+    @Autowired private CustomUserDetailService customUserDetailService;
     @Autowired private UserDetailRepository userDetailRepository;
     @Autowired private CloudinaryService cloudinaryService;
     @Autowired private UserDetailsMapper userDetailsMapper;
@@ -46,12 +49,14 @@ public class UserDetailController {
     @Autowired private OtpService otpService; 
     @Autowired private EmailService emailService;
     @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private TokenRevocationService tokenRevocationService;
 
     // ================== 1. API PROFILE==================
     @GetMapping("/profile")
     public ResponseEntity<UserDetailsDto> getUserProfile(Principal principal) {
         if (principal == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
+        // Cần địa chỉ + quyền đầy đủ nên đọc entity, không dùng snapshot trong cache
+        User user = userDetailRepository.findByEmail(principal.getName());
         if (user == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
 
         List<Authority> authorities = user.getAuthorities().stream()
@@ -83,8 +88,9 @@ public class UserDetailController {
             @RequestPart(value = "avatar", required = false) MultipartFile avatarFile,
             Principal principal
     ) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
+        User user = userDetailRepository.findByEmail(principal.getName());
         if (user == null) return new ResponseEntity<>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        String oldEmail = user.getEmail();
 
         // Logic update giống cũ
         if (firstName != null) user.setFirstName(firstName);
@@ -107,6 +113,11 @@ public class UserDetailController {
         user.setUpdatedOn(new Date());
         userDetailRepository.save(user);
 
+        customUserDetailService.evict(oldEmail, user.getEmail());
+        if (!oldEmail.equals(user.getEmail())) {
+            tokenRevocationService.revokeIssuedBefore(oldEmail, Instant.now());
+        }
+
         UserDetailsDto updatedDto = UserDetailsDto.builder()
                 .id(user.getId())
                 .firstName(user.getFirstName())
@@ -121,7 +132,7 @@ public class UserDetailController {
 
     @PostMapping("/request-change-email")
     public ResponseEntity<?> requestChangeEmail(@RequestBody Map<String, String> payload, Principal principal) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
+        UserSnapshot user = customUserDetailService.loadUserByUsername(principal.getName());
         
         String currentEmail = user.getEmail();
         String newEmail = payload.get("newEmail");
@@ -157,7 +168,8 @@ public class UserDetailController {
 
     @PostMapping("/verify-change-email")
     public ResponseEntity<?> verifyChangeEmail(@RequestBody Map<String, String> payload, Principal principal) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
+        User user = userDetailRepository.findByEmail(principal.getName());
+        if (user == null) return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         
         String currentEmail = user.getEmail();
         String otpInput = payload.get("otp");
@@ -180,6 +192,10 @@ public class UserDetailController {
         user.setUpdatedOn(new Date());
         userDetailRepository.save(user);
 
+        // Token cũ mang email cũ: bắt đăng nhập lại
+        tokenRevocationService.revokeIssuedBefore(currentEmail, Instant.now());
+        customUserDetailService.evict(currentEmail, pendingNewEmail);
+
         // 4. Xóa Redis
         otpService.deleteEmailChangeRequest(currentEmail);
 
@@ -254,11 +270,19 @@ public class UserDetailController {
         user.setEnabled(false);
         user.setUpdatedOn(new Date());
         userDetailRepository.save(user);
+        // Token không còn tra DB nên phải chặn qua Redis thì khóa mới có hiệu lực ngay
+        tokenRevocationService.disable(user.getEmail());
+        customUserDetailService.evict(user.getEmail());
         return ResponseEntity.ok(Map.of("message", "User disabled successfully"));
     }
 
     // Helper method
     private void updateUserInfo(User user, UserDetailsDto dto) {
+        // Trạng thái trước khi sửa, để biết token đang phát hành có còn đúng không
+        String oldEmail = user.getEmail();
+        boolean wasEnabled = user.isEnabled();
+        List<String> oldRoles = roleCodes(user);
+
         // 1. Cập nhật thông tin cơ bản
         if (dto.getFirstName() != null) user.setFirstName(dto.getFirstName());
         if (dto.getLastName() != null) user.setLastName(dto.getLastName());
@@ -290,5 +314,31 @@ public class UserDetailController {
 
         user.setUpdatedOn(new Date());
         userDetailRepository.save(user);
+
+        syncTokenRevocation(user, oldEmail, wasEnabled, oldRoles);
+        customUserDetailService.evict(oldEmail, user.getEmail());
+    }
+
+    // Quyền / trạng thái / email nằm trong JWT nên mọi thay đổi phải phản ánh sang Redis
+    private void syncTokenRevocation(User user, String oldEmail, boolean wasEnabled, List<String> oldRoles) {
+        if (!user.isEnabled()) {
+            tokenRevocationService.disable(oldEmail);
+            if (!oldEmail.equals(user.getEmail())) tokenRevocationService.disable(user.getEmail());
+            return;
+        }
+        if (!wasEnabled) {
+            tokenRevocationService.enable(oldEmail);
+        }
+        if (!oldEmail.equals(user.getEmail()) || !oldRoles.equals(roleCodes(user))) {
+            tokenRevocationService.revokeIssuedBefore(oldEmail, Instant.now());
+        }
+    }
+
+    private List<String> roleCodes(User user) {
+        if (user.getAuthorities() == null) return List.of();
+        return user.getAuthorities().stream()
+                .map(auth -> auth.getAuthority())
+                .sorted()
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.tieuluan.laptopstore.auth.dto.User;
+
+import com.tieuluan.laptopstore.auth.entities.User;
+
+import lombok.ToString;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Bản chụp bất biến của user dùng cho Spring Security.
+ * <p>
+ * Không giữ entity (và các quan hệ lazy như addressList, userDiscounts) nên an toàn khi
+ * dùng chung giữa các request/thread trong cache. Cần dữ liệu đầy đủ thì đọc lại
+ * entity theo {@link #getId()}.
+ */
+@Value
+public class UserSnapshot implements UserDetails {
+
+    UUID id;
+    String email;
+    @ToString.Exclude
+    String password;
+    String firstName;
+    String lastName;
+    boolean enabled;
+    List<String> roleCodes;
+    List<GrantedAuthority> authorities;
+
+    public static UserSnapshot of(User user) {
+        List<String> roleCodes = user.getAuthorities() == null ? List.of()
+                : user.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .collect(Collectors.toUnmodifiableList());
+        List<GrantedAuthority> authorities = roleCodes.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
+        return new UserSnapshot(user.getId(), user.getEmail(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.isEnabled(), roleCodes, authorities);
+    }
+
+    public boolean hasRole(String roleCode) {
+        return roleCodes.contains(roleCode);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
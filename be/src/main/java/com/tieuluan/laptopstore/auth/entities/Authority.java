@@ -1,12 +1,13 @@
 package com.tieuluan.laptopstore.auth.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import java.util.UUID;
 
 import org.springframework.security.core.GrantedAuthority;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
@@ -24,7 +25,7 @@ import lombok.NoArgsConstructor;
 public class Authority implements GrantedAuthority {
 
     @Id                                      // Khóa chính của bảng
-    @GeneratedValue                          // Hibernate tự sinh giá trị (với UUID, Hibernate 6 có thể tự tạo)
+    @UuidV7Id                                // UUID v7 tăng dần theo thời gian (xem UuidV7)
     private UUID id;                          // Dùng UUID cho định danh (không đoán được, an toàn hơn)
 
     @Column(nullable = false)                 // Cột không được null
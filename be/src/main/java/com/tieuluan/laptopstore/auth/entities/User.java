@@ -11,12 +11,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.tieuluan.laptopstore.entities.Address;
+import com.tieuluan.laptopstore.id.UuidV7Id;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
@@ -41,7 +41,7 @@ import lombok.ToString;
 public class User implements UserDetails {                     // Implement UserDetails để dùng cho Spring Security
 
     @Id                                                        // Khóa chính
-    @GeneratedValue                                            // Hibernate tự sinh UUID (Hibernate 6)
+    @UuidV7Id                                                  // UUID v7 tăng dần theo thời gian
     private UUID id;                                           // Định danh người dùng
 
     private String avatarUrl;                                  // URL ảnh đại diện
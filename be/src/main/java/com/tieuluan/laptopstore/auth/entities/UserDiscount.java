@@ -5,10 +5,10 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.tieuluan.laptopstore.entities.Discount;
+import com.tieuluan.laptopstore.id.UuidV7Id;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -27,7 +27,7 @@ import lombok.NoArgsConstructor;
 public class UserDiscount {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
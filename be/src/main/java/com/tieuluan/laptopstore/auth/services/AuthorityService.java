@@ -11,8 +11,10 @@ import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 import com.tieuluan.laptopstore.services.UserRewardService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -31,6 +33,15 @@ public class AuthorityService {
 
     @Autowired
     private UserRewardService userRewardService;
+
+    @Autowired
+    private CustomUserDetailService customUserDetailService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
     
     public UserToken loginWithGoogle(String idToken) throws Exception {
         // 1️⃣ Xác thực token Firebase
@@ -70,6 +81,7 @@ public class AuthorityService {
 
             user.setAuthorities(getUserAuthority());
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserRegisteredEvent(email));
             userRewardService.giveWelcomeDiscount(user);
         }
 
@@ -120,11 +132,17 @@ public class AuthorityService {
         existing.setRoleCode(roleCode);
         existing.setRoleDescription(roleDescription);
         // Lưu lại vào DB
-        return authorityRepository.save(existing);
+        Authority saved = authorityRepository.save(existing);
+        // Mã quyền nằm trong snapshot của mọi user đang giữ quyền này và trong claim của JWT
+        customUserDetailService.evictAll();
+        tokenRevocationService.revokeAllIssuedBefore(Instant.now());
+        return saved;
     }
     
     public void deleteAuthority(UUID id) {
         authorityRepository.deleteById(id);
+        customUserDetailService.evictAll();
+        tokenRevocationService.revokeAllIssuedBefore(Instant.now());
     }
 
 }
@@ -2,13 +2,22 @@ package com.tieuluan.laptopstore.auth.services;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.tieuluan.laptopstore.async.AsyncConfig;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class CloudinaryService {
@@ -20,6 +29,13 @@ public class CloudinaryService {
     @Value("${FOLDER}")
     private String folder;
 
+    @Value("${app.async.image-upload.timeout-seconds:30}")
+    private long uploadTimeoutSeconds;
+
+    @Autowired
+    @Qualifier(AsyncConfig.IMAGE_UPLOAD_EXECUTOR)
+    private AsyncTaskExecutor imageUploadExecutor;
+
     // Constructor khởi tạo Cloudinary với thông tin từ cấu hình
     public CloudinaryService(
         @Value("${CLOUD_NAME}") String cloudName,
@@ -34,19 +50,44 @@ public class CloudinaryService {
     }
 
     public String uploadFile(MultipartFile file) throws IOException {
+        // Đọc file ngay trong request (file tạm của multipart bị xóa khi request kết thúc)
+        byte[] bytes = file.getBytes();
         // Upload lên Cloudinary và chỉ định folder
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(),
-                ObjectUtils.asMap("folder", folder));
-        // Trả về link ảnh an toàn (https)
-        return (String) uploadResult.get("secure_url");
+        return upload(bytes);
     }
 
     public String uploadFileFromUrl(String imageUrl) throws IOException {
         // Upload trực tiếp từ link URL
-        Map uploadResult = cloudinary.uploader().upload(imageUrl, 
-                ObjectUtils.asMap("folder", folder));
-        // Trả về link ảnh an toàn (https)
-        return (String) uploadResult.get("secure_url");
+        return upload(imageUrl);
+    }
+
+    // Chạy trên pool image-upload: giới hạn số upload đồng thời tới Cloudinary,
+    // request vẫn chờ lấy link nhưng không quá uploadTimeoutSeconds
+    private String upload(Object source) throws IOException {
+        Future<Map> future;
+        try {
+            future = imageUploadExecutor.submit(() -> cloudinary.uploader().upload(source,
+                    ObjectUtils.asMap("folder", folder)));
+        } catch (TaskRejectedException e) {
+            throw new IOException("Hệ thống đang bận, vui lòng thử lại sau");
+        }
+
+        try {
+            Map uploadResult = future.get(uploadTimeoutSeconds, TimeUnit.SECONDS);
+            // Trả về link ảnh an toàn (https)
+            return (String) uploadResult.get("secure_url");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Upload ảnh quá thời gian chờ");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload ảnh bị gián đoạn");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
     }
 
 }
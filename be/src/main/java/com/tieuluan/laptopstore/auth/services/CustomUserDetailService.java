@@ -1,26 +1,155 @@
 package com.tieuluan.laptopstore.auth.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
 import com.tieuluan.laptopstore.auth.entities.User;
 import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Nạp user cho Spring Security, có cache.
+ * <p>
+ * Thứ tự tra: memo trong request hiện tại -> Caffeine (email -> {@link UserSnapshot}) -> DB.
+ * Khi thông tin user đổi, nơi ghi gọi {@link #evict(String...)}: sự kiện {@link UserChangedEvent}
+ * được xử lý sau commit, xóa cache node này và phát lên Redis để các node khác xóa theo.
+ * TTL ngắn là lưới an toàn nếu lỡ mất thông báo pub/sub.
+ */
 @Service
 public class CustomUserDetailService implements UserDetailsService {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomUserDetailService.class);
+
+    public static final String EVICT_CHANNEL = "auth:user-cache:evict";
+
+    // Tên attribute memo trong request; "*" trên kênh Redis = xóa toàn bộ
+    private static final String REQUEST_MEMO_PREFIX = CustomUserDetailService.class.getName() + ".";
+    private static final String EVICT_ALL = "*";
+
     @Autowired
     private UserDetailRepository userDetailRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${auth.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${auth.user-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserSnapshot> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    // =======================================================================
+    //  ĐỌC
+    // =======================================================================
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userDetailRepository.findByEmail(username);
-        if (null == user) {
+    public UserSnapshot loadUserByUsername(String username) throws UsernameNotFoundException {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        String memoKey = REQUEST_MEMO_PREFIX + username;
+        if (request != null) {
+            Object memo = request.getAttribute(memoKey, RequestAttributes.SCOPE_REQUEST);
+            if (memo instanceof UserSnapshot snapshot) return snapshot;
+        }
+
+        UserSnapshot snapshot = cache.get(username, this::loadFromDatabase);
+        if (snapshot == null) {
             throw new UsernameNotFoundException("User Not Found with userName " + username);
         }
-        return user;
+
+        if (request != null) {
+            request.setAttribute(memoKey, snapshot, RequestAttributes.SCOPE_REQUEST);
+        }
+        return snapshot;
+    }
+
+    // Không cache email không tồn tại (Caffeine bỏ qua giá trị null)
+    private UserSnapshot loadFromDatabase(String email) {
+        User user = userDetailRepository.findByEmail(email);
+        return user == null ? null : UserSnapshot.of(user);
+    }
+
+    // =======================================================================
+    //  XÓA CACHE
+    // =======================================================================
+    /** Gọi sau khi đổi dữ liệu user; truyền cả email cũ lẫn mới khi đổi email. */
+    public void evict(String... emails) {
+        eventPublisher.publishEvent(UserChangedEvent.of(emails));
+    }
+
+    /** Xóa cache của mọi user, vd. khi đổi/xóa 1 quyền. */
+    public void evictAll() {
+        eventPublisher.publishEvent(UserChangedEvent.allUsers());
+    }
+
+    // Chạy sau commit (hoặc ngay nếu không có transaction) để không nạp lại dữ liệu cũ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.isAll()) {
+            evictLocal(EVICT_ALL);
+            publish(EVICT_ALL);
+            return;
+        }
+        for (String email : event.getEmails()) {
+            evictLocal(email);
+            publish(email);
+        }
+    }
+
+    private void evictLocal(String email) {
+        if (EVICT_ALL.equals(email)) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(email);
+        }
+        // Request hiện tại (nếu có) cũng phải đọc lại
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && !EVICT_ALL.equals(email)) {
+            request.removeAttribute(REQUEST_MEMO_PREFIX + email, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(EVICT_CHANNEL, message);
+        } catch (Exception e) {
+            // Node khác sẽ tự hết hạn theo TTL
+            log.warn("Không gửi được thông báo xóa cache user lên Redis", e);
+        }
     }
 }
@@ -9,6 +9,7 @@ import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 import com.tieuluan.laptopstore.services.UserRewardService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ServerErrorException;
@@ -22,6 +23,9 @@ public class RegistrationService {
     @Autowired
     private AuthorityService authorityService;
 
+    @Autowired
+    private CustomUserDetailService customUserDetailService;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -37,6 +41,9 @@ public class RegistrationService {
     @Autowired
     private UserRewardService userRewardService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public CodeResponse createUser(RegistrationRequest request) {
         User existing = userDetailRepository.findByEmail(request.getEmail());
 
@@ -113,7 +120,8 @@ public class RegistrationService {
 
             // Lấy user thực từ DB (hoặc tạo mới nếu chưa tồn tại)
             User user = userDetailRepository.findByEmail(email);
-            if (user == null) {
+            boolean isNew = user == null;
+            if (isNew) {
                 user = new User();
                 user.setEmail(redisUser.getEmail());
                 user.setFirstName(redisUser.getFirstName());
@@ -128,6 +136,10 @@ public class RegistrationService {
 
             user.setEnabled(true);
             userDetailRepository.save(user);
+            customUserDetailService.evict(email);
+            if (isNew) {
+                eventPublisher.publishEvent(new UserRegisteredEvent(email));
+            }
             userRewardService.giveWelcomeDiscount(user);
             otpService.deleteOtpAndUser(email);
 
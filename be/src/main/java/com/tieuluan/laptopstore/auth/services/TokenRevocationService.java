@@ -0,0 +1,100 @@
+package com.tieuluan.laptopstore.auth.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Thu hồi JWT trên Redis, thay cho việc đọc lại user từ DB ở mỗi request.
+ * <p>
+ * Mỗi user bị ảnh hưởng có đúng 1 key "AUTH:REVOKED:{email}":
+ * <ul>
+ *   <li>"DISABLED": tài khoản bị khóa, mọi token đều bị từ chối;</li>
+ *   <li>số giây epoch: token phát hành trước thời điểm này bị từ chối
+ *       (đổi quyền / đổi email -> phải đăng nhập lại).</li>
+ * </ul>
+ * Thêm 1 key chung "AUTH:REVOKED_ALL" (số giây epoch) cho thay đổi ảnh hưởng mọi user, vd. sửa /
+ * xóa 1 quyền: mã quyền nằm trong claim của token nên token phát hành trước đó đều bị từ chối.
+ * Key sống bằng thời hạn token nên tập này luôn nhỏ: token cũ hơn thế đã tự hết hạn.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final String KEY_PREFIX = "AUTH:REVOKED:";
+    private static final String GLOBAL_KEY = "AUTH:REVOKED_ALL";
+    private static final String DISABLED = "DISABLED";
+
+    public enum Status { ACTIVE, DISABLED, REVOKED }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration tokenLifetime;
+
+    public TokenRevocationService(StringRedisTemplate stringRedisTemplate,
+                                  @Value("${jwt.auth.expires_in}") long expiresIn) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.tokenLifetime = Duration.ofMillis(expiresIn);
+    }
+
+    // =======================================================================
+    //  GHI (admin khóa/mở khóa, đổi quyền, đổi email)
+    // =======================================================================
+    public void disable(String email) {
+        stringRedisTemplate.opsForValue().set(key(email), DISABLED, tokenLifetime);
+    }
+
+    // Mở khóa: token cũ dùng lại được như trước khi khóa
+    public void enable(String email) {
+        stringRedisTemplate.delete(key(email));
+    }
+
+    /** Từ chối mọi token của user phát hành trước {@code instant}. Không ghi đè trạng thái khóa. */
+    public void revokeIssuedBefore(String email, Instant instant) {
+        String key = key(email);
+        if (DISABLED.equals(stringRedisTemplate.opsForValue().get(key))) return;
+        stringRedisTemplate.opsForValue().set(key, String.valueOf(instant.getEpochSecond()), tokenLifetime);
+    }
+
+    /** Từ chối token của mọi user phát hành trước {@code instant} (đổi / xóa quyền). */
+    public void revokeAllIssuedBefore(Instant instant) {
+        stringRedisTemplate.opsForValue().set(GLOBAL_KEY, String.valueOf(instant.getEpochSecond()), tokenLifetime);
+    }
+
+    // =======================================================================
+    //  KIỂM TRA (mỗi request có token, 1 lệnh MGET: key của user + key chung)
+    // =======================================================================
+    public Status check(String email, Date issuedAt) {
+        List<String> values;
+        try {
+            values = stringRedisTemplate.opsForValue().multiGet(List.of(key(email), GLOBAL_KEY));
+        } catch (Exception e) {
+            // Token vẫn đã được verify chữ ký; Redis lỗi thì không chặn toàn bộ người dùng
+            log.warn("Không đọc được trạng thái thu hồi token từ Redis, tạm chấp nhận token", e);
+            return Status.ACTIVE;
+        }
+        String value = values != null ? values.get(0) : null;
+        String global = values != null ? values.get(1) : null;
+        if (value == null && global == null) return Status.ACTIVE;
+        if (DISABLED.equals(value)) return Status.DISABLED;
+
+        // iat của JWT tính theo giây; lấy mốc muộn hơn giữa key của user và key chung
+        long revokedBefore = Math.max(value != null ? Long.parseLong(value) : 0,
+                global != null ? Long.parseLong(global) : 0);
+        if (issuedAt == null || issuedAt.toInstant().getEpochSecond() < revokedBefore) {
+            return Status.REVOKED;
+        }
+        return Status.ACTIVE;
+    }
+
+    private static String key(String email) {
+        return KEY_PREFIX + email;
+    }
+}
@@ -0,0 +1,26 @@
+package com.tieuluan.laptopstore.auth.services;
+
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Phát ra khi thông tin dùng cho đăng nhập của user thay đổi (profile, email, quyền, khóa/mở khóa).
+ * {@code emails} rỗng + {@code all = true} nghĩa là xóa toàn bộ cache user (vd. đổi định nghĩa quyền).
+ */
+@Value
+public class UserChangedEvent {
+
+    Set<String> emails;
+    boolean all;
+
+    public static UserChangedEvent of(String... emails) {
+        // Email cũ và mới có thể trùng nhau (sửa profile không đổi email)
+        return new UserChangedEvent(Set.copyOf(Arrays.asList(emails)), false);
+    }
+
+    public static UserChangedEvent allUsers() {
+        return new UserChangedEvent(Set.of(), true);
+    }
+}
@@ -0,0 +1,12 @@
+package com.tieuluan.laptopstore.auth.services;
+
+import lombok.Value;
+
+/**
+ * Phát ra khi có user mới được lưu vào DB (đăng ký qua OTP hoặc đăng nhập Google lần đầu).
+ */
+@Value
+public class UserRegisteredEvent {
+
+    String email;
+}
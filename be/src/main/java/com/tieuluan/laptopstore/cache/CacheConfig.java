@@ -0,0 +1,130 @@
+package com.tieuluan.laptopstore.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tieuluan.laptopstore.dto.CategoryDto;
+import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductPriceTable;
+import com.tieuluan.laptopstore.dto.ShippingProviderDto;
+import com.tieuluan.laptopstore.entities.Brand;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache catalog 2 tầng (Caffeine + Redis).
+ * <p>
+ * Key Redis có dạng "catalog:{version}:{tênCache}::{key}"; đổi {@code cache.catalog.version}
+ * khi đổi cấu trúc DTO thì các entry cũ bị bỏ qua và tự hết hạn. Giá trị lưu JSON theo
+ * kiểu khai báo cho từng cache. CacheManager được bọc transaction-aware nên put/evict
+ * trong transaction ghi chỉ chạy sau khi commit (không nạp lại dữ liệu cũ trước commit).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String INVALIDATION_CHANNEL = "catalog:cache:invalidate";
+
+    private static final String KEY_PREFIX = "catalog:";
+
+    @Value("${cache.catalog.version:v1}")
+    private String version;
+
+    @Value("${cache.catalog.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${cache.catalog.local-max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${cache.catalog.redis-ttl-minutes:30}")
+    private long redisTtlMinutes;
+
+    @Bean
+    public TwoLevelCacheManager twoLevelCacheManager(RedisConnectionFactory connectionFactory,
+                                                     StringRedisTemplate stringRedisTemplate,
+                                                     ObjectMapper objectMapper,
+                                                     RedisMessageListenerContainer redisMessageListenerContainer) {
+        Map<String, JavaType> valueTypes = valueTypes(objectMapper.getTypeFactory());
+
+        // L1: TTL ngắn để dù lỡ mất thông báo pub/sub, dữ liệu cũ cũng chỉ tồn tại ít phút
+        CaffeineCacheManager localManager = new CaffeineCacheManager();
+        localManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds)));
+        localManager.setAllowNullValues(false);
+        localManager.setCacheNames(valueTypes.keySet());
+
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .computePrefixWith(name -> KEY_PREFIX + version + ":" + name + "::")
+                .entryTtl(Duration.ofMinutes(redisTtlMinutes))
+                .disableCachingNullValues()
+                .serializeKeysWith(SerializationPair.fromSerializer(new StringRedisSerializer()));
+
+        ObjectMapper mapper = objectMapper.copy();
+        Map<String, RedisCacheConfiguration> perCache = new LinkedHashMap<>();
+        valueTypes.forEach((name, type) -> perCache.put(name,
+                defaults.serializeValuesWith(SerializationPair.fromSerializer(new Jackson2JsonRedisSerializer<>(mapper, type)))));
+
+        RedisCacheManager remoteManager = RedisCacheManager
+                // clear() dùng SCAN thay vì KEYS để không chặn Redis
+                .builder(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000)))
+                .cacheDefaults(defaults)
+                .withInitialCacheConfigurations(perCache)
+                .disableCreateOnMissingCache()
+                .build();
+        remoteManager.afterPropertiesSet();
+
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(localManager, remoteManager, stringRedisTemplate, INVALIDATION_CHANNEL);
+        // Nhận thông báo xóa L1 từ các node (kể cả chính node này, xóa lại lần nữa cũng không sao)
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> manager.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+        return manager;
+    }
+
+    @Bean
+    @Primary
+    public CacheManager cacheManager(TwoLevelCacheManager twoLevelCacheManager) {
+        return new TransactionAwareCacheManagerProxy(twoLevelCacheManager);
+    }
+
+    // Kiểu giá trị của từng cache (Jackson cần biết để đọc JSON từ Redis)
+    private Map<String, JavaType> valueTypes(TypeFactory types) {
+        Map<String, JavaType> map = new LinkedHashMap<>();
+        map.put(CacheNames.PRODUCT_BY_ID, types.constructType(ProductDto.class));
+        map.put(CacheNames.PRODUCT_SLUG, types.constructType(UUID.class));
+        map.put(CacheNames.PRODUCT_PRICE, types.constructType(ProductPriceTable.class));
+        map.put(CacheNames.CATEGORY_TREE, types.constructCollectionType(List.class, CategoryDto.class));
+        map.put(CacheNames.CATEGORY_BY_ID, types.constructType(CategoryDto.class));
+        map.put(CacheNames.BRANDS, types.constructCollectionType(List.class, Brand.class));
+        map.put(CacheNames.SHIPPING_PROVIDERS, types.constructCollectionType(List.class, ShippingProviderDto.class));
+        map.put(CacheNames.SHIPPING_PROVIDER_BY_ID, types.constructType(ShippingProviderDto.class));
+        return map;
+    }
+}
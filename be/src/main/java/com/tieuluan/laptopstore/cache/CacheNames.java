@@ -0,0 +1,24 @@
+package com.tieuluan.laptopstore.cache;
+
+/**
+ * Tên các cache catalog. Mỗi tên phải được khai báo kiểu dữ liệu trong {@link CacheConfig}
+ * (Redis lưu JSON theo kiểu cố định, không nhúng tên class vào giá trị).
+ */
+public final class CacheNames {
+
+    // ProductDto gốc (chưa gắn Flash Sale) theo id
+    public static final String PRODUCT_BY_ID = "productById";
+    // slug -> id, để trang chi tiết theo slug dùng chung entry với PRODUCT_BY_ID
+    public static final String PRODUCT_SLUG = "productSlug";
+    // Bảng giá (giá gốc, % giảm, giá biến thể) theo id, dùng cho PricingEngine
+    public static final String PRODUCT_PRICE = "productPrice";
+    // Cây danh mục (danh mục -> loại -> sản phẩm), chưa gắn Flash Sale
+    public static final String CATEGORY_TREE = "categoryTree";
+    public static final String CATEGORY_BY_ID = "categoryById";
+    public static final String BRANDS = "brands";
+    public static final String SHIPPING_PROVIDERS = "shippingProviders";
+    public static final String SHIPPING_PROVIDER_BY_ID = "shippingProviderById";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,162 @@
+package com.tieuluan.laptopstore.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Cache 2 tầng: đọc L1 (Caffeine, trong JVM) trước, trượt thì đọc L2 (Redis) rồi chép lên L1.
+ * <p>
+ * Ghi/xóa đi qua cả 2 tầng. Khi xóa, node hiện tại phát thông báo để các node khác bỏ
+ * entry L1 tương ứng. Redis lỗi thì chỉ ghi log và coi như trượt cache (đọc thẳng DB),
+ * không làm hỏng request.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCache.class);
+
+    // Key đặc biệt trong thông báo: xóa toàn bộ L1 của cache
+    static final String ALL_KEYS = "*";
+
+    private final String name;
+    private final Cache local;
+    private final Cache remote;
+    private final Consumer<String> invalidationPublisher;
+
+    public TwoLevelCache(String name, Cache local, Cache remote, Consumer<String> invalidationPublisher) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    // =======================================================================
+    //  ĐỌC
+    // =======================================================================
+    @Override
+    public ValueWrapper get(Object key) {
+        String cacheKey = keyOf(key);
+        ValueWrapper value = local.get(cacheKey);
+        if (value != null) return value;
+
+        value = remoteGet(cacheKey);
+        if (value != null && value.get() != null) {
+            local.put(cacheKey, value.get());
+            return new SimpleValueWrapper(value.get());
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Giá trị cache '" + name + "' không phải kiểu " + type.getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) return (T) wrapper.get();
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    // =======================================================================
+    //  GHI / XÓA
+    // =======================================================================
+    @Override
+    public void put(Object key, Object value) {
+        // Không cache null (sản phẩm không tồn tại...) để lần sau vẫn hỏi DB
+        if (value == null) return;
+        String cacheKey = keyOf(key);
+        try {
+            remote.put(cacheKey, value);
+        } catch (RuntimeException e) {
+            log.warn("Không ghi được cache '{}' lên Redis (key={})", name, cacheKey, e);
+        }
+        local.put(cacheKey, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = keyOf(key);
+        try {
+            remote.evict(cacheKey);
+        } catch (RuntimeException e) {
+            // Entry cũ trên Redis sẽ tự hết hạn theo TTL
+            log.error("Không xóa được cache '{}' trên Redis (key={})", name, cacheKey, e);
+        }
+        local.evict(cacheKey);
+        publish(cacheKey);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            remote.clear();
+        } catch (RuntimeException e) {
+            log.error("Không xóa được cache '{}' trên Redis", name, e);
+        }
+        local.clear();
+        publish(ALL_KEYS);
+    }
+
+    // Gọi khi nhận thông báo từ node khác: chỉ xóa L1, L2 đã được node gửi xóa rồi
+    void evictLocal(String cacheKey) {
+        if (ALL_KEYS.equals(cacheKey)) {
+            local.clear();
+        } else {
+            local.evict(cacheKey);
+        }
+    }
+
+    private ValueWrapper remoteGet(String cacheKey) {
+        try {
+            return remote.get(cacheKey);
+        } catch (RuntimeException e) {
+            log.warn("Không đọc được cache '{}' từ Redis (key={}), đọc DB", name, cacheKey, e);
+            return null;
+        }
+    }
+
+    private void publish(String cacheKey) {
+        try {
+            invalidationPublisher.accept(cacheKey);
+        } catch (RuntimeException e) {
+            // Node khác sẽ tự bỏ entry L1 khi hết TTL cục bộ
+            log.warn("Không gửi được thông báo xóa cache '{}' (key={})", name, cacheKey, e);
+        }
+    }
+
+    // L1 và L2 cùng dùng key dạng chuỗi để thông báo giữa các node khớp được với nhau
+    private static String keyOf(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,68 @@
+package com.tieuluan.laptopstore.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ghép {@link CacheManager} L1 (Caffeine) và L2 (Redis) thành các {@link TwoLevelCache}.
+ * Chỉ phục vụ các cache đã khai báo trong {@link CacheConfig}.
+ * <p>
+ * Thông báo xóa L1 gửi qua kênh Redis pub/sub với nội dung "tênCache|key".
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private static final char SEPARATOR = '|';
+
+    private final CacheManager localManager;
+    private final CacheManager remoteManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String invalidationChannel;
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager localManager, CacheManager remoteManager,
+                                StringRedisTemplate stringRedisTemplate, String invalidationChannel) {
+        this.localManager = localManager;
+        this.remoteManager = remoteManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache local = localManager.getCache(name);
+        Cache remote = remoteManager.getCache(name);
+        if (local == null || remote == null) {
+            throw new IllegalStateException("Cache '" + name + "' chưa được khai báo trong CacheConfig");
+        }
+        return new TwoLevelCache(name, local, remote,
+                key -> stringRedisTemplate.convertAndSend(invalidationChannel, name + SEPARATOR + key));
+    }
+
+    /** Xử lý thông báo xóa cache từ kênh pub/sub (kể cả thông báo do chính node này gửi). */
+    public void onInvalidation(String message) {
+        int separator = message.indexOf(SEPARATOR);
+        if (separator < 0) return;
+
+        TwoLevelCache cache = caches.get(message.substring(0, separator));
+        // Node này chưa dùng cache đó thì không có gì trên L1 để xóa
+        if (cache != null) {
+            cache.evictLocal(message.substring(separator + 1));
+        }
+    }
+}
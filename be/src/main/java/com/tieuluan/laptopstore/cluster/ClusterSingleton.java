@@ -0,0 +1,28 @@
+package com.tieuluan.laptopstore.cluster;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu job {@code @Scheduled} chỉ được chạy trên 1 node mỗi lượt.
+ * <p>
+ * Trước khi chạy, node phải giành được lease trên Redis ({@link RedisJobLock}); node khác đang
+ * giữ thì lượt này bỏ qua. Trong lúc chạy lease được gia hạn định kỳ; job chạy lâu nên gọi
+ * {@link JobLease#checkHeld()} giữa các bước để dừng nếu đã mất lease. Chạy xong thành công thì
+ * lease được giữ tới sát lượt lịch kế tiếp nên node lệch nhịp không chạy lại cùng lượt; hàm khác
+ * dùng chung tên job cũng phải chờ hết khoảng giữ này.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ClusterSingleton {
+
+    /** Tên job (key lease + tag metric); mặc định "TênClass.tênHàm". */
+    String value() default "";
+
+    /** Thời hạn lease; node chết giữa chừng thì sau khoảng này node khác mới chạy được. */
+    long leaseSeconds() default 60;
+}
@@ -0,0 +1,239 @@
+package com.tieuluan.laptopstore.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chạy các hàm {@link ClusterSingleton} dưới lease của {@link RedisJobLock}.
+ * <p>
+ * Không giành được lease (node khác đang chạy, hoặc Redis lỗi nên không chắc chỉ 1 node chạy)
+ * thì bỏ qua lượt này. Đang chạy thì gia hạn lease mỗi 1/3 thời hạn; gia hạn thất bại thì đánh
+ * dấu mất lease để {@link JobLease#checkHeld()} dừng job.
+ * <p>
+ * Hàm có {@link Scheduled} chạy thành công thì không xóa lease mà giữ tới sát lượt kế tiếp (cron:
+ * lần kích hoạt sau; fixedDelay / fixedRate: lúc bắt đầu + chu kỳ), trừ một khoảng dự phòng
+ * min(chu kỳ / 10, 5s). Các node kích hoạt cùng lượt nhưng lệch nhịp (GC, đồng hồ lệch, job ngắn
+ * hơn độ lệch) vì vậy không chạy lại lượt vừa xong. Lượt lỗi hoặc hàm không có lịch (vd. chỉ
+ * chạy lúc khởi động) thì trả lease ngay. Metric theo từng job:
+ * {@code cluster.job.last.duration} (ms), {@code cluster.job.last.items},
+ * {@code cluster.job.runs} (tag result = success / failed / skipped).
+ */
+@Aspect
+@Component
+public class ClusterSingletonAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterSingletonAspect.class);
+
+    @Autowired private RedisJobLock redisJobLock;
+    @Autowired private TaskScheduler taskScheduler;
+    @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+    @Autowired private Environment environment;
+
+    private static final Duration MAX_HOLD_MARGIN = Duration.ofSeconds(5);
+
+    private final Map<String, JobStats> stats = new ConcurrentHashMap<>();
+    private final Map<Method, Optional<Tick>> ticks = new ConcurrentHashMap<>();
+
+    @Around("@annotation(clusterSingleton)")
+    public Object runOnOneNode(ProceedingJoinPoint pjp, ClusterSingleton clusterSingleton) throws Throwable {
+        String job = jobName(pjp, clusterSingleton);
+        Duration ttl = Duration.ofSeconds(clusterSingleton.leaseSeconds());
+        JobStats jobStats = stats.computeIfAbsent(job, this::register);
+
+        Optional<JobLease> acquired;
+        try {
+            acquired = redisJobLock.tryAcquire(job, ttl);
+        } catch (Exception e) {
+            log.warn("Không giành được lease cho job {}, bỏ qua lượt này", job, e);
+            jobStats.count("skipped");
+            return null;
+        }
+        if (acquired.isEmpty()) {
+            jobStats.count("skipped");
+            return null;
+        }
+
+        JobLease lease = acquired.get();
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(() -> renew(lease, ttl), ttl.dividedBy(3));
+        long start = System.currentTimeMillis();
+        boolean succeeded = false;
+        JobLease.bind(lease);
+        try {
+            Object result = pjp.proceed();
+            succeeded = true;
+            jobStats.count("success");
+            return result;
+        } catch (Throwable t) {
+            jobStats.count("failed");
+            throw t;
+        } finally {
+            JobLease.unbind();
+            renewal.cancel(false);
+            long end = System.currentTimeMillis();
+            jobStats.lastDurationMs.set(end - start);
+            jobStats.lastItems.set(lease.itemCount());
+            Duration hold = Duration.ZERO;
+            if (succeeded) {
+                Optional<Tick> tick = tick(pjp);
+                if (tick.isPresent()) hold = Duration.ofMillis(tick.get().holdUntil(start) - end);
+            }
+            release(lease, hold);
+        }
+    }
+
+    private void renew(JobLease lease, Duration ttl) {
+        if (lease.isLost()) return;
+        try {
+            if (!redisJobLock.renew(lease, ttl)) {
+                lease.markLost();
+                log.warn("Job {} mất lease (lượt {})", lease.getJob(), lease.getId());
+            }
+        } catch (Exception e) {
+            // Chưa chắc đã mất: lease còn hạn thì lần gia hạn sau có thể thành công
+            log.warn("Không gia hạn được lease job {}", lease.getJob(), e);
+        }
+    }
+
+    private void release(JobLease lease, Duration hold) {
+        try {
+            redisJobLock.release(lease, hold);
+        } catch (Exception e) {
+            // Lease tự hết hạn theo TTL
+            log.warn("Không trả được lease job {}", lease.getJob(), e);
+        }
+    }
+
+    private static String jobName(ProceedingJoinPoint pjp, ClusterSingleton clusterSingleton) {
+        if (!clusterSingleton.value().isEmpty()) return clusterSingleton.value();
+        MethodSignature signature = (MethodSignature) pjp.getSignature();
+        return signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+    }
+
+    // =======================================================================
+    //  LỊCH CHẠY
+    // =======================================================================
+    private Optional<Tick> tick(ProceedingJoinPoint pjp) {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        if (pjp.getTarget() != null) method = AopUtils.getMostSpecificMethod(method, pjp.getTarget().getClass());
+        return ticks.computeIfAbsent(method, this::resolveTick);
+    }
+
+    private Optional<Tick> resolveTick(Method method) {
+        Scheduled scheduled = AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class);
+        if (scheduled == null) return Optional.empty();
+        try {
+            String cron = environment.resolvePlaceholders(scheduled.cron());
+            if (StringUtils.hasText(cron)) {
+                if (Scheduled.CRON_DISABLED.equals(cron)) return Optional.empty();
+                String zone = environment.resolvePlaceholders(scheduled.zone());
+                return Optional.of(new Tick(CronExpression.parse(cron),
+                        StringUtils.hasText(zone) ? ZoneId.of(zone) : ZoneId.systemDefault(), null));
+            }
+            Duration period = period(scheduled.fixedDelay(), scheduled.fixedDelayString(), scheduled);
+            if (period == null) period = period(scheduled.fixedRate(), scheduled.fixedRateString(), scheduled);
+            return period == null ? Optional.empty() : Optional.of(new Tick(null, null, period));
+        } catch (Exception e) {
+            log.warn("Không đọc được lịch chạy của {}, trả lease ngay sau mỗi lượt", method, e);
+            return Optional.empty();
+        }
+    }
+
+    private Duration period(long value, String text, Scheduled scheduled) {
+        if (value > 0) return Duration.of(value, scheduled.timeUnit().toChronoUnit());
+        String resolved = environment.resolvePlaceholders(text);
+        if (!StringUtils.hasText(resolved)) return null;
+        Duration period = DurationStyle.detectAndParse(resolved.trim(), scheduled.timeUnit().toChronoUnit());
+        return period.isNegative() || period.isZero() ? null : period;
+    }
+
+    /** Lịch của 1 hàm {@code @Scheduled}: cron (theo múi giờ) hoặc chu kỳ cố định. */
+    private record Tick(CronExpression cron, ZoneId zone, Duration period) {
+
+        /** Mốc (epoch ms) giữ lease tới: lượt kế tiếp sau {@code start} trừ khoảng dự phòng. */
+        long holdUntil(long start) {
+            if (cron == null) return start + period.toMillis() - margin(period.toMillis());
+            ZonedDateTime from = Instant.ofEpochMilli(start).atZone(zone);
+            ZonedDateTime next = cron.next(from);
+            if (next == null) return start;
+            ZonedDateTime after = cron.next(next);
+            long nextMs = next.toInstant().toEpochMilli();
+            long gap = after == null ? nextMs - start : after.toInstant().toEpochMilli() - nextMs;
+            return nextMs - margin(gap);
+        }
+
+        private static long margin(long periodMs) {
+            return Math.min(periodMs / 10, MAX_HOLD_MARGIN.toMillis());
+        }
+    }
+
+    // =======================================================================
+    //  METRIC
+    // =======================================================================
+    private JobStats register(String job) {
+        JobStats jobStats = new JobStats(job, meterRegistry.getIfAvailable());
+        if (jobStats.registry != null) {
+            Gauge.builder("cluster.job.last.duration", jobStats.lastDurationMs, AtomicLong::get)
+                    .description("Thời gian chạy lượt gần nhất trên node này")
+                    .baseUnit("milliseconds")
+                    .tag("job", job)
+                    .register(jobStats.registry);
+            Gauge.builder("cluster.job.last.items", jobStats.lastItems, AtomicLong::get)
+                    .description("Số phần tử xử lý trong lượt gần nhất trên node này")
+                    .tag("job", job)
+                    .register(jobStats.registry);
+        }
+        return jobStats;
+    }
+
+    private static final class JobStats {
+
+        private final String job;
+        private final MeterRegistry registry;
+        private final AtomicLong lastDurationMs = new AtomicLong();
+        private final AtomicLong lastItems = new AtomicLong();
+
+        private JobStats(String job, MeterRegistry registry) {
+            this.job = job;
+            this.registry = registry;
+        }
+
+        private void count(String result) {
+            if (registry == null) return;
+            Counter.builder("cluster.job.runs")
+                    .description("Số lượt chạy job theo kết quả")
+                    .tag("job", job)
+                    .tag("result", result)
+                    .register(registry)
+                    .increment();
+        }
+    }
+}
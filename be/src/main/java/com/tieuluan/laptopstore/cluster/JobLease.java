@@ -0,0 +1,60 @@
+package com.tieuluan.laptopstore.cluster;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lease của 1 lượt chạy job {@link ClusterSingleton}.
+ * <p>
+ * {@code id} ngẫu nhiên theo từng lần giành lease, cùng {@code owner} tạo thành giá trị key lease
+ * để chỉ đúng lượt này gia hạn / trả được lease. Job đang chạy dùng các hàm static
+ * ({@link #recordItems(long)}, {@link #checkHeld()}) với lease gắn trên thread.
+ */
+@Getter
+public final class JobLease {
+
+    private static final ThreadLocal<JobLease> CURRENT = new ThreadLocal<>();
+
+    private final String job;
+    private final String id;
+    private final String owner;
+    private volatile boolean lost;
+    private final AtomicLong items = new AtomicLong();
+
+    JobLease(String job, String id, String owner) {
+        this.job = job;
+        this.id = id;
+        this.owner = owner;
+    }
+
+    void markLost() {
+        lost = true;
+    }
+
+    long itemCount() {
+        return items.get();
+    }
+
+    static void bind(JobLease lease) {
+        CURRENT.set(lease);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /** Cộng số phần tử đã xử lý trong lượt này (metric {@code cluster.job.last.items}). */
+    public static void recordItems(long count) {
+        JobLease lease = CURRENT.get();
+        if (lease != null) lease.items.addAndGet(count);
+    }
+
+    /** Ném {@link LeaseLostException} nếu lượt này đã mất lease. */
+    public static void checkHeld() {
+        JobLease lease = CURRENT.get();
+        if (lease != null && lease.lost) {
+            throw new LeaseLostException("Job " + lease.job + " đã mất lease (lượt " + lease.id + ")");
+        }
+    }
+}
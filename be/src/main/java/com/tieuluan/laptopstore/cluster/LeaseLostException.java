@@ -0,0 +1,9 @@
+package com.tieuluan.laptopstore.cluster;
+
+// Job không còn giữ lease (gia hạn thất bại hoặc node khác đã giành), phải dừng ghi
+public class LeaseLostException extends RuntimeException {
+
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
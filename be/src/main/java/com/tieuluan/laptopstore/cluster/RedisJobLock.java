@@ -0,0 +1,86 @@
+package com.tieuluan.laptopstore.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease cho job chạy 1 node trên Redis.
+ * <p>
+ * "CLUSTER:JOB:{job}:LEASE" chứa "{node}:{id lượt}" với TTL, giành bằng SET NX. Gia hạn / trả
+ * lease là script Lua so khớp giá trị nên node không giữ lease không thể gia hạn hay xóa lease
+ * của node khác. Job theo lịch chạy xong vẫn được giữ lease tới sát lượt kế tiếp
+ * ({@link ClusterSingletonAspect}) để node lệch nhịp không chạy lại cùng lượt. Lease không có
+ * fencing token: node treo quá TTL rồi chạy tiếp vẫn có thể chạy trùng với node mới, nên các job
+ * phải chịu được chạy lặp (ghi có điều kiện, UPSERT...).
+ */
+@Component
+public class RedisJobLock {
+
+    private static final String KEY_PREFIX = "CLUSTER:JOB:";
+
+    // ARGV[1] = giá trị lease đang giữ, ARGV[2] = ttl (ms)
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+            + "return 0", Long.class);
+
+    // ARGV[1] = giá trị lease đang giữ, ARGV[2] = thời gian giữ thêm (ms), <= 0 thì xóa ngay
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end "
+            + "if tonumber(ARGV[2]) > 0 then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+            + "return redis.call('DEL', KEYS[1])", Long.class);
+
+    @Autowired private StringRedisTemplate stringRedisTemplate;
+
+    // Định danh node: hostname + ngẫu nhiên (nhiều instance trên cùng máy)
+    private final String nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    public Optional<JobLease> tryAcquire(String job, Duration ttl) {
+        JobLease lease = new JobLease(job, UUID.randomUUID().toString(), nodeId);
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey(job), value(lease), ttl);
+        return Boolean.TRUE.equals(acquired) ? Optional.of(lease) : Optional.empty();
+    }
+
+    public boolean renew(JobLease lease, Duration ttl) {
+        Long result = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey(lease.getJob())),
+                value(lease), String.valueOf(ttl.toMillis()));
+        return result != null && result > 0;
+    }
+
+    /**
+     * Trả lease; {@code hold} > 0 thì giữ key thêm khoảng đó (không gia hạn nữa) để node khác không
+     * chạy lại cùng lượt lịch, ngược lại xóa ngay.
+     */
+    public void release(JobLease lease, Duration hold) {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(lease.getJob())),
+                value(lease), String.valueOf(hold.toMillis()));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String leaseKey(String job) {
+        return KEY_PREFIX + job + ":LEASE";
+    }
+
+    private static String value(JobLease lease) {
+        return lease.getOwner() + ":" + lease.getId();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
@@ -9,18 +9,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
-import com.tieuluan.laptopstore.entities.Category;
 import com.tieuluan.laptopstore.entities.OrderStatus;
-import com.tieuluan.laptopstore.repositories.CategoryRepository;
-import com.tieuluan.laptopstore.repositories.OrderRepository;
-import com.tieuluan.laptopstore.repositories.ProductRepository;
+import com.tieuluan.laptopstore.repositories.DailySalesRepository;
+import com.tieuluan.laptopstore.services.DailySalesService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -30,24 +32,31 @@ import lombok.RequiredArgsConstructor;
 @PreAuthorize("hasAuthority('ADMIN')")
 public class AnalyticsController {
 
-    private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
+    private static final int TOP_PRODUCTS = 5;
+
+    private final DailySalesRepository dailySalesRepository;
+    private final DailySalesService dailySalesService;
     private final UserDetailRepository userDetailRepository;
 
-    // Doanh thu theo tháng (6 tháng gần nhất)
+    // Doanh thu theo tháng (6 tháng gần nhất) — 1 query trên bảng tổng hợp daily_sales
     @GetMapping("/revenue")
     public ResponseEntity<?> getRevenueStats() {
         LocalDate now = LocalDate.now();
         List<Map<String, Object>> result = new ArrayList<>();
         
         OrderStatus targetStatus = OrderStatus.DELIVERED;
+        YearMonth firstMonth = YearMonth.from(now.minusMonths(5));
+
+        Map<YearMonth, Double> revenueByMonth = new HashMap<>();
+        for (Object[] row : dailySalesRepository.sumNetAmountByMonth(targetStatus, firstMonth.atDay(1))) {
+            YearMonth ym = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            revenueByMonth.put(ym, row[2] != null ? ((Number) row[2]).doubleValue() : 0.0);
+        }
 
         for (int i = 5; i >= 0; i--) {
             YearMonth ym = YearMonth.from(now.minusMonths(i));
 
-            Double totalRevenue = orderRepository.sumTotalAmountByMonth(ym.getYear(), ym.getMonthValue(), targetStatus);
-            double safeRevenue = (totalRevenue != null) ? totalRevenue : 0.0;
+            double safeRevenue = revenueByMonth.getOrDefault(ym, 0.0);
             double calculatedProfit = safeRevenue * 0.4;
 
             Map<String, Object> monthData = new HashMap<>();
@@ -89,17 +98,14 @@ public class AnalyticsController {
         return ResponseEntity.ok(result);
     }
 
-    // Phân bổ doanh thu theo danh mục
+    // Phân bổ doanh thu theo danh mục (1 query, LEFT JOIN nên danh mục chưa bán vẫn có mặt)
     @GetMapping("/category-distribution")
     public ResponseEntity<?> getCategoryDistribution() {
-        List<Category> categories = categoryRepository.findAll();
-
-        List<Map<String, Object>> data = categories.stream()
-                .map(cat -> {
-                    Double total = orderRepository.sumRevenueByCategory(cat.getId());
+        List<Map<String, Object>> data = dailySalesRepository.sumRevenueByCategory().stream()
+                .map(row -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("category", cat.getName());
-                    map.put("revenue", total != null ? total : 0);
+                    map.put("category", row[0]);
+                    map.put("revenue", row[1] != null ? row[1] : 0);
                     return map;
                 })
                 .collect(Collectors.toList());
@@ -110,7 +116,7 @@ public class AnalyticsController {
     // Top 5 sản phẩm bán chạy
     @GetMapping("/top-products")
     public ResponseEntity<?> getTopProducts() {
-        List<Object[]> topProducts = productRepository.findTop5SellingProducts();
+        List<Object[]> topProducts = dailySalesRepository.findTopSellingProducts(PageRequest.of(0, TOP_PRODUCTS));
 
         List<Map<String, Object>> result = topProducts.stream().map(obj -> {
             Map<String, Object> map = new HashMap<>();
@@ -122,4 +128,16 @@ public class AnalyticsController {
 
         return ResponseEntity.ok(result);
     }
+
+    // Tính lại daily_sales cho 1 khoảng ngày (sau khi sửa dữ liệu đơn hàng trực tiếp trong DB)
+    @PostMapping("/daily-sales/rebuild")
+    public ResponseEntity<?> rebuildDailySales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Khoảng ngày không hợp lệ"));
+        }
+        int rows = dailySalesService.rebuild(from, to);
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
 }
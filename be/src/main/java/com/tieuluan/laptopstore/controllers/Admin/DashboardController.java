@@ -1,23 +1,18 @@
 package com.tieuluan.laptopstore.controllers.Admin;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
-import com.tieuluan.laptopstore.dto.OrderDetails;
-import com.tieuluan.laptopstore.entities.Order;
-import com.tieuluan.laptopstore.entities.OrderStatus;
-import com.tieuluan.laptopstore.mapper.OrderMapper;
-import com.tieuluan.laptopstore.repositories.OrderRepository;
+import com.tieuluan.laptopstore.dto.DashboardSnapshot;
+import com.tieuluan.laptopstore.services.DashboardSnapshotService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -27,41 +22,26 @@ import lombok.RequiredArgsConstructor;
 @PreAuthorize("hasAuthority('ADMIN')")
 public class DashboardController {
 
-    private final UserDetailRepository userDetailRepository;
-    private final OrderRepository orderRepository;
-    private final OrderMapper orderMapper;
+    private final DashboardSnapshotService dashboardSnapshotService;
 
+    // Số liệu lấy từ snapshot trong bộ nhớ; trình duyệt gửi lại If-None-Match thì trả 304 nếu chưa đổi
     @GetMapping
-    public ResponseEntity<?> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        // --- 1. Thống kê User & Tổng đơn ---
-        long totalUsers = userDetailRepository.count();
-        long totalOrders = orderRepository.count(); // Tổng tất cả các đơn (bao gồm cả hủy)
-
-        // --- 2. Thống kê Doanh thu (Chỉ tính Hoàn thành & Đã giao) ---
-        List<OrderStatus> revenueStatuses = Arrays.asList(
-            OrderStatus.DELIVERED,
-            OrderStatus.SHIPPED   
-        );
-        Double totalRevenue = orderRepository.sumRevenueByStatuses(revenueStatuses);
-        
-        long cancelledOrders = orderRepository.countByOrderStatus(OrderStatus.CANCELLED);
+    public ResponseEntity<?> getDashboardStats(WebRequest webRequest) {
+        DashboardSnapshot snapshot = dashboardSnapshotService.current();
 
-        // --- Đẩy dữ liệu vào Map ---
-        stats.put("totalUsers", totalUsers);
-        stats.put("totalOrders", totalOrders);
-        stats.put("totalRevenue", totalRevenue);
-        stats.put("cancelledOrders", cancelledOrders);
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+        }
 
-        // --- 4. Đơn hàng gần đây ---
-        List<Order> recentOrders = orderRepository.findTop5ByOrderByOrderDateDesc();
-        List<OrderDetails> recentOrderDetails = recentOrders.stream()
-                .map(order -> orderMapper.mapToOrderDetails(order, order.getUser()))
-                .collect(Collectors.toList());
-
-        stats.put("recentOrders", recentOrderDetails);
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(snapshot);
+    }
 
-        return ResponseEntity.ok(stats);
+    // Dashboard đang mở nhận "snapshot" khi kết nối, sau đó "delta" mỗi khi số liệu đổi
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDashboard() {
+        return dashboardSnapshotService.subscribe();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package com.tieuluan.laptopstore.controllers.Admin;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tieuluan.laptopstore.dto.InventoryAudit;
+import com.tieuluan.laptopstore.entities.InventoryMovement;
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepository;
+import com.tieuluan.laptopstore.services.InventoryLedger;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+@PreAuthorize("hasAuthority('ADMIN')")
+public class InventoryController {
+
+    private static final int MAX_MOVEMENTS = 200;
+
+    private final InventoryLedger inventoryLedger;
+    private final InventoryMovementRepository inventoryMovementRepository;
+
+    // So tồn kho biến thể với mốc + sổ kho, kèm các đơn giữ hàng quá hạn
+    @GetMapping("/audit")
+    public ResponseEntity<InventoryAudit> audit() {
+        return ResponseEntity.ok(inventoryLedger.audit());
+    }
+
+    // Lịch sử biến động kho của 1 biến thể (chưa gộp), mới nhất trước
+    @GetMapping("/movements")
+    public ResponseEntity<List<InventoryMovement>> getMovements(@RequestParam UUID variantId,
+                                                                @RequestParam(defaultValue = "50") int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_MOVEMENTS);
+        return ResponseEntity.ok(inventoryMovementRepository.findByVariantIdOrderByCreatedAtDesc(
+                variantId, PageRequest.of(0, size)));
+    }
+}
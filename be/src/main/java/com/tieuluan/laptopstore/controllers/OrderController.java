@@ -2,12 +2,23 @@ package com.tieuluan.laptopstore.controllers;
 
 import com.tieuluan.laptopstore.auth.dto.OrderResponse;
 import com.tieuluan.laptopstore.dto.OrderDetails;
+import com.tieuluan.laptopstore.dto.OrderFilterRequest;
+import com.tieuluan.laptopstore.dto.OrderHistoryDto;
 import com.tieuluan.laptopstore.dto.OrderRequest;
+import com.tieuluan.laptopstore.dto.PageResponse;
+import com.tieuluan.laptopstore.dto.PriceQuote;
+import com.tieuluan.laptopstore.entities.OrderStatus;
 import com.tieuluan.laptopstore.services.OrderService;
 
+import jakarta.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,8 +28,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -38,17 +52,90 @@ public class OrderController {
         return ResponseEntity.ok(orderResponse);
     }
 
+    // [USER] Báo giá cả giỏ hàng (giá biến thể, Flash Sale, giảm giá, mã giảm giá) do server tính
+    @PostMapping("/quote")
+    public ResponseEntity<PriceQuote> quote(@RequestBody OrderRequest orderRequest, Principal principal) {
+        return ResponseEntity.ok(orderService.quote(orderRequest, principal));
+    }
+
     // [USER] Lấy danh sách đơn hàng của chính người dùng (dựa theo Principal)
     @GetMapping("/user")
     public ResponseEntity<List<OrderDetails>> getOrdersByUser(Principal principal) {
         return ResponseEntity.ok(orderService.getOrdersByUser(principal));
     }
 
-    // [ADMIN] Lấy tất cả đơn hàng (toàn hệ thống)
+    // [USER] Lịch sử đơn hàng phân trang, sản phẩm ở dạng rút gọn
+    // nextCursor = số trang kế tiếp (null khi đã hết); total chỉ có khi withCount=true
+    @GetMapping("/user/history")
+    public ResponseEntity<PageResponse<OrderHistoryDto>> getOrderHistory(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean withCount,
+            Principal principal) {
+        return ResponseEntity.ok(orderService.getOrderHistory(principal, page, size, withCount));
+    }
+
+    // [ADMIN] Danh sách đơn hàng (toàn hệ thống): lọc + keyset cursor, mới nhất trước
+    // Header: X-Total-Count (khi withCount=true), X-Next-Cursor (khi còn trang sau)
+    // @PreAuthorize vì GET /api/order/** đang được permitAll ở WebSecurityConfig
     @GetMapping
-    public ResponseEntity<List<OrderDetails>> getAllOrders() {
-        List<OrderDetails> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<List<OrderHistoryDto>> getAllOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String paymentMethod,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withCount,
+            HttpServletResponse response
+    ) {
+        OrderFilterRequest filter = OrderFilterRequest.builder()
+                .status(status).from(from).to(to).paymentMethod(paymentMethod).email(email)
+                .size(size)
+                .cursor(cursor)
+                // Mặc định chỉ đếm ở trang đầu
+                .withCount(withCount != null ? withCount : cursor == null || cursor.isBlank())
+                .build();
+
+        PageResponse<OrderHistoryDto> result = orderService.getOrders(filter);
+        if (result.getTotal() != null) {
+            response.setHeader("X-Total-Count", String.valueOf(result.getTotal()));
+        }
+        if (result.getNextCursor() != null) {
+            response.setHeader("X-Next-Cursor", result.getNextCursor());
+        }
+        return ResponseEntity.ok(result.getItems());
+    }
+
+    // [ADMIN] Xuất đơn hàng theo bộ lọc: format=csv (mặc định) hoặc ndjson, ghi dần ra response
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String paymentMethod,
+            @RequestParam(required = false) String email,
+            @RequestParam(defaultValue = "csv") String format
+    ) {
+        OrderService.ExportFormat exportFormat = "ndjson".equalsIgnoreCase(format)
+                ? OrderService.ExportFormat.NDJSON : OrderService.ExportFormat.CSV;
+        OrderFilterRequest filter = OrderFilterRequest.builder()
+                .status(status).from(from).to(to).paymentMethod(paymentMethod).email(email)
+                .build();
+
+        String fileName = "orders-" + LocalDate.now() + (exportFormat == OrderService.ExportFormat.CSV ? ".csv" : ".ndjson");
+        MediaType contentType = exportFormat == OrderService.ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
+        StreamingResponseBody body = out -> orderService.exportOrders(filter, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     // [USER] Hủy đơn hàng (chỉ cho phép chủ đơn hủy)
@@ -1,5 +1,6 @@
 package com.tieuluan.laptopstore.controllers;
 
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
 import com.tieuluan.laptopstore.services.OrderService;
 import com.tieuluan.laptopstore.services.VnPayService;
 import com.tieuluan.laptopstore.repositories.OrderRepository;
@@ -82,6 +83,8 @@ public class PaymentController {
 
             return ResponseEntity.ok(result);
 
+        } catch (BadRequestEx e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Sai định dạng orderId");
         } catch (Exception e) {
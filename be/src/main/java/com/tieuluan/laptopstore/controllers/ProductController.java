@@ -1,14 +1,22 @@
 package com.tieuluan.laptopstore.controllers;
 
+import com.tieuluan.laptopstore.dto.PageResponse;
+import com.tieuluan.laptopstore.dto.ProductFilterRequest;
+import com.tieuluan.laptopstore.dto.ProductFilterResponse;
 import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductPageRequest;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
 import com.tieuluan.laptopstore.mapper.ProductMapper;
 import com.tieuluan.laptopstore.repositories.ProductRepository;
 import com.tieuluan.laptopstore.services.ProductService;
 
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
@@ -34,28 +42,70 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
-    //lấy toàn bộ sản phẩm
+    private static final String SUMMARY_VIEW = "summary";
+
+    // lấy danh sách sản phẩm theo trang (page/size hoặc keyset cursor)
+    // Header: Content-Range "products {start}-{end}/{total|*}", X-Total-Count, X-Next-Cursor
+    // view=summary: trả ProductSummaryDto (không variants/specs/resources) cho lưới sản phẩm
     @GetMapping
-    public ResponseEntity<List<ProductDto>> getAllProducts(
+    public ResponseEntity<List<?>> getAllProducts(
             @RequestParam(required = false) UUID categoryId,
             @RequestParam(required = false) UUID typeId,
             @RequestParam(required = false) String slug,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withCount,
+            @RequestParam(required = false) String view,
             HttpServletResponse response
     ) {
-        List<ProductDto> productList = new ArrayList<>();
-
         if (StringUtils.isNotBlank(slug)) {
             // Tìm theo slug
+            List<ProductDto> productList = new ArrayList<>();
             ProductDto productDto = productService.getProductBySlug(slug);
             if (productDto != null) productList.add(productDto);
-        } else {
-            // Lấy tất cả (đã bao gồm Flash Sale bên trong Service)
-            productList = productService.getAllProducts(categoryId, typeId);
+            response.setHeader("Content-Range", "products 0-" + (productList.size() - 1) + "/" + productList.size());
+            return new ResponseEntity<List<?>>(productList, HttpStatus.OK);
         }
 
-        response.setHeader("Content-Range", String.valueOf(productList.size()));
-        return new ResponseEntity<>(productList, HttpStatus.OK);
+        // Mặc định chỉ đếm khi phân trang theo page (màn admin cần tổng số), đi theo cursor thì không
+        boolean count = withCount != null ? withCount : StringUtils.isBlank(cursor);
+
+        ProductPageRequest pageRequest = ProductPageRequest.builder()
+                .categoryId(categoryId)
+                .typeId(typeId)
+                .page(page)
+                .size(size)
+                .sort(sort)
+                .cursor(cursor)
+                .withCount(count)
+                .build();
+
+        PageResponse<?> result = SUMMARY_VIEW.equalsIgnoreCase(view)
+                ? productService.getProductSummaries(pageRequest)
+                : productService.getAllProducts(pageRequest);
+
+        setPageHeaders(response, result);
+        return new ResponseEntity<List<?>>(result.getItems(), HttpStatus.OK);
     }
+
+    private void setPageHeaders(HttpServletResponse response, PageResponse<?> result) {
+        String total = result.getTotal() != null ? String.valueOf(result.getTotal()) : "*";
+        if (result.getPage() != null && !result.getItems().isEmpty()) {
+            long start = (long) result.getPage() * result.getSize();
+            response.setHeader("Content-Range", "products " + start + "-" + (start + result.getItems().size() - 1) + "/" + total);
+        } else {
+            response.setHeader("Content-Range", "products */" + total);
+        }
+        if (result.getTotal() != null) {
+            response.setHeader("X-Total-Count", total);
+        }
+        if (result.getNextCursor() != null) {
+            response.setHeader("X-Next-Cursor", result.getNextCursor());
+        }
+    }
+
     //lấy sản phẩm bằng id
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable UUID id){
@@ -79,12 +129,67 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDto>> searchProducts(
-            @RequestParam("query") String query) {
+    public ResponseEntity<List<?>> searchProducts(
+            @RequestParam("query") String query,
+            @RequestParam(required = false) String view) {
+        if (SUMMARY_VIEW.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(productService.searchProductSummaries(query));
+        }
         List<ProductDto> products = productService.searchProductsByName(query);
         return ResponseEntity.ok(products);
     }
 
+    // Lọc nhiều điều kiện + số đếm facet, vd:
+    // /api/products/filter?categoryId=...&minPrice=15000000&f=RAM:16GB&f=RAM:32GB&f=CPU:Intel Core i7
+    // Cùng thuộc tính: OR, khác thuộc tính: AND
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFilterResponse> filterProducts(
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) UUID typeId,
+            @RequestParam(required = false) UUID brandId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(name = "f", required = false) List<String> facetFilters,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort
+    ) {
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        if (facetFilters != null) {
+            for (String filter : facetFilters) {
+                int sep = filter.indexOf(':');
+                if (sep <= 0 || sep == filter.length() - 1) {
+                    throw new BadRequestEx("Bộ lọc không hợp lệ: " + filter + " (định dạng Tên:Giá trị)");
+                }
+                attributes.computeIfAbsent(filter.substring(0, sep).trim(), k -> new ArrayList<>())
+                        .add(filter.substring(sep + 1).trim());
+            }
+        }
+
+        ProductFilterResponse result = productService.filterProducts(ProductFilterRequest.builder()
+                .categoryId(categoryId)
+                .typeId(typeId)
+                .brandId(brandId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .attributes(attributes)
+                .page(page)
+                .size(size)
+                .sort(sort)
+                .build());
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/category/{categoryId}")
+    public ResponseEntity<List<?>> getProductsByCategory(
+            @PathVariable UUID categoryId,
+            @RequestParam(required = false) String view) {
+        if (SUMMARY_VIEW.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(productService.getProductSummariesByCategory(categoryId));
+        }
+        return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
+    }
+
     @PutMapping("/{id}/enable")
     public ResponseEntity<?> toggleProductStatus(@PathVariable UUID id, @RequestParam boolean enable) {
         productService.updateProductStatus(id, enable);
@@ -100,7 +205,12 @@ public class ProductController {
     }
 
     @PostMapping("/by-ids")
-    public ResponseEntity<List<ProductDto>> getProductsByIds(@RequestBody List<UUID> ids) {
+    public ResponseEntity<List<?>> getProductsByIds(
+            @RequestBody List<UUID> ids,
+            @RequestParam(required = false) String view) {
+        if (SUMMARY_VIEW.equalsIgnoreCase(view)) {
+            return ResponseEntity.ok(productService.getProductSummariesByIds(ids));
+        }
         List<ProductDto> products = productService.getProductsByIds(ids);
         return ResponseEntity.ok(products);
     }
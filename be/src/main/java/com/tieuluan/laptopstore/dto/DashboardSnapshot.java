@@ -0,0 +1,30 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Số liệu trang dashboard admin, giữ trong bộ nhớ và thay nguyên khối mỗi lần đổi.
+ * JSON giữ nguyên các key cũ của /api/dashboard.
+ */
+@Value
+@Builder(toBuilder = true)
+public class DashboardSnapshot {
+
+    long totalUsers;
+    long totalOrders;
+    Double totalRevenue;
+    long cancelledOrders;
+    List<OrderDetails> recentOrders;
+
+    // Tăng mỗi lần đổi trên node này, dùng cho id sự kiện SSE
+    @JsonIgnore
+    long version;
+
+    // Tính từ nội dung nên các node có cùng số liệu trả cùng ETag
+    @JsonIgnore
+    String etag;
+}
@@ -0,0 +1,21 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepositoryCustom.Drift;
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepositoryCustom.Movement;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Kết quả đối soát tồn kho biến thể với sổ kho (GET /api/inventory/audit)
+@Value
+@Builder
+public class InventoryAudit {
+
+    LocalDateTime checkedAt;
+    // Biến thể có tồn kho khác mốc + sổ kho (sửa tay trong DB, ghi kho ngoài InventoryLedger...)
+    List<Drift> drifts;
+    // Giữ hàng đã quá hạn mà đơn chưa được thanh toán / hủy
+    List<Movement> overdueHolds;
+}
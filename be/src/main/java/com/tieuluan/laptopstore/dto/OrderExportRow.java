@@ -0,0 +1,28 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// 1 dòng khi xuất đơn hàng (CSV / NDJSON): chỉ các cột phẳng, đọc bằng projection nên không nạp entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExportRow {
+    private UUID id;
+    private LocalDateTime orderDate;
+    private String emailUser;
+    private OrderStatus orderStatus;
+    private String paymentMethod;
+    private Double totalAmount;
+    private Long itemCount;
+    private String shippingProvider;
+    private String shipmentNumber;
+    private String receiverName;
+    private String phoneNumber;
+    private String city;
+}
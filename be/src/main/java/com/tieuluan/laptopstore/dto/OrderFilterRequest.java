@@ -0,0 +1,25 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Bộ lọc + phân trang keyset cho danh sách / xuất đơn hàng của admin (mới nhất trước)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderFilterRequest {
+    private OrderStatus status;
+    private LocalDate from;         // Ngày đặt từ (bao gồm)
+    private LocalDate to;           // Ngày đặt đến (bao gồm)
+    private String paymentMethod;
+    private String email;           // Lọc theo tiền tố email người đặt
+    private Integer size;
+    private String cursor;          // Keyset cursor lấy từ nextCursor của trang trước
+    private boolean withCount;      // Có chạy thêm câu COUNT hay không
+}
@@ -0,0 +1,36 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.tieuluan.laptopstore.entities.Address;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// 1 đơn trong lịch sử mua hàng của user / danh sách đơn của admin:
+// giống OrderDetails nhưng dòng hàng chỉ mang ProductSummaryDto
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderHistoryDto {
+
+    private UUID id;
+    private LocalDateTime orderDate;
+    private String emailUser;
+    private Address address;
+    private Double totalAmount;
+    private OrderStatus orderStatus;
+    private String paymentMethod;
+    private ShippingProviderDto shippingProvider;
+    private String shipmentNumber;
+    private DiscountDto discount;
+    private String note;
+    private LocalDateTime expectedDeliveryDate;
+    private List<OrderHistoryItemDto> orderItemList;
+
+}
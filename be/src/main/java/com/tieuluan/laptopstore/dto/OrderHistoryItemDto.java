@@ -0,0 +1,41 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderHistoryItemDto {
+
+    private UUID id;
+    private ProductSummaryDto product;
+    private UUID productVariantId;
+    private Integer quantity;
+    private Double itemPrice;
+
+    private boolean reviewed;
+
+    // Chỉ dùng để gom dòng hàng về đúng đơn, không trả ra JSON
+    @JsonIgnore
+    private UUID orderId;
+    @JsonIgnore
+    private UUID productId;
+
+    // Dùng cho projection JPQL (OrderRepository.findHistoryItems)
+    public OrderHistoryItemDto(UUID orderId, UUID id, UUID productId, UUID productVariantId,
+                               Integer quantity, Double itemPrice) {
+        this.orderId = orderId;
+        this.id = id;
+        this.productId = productId;
+        this.productVariantId = productVariantId;
+        this.quantity = quantity;
+        this.itemPrice = itemPrice;
+    }
+}
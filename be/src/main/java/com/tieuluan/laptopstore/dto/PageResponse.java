@@ -0,0 +1,21 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Một trang kết quả: total chỉ có khi yêu cầu đếm, nextCursor null khi đã hết dữ liệu
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PageResponse<T> {
+    private List<T> items;
+    private Integer page;
+    private int size;
+    private Long total;
+    private String nextCursor;
+}
@@ -0,0 +1,43 @@
+package com.tieuluan.laptopstore.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.tieuluan.laptopstore.services.ActiveFlashSaleIndex;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/** Báo giá cả giỏ hàng do server tính; checkout dùng đúng kết quả này để lưu đơn. */
+@Data
+@Builder
+public class PriceQuote {
+
+    private List<Line> lines;
+    private BigDecimal subTotal;
+    private UUID discountId;
+    private BigDecimal couponDiscount;
+    private BigDecimal shippingFee;
+    private BigDecimal totalAmount;
+
+    @Data
+    @Builder
+    public static class Line {
+        private UUID productId;
+        private UUID productVariantId;
+        private String name;
+        private int quantity;
+        // Giá gốc (biến thể nếu có) và giá sau giảm của 1 sản phẩm
+        private BigDecimal originalPrice;
+        private BigDecimal unitPrice;
+        private BigDecimal discountPercent;
+        private boolean flashSale;
+        private BigDecimal lineTotal;
+
+        // Suất Flash Sale đã dùng để tính giá (checkout giữ suất theo đúng suất này)
+        @JsonIgnore
+        private ActiveFlashSaleIndex.Entry flashSaleEntry;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Bộ lọc cho GET /api/products/filter
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilterRequest {
+    private UUID categoryId;
+    private UUID typeId;
+    private UUID brandId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    // Tên thuộc tính -> các giá trị được chọn (OR trong cùng thuộc tính, AND giữa các thuộc tính)
+    private Map<String, List<String>> attributes;
+    private int page;
+    private Integer size;
+    private String sort;
+}
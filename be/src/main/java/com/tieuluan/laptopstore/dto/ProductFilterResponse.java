@@ -0,0 +1,22 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductFilterResponse {
+    private List<ProductSummaryDto> items;
+    private int page;
+    private int size;
+    private long total;
+    // Tên thuộc tính -> (giá trị -> số sản phẩm nếu chọn thêm giá trị đó)
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,23 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Tham số phân trang / lọc cho danh sách sản phẩm
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPageRequest {
+    private UUID categoryId;
+    private UUID typeId;
+    private int page;           // Phân trang theo offset (bỏ qua khi có cursor)
+    private Integer size;
+    private String sort;        // vd: "price,asc", "rating,desc", "createdAt,desc"
+    private String cursor;      // Keyset cursor lấy từ nextCursor của trang trước
+    private boolean withCount;  // Có chạy thêm câu COUNT hay không
+}
@@ -0,0 +1,30 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bảng giá của 1 sản phẩm (cache PRODUCT_PRICE), đủ để {@code PricingEngine} tính giá
+ * mà không đọc DB: giá gốc, % giảm thường, giá từng biến thể. Không chứa Flash Sale
+ * (lấy từ ActiveFlashSaleIndex lúc tính) nên không bị lưu quá hạn.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPriceTable {
+
+    private UUID productId;
+    private String name;
+    private boolean enable;
+    private BigDecimal basePrice;
+    private BigDecimal discountPercent;
+    // variantId -> giá biến thể
+    private Map<UUID, BigDecimal> variantPrices;
+}
@@ -0,0 +1,49 @@
+package com.tieuluan.laptopstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+// Bản rút gọn của ProductDto cho lưới sản phẩm: không có variants/specifications/resources
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSummaryDto {
+    private UUID id;
+    private String name;
+    private String slug;
+    private BigDecimal price;
+    private BigDecimal discount;
+    private int stock;
+    private Float rating;
+    private boolean newArrival;
+    private String thumbnail;
+    private Date createdAt;
+    private BrandDto brand;
+    private FlashSaleDtos.ProductFlashSaleInfo flashSale;
+
+    // Dùng cho projection CriteriaBuilder.construct (ProductRepositoryCustomImpl.findSummaries)
+    public ProductSummaryDto(UUID id, String name, String slug, BigDecimal price, BigDecimal discount,
+                             int stock, Float rating, boolean newArrival, String thumbnail, Date createdAt,
+                             UUID brandId, String brandName, String brandLogoUrl) {
+        this.id = id;
+        this.name = name;
+        this.slug = slug;
+        this.price = price;
+        this.discount = discount;
+        this.stock = stock;
+        this.rating = rating;
+        this.newArrival = newArrival;
+        this.thumbnail = thumbnail;
+        this.createdAt = createdAt;
+        if (brandId != null) {
+            this.brand = BrandDto.builder().id(brandId).name(brandName).logoUrl(brandLogoUrl).build();
+        }
+    }
+}
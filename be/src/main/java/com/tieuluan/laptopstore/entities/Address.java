@@ -4,11 +4,11 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.id.UuidV7Id;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -29,7 +29,7 @@ import lombok.ToString;
 public class Address {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     private String name;
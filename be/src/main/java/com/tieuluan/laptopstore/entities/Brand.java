@@ -1,5 +1,7 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,7 +11,6 @@ import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
@@ -22,7 +23,7 @@ import jakarta.persistence.Table;
 public class Brand {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false)
@@ -1,9 +1,10 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
@@ -26,7 +27,7 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 public class Category {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(nullable = false)
@@ -0,0 +1,54 @@
+package com.tieuluan.laptopstore.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Bảng tổng hợp doanh số theo ngày × sản phẩm × trạng thái đơn (kèm danh mục của sản phẩm).
+ * <p>
+ * Được cộng/trừ dần khi tạo đơn và khi đổi trạng thái (DailySalesService), đối soát lại
+ * từ orders/order_items mỗi đêm. Các màn thống kê chỉ đọc bảng này.
+ */
+@Entity
+@Table(name = "daily_sales", indexes = {
+        @Index(name = "idx_daily_sales_status_date", columnList = "status, sale_date"),
+        @Index(name = "idx_daily_sales_date", columnList = "sale_date"),
+        @Index(name = "idx_daily_sales_category", columnList = "category_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailySales {
+
+    @EmbeddedId
+    private DailySalesId id;
+
+    @Column(name = "category_id", nullable = false)
+    private UUID categoryId;
+
+    // Tổng số lượng bán
+    @Column(nullable = false)
+    private long quantity;
+
+    // Tổng tiền hàng: SUM(itemPrice * quantity)
+    @Column(nullable = false)
+    private double revenue;
+
+    // Phần totalAmount của đơn (sau giảm giá) phân bổ theo tỷ lệ tiền hàng của từng sản phẩm
+    @Column(name = "net_amount", nullable = false)
+    private double netAmount;
+
+    // Mỗi đơn chỉ được đếm ở 1 sản phẩm (id nhỏ nhất của đơn) nên SUM(order_count) = số đơn
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+}
@@ -1,11 +1,12 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -26,7 +27,7 @@ import lombok.NoArgsConstructor;
 @Builder
 public class FlashSaleItem {
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,38 @@
+package com.tieuluan.laptopstore.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Tồn kho đã gộp của 1 biến thể tại lần gộp gần nhất ({@code asOf}): các dòng sổ kho cũ hơn
+ * asOf đã được cộng vào {@code quantity} rồi xóa (trừ dòng của đơn chưa kết thúc, giữ lại để
+ * trả / chốt hàng). Tồn kho đúng = quantity + tổng stockDelta các dòng còn lại, phải bằng
+ * product_variants.stock_quantity (kiểm tra bằng đối soát kho).
+ */
+@Entity
+@Table(name = "inventory_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryCheckpoint {
+
+    @Id
+    @Column(name = "variant_id")
+    private UUID variantId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+}
@@ -0,0 +1,67 @@
+package com.tieuluan.laptopstore.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sổ kho theo biến thể: mỗi lần tồn kho của biến thể đổi ghi thêm 1 dòng, không sửa / xóa
+ * (trừ khi được gộp vào {@link InventoryCheckpoint}). Dòng được ghi theo lô bằng JDBC
+ * (InventoryMovementRepositoryCustomImpl), cùng transaction với thay đổi tồn kho.
+ * <p>
+ * {@code quantity} là số sản phẩm, {@code stockDelta} là số cộng vào product_variants.stock_quantity
+ * (RESERVE = -quantity, COMMIT = 0, RELEASE = +quantity, RESTOCK = số admin chỉnh).
+ */
+@Entity
+@Table(name = "inventory_movements", indexes = {
+        @Index(name = "idx_inventory_movement_variant_created", columnList = "variant_id, created_at"),
+        @Index(name = "idx_inventory_movement_order", columnList = "order_id"),
+        @Index(name = "idx_inventory_movement_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryMovement {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "variant_id", nullable = false)
+    private UUID variantId;
+
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    // Null với RESTOCK
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InventoryMovementType type;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "stock_delta", nullable = false)
+    private int stockDelta;
+
+    // RESERVE của đơn chờ thanh toán online: hết hạn giữ hàng (đơn bị hủy khi quá hạn)
+    @Column(name = "hold_until")
+    private LocalDateTime holdUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,13 @@
+package com.tieuluan.laptopstore.entities;
+
+// Loại biến động kho của 1 biến thể (xem InventoryMovement)
+public enum InventoryMovementType {
+    // Giữ hàng cho đơn vừa đặt (trừ tồn kho bán được)
+    RESERVE,
+    // Hàng đang giữ thành hàng đã bán (đơn COD, hoặc đơn online đã thanh toán); tồn kho không đổi
+    COMMIT,
+    // Trả hàng đã giữ / đã bán về kho (hủy đơn, quá hạn thanh toán)
+    RELEASE,
+    // Admin nhập / chỉnh số lượng kho (có thể âm)
+    RESTOCK
+}
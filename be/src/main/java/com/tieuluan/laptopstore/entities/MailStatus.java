@@ -0,0 +1,8 @@
+package com.tieuluan.laptopstore.entities;
+
+public enum MailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
@@ -2,6 +2,7 @@ package com.tieuluan.laptopstore.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.id.UuidV7Id;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -9,7 +10,6 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -35,7 +35,7 @@ import java.util.UUID;
 public class Order {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     private LocalDateTime orderDate;
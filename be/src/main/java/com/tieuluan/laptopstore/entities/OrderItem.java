@@ -1,11 +1,12 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -27,7 +28,7 @@ import java.util.UUID;
 public class OrderItem {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -47,4 +48,7 @@ public class OrderItem {
     private Integer quantity;
 
     private Double itemPrice;
+
+    // Suất Flash Sale đã giữ khi đặt (null nếu mua giá thường); hủy đơn hoàn đúng suất này
+    private UUID flashSaleItemId;
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.tieuluan.laptopstore.entities;
+
+import com.tieuluan.laptopstore.id.UuidV7Id;
+import com.tieuluan.laptopstore.outbox.OrderEventType;
+import com.tieuluan.laptopstore.outbox.OutboxConsumer;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Transactional outbox: mỗi sự kiện đơn hàng ghi 1 dòng cho mỗi consumer, trong cùng
+ * transaction với thay đổi đơn. OutboxDispatcher đọc các dòng đến hạn và giao cho consumer.
+ * <p>
+ * Khi đang xử lý, {@code availableAt} là hạn giữ dòng: quá hạn mà chưa DONE (node chết giữa
+ * chừng) thì dòng được nhận lại. {@code attempts} tăng mỗi lần nhận, dùng làm "fencing token"
+ * khi đánh dấu xong.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_consumer_status_available", columnList = "consumer, status, available_at"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregate_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @UuidV7Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 40)
+    private OrderEventType eventType;
+
+    // Id đơn hàng
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxConsumer consumer;
+
+    // OrderEvent dạng JSON
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
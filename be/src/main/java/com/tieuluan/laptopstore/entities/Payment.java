@@ -1,11 +1,12 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
@@ -33,7 +34,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class Payment {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -1,12 +1,13 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -30,7 +31,7 @@ import java.util.UUID;
 public class ProductVariant {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @Column(unique = true)
@@ -39,7 +40,8 @@ public class ProductVariant {
     @Column(nullable = false)
     private BigDecimal price;
 
-    @Column(nullable = false)
+    // Chỉ ghi lúc INSERT; sau đó đổi qua InventoryLedger (UPDATE có điều kiện + sổ kho)
+    @Column(nullable = false, updatable = false)
     private Integer stockQuantity;
 
     @ManyToOne(fetch = FetchType.LAZY)
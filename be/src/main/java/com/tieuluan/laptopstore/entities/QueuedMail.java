@@ -0,0 +1,76 @@
+package com.tieuluan.laptopstore.entities;
+
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Hàng đợi email: nội dung đã render sẵn, MailDispatcher gửi theo lô.
+ * <p>
+ * Giống outbox: khi SENDING, {@code availableAt} là hạn giữ; quá hạn thì được nhận lại,
+ * {@code attempts} dùng để chỉ đánh dấu đúng lượt nhận của mình.
+ */
+@Entity
+@Table(name = "mail_queue", indexes = {
+        @Index(name = "idx_mail_queue_status_priority", columnList = "status, priority, available_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueuedMail {
+
+    // Mức ưu tiên: OTP (người dùng đang chờ trên màn hình) gửi trước thông báo đơn hàng
+    public static final int PRIORITY_HIGH = 10;
+    public static final int PRIORITY_NORMAL = 0;
+
+    @Id
+    @UuidV7Id
+    private UUID id;
+
+    @Column(name = "recipient", nullable = false, length = 320)
+    private String to;
+
+    @Column(nullable = false, length = 500)
+    private String subject;
+
+    @ToString.Exclude
+    @Column(nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String html;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MailStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
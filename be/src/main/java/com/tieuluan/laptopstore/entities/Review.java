@@ -1,11 +1,12 @@
 package com.tieuluan.laptopstore.entities;
 
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
 import java.util.Date;
 import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
@@ -25,7 +26,7 @@ import lombok.NoArgsConstructor;
 public class Review {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     // Lưu ID user (Giả sử bạn có bảng User riêng, ở đây lưu ID để decouple)
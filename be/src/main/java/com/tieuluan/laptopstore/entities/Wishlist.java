@@ -8,13 +8,13 @@ import java.util.Date;
 import jakarta.persistence.PrePersist;
 
 import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.id.UuidV7Id;
 
 import jakarta.persistence.JoinColumn;
 
 import jakarta.persistence.ManyToOne;
 
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
 
 import java.util.UUID;
 
@@ -42,7 +42,7 @@ import jakarta.persistence.Entity;
 public class Wishlist {
 
     @Id
-    @GeneratedValue
+    @UuidV7Id
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
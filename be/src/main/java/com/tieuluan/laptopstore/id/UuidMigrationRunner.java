@@ -0,0 +1,100 @@
+package com.tieuluan.laptopstore.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Công cụ chuyển sang UUID v7, chạy 1 lần rồi thoát:
+ * <pre>
+ *   java -jar laptopstore.jar --spring.main.web-application-type=none --ids.migration=report
+ *   java -jar laptopstore.jar --spring.main.web-application-type=none --ids.migration=rebuild
+ * </pre>
+ * report đếm id v4 / v7 từng bảng; rebuild làm thêm việc dựng lại các bảng trong
+ * {@code ids.migration.rebuild-tables} (nên chạy lúc ít tải).
+ * Không đổi id nào: id v4 cũ vẫn hợp lệ (khác nibble phiên bản nên không thể trùng id v7),
+ * khóa ngoại, URL đã gửi cho khách và dữ liệu của apiRecommend (UUID_TO_BIN) giữ nguyên.
+ * Rebuild ({@code ALTER TABLE ... ENGINE=InnoDB}, online) chỉ sắp xếp lại các trang B-tree bị
+ * phân mảnh do chèn id ngẫu nhiên trước đây.
+ */
+@Component
+@ConditionalOnProperty(name = "ids.migration")
+public class UuidMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UuidMigrationRunner.class);
+
+    // Các bảng có khóa chính id BINARY(16) trong schema hiện tại
+    private static final String UUID_TABLES_SQL = """
+            SELECT TABLE_NAME FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = DATABASE() AND COLUMN_NAME = 'id'
+              AND COLUMN_TYPE = 'binary(16)' AND COLUMN_KEY = 'PRI'
+            ORDER BY TABLE_NAME
+            """;
+
+    // Nibble cao của byte thứ 7 là phiên bản UUID
+    private static final String VERSION_COUNT_SQL =
+            "SELECT ASCII(SUBSTRING(id, 7, 1)) >> 4 AS version, COUNT(*) AS total FROM `%s` GROUP BY version";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ConfigurableApplicationContext context;
+
+    @Value("${ids.migration}")
+    private String mode;
+
+    @Value("${ids.migration.rebuild-tables:orders,order_items,payments,inventory_movements,outbox_events,mail_queue}")
+    private Set<String> rebuildTables;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            List<String> tables = jdbcTemplate.queryForList(UUID_TABLES_SQL, String.class);
+            report(tables);
+            if ("rebuild".equalsIgnoreCase(mode)) {
+                rebuild(tables);
+            } else if (!"report".equalsIgnoreCase(mode)) {
+                throw new IllegalArgumentException("ids.migration phải là report hoặc rebuild: " + mode);
+            }
+        } catch (Exception e) {
+            log.error("Chuyển đổi UUID v7 thất bại", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void report(List<String> tables) {
+        for (String table : tables) {
+            Map<Integer, Long> counts = new TreeMap<>();
+            jdbcTemplate.query(VERSION_COUNT_SQL.formatted(table),
+                    rs -> { counts.put(rs.getInt("version"), rs.getLong("total")); });
+            log.info("{}: {} dòng v4, {} dòng v7, khác {}", table,
+                    counts.getOrDefault(4, 0L), counts.getOrDefault(7, 0L),
+                    counts.entrySet().stream()
+                            .filter(e -> e.getKey() != 4 && e.getKey() != 7)
+                            .mapToLong(Map.Entry::getValue).sum());
+        }
+    }
+
+    private void rebuild(List<String> tables) {
+        for (String table : tables) {
+            if (!rebuildTables.contains(table)) continue;
+            long start = System.currentTimeMillis();
+            jdbcTemplate.execute("ALTER TABLE `" + table + "` ENGINE=InnoDB");
+            log.info("Đã dựng lại {} trong {} ms", table, System.currentTimeMillis() - start);
+        }
+    }
+}
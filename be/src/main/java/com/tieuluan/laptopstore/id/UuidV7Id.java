@@ -0,0 +1,22 @@
+package com.tieuluan.laptopstore.id;
+
+import com.tieuluan.laptopstore.id.UuidV7Id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đặt cùng {@code @Id} (thay cho {@code @UuidV7Id}) để Hibernate sinh id bằng
+ * {@link UuidV7}. Id đã có trong DB (UUID v4 cũ) giữ nguyên, chỉ dòng mới dùng v7.
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface UuidV7Id {
+}
@@ -0,0 +1,30 @@
+package com.tieuluan.laptopstore.mail;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+// Pool kết nối SMTP dựng từ cấu hình spring.mail.* của JavaMailSenderImpl do Spring Boot tạo
+@Configuration
+public class MailConfig {
+
+    @Bean(destroyMethod = "close")
+    public SmtpConnectionPool smtpConnectionPool(
+            JavaMailSenderImpl mailSender,
+            @Value("${mail.queue.max-connections:2}") int maxConnections,
+            @Value("${mail.queue.connection-idle-seconds:60}") long idleSeconds) {
+        return new SmtpConnectionPool(mailSender.getSession(), mailSender.getProtocol(),
+                mailSender.getHost(), mailSender.getPort(),
+                mailSender.getUsername(), mailSender.getPassword(),
+                maxConnections, idleSeconds * 1000);
+    }
+
+    @Bean
+    public SmtpBatchSender smtpBatchSender(
+            SmtpConnectionPool smtpConnectionPool,
+            @Value("${spring.mail.username}") String sender,
+            @Value("${mail.queue.borrow-timeout-ms:10000}") long borrowTimeoutMillis) {
+        return new SmtpBatchSender(smtpConnectionPool, sender, "LaptopStore Support", borrowTimeoutMillis);
+    }
+}
@@ -0,0 +1,236 @@
+package com.tieuluan.laptopstore.mail;
+
+import com.tieuluan.laptopstore.async.AsyncConfig;
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.entities.MailStatus;
+import com.tieuluan.laptopstore.entities.QueuedMail;
+import com.tieuluan.laptopstore.repositories.QueuedMailRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Gửi email trong bảng mail_queue.
+ * <p>
+ * 1 thread "mail-dispatcher" khóa các email đến hạn ({@code FOR UPDATE SKIP LOCKED}), chia
+ * thành lô {@code mail.queue.batch-size} và đưa từng lô cho pool mail; mỗi lô gửi trên 1 kết
+ * nối SMTP dùng lại từ {@link SmtpConnectionPool}. Số lô chạy cùng lúc không vượt số kết nối.
+ * Lỗi tạm thời thì thử lại với backoff tăng dần, quá {@code mail.queue.max-attempts} thì FAILED.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    @Autowired private QueuedMailRepository queuedMailRepository;
+    @Autowired private SmtpBatchSender smtpBatchSender;
+    @Autowired private SmtpConnectionPool smtpConnectionPool;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier(AsyncConfig.MAIL_EXECUTOR)
+    private AsyncTaskExecutor mailExecutor;
+
+    @Value("${mail.queue.poll-ms:2000}")
+    private long pollMs;
+
+    @Value("${mail.queue.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.queue.max-connections:2}")
+    private int maxConnections;
+
+    @Value("${mail.queue.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${mail.queue.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.queue.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${mail.queue.retention-days:7}")
+    private int retentionDays;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private Semaphore batchSlots;
+    private volatile boolean running;
+    private Thread loop;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        batchSlots = new Semaphore(maxConnections);
+        running = true;
+        loop = new Thread(this::run, "mail-dispatcher");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    private void run() {
+        while (running) {
+            boolean claimedAny = false;
+            try {
+                claimedAny = dispatch();
+            } catch (Exception e) {
+                log.error("Lỗi khi đọc hàng đợi email", e);
+            }
+            try {
+                if (!claimedAny) {
+                    wakeUp.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                }
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean dispatch() {
+        int freeSlots = batchSlots.availablePermits();
+        if (freeSlots == 0) return false;
+
+        List<QueuedMail> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<QueuedMail> rows = queuedMailRepository.lockDue(now, freeSlots * batchSize);
+            for (QueuedMail row : rows) {
+                row.setStatus(MailStatus.SENDING);
+                row.setAttempts(row.getAttempts() + 1);
+                row.setAvailableAt(now.plusSeconds(leaseSeconds));
+            }
+            return rows;
+        });
+        if (claimed == null || claimed.isEmpty()) return false;
+
+        for (int from = 0; from < claimed.size(); from += batchSize) {
+            List<QueuedMail> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+            batchSlots.acquireUninterruptibly();
+            try {
+                mailExecutor.execute(() -> {
+                    try {
+                        send(batch);
+                    } finally {
+                        batchSlots.release();
+                        wakeUp();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                batchSlots.release();
+                Map<UUID, String> errors = batch.stream()
+                        .collect(Collectors.toMap(QueuedMail::getId, m -> "Pool mail đầy, chưa gửi"));
+                finishRetry(batch, errors, false);
+            }
+        }
+        return true;
+    }
+
+    private void send(List<QueuedMail> batch) {
+        SmtpBatchSender.Result result;
+        try {
+            result = smtpBatchSender.send(batch.stream()
+                    .map(m -> new OutgoingMail(m.getId(), m.getTo(), m.getSubject(), m.getHtml()))
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error("Lỗi khi gửi lô {} email", batch.size(), e);
+            result = new SmtpBatchSender.Result();
+            for (QueuedMail m : batch) result.getRetry().put(m.getId(), e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+
+        SmtpBatchSender.Result outcome = result;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                for (QueuedMail m : batch) {
+                    if (outcome.getSent().contains(m.getId())) {
+                        queuedMailRepository.finish(m.getId(), m.getAttempts(), MailStatus.SENT, now, null, now);
+                    } else if (outcome.getRejected().containsKey(m.getId())) {
+                        log.warn("Email {} tới {} bị từ chối: {}", m.getId(), m.getTo(), outcome.getRejected().get(m.getId()));
+                        queuedMailRepository.finish(m.getId(), m.getAttempts(), MailStatus.FAILED, now,
+                                outcome.getRejected().get(m.getId()), null);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // Email đã gửi nhưng chưa ghi nhận: hết hạn giữ sẽ bị gửi lại (chấp nhận trùng hơn là mất)
+            log.error("Không cập nhật được trạng thái lô email", e);
+        }
+
+        if (!outcome.getRetry().isEmpty()) {
+            List<QueuedMail> toRetry = batch.stream()
+                    .filter(m -> outcome.getRetry().containsKey(m.getId()))
+                    .collect(Collectors.toList());
+            finishRetry(toRetry, outcome.getRetry(), true);
+        }
+    }
+
+    // Trả email về hàng chờ với backoff (countAttempt = false: chưa thật sự thử gửi)
+    private void finishRetry(List<QueuedMail> mails, Map<UUID, String> errors, boolean countAttempt) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                for (QueuedMail m : mails) {
+                    boolean giveUp = countAttempt && m.getAttempts() >= maxAttempts;
+                    // retryBase * 2^(attempts-1), tối đa 1 giờ
+                    long delay = countAttempt
+                            ? Math.min(retryBaseSeconds << Math.min(m.getAttempts() - 1, 10), 3600)
+                            : 1;
+                    if (giveUp) {
+                        log.error("Bỏ email {} tới {} sau {} lần thử: {}", m.getId(), m.getTo(), m.getAttempts(), errors.get(m.getId()));
+                    }
+                    queuedMailRepository.finish(m.getId(), m.getAttempts(),
+                            giveUp ? MailStatus.FAILED : MailStatus.PENDING,
+                            now.plusSeconds(delay), errors.get(m.getId()), null);
+                }
+            });
+        } catch (Exception e) {
+            // Vẫn SENDING, sẽ được nhận lại khi hết hạn giữ
+            log.error("Không trả được {} email về hàng chờ", mails.size(), e);
+        }
+    }
+
+    // Đóng các kết nối SMTP rảnh lâu
+    @Scheduled(fixedDelayString = "${mail.queue.evict-idle-ms:30000}")
+    public void evictIdleConnections() {
+        smtpConnectionPool.evictIdle();
+    }
+
+    @Scheduled(cron = "${mail.queue.cleanup-cron:0 45 3 * * *}")
+    @ClusterSingleton
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+                queuedMailRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays)));
+        JobLease.recordItems(deleted != null ? deleted : 0);
+        log.info("Đã dọn {} email đã gửi", deleted);
+    }
+
+    // Ngừng nhận email mới khi bắt đầu tắt; lô đang gửi do pool mail chờ xong
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        running = false;
+        if (loop != null) loop.interrupt();
+    }
+}
@@ -0,0 +1,48 @@
+package com.tieuluan.laptopstore.mail;
+
+import com.tieuluan.laptopstore.entities.MailStatus;
+import com.tieuluan.laptopstore.entities.QueuedMail;
+import com.tieuluan.laptopstore.repositories.QueuedMailRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Đưa email vào hàng đợi trong DB thay vì gửi SMTP ngay trong request.
+ * Đang trong transaction thì email chỉ được gửi nếu transaction commit.
+ */
+@Component
+public class MailQueue {
+
+    @Autowired private QueuedMailRepository queuedMailRepository;
+    @Autowired private MailDispatcher mailDispatcher;
+
+    public void enqueue(String to, String subject, String html, int priority) {
+        LocalDateTime now = LocalDateTime.now();
+        queuedMailRepository.save(QueuedMail.builder()
+                .to(to)
+                .subject(subject)
+                .html(html)
+                .priority(priority)
+                .status(MailStatus.PENDING)
+                .availableAt(now)
+                .createdAt(now)
+                .build());
+
+        // Đánh thức dispatcher ngay (sau commit nếu đang trong transaction)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mailDispatcher.wakeUp();
+                }
+            });
+        } else {
+            mailDispatcher.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tieuluan.laptopstore.mail;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template HTML đã biên dịch sẵn: chuỗi nguồn được tách 1 lần thành các đoạn cố định và biến,
+ * mỗi lần gửi chỉ nối lại. {@code {{ten}}} được escape HTML, {@code {{{ten}}}} chèn nguyên văn
+ * (dùng cho phần thân đã render sẵn).
+ */
+public final class MailTemplate {
+
+    private static final class Part {
+        final String text;
+        final String variable;
+        final boolean raw;
+
+        Part(String text, String variable, boolean raw) {
+            this.text = text;
+            this.variable = variable;
+            this.raw = raw;
+        }
+    }
+
+    private final String name;
+    private final List<Part> parts;
+    private final int literalLength;
+
+    private MailTemplate(String name, List<Part> parts) {
+        this.name = name;
+        this.parts = List.copyOf(parts);
+        this.literalLength = parts.stream().filter(p -> p.text != null).mapToInt(p -> p.text.length()).sum();
+    }
+
+    public static MailTemplate compile(String name, String source) {
+        List<Part> parts = new ArrayList<>();
+        int pos = 0;
+        while (pos < source.length()) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) break;
+            boolean raw = source.startsWith("{{{", open);
+            String closeToken = raw ? "}}}" : "}}";
+            int start = open + (raw ? 3 : 2);
+            int close = source.indexOf(closeToken, start);
+            if (close < 0) {
+                throw new IllegalArgumentException("Template " + name + ": thiếu '" + closeToken + "' sau vị trí " + open);
+            }
+            if (open > pos) parts.add(new Part(source.substring(pos, open), null, false));
+            parts.add(new Part(null, source.substring(start, close).trim(), raw));
+            pos = close + closeToken.length();
+        }
+        if (pos < source.length()) parts.add(new Part(source.substring(pos), null, false));
+        return new MailTemplate(name, parts);
+    }
+
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + 256);
+        for (Part part : parts) {
+            if (part.text != null) {
+                out.append(part.text);
+                continue;
+            }
+            if (!values.containsKey(part.variable)) {
+                throw new IllegalArgumentException("Template " + name + ": thiếu giá trị cho '" + part.variable + "'");
+            }
+            Object value = values.get(part.variable);
+            String text = value == null ? "" : value.toString();
+            out.append(part.raw ? text : HtmlUtils.htmlEscape(text, "UTF-8"));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package com.tieuluan.laptopstore.mail;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Nạp và biên dịch toàn bộ template trong {@code classpath:mail/*.html} lúc khởi động
+ * (template lỗi cú pháp làm ứng dụng dừng ngay thay vì lỗi lúc gửi).
+ */
+@Component
+public class MailTemplates {
+
+    private static final String LAYOUT = "layout";
+
+    private final Map<String, MailTemplate> templates = new HashMap<>();
+
+    @PostConstruct
+    void load() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:mail/*.html");
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            if (filename == null) continue;
+            String name = filename.substring(0, filename.length() - ".html".length());
+            try (InputStream in = resource.getInputStream()) {
+                templates.put(name, MailTemplate.compile(name, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+        }
+        if (!templates.containsKey(LAYOUT)) {
+            throw new IllegalStateException("Thiếu template mail/layout.html");
+        }
+    }
+
+    /** Render template nội dung rồi bọc vào khung chung (header + footer). */
+    public String page(String templateName, String title, Map<String, ?> values) {
+        return wrap(title, get(templateName).render(values));
+    }
+
+    /** Bọc 1 đoạn HTML có sẵn vào khung chung. */
+    public String wrap(String title, String bodyHtml) {
+        return get(LAYOUT).render(Map.of("title", title, "body", bodyHtml));
+    }
+
+    private MailTemplate get(String name) {
+        MailTemplate template = templates.get(name);
+        if (template == null) throw new IllegalArgumentException("Không có template mail/" + name + ".html");
+        return template;
+    }
+}
@@ -0,0 +1,15 @@
+package com.tieuluan.laptopstore.mail;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+// 1 email đã render, sẵn sàng gửi
+@Value
+public class OutgoingMail {
+
+    UUID id;
+    String to;
+    String subject;
+    String html;
+}
@@ -0,0 +1,109 @@
+package com.tieuluan.laptopstore.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.Getter;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Gửi 1 lô email trên 1 kết nối mượn từ {@link SmtpConnectionPool}.
+ * <p>
+ * Kết quả chia 3 nhóm: đã gửi; bị từ chối hẳn (địa chỉ sai, máy chủ từ chối người nhận)
+ * không nên thử lại; lỗi tạm thời (mất kết nối, không mượn được kết nối) cần thử lại sau.
+ */
+public class SmtpBatchSender {
+
+    @Getter
+    public static final class Result {
+        private final Set<UUID> sent = new HashSet<>();
+        private final Map<UUID, String> rejected = new LinkedHashMap<>();
+        private final Map<UUID, String> retry = new LinkedHashMap<>();
+    }
+
+    private final SmtpConnectionPool pool;
+    private final String fromAddress;
+    private final String fromName;
+    private final long borrowTimeoutMillis;
+
+    public SmtpBatchSender(SmtpConnectionPool pool, String fromAddress, String fromName, long borrowTimeoutMillis) {
+        this.pool = pool;
+        this.fromAddress = fromAddress;
+        this.fromName = fromName;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public Result send(List<OutgoingMail> batch) {
+        Result result = new Result();
+        if (batch.isEmpty()) return result;
+
+        SmtpConnectionPool.Connection connection;
+        try {
+            connection = pool.borrow(borrowTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(mail -> result.retry.put(mail.getId(), "Bị gián đoạn khi chờ kết nối SMTP"));
+            return result;
+        } catch (MessagingException e) {
+            batch.forEach(mail -> result.retry.put(mail.getId(), describe(e)));
+            return result;
+        }
+
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                OutgoingMail mail = batch.get(i);
+                MimeMessage message;
+                try {
+                    message = build(mail);
+                } catch (MessagingException | UnsupportedEncodingException e) {
+                    result.rejected.put(mail.getId(), describe(e));
+                    continue;
+                }
+
+                try {
+                    connection.transport().sendMessage(message, message.getAllRecipients());
+                    result.sent.add(mail.getId());
+                } catch (SendFailedException e) {
+                    // Máy chủ từ chối người nhận, kết nối vẫn dùng được
+                    result.rejected.put(mail.getId(), describe(e));
+                } catch (MessagingException e) {
+                    // Kết nối hỏng: bỏ kết nối, phần còn lại của lô thử lại sau
+                    connection.invalidate();
+                    for (int j = i; j < batch.size(); j++) {
+                        result.retry.put(batch.get(j).getId(), describe(e));
+                    }
+                    break;
+                }
+            }
+        } finally {
+            connection.close();
+        }
+        return result;
+    }
+
+    private MimeMessage build(OutgoingMail mail) throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = new MimeMessage(pool.getSession());
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
+        helper.setFrom(fromAddress, fromName);
+        helper.setTo(mail.getTo());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getHtml(), true);
+        // Transport.sendMessage không tự gọi saveChanges như Transport.send
+        message.saveChanges();
+        return message;
+    }
+
+    private static String describe(Exception e) {
+        String text = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return text.length() > 1000 ? text.substring(0, 1000) : text;
+    }
+}
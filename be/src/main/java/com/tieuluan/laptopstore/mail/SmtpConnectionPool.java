@@ -0,0 +1,136 @@
+package com.tieuluan.laptopstore.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Giữ sẵn các kết nối SMTP đã đăng nhập để gửi nhiều email trên cùng 1 kết nối
+ * (bỏ được bắt tay TCP + STARTTLS + AUTH cho mỗi email).
+ * <p>
+ * Tối đa {@code maxConnections} kết nối cùng lúc; kết nối rảnh quá {@code idleMillis} bị đóng
+ * ({@link #evictIdle()}), vì máy chủ SMTP (Gmail) tự cắt kết nối rảnh lâu.
+ */
+public class SmtpConnectionPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    private static final class Pooled {
+        final Transport transport;
+        long lastUsed;
+
+        Pooled(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final long idleMillis;
+
+    private final Semaphore permits;
+    // Kết nối dùng gần nhất ở đầu hàng để các kết nối ít dùng hết hạn và bị đóng
+    private final LinkedBlockingDeque<Pooled> idle = new LinkedBlockingDeque<>();
+
+    public SmtpConnectionPool(Session session, String protocol, String host, int port,
+                              String username, String password, int maxConnections, long idleMillis) {
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.idleMillis = idleMillis;
+        this.permits = new Semaphore(maxConnections);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Connection borrow(long timeoutMillis) throws MessagingException, InterruptedException {
+        if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new MessagingException("Hết kết nối SMTP rảnh");
+        }
+        try {
+            Pooled pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.transport.isConnected()) return new Connection(pooled);
+                closeQuietly(pooled.transport);
+            }
+            Transport transport = session.getTransport(protocol);
+            transport.connect(host, port, username, password);
+            return new Connection(new Pooled(transport));
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<Pooled> expired = new ArrayList<>();
+        for (Pooled pooled : idle) {
+            if (now - pooled.lastUsed > idleMillis && idle.remove(pooled)) expired.add(pooled);
+        }
+        expired.forEach(p -> closeQuietly(p.transport));
+    }
+
+    @Override
+    public void close() {
+        Pooled pooled;
+        while ((pooled = idle.pollFirst()) != null) closeQuietly(pooled.transport);
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (Exception e) {
+            log.debug("Đóng kết nối SMTP lỗi", e);
+        }
+    }
+
+    /** Kết nối đang mượn; gọi {@link #close()} để trả lại, {@link #invalidate()} nếu kết nối hỏng. */
+    public final class Connection implements AutoCloseable {
+
+        private final Pooled pooled;
+        private boolean done;
+
+        private Connection(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        public Transport transport() {
+            return pooled.transport;
+        }
+
+        public void invalidate() {
+            if (done) return;
+            done = true;
+            closeQuietly(pooled.transport);
+            permits.release();
+        }
+
+        @Override
+        public void close() {
+            if (done) return;
+            done = true;
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+            permits.release();
+        }
+    }
+}
@@ -2,15 +2,25 @@ package com.tieuluan.laptopstore.mapper;
 
 import com.tieuluan.laptopstore.auth.entities.User;
 import com.tieuluan.laptopstore.dto.OrderDetails;
+import com.tieuluan.laptopstore.dto.OrderHistoryDto;
+import com.tieuluan.laptopstore.dto.OrderHistoryItemDto;
 import com.tieuluan.laptopstore.dto.OrderItemDetail;
+import com.tieuluan.laptopstore.dto.ProductDto;
 import com.tieuluan.laptopstore.dto.ShippingProviderDto;
 import com.tieuluan.laptopstore.entities.Order;
 import com.tieuluan.laptopstore.entities.OrderItem;
 import com.tieuluan.laptopstore.entities.ShippingProvider;
 import com.tieuluan.laptopstore.repositories.ReviewRepository;
+import com.tieuluan.laptopstore.services.FlashSaleService;
 
 import lombok.RequiredArgsConstructor;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,12 +36,36 @@ public class OrderMapper {
 
         @Autowired private DiscountMapper discountMapper;
 
+        @Autowired private FlashSaleService flashSaleService;
+
     // =======================================================================
     // 🧾 MAPPING DÀNH CHO USER
     // =======================================================================
     public OrderDetails mapToOrderDetails(Order order, User user) {
         if (order == null || user == null) return null;
+        OrderDetails details = buildOrderDetails(order, user, reviewedProductIds(user.getId(), List.of(order)));
+        enrichFlashSale(List.of(details));
+        return details;
+    }
+
+    // Map nhiều đơn (mỗi đơn lấy user của chính nó), Flash Sale được gắn 1 lần cho cả danh sách.
+    // Cờ "đã đánh giá" lấy bằng 1 query IN cho mỗi user (lịch sử của 1 user -> đúng 1 query)
+    public List<OrderDetails> mapToOrderDetailsList(List<Order> orders) {
+        Map<UUID, Set<UUID>> reviewedByUser = new HashMap<>();
+        orders.stream()
+                .filter(order -> order != null && order.getUser() != null)
+                .collect(Collectors.groupingBy(order -> order.getUser().getId()))
+                .forEach((userId, userOrders) -> reviewedByUser.put(userId, reviewedProductIds(userId, userOrders)));
+
+        List<OrderDetails> details = orders.stream()
+                .filter(order -> order != null && order.getUser() != null)
+                .map(order -> buildOrderDetails(order, order.getUser(), reviewedByUser.get(order.getUser().getId())))
+                .collect(Collectors.toList());
+        enrichFlashSale(details);
+        return details;
+    }
 
+    private OrderDetails buildOrderDetails(Order order, User user, Set<UUID> reviewedProductIds) {
         return OrderDetails.builder()
                 .id(order.getId())
                 .emailUser(user.getEmail())
@@ -47,7 +81,7 @@ public class OrderMapper {
                 .discount(discountMapper.mapToDiscountDto(order.getDiscount()))
                 .orderItemList(order.getOrderItemList() != null
                         ? order.getOrderItemList().stream()
-                                .map(item -> toOrderItemDetail(item, user))
+                                .map(item -> toOrderItemDetail(item, reviewedProductIds))
                                 .collect(Collectors.toList())
                         : null)
                 .build();
@@ -57,6 +91,21 @@ public class OrderMapper {
     // 📋 MAPPING DÀNH CHO ADMIN
     // =======================================================================
     public OrderDetails mapToOrderDetailsAdmin(Order order) {
+        OrderDetails details = buildOrderDetailsAdmin(order);
+        enrichFlashSale(details == null ? List.of() : List.of(details));
+        return details;
+    }
+
+    public List<OrderDetails> mapToOrderDetailsAdminList(List<Order> orders) {
+        List<OrderDetails> details = orders.stream()
+                .map(this::buildOrderDetailsAdmin)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        enrichFlashSale(details);
+        return details;
+    }
+
+    private OrderDetails buildOrderDetailsAdmin(Order order) {
         if (order == null) return null;
 
         return OrderDetails.builder()
@@ -80,14 +129,8 @@ public class OrderMapper {
                 .build();
     }
 
-        public OrderItemDetail toOrderItemDetail(OrderItem item, User user) {
-                if (item == null || user == null) return null;
-
-                boolean reviewed = reviewRepository
-                        .existsByProductIdAndUserIdAndParentIdIsNull(
-                        item.getProduct().getId(),
-                        user.getId()
-                        );
+        public OrderItemDetail toOrderItemDetail(OrderItem item, Set<UUID> reviewedProductIds) {
+                if (item == null) return null;
 
                 return OrderItemDetail.builder()
                         .id(item.getId())
@@ -95,7 +138,7 @@ public class OrderMapper {
                         .productVariantId(item.getProductVariantId())
                         .quantity(item.getQuantity())
                         .itemPrice(item.getItemPrice())
-                        .reviewed(reviewed) 
+                        .reviewed(reviewedProductIds.contains(item.getProduct().getId()))
                         .build();
         }
 
@@ -114,6 +157,49 @@ public class OrderMapper {
 
 
 
+    // =======================================================================
+    // 📜 LỊCH SỬ ĐƠN (dòng hàng đã là projection, sản phẩm dạng summary)
+    // =======================================================================
+    public OrderHistoryDto toOrderHistoryDto(Order order, List<OrderHistoryItemDto> items) {
+        return OrderHistoryDto.builder()
+                .id(order.getId())
+                .orderDate(order.getOrderDate())
+                .emailUser(order.getUser() != null ? order.getUser().getEmail() : "")
+                .address(order.getAddress())
+                .totalAmount(order.getTotalAmount())
+                .orderStatus(order.getOrderStatus())
+                .paymentMethod(order.getPaymentMethod())
+                .shippingProvider(mapToShippingProviderDto(order.getShippingProvider()))
+                .shipmentNumber(order.getShipmentNumber())
+                .expectedDeliveryDate(order.getExpectedDeliveryDate())
+                .note(order.getNote())
+                .discount(discountMapper.mapToDiscountDto(order.getDiscount()))
+                .orderItemList(items)
+                .build();
+    }
+
+    // Sản phẩm (gốc, không tính trả lời) mà user đã đánh giá trong số các sản phẩm của các đơn này
+    private Set<UUID> reviewedProductIds(UUID userId, List<Order> orders) {
+        Set<UUID> productIds = orders.stream()
+                .filter(o -> o.getOrderItemList() != null)
+                .flatMap(o -> o.getOrderItemList().stream())
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) return Set.of();
+        return reviewRepository.findReviewedProductIds(userId, productIds);
+    }
+
+    // Gom sản phẩm của mọi dòng hàng rồi gắn Flash Sale bằng 1 truy vấn duy nhất
+    private void enrichFlashSale(List<OrderDetails> orders) {
+        List<ProductDto> products = orders.stream()
+                .filter(o -> o.getOrderItemList() != null)
+                .flatMap(o -> o.getOrderItemList().stream())
+                .map(OrderItemDetail::getProduct)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        flashSaleService.enrichProducts(products);
+    }
+
     private ShippingProviderDto mapToShippingProviderDto(ShippingProvider sp) {
         if (sp == null) return null;
         return new ShippingProviderDto(
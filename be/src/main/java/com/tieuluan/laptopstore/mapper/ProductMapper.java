@@ -1,24 +1,20 @@
 package com.tieuluan.laptopstore.mapper;
 
-import com.tieuluan.laptopstore.dto.FlashSaleDtos;
 import com.tieuluan.laptopstore.dto.ProductDto;
 import com.tieuluan.laptopstore.dto.ProductResourceDto;
 import com.tieuluan.laptopstore.dto.ProductSpecificationDto;
 import com.tieuluan.laptopstore.dto.ProductVariantDto;
-import com.tieuluan.laptopstore.entities.FlashSaleItem;
 import com.tieuluan.laptopstore.entities.Product;
 import com.tieuluan.laptopstore.entities.ProductSpecification;
 import com.tieuluan.laptopstore.entities.ProductVariant;
 import com.tieuluan.laptopstore.entities.ProductVariantAttribute;
 import com.tieuluan.laptopstore.entities.Resources;
-import com.tieuluan.laptopstore.repositories.FlashSaleItemRepository;
 import com.tieuluan.laptopstore.services.BrandService;
 import com.tieuluan.laptopstore.services.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,9 +42,6 @@ public class ProductMapper {
     @Lazy
     private CategoryTypeMapper categoryTypeMapper;
 
-    @Autowired
-    private FlashSaleItemRepository flashSaleItemRepository;
-
     /** ================= Map DTO -> Entity ================= */
     public Product mapToProductEntity(ProductDto dto) {
         if (dto == null) return null;
@@ -278,14 +271,8 @@ public class ProductMapper {
         builder.resources(mapProductResourcesListToDto(product.getResources()));
         builder.specifications(mapProductSpecificationsToDto(product.getSpecifications()));
 
-        // Flash Sale logic
-        try {
-            flashSaleItemRepository.findActiveSaleByProductId(product.getId(), LocalDateTime.now())
-                .ifPresent(item -> builder.flashSale(mapToFlashSaleInfo(item)));
-        } catch (Exception e) {
-            // Log error if needed, but don't break the response
-        }
-
+        // Không tra Flash Sale ở đây: mapper chỉ map dữ liệu thuần,
+        // thông tin Sale được gắn theo lô bằng FlashSaleService.enrichProducts
         return builder.build();
     }
 
@@ -326,18 +313,6 @@ public class ProductMapper {
                 .id(ps.getId()).name(ps.getName()).value(ps.getValue()).build()).collect(Collectors.toList());
     }
     
-     public FlashSaleDtos.ProductFlashSaleInfo mapToFlashSaleInfo(FlashSaleItem item) {
-        if (item == null || item.getFlashSale() == null) return null;
-        return FlashSaleDtos.ProductFlashSaleInfo.builder()
-                .id(item.getFlashSale().getId())
-                .discountPercent(item.getDiscountPercent())
-                .quantity(item.getQuantity())
-                .sold(item.getSold())
-                .startDate(item.getFlashSale().getStartDate())
-                .endDate(item.getFlashSale().getEndDate())
-                .build();
-    }
-    
     public List<ProductDto> mapToProductDtos(List<Product> products) {
         if (products == null) return new ArrayList<>();
         return products.stream().map(this::mapToProductDto).collect(Collectors.toList());
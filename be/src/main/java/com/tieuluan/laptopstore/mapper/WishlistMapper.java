@@ -5,6 +5,10 @@ import org.springframework.stereotype.Component;
 
 import com.tieuluan.laptopstore.dto.WishlistDto;
 import com.tieuluan.laptopstore.entities.Wishlist;
+import com.tieuluan.laptopstore.services.FlashSaleService;
+
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 public class WishlistMapper {
@@ -12,6 +16,9 @@ public class WishlistMapper {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private FlashSaleService flashSaleService;
+
     public WishlistDto toWishlistDto(Wishlist wishlist) {
         if (wishlist == null) return null;
 
@@ -21,4 +28,17 @@ public class WishlistMapper {
                 .product(productMapper.mapToProductDto(wishlist.getProduct()))
                 .build();
     }
+
+    // Map cả danh sách rồi gắn Flash Sale cho mọi sản phẩm trong 1 lần
+    public List<WishlistDto> toWishlistDtos(List<Wishlist> wishlists) {
+        List<WishlistDto> dtos = wishlists.stream()
+                .map(this::toWishlistDto)
+                .collect(Collectors.toList());
+
+        flashSaleService.enrichProducts(dtos.stream()
+                .map(WishlistDto::getProduct)
+                .filter(p -> p != null)
+                .collect(Collectors.toList()));
+        return dtos;
+    }
 }
@@ -0,0 +1,38 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+import com.tieuluan.laptopstore.services.DailySalesService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Cộng/trừ bảng daily_sales; chạy chung transaction với việc đánh dấu outbox nên không cộng trùng
+@Component
+public class DailySalesOrderEventHandler implements OrderEventHandler {
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailySalesService dailySalesService;
+
+    @Override
+    public OutboxConsumer consumer() {
+        return OutboxConsumer.ANALYTICS;
+    }
+
+    @Override
+    public boolean transactional() {
+        return true;
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        // Dòng hàng và tổng tiền không đổi sau khi đặt, chỉ trạng thái lấy từ sự kiện
+        Order order = orderRepository.findById(event.getOrderId()).orElse(null);
+        if (order == null) return;
+        if (event.isPlaced()) {
+            dailySalesService.recordCreated(order, event.getTo());
+        } else {
+            dailySalesService.recordStatusChange(order, event.getFrom(), event.getTo());
+        }
+    }
+}
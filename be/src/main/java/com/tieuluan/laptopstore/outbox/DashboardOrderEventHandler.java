@@ -0,0 +1,23 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.tieuluan.laptopstore.services.DashboardSnapshotService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Áp thay đổi vào snapshot dashboard (node xử lý phát tiếp cho các node khác qua Redis)
+@Component
+public class DashboardOrderEventHandler implements OrderEventHandler {
+
+    @Autowired private DashboardSnapshotService dashboardSnapshotService;
+
+    @Override
+    public OutboxConsumer consumer() {
+        return OutboxConsumer.DASHBOARD;
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        dashboardSnapshotService.onOrderEvent(event);
+    }
+}
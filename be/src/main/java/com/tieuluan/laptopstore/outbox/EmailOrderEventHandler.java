@@ -0,0 +1,33 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.tieuluan.laptopstore.auth.services.EmailService;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Đưa email trạng thái đơn vào mail_queue (nội dung do OrderService đặt vào sự kiện).
+// Chạy chung transaction với markDone nên mỗi sự kiện chỉ sinh đúng 1 email.
+@Component
+public class EmailOrderEventHandler implements OrderEventHandler {
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private EmailService emailService;
+
+    @Override
+    public OutboxConsumer consumer() {
+        return OutboxConsumer.EMAIL;
+    }
+
+    @Override
+    public boolean transactional() {
+        return true;
+    }
+
+    @Override
+    public void handle(OrderEvent event) {
+        if (event.getEmailSubject() == null) return;
+        orderRepository.findById(event.getOrderId())
+                .ifPresent(order -> emailService.sendOrderStatusEmail(order, event.getEmailSubject(), event.getEmailContent()));
+    }
+}
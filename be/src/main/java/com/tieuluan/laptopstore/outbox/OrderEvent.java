@@ -0,0 +1,66 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sự kiện trong vòng đời đơn hàng, lưu vào outbox dưới dạng JSON.
+ * <p>
+ * Tạo đơn có {@code from == null}. Thanh toán / hủy / đổi trạng thái mang cả trạng thái cũ
+ * và mới nên các consumer cộng dồn số liệu không phụ thuộc thứ tự xử lý.
+ * Có {@code emailSubject} thì consumer EMAIL gửi thư cho khách.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEvent {
+
+    private OrderEventType type;
+    private UUID orderId;
+    private OrderStatus from;
+    private OrderStatus to;
+    private double totalAmount;
+    private LocalDateTime occurredAt;
+    private String emailSubject;
+    private String emailContent;
+
+    public static OrderEvent placed(Order order) {
+        return OrderEvent.builder()
+                .type(OrderEventType.ORDER_PLACED)
+                .orderId(order.getId())
+                .to(order.getOrderStatus())
+                .totalAmount(order.getTotalAmount() != null ? order.getTotalAmount() : 0)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    public static OrderEvent transition(OrderEventType type, Order order, OrderStatus from, OrderStatus to) {
+        return OrderEvent.builder()
+                .type(type)
+                .orderId(order.getId())
+                .from(from)
+                .to(to)
+                .totalAmount(order.getTotalAmount() != null ? order.getTotalAmount() : 0)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    public OrderEvent withEmail(String subject, String content) {
+        this.emailSubject = subject;
+        this.emailContent = content;
+        return this;
+    }
+
+    public boolean isPlaced() {
+        return type == OrderEventType.ORDER_PLACED;
+    }
+}
@@ -0,0 +1,20 @@
+package com.tieuluan.laptopstore.outbox;
+
+/**
+ * Consumer của outbox đơn hàng. Có thể được gọi lại với cùng sự kiện (retry, node chết giữa
+ * chừng) nên xử lý phải chịu được chạy lặp, hoặc khai báo {@link #transactional()}.
+ */
+public interface OrderEventHandler {
+
+    OutboxConsumer consumer();
+
+    void handle(OrderEvent event) throws Exception;
+
+    /**
+     * true: {@link #handle} chạy chung transaction với việc đánh dấu dòng outbox DONE, nên mỗi
+     * sự kiện chỉ có hiệu lực đúng 1 lần (dùng cho thay đổi trong DB như bảng tổng hợp).
+     */
+    default boolean transactional() {
+        return false;
+    }
+}
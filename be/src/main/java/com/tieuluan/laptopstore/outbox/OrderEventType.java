@@ -0,0 +1,8 @@
+package com.tieuluan.laptopstore.outbox;
+
+public enum OrderEventType {
+    ORDER_PLACED,
+    ORDER_PAID,
+    ORDER_CANCELLED,
+    ORDER_STATUS_CHANGED
+}
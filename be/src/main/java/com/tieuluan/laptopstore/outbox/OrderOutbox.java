@@ -0,0 +1,65 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tieuluan.laptopstore.entities.OutboxEvent;
+import com.tieuluan.laptopstore.entities.OutboxStatus;
+import com.tieuluan.laptopstore.repositories.OutboxEventRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi sự kiện đơn hàng vào outbox, bắt buộc nằm trong transaction đang thay đổi đơn:
+ * đơn commit thì sự kiện chắc chắn được giao, đơn rollback thì sự kiện biến mất theo.
+ */
+@Component
+public class OrderOutbox {
+
+    @Autowired private OutboxEventRepository outboxEventRepository;
+    @Autowired private OutboxDispatcher outboxDispatcher;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OrderEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không ghi được sự kiện đơn hàng " + event.getOrderId(), e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> rows = new ArrayList<>();
+        for (OutboxConsumer consumer : OutboxConsumer.values()) {
+            // Sự kiện không có email thì không cần dòng cho consumer EMAIL
+            if (consumer == OutboxConsumer.EMAIL && event.getEmailSubject() == null) continue;
+            rows.add(OutboxEvent.builder()
+                    .eventType(event.getType())
+                    .aggregateId(event.getOrderId())
+                    .consumer(consumer)
+                    .payload(payload)
+                    .status(OutboxStatus.PENDING)
+                    .availableAt(now)
+                    .createdAt(now)
+                    .build());
+        }
+        outboxEventRepository.saveAll(rows);
+
+        // Báo dispatcher ngay sau commit thay vì chờ tới lượt quét kế tiếp
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxDispatcher.wakeUp();
+            }
+        });
+    }
+}
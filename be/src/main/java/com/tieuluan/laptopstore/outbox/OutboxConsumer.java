@@ -0,0 +1,33 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.tieuluan.laptopstore.async.Workload;
+
+/**
+ * Các nơi nhận sự kiện đơn hàng. Mỗi consumer chạy trên pool của {@link Workload} tương ứng và
+ * có giới hạn số sự kiện đang xử lý riêng, nên consumer chậm (SMTP) không làm trễ consumer khác.
+ */
+public enum OutboxConsumer {
+
+    // Email thông báo cho khách
+    EMAIL(Workload.MAIL, 50),
+    // Bảng tổng hợp daily_sales
+    ANALYTICS(Workload.ANALYTICS, 100),
+    // Snapshot dashboard admin trong bộ nhớ
+    DASHBOARD(Workload.ANALYTICS, 100);
+
+    private final Workload workload;
+    private final int defaultMaxInFlight;
+
+    OutboxConsumer(Workload workload, int defaultMaxInFlight) {
+        this.workload = workload;
+        this.defaultMaxInFlight = defaultMaxInFlight;
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public int getDefaultMaxInFlight() {
+        return defaultMaxInFlight;
+    }
+}
@@ -0,0 +1,245 @@
+package com.tieuluan.laptopstore.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.entities.OutboxEvent;
+import com.tieuluan.laptopstore.entities.OutboxStatus;
+import com.tieuluan.laptopstore.repositories.OutboxEventRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đọc outbox và giao sự kiện cho từng consumer trên pool của workload tương ứng (AsyncConfig).
+ * <p>
+ * 1 thread "outbox-dispatcher" lặp: với mỗi consumer, khóa tối đa số dòng mà consumer còn
+ * nhận được ({@code outbox.max-in-flight.<consumer>}, {@code FOR UPDATE SKIP LOCKED}), chuyển
+ * sang PROCESSING với hạn giữ, commit, rồi đưa vào pool. Không còn việc thì ngủ tới khi có đơn
+ * commit ({@link #wakeUp()}) hoặc hết {@code outbox.poll-ms}. Lỗi thì thử lại với backoff tăng dần, quá số lần thì FAILED.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired private OutboxEventRepository outboxEventRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private Environment environment;
+    @Autowired private List<OrderEventHandler> handlers;
+    @Autowired private Map<String, AsyncTaskExecutor> executors;
+
+    @Value("${outbox.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final Map<OutboxConsumer, Worker> workers = new EnumMap<>(OutboxConsumer.class);
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running;
+    private Thread loop;
+
+    // Handler + pool + số sự kiện còn được nhận thêm của 1 consumer
+    private static final class Worker {
+        final OrderEventHandler handler;
+        final AsyncTaskExecutor executor;
+        final Semaphore capacity;
+
+        Worker(OrderEventHandler handler, AsyncTaskExecutor executor, int capacity) {
+            this.handler = handler;
+            this.executor = executor;
+            this.capacity = new Semaphore(capacity);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (OrderEventHandler handler : handlers) {
+            OutboxConsumer consumer = handler.consumer();
+            int maxInFlight = environment.getProperty(
+                    "outbox.max-in-flight." + consumer.name().toLowerCase(Locale.ROOT),
+                    Integer.class, consumer.getDefaultMaxInFlight());
+            AsyncTaskExecutor executor = executors.get(consumer.getWorkload().getBeanName());
+            workers.put(consumer, new Worker(handler, executor, maxInFlight));
+        }
+
+        running = true;
+        loop = new Thread(this::run, "outbox-dispatcher");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    private void run() {
+        while (running) {
+            boolean claimedAny = false;
+            try {
+                for (Map.Entry<OutboxConsumer, Worker> entry : workers.entrySet()) {
+                    claimedAny |= dispatch(entry.getKey(), entry.getValue());
+                }
+            } catch (Exception e) {
+                log.error("Lỗi khi đọc outbox", e);
+            }
+            try {
+                // Vừa lấy được việc thì quét tiếp ngay, có thể còn dòng đến hạn
+                if (!claimedAny) {
+                    wakeUp.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                }
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean dispatch(OutboxConsumer consumer, Worker worker) {
+        int free = Math.min(worker.capacity.availablePermits(), batchSize);
+        if (free == 0) return false;
+
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> rows = outboxEventRepository.lockDue(consumer.name(), now, free);
+            for (OutboxEvent row : rows) {
+                row.setStatus(OutboxStatus.PROCESSING);
+                row.setAttempts(row.getAttempts() + 1);
+                row.setAvailableAt(now.plusSeconds(leaseSeconds));
+            }
+            return rows;
+        });
+        if (claimed == null || claimed.isEmpty()) return false;
+
+        for (OutboxEvent row : claimed) {
+            worker.capacity.acquireUninterruptibly();
+            try {
+                worker.executor.execute(() -> {
+                    try {
+                        process(worker.handler, row);
+                    } finally {
+                        worker.capacity.release();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // Pool dùng chung đã đầy: trả dòng về hàng chờ, thử lại lượt sau
+                worker.capacity.release();
+                release(row);
+            }
+        }
+        return true;
+    }
+
+    private void process(OrderEventHandler handler, OutboxEvent row) {
+        try {
+            OrderEvent event = objectMapper.readValue(row.getPayload(), OrderEvent.class);
+            if (handler.transactional()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        handler.handle(event);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    // Lượt nhận này đã bị node khác thay (quá hạn giữ) -> hủy thay đổi vừa làm
+                    if (outboxEventRepository.markDone(row.getId(), row.getAttempts(), LocalDateTime.now()) == 0) {
+                        throw new IllegalStateException("Outbox " + row.getId() + " đã được nhận lại ở nơi khác");
+                    }
+                });
+            } else {
+                handler.handle(event);
+                transactionTemplate.executeWithoutResult(status ->
+                        outboxEventRepository.markDone(row.getId(), row.getAttempts(), LocalDateTime.now()));
+            }
+        } catch (Exception e) {
+            fail(row, e);
+        }
+    }
+
+    private void fail(OutboxEvent row, Exception e) {
+        boolean giveUp = row.getAttempts() >= maxAttempts;
+        // Backoff: 2^attempts giây, tối đa 1 giờ
+        long delaySeconds = Math.min(1L << Math.min(row.getAttempts(), 12), 3600);
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        if (error.length() > 1000) error = error.substring(0, 1000);
+
+        if (giveUp) {
+            log.error("Outbox {} ({} / {}) thất bại sau {} lần, bỏ qua",
+                    row.getId(), row.getConsumer(), row.getEventType(), row.getAttempts(), e);
+        } else {
+            log.warn("Outbox {} ({} / {}) lỗi lần {}: {}",
+                    row.getId(), row.getConsumer(), row.getEventType(), row.getAttempts(), error);
+        }
+
+        String lastError = error;
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markFailed(
+                    row.getId(), row.getAttempts(),
+                    giveUp ? OutboxStatus.FAILED : OutboxStatus.PENDING,
+                    LocalDateTime.now().plusSeconds(delaySeconds), lastError));
+        } catch (Exception ex) {
+            // Dòng vẫn PROCESSING, sẽ được nhận lại khi hết hạn giữ
+            log.error("Không cập nhật được trạng thái outbox {}", row.getId(), ex);
+        }
+    }
+
+    private void release(OutboxEvent row) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markFailed(
+                    row.getId(), row.getAttempts(), OutboxStatus.PENDING,
+                    LocalDateTime.now().plusSeconds(1), "Pool đầy, chưa xử lý"));
+        } catch (Exception e) {
+            log.error("Không trả được outbox {} về hàng chờ", row.getId(), e);
+        }
+    }
+
+    // Dọn các dòng đã xử lý xong
+    @Scheduled(cron = "${outbox.cleanup-cron:0 15 3 * * *}")
+    @ClusterSingleton
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteDoneBefore(LocalDateTime.now().minusDays(retentionDays)));
+        JobLease.recordItems(deleted != null ? deleted : 0);
+        log.info("Đã dọn {} dòng outbox", deleted);
+    }
+
+    // Ngừng nhận dòng mới ngay khi bắt đầu tắt, trước khi các pool ngừng nhận việc; việc đang
+    // dở do pool chờ xong (AsyncConfig), dòng chưa xong sẽ được nhận lại khi hết hạn giữ
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        running = false;
+        if (loop != null) loop.interrupt();
+    }
+}
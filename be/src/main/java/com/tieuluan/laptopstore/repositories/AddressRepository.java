@@ -4,8 +4,11 @@ import com.tieuluan.laptopstore.entities.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, UUID> {
+
+    Optional<Address> findByIdAndUserId(UUID id, UUID userId);
 }
@@ -0,0 +1,52 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.DailySales;
+import com.tieuluan.laptopstore.entities.DailySalesId;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, DailySalesId>, DailySalesRepositoryCustom {
+
+    // Doanh thu (sau giảm giá) theo tháng kể từ ngày :from — lọc theo khoảng ngày nên dùng được index (status, sale_date)
+    @Query("""
+        SELECT YEAR(d.id.saleDate), MONTH(d.id.saleDate), SUM(d.netAmount)
+        FROM DailySales d
+        WHERE d.id.status = :status AND d.id.saleDate >= :from
+        GROUP BY YEAR(d.id.saleDate), MONTH(d.id.saleDate)
+    """)
+    List<Object[]> sumNetAmountByMonth(@Param("status") OrderStatus status, @Param("from") LocalDate from);
+
+    // Tiền hàng theo từng danh mục (kể cả danh mục chưa bán được gì)
+    @Query("""
+        SELECT c.name, COALESCE(SUM(d.revenue), 0)
+        FROM Category c
+        LEFT JOIN DailySales d ON d.categoryId = c.id
+        GROUP BY c.id, c.name
+    """)
+    List<Object[]> sumRevenueByCategory();
+
+    @Query("""
+        SELECT p.name, SUM(d.quantity), SUM(d.revenue)
+        FROM DailySales d
+        JOIN Product p ON p.id = d.id.productId
+        GROUP BY p.id, p.name
+        ORDER BY SUM(d.quantity) DESC
+    """)
+    List<Object[]> findTopSellingProducts(Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(d.netAmount), 0) FROM DailySales d WHERE d.id.status IN :statuses")
+    Double sumNetAmountByStatuses(@Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT COALESCE(SUM(d.orderCount), 0) FROM DailySales d WHERE d.id.status = :status")
+    Long countOrdersByStatus(@Param("status") OrderStatus status);
+}
@@ -0,0 +1,34 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.OrderStatus;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+// Ghi vào bảng daily_sales bằng SQL MySQL (cài đặt ở DailySalesRepositoryCustomImpl)
+public interface DailySalesRepositoryCustom {
+
+    // Cộng dồn (có thể âm) vào từng dòng (ngày, sản phẩm, trạng thái) trong 1 JDBC batch,
+    // dòng chưa có thì tạo mới: INSERT ... ON DUPLICATE KEY UPDATE
+    void applyDeltas(List<Delta> deltas);
+
+    // Tính lại toàn bộ các ngày trong [from, to] từ orders / order_items và đánh dấu xong các sự kiện
+    // ANALYTICS còn chờ của những đơn đó (đã có trong kết quả). Gọi trong transaction REPEATABLE READ.
+    // Trả về số dòng đã ghi.
+    int rebuild(LocalDate from, LocalDate to);
+
+    @Value
+    class Delta {
+        LocalDate saleDate;
+        UUID productId;
+        OrderStatus status;
+        UUID categoryId;
+        long quantity;
+        double revenue;
+        double netAmount;
+        long orderCount;
+    }
+}
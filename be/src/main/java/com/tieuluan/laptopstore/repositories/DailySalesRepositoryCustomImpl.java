@@ -0,0 +1,115 @@
+package com.tieuluan.laptopstore.repositories;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public class DailySalesRepositoryCustomImpl implements DailySalesRepositoryCustom {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO daily_sales (sale_date, product_id, status, category_id, quantity, revenue, net_amount, order_count)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                quantity = quantity + VALUES(quantity),
+                revenue = revenue + VALUES(revenue),
+                net_amount = net_amount + VALUES(net_amount),
+                order_count = order_count + VALUES(order_count)
+            """;
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM daily_sales WHERE sale_date BETWEEN ? AND ?";
+
+    // Cùng quy tắc với DailySalesService: net_amount phân bổ totalAmount theo tiền hàng,
+    // order_count chỉ tính ở sản phẩm có id nhỏ nhất của đơn (MIN trên BINARY(16))
+    private static final String REBUILD_SQL = """
+            INSERT INTO daily_sales (sale_date, product_id, status, category_id, quantity, revenue, net_amount, order_count)
+            SELECT DATE(o.order_date), oi.product_id, o.order_status, MIN(p.category_id),
+                   SUM(oi.quantity),
+                   SUM(oi.quantity * oi.item_price),
+                   SUM(CASE WHEN t.subtotal > 0 THEN o.total_amount * oi.quantity * oi.item_price / t.subtotal ELSE 0 END),
+                   COUNT(DISTINCT CASE WHEN oi.product_id = t.first_product THEN o.id END)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.id
+            JOIN products p ON p.id = oi.product_id
+            JOIN (
+                SELECT order_id, SUM(quantity * item_price) AS subtotal, MIN(product_id) AS first_product
+                FROM order_items
+                GROUP BY order_id
+            ) t ON t.order_id = o.id
+            WHERE o.order_date >= ? AND o.order_date < ?
+            GROUP BY DATE(o.order_date), oi.product_id, o.order_status
+            """;
+
+    // Sự kiện ANALYTICS chưa áp dụng của các đơn vừa tính lại: trạng thái mới đã nằm trong
+    // kết quả REBUILD_SQL nên đánh dấu xong, không cộng -from/+to thêm lần nữa. Lượt đang
+    // PROCESSING sẽ bị markDone từ chối và rollback phần đã cộng.
+    private static final String SKIP_COVERED_EVENTS_SQL = """
+            UPDATE outbox_events e
+            JOIN orders o ON o.id = e.aggregate_id
+            SET e.status = 'DONE', e.processed_at = ?, e.last_error = NULL
+            WHERE e.consumer = 'ANALYTICS'
+              AND e.status IN ('PENDING', 'PROCESSING')
+              AND o.order_date >= ? AND o.order_date < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailySalesRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void applyDeltas(List<Delta> deltas) {
+        if (deltas == null || deltas.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Delta delta = deltas.get(i);
+                ps.setDate(1, Date.valueOf(delta.getSaleDate()));
+                ps.setBytes(2, toBytes(delta.getProductId()));
+                ps.setString(3, delta.getStatus().name());
+                ps.setBytes(4, toBytes(delta.getCategoryId()));
+                ps.setLong(5, delta.getQuantity());
+                ps.setDouble(6, delta.getRevenue());
+                ps.setDouble(7, delta.getNetAmount());
+                ps.setLong(8, delta.getOrderCount());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+    }
+
+    // Thứ tự quan trọng (REPEATABLE READ): DELETE khóa các dòng daily_sales trong khoảng nên
+    // handler outbox không ghi chen vào; INSERT ... SELECT khóa S các đơn đọc được nên đơn không
+    // đổi trạng thái được tới khi commit. Vì thủ tục đổi trạng thái ghi outbox cùng transaction,
+    // sự kiện đang chờ lúc UPDATE outbox chạy đúng bằng các thay đổi đã nằm trong kết quả.
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+        jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(from), Date.valueOf(to));
+        int rows = jdbcTemplate.update(REBUILD_SQL, start, end);
+        jdbcTemplate.update(SKIP_COVERED_EVENTS_SQL, LocalDateTime.now(), start, end);
+        return rows;
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -2,11 +2,13 @@ package com.tieuluan.laptopstore.repositories;
 
 import com.tieuluan.laptopstore.entities.FlashSaleItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -36,9 +38,33 @@ public interface FlashSaleItemRepository extends JpaRepository<FlashSaleItem, UU
            "WHERE fsi.flashSale.id = :flashSaleId")
     List<FlashSaleItem> findByFlashSaleId(@Param("flashSaleId") UUID flashSaleId);
 
+    @Query("SELECT fsi FROM FlashSaleItem fsi WHERE fsi.flashSale.id IN :flashSaleIds")
+    List<FlashSaleItem> findByFlashSaleIdIn(@Param("flashSaleIds") Collection<UUID> flashSaleIds);
+
+    // Kèm FlashSale để biết thời điểm kết thúc (hạn của bộ đếm Redis) khi hoàn suất
+    @Query("SELECT fsi FROM FlashSaleItem fsi JOIN FETCH fsi.flashSale WHERE fsi.id IN :ids")
+    List<FlashSaleItem> findWithFlashSaleByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Số đã bán đã ghi xuống DB, dùng khởi tạo bộ đếm Redis
+    @Query("SELECT fsi.sold FROM FlashSaleItem fsi WHERE fsi.id = :id")
+    Optional<Integer> findSoldById(@Param("id") UUID id);
+
     // Dùng để đếm tổng số SP trong bảng danh sách
     int countByFlashSaleId(UUID flashSaleId);
 
     // Dùng để xóa sạch items trước khi xóa Flash Sale cha
     void deleteByFlashSaleId(UUID flashSaleId);
+
+    // Admin sửa suất: chỉ đổi % giảm và tổng suất, không ghi đè sold (do flushSoldCounters ghi)
+    @Modifying
+    @Query("UPDATE FlashSaleItem fsi SET fsi.discountPercent = :discountPercent, fsi.quantity = :quantity " +
+           "WHERE fsi.id = :id")
+    int updateTerms(@Param("id") UUID id,
+                    @Param("discountPercent") Double discountPercent,
+                    @Param("quantity") int quantity);
+
+    // Ghi lại số đã bán từ bộ đếm Redis (FlashSaleStockService)
+    @Modifying
+    @Query("UPDATE FlashSaleItem fsi SET fsi.sold = :sold WHERE fsi.id = :id")
+    int updateSold(@Param("id") UUID id, @Param("sold") int sold);
 }
\ No newline at end of file
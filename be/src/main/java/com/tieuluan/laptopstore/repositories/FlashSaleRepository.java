@@ -1,5 +1,6 @@
 package com.tieuluan.laptopstore.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,4 +12,7 @@ import com.tieuluan.laptopstore.entities.FlashSale;
 @Repository
 public interface FlashSaleRepository extends JpaRepository<FlashSale, UUID> {
     List<FlashSale> findAllByOrderByStartDateDesc();
+
+    // Các đợt Sale đang chạy / sắp chạy (dùng để nạp ActiveFlashSaleIndex)
+    List<FlashSale> findByStatusAndEndDateAfterOrderByStartDateAsc(int status, LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.InventoryMovement;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, UUID>, InventoryMovementRepositoryCustom {
+
+    // Lịch sử biến động của 1 biến thể, mới nhất trước
+    List<InventoryMovement> findByVariantIdOrderByCreatedAtDesc(UUID variantId, Pageable pageable);
+
+    List<InventoryMovement> findByOrderIdOrderByCreatedAt(UUID orderId);
+}
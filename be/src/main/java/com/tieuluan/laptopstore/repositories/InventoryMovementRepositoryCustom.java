@@ -0,0 +1,68 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.InventoryMovementType;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Sổ kho theo biến thể bằng SQL MySQL (cài đặt ở InventoryMovementRepositoryCustomImpl)
+public interface InventoryMovementRepositoryCustom {
+
+    // Trừ product_variants.stock_quantity có điều kiện (đủ hàng) trong 1 JDBC batch.
+    // Trả về id các biến thể không trừ được (không tồn tại hoặc không đủ hàng).
+    List<UUID> decrementVariantStock(Map<UUID, Integer> quantities);
+
+    // Cộng lại product_variants.stock_quantity trong 1 JDBC batch
+    void incrementVariantStock(Map<UUID, Integer> quantities);
+
+    // Ghi thêm các dòng sổ kho trong 1 JDBC batch
+    void appendMovements(List<Movement> movements);
+
+    // Số hàng các đơn đang giữ theo biến thể (RESERVE trừ RELEASE), bỏ dòng đã trả hết
+    List<Held> findHeld(Collection<UUID> orderIds);
+
+    // RESERVE đã quá hạn giữ mà đơn chưa COMMIT / RELEASE (job hủy đơn quá hạn đang chậm / lỗi)
+    List<Movement> findOverdueHolds(LocalDateTime now);
+
+    // Tạo mốc cho các biến thể chưa có, sao cho mốc + sổ kho hiện có = tồn kho hiện tại
+    int createMissingCheckpoints();
+
+    // Gộp các dòng sổ kho trước cutoff vào mốc rồi xóa (trừ dòng của đơn chưa kết thúc,
+    // còn cần để trả / chốt hàng). Trả về số dòng đã gộp.
+    int compact(LocalDateTime cutoff);
+
+    // Các biến thể có tồn kho lệch với mốc + sổ kho
+    List<Drift> findDrifts();
+
+    @Value
+    class Movement {
+        UUID variantId;
+        UUID productId;
+        UUID orderId;
+        InventoryMovementType type;
+        int quantity;
+        int stockDelta;
+        LocalDateTime holdUntil;
+    }
+
+    @Value
+    class Held {
+        UUID orderId;
+        UUID variantId;
+        UUID productId;
+        int quantity;
+    }
+
+    @Value
+    class Drift {
+        UUID variantId;
+        UUID productId;
+        int stockQuantity;
+        int ledgerQuantity;
+    }
+}
@@ -0,0 +1,276 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.InventoryMovementType;
+import com.tieuluan.laptopstore.id.UuidV7;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class InventoryMovementRepositoryCustomImpl implements InventoryMovementRepositoryCustom {
+
+    // Mốc tạo mới đứng trước mọi dòng sổ kho hiện có
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final String DECREMENT_SQL =
+            "UPDATE product_variants SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE product_variants SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    private static final String INSERT_SQL = """
+            INSERT INTO inventory_movements (id, variant_id, product_id, order_id, type, quantity, stock_delta, hold_until, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String HELD_SQL = """
+            SELECT order_id, variant_id, product_id,
+                   SUM(CASE type WHEN 'RESERVE' THEN quantity WHEN 'RELEASE' THEN -quantity ELSE 0 END) AS held
+            FROM inventory_movements
+            WHERE order_id IN (%s)
+            GROUP BY order_id, variant_id, product_id
+            HAVING held > 0
+            """;
+
+    private static final String OVERDUE_HOLDS_SQL = """
+            SELECT r.variant_id, r.product_id, r.order_id, r.quantity, r.stock_delta, r.hold_until
+            FROM inventory_movements r
+            WHERE r.type = 'RESERVE' AND r.hold_until < ?
+              AND NOT EXISTS (
+                  SELECT 1 FROM inventory_movements x
+                  WHERE x.order_id = r.order_id AND x.type IN ('COMMIT', 'RELEASE')
+              )
+            ORDER BY r.hold_until
+            """;
+
+    // Dòng được gộp: cũ hơn cutoff và không thuộc đơn còn có thể hủy / thanh toán.
+    // Đơn DELIVERED coi như đã chốt sau thời gian lưu sổ kho.
+    private static final String FOLDABLE = """
+            inventory_movements.created_at < ?
+            AND (inventory_movements.order_id IS NULL OR NOT EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.id = inventory_movements.order_id AND o.order_status IN ('PENDING_PAYMENT', 'PENDING', 'IN_PROGRESS', 'SHIPPED')
+            ))
+            """;
+
+    private static final String CREATE_CHECKPOINTS_SQL = """
+            INSERT INTO inventory_checkpoints (variant_id, quantity, as_of)
+            SELECT v.id,
+                   v.stock_quantity - COALESCE((SELECT SUM(m.stock_delta) FROM inventory_movements m WHERE m.variant_id = v.id), 0),
+                   ?
+            FROM product_variants v
+            LEFT JOIN inventory_checkpoints c ON c.variant_id = v.id
+            WHERE c.variant_id IS NULL
+            """;
+
+    private static final String DELETE_ORPHAN_CHECKPOINTS_SQL = """
+            DELETE c FROM inventory_checkpoints c
+            LEFT JOIN product_variants v ON v.id = c.variant_id
+            WHERE v.id IS NULL
+            """;
+
+    private static final String FOLD_SQL = """
+            UPDATE inventory_checkpoints c
+            JOIN (
+                SELECT variant_id, SUM(stock_delta) AS delta
+                FROM inventory_movements
+                WHERE %s
+                GROUP BY variant_id
+            ) m ON m.variant_id = c.variant_id
+            SET c.quantity = c.quantity + m.delta
+            """.formatted(FOLDABLE);
+
+    private static final String ADVANCE_CHECKPOINTS_SQL =
+            "UPDATE inventory_checkpoints SET as_of = ? WHERE as_of < ?";
+
+    private static final String DELETE_FOLDED_SQL =
+            "DELETE FROM inventory_movements WHERE " + FOLDABLE;
+
+    private static final String DRIFT_SQL = """
+            SELECT v.id, v.product_id, v.stock_quantity, c.quantity + COALESCE(m.delta, 0) AS ledger_quantity
+            FROM product_variants v
+            JOIN inventory_checkpoints c ON c.variant_id = v.id
+            LEFT JOIN (
+                SELECT variant_id, SUM(stock_delta) AS delta
+                FROM inventory_movements
+                GROUP BY variant_id
+            ) m ON m.variant_id = v.id
+            WHERE v.stock_quantity <> c.quantity + COALESCE(m.delta, 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryMovementRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // =======================================================================
+    //  TỒN KHO BIẾN THỂ
+    // =======================================================================
+    @Override
+    public List<UUID> decrementVariantStock(Map<UUID, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return List.of();
+
+        List<Map.Entry<UUID, Integer>> lines = sortedLines(quantities);
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setBytes(2, toBytes(line.getKey()));
+                ps.setInt(3, line.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+
+        // UPDATE theo lô vẫn có số dòng từng câu khi bật rewriteBatchedStatements (chỉ INSERT bị gộp)
+        List<UUID> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) failed.add(lines.get(i).getKey());
+        }
+        return failed;
+    }
+
+    @Override
+    public void incrementVariantStock(Map<UUID, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+
+        List<Map.Entry<UUID, Integer>> lines = sortedLines(quantities);
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setBytes(2, toBytes(line.getKey()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+    }
+
+    // Khóa dòng theo cùng thứ tự ở mọi transaction để tránh deadlock
+    private static List<Map.Entry<UUID, Integer>> sortedLines(Map<UUID, Integer> quantities) {
+        List<Map.Entry<UUID, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        lines.sort(Map.Entry.comparingByKey());
+        return lines;
+    }
+
+    // =======================================================================
+    //  SỔ KHO
+    // =======================================================================
+    @Override
+    public void appendMovements(List<Movement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Movement m = movements.get(i);
+                ps.setBytes(1, toBytes(UuidV7.next()));
+                ps.setBytes(2, toBytes(m.getVariantId()));
+                ps.setBytes(3, toBytes(m.getProductId()));
+                if (m.getOrderId() != null) {
+                    ps.setBytes(4, toBytes(m.getOrderId()));
+                } else {
+                    ps.setNull(4, Types.BINARY);
+                }
+                ps.setString(5, m.getType().name());
+                ps.setInt(6, m.getQuantity());
+                ps.setInt(7, m.getStockDelta());
+                if (m.getHoldUntil() != null) {
+                    ps.setTimestamp(8, Timestamp.valueOf(m.getHoldUntil()));
+                } else {
+                    ps.setNull(8, Types.TIMESTAMP);
+                }
+                ps.setTimestamp(9, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return movements.size();
+            }
+        });
+    }
+
+    @Override
+    public List<Held> findHeld(Collection<UUID> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) return List.of();
+
+        String placeholders = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+        Object[] args = orderIds.stream().map(InventoryMovementRepositoryCustomImpl::toBytes).toArray();
+        return jdbcTemplate.query(HELD_SQL.formatted(placeholders), (rs, rowNum) -> new Held(
+                fromBytes(rs.getBytes(1)),
+                fromBytes(rs.getBytes(2)),
+                fromBytes(rs.getBytes(3)),
+                rs.getInt(4)), args);
+    }
+
+    @Override
+    public List<Movement> findOverdueHolds(LocalDateTime now) {
+        return jdbcTemplate.query(OVERDUE_HOLDS_SQL, (rs, rowNum) -> new Movement(
+                fromBytes(rs.getBytes(1)),
+                fromBytes(rs.getBytes(2)),
+                fromBytes(rs.getBytes(3)),
+                InventoryMovementType.RESERVE,
+                rs.getInt(4),
+                rs.getInt(5),
+                rs.getTimestamp(6).toLocalDateTime()), Timestamp.valueOf(now));
+    }
+
+    @Override
+    public int createMissingCheckpoints() {
+        return jdbcTemplate.update(CREATE_CHECKPOINTS_SQL, Timestamp.valueOf(LEDGER_START));
+    }
+
+    @Override
+    public int compact(LocalDateTime cutoff) {
+        Timestamp at = Timestamp.valueOf(cutoff);
+        jdbcTemplate.update(DELETE_ORPHAN_CHECKPOINTS_SQL);
+        createMissingCheckpoints();
+        jdbcTemplate.update(FOLD_SQL, at);
+        // as_of chỉ để tham khảo: dòng của đơn chưa kết thúc có thể cũ hơn as_of
+        jdbcTemplate.update(ADVANCE_CHECKPOINTS_SQL, at, at);
+        return jdbcTemplate.update(DELETE_FOLDED_SQL, at);
+    }
+
+    @Override
+    public List<Drift> findDrifts() {
+        return jdbcTemplate.query(DRIFT_SQL, (rs, rowNum) -> new Drift(
+                fromBytes(rs.getBytes(1)),
+                fromBytes(rs.getBytes(2)),
+                rs.getInt(3),
+                rs.getInt(4)));
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
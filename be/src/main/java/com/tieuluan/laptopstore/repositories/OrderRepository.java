@@ -1,27 +1,58 @@
 package com.tieuluan.laptopstore.repositories;
 
 import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.dto.OrderHistoryItemDto;
 import com.tieuluan.laptopstore.entities.Order;
 import com.tieuluan.laptopstore.entities.OrderStatus;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, JpaSpecificationExecutor<Order>, OrderRepositoryCustom {
 
     List<Order> findByUser(User user);
 
+    // ===== Lịch sử đơn của user: trang id -> đơn (fetch join) -> dòng hàng (projection) =====
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    Slice<UUID> findIdsByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    long countByUserId(UUID userId);
+
+    // Payment là phía mappedBy của OneToOne (không lazy được) nên fetch luôn để khỏi 1 query / đơn
+    @Query("""
+        SELECT o FROM Order o
+        JOIN FETCH o.user
+        LEFT JOIN FETCH o.address
+        LEFT JOIN FETCH o.shippingProvider
+        LEFT JOIN FETCH o.discount
+        LEFT JOIN FETCH o.payment
+        WHERE o.id IN :ids
+    """)
+    List<Order> findHistoryByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+        SELECT new com.tieuluan.laptopstore.dto.OrderHistoryItemDto(
+            oi.order.id, oi.id, oi.product.id, oi.productVariantId, oi.quantity, oi.itemPrice)
+        FROM OrderItem oi
+        WHERE oi.order.id IN :orderIds
+    """)
+    List<OrderHistoryItemDto> findHistoryItems(@Param("orderIds") Collection<UUID> orderIds);
+
     @Query("SELECT o FROM Order o WHERE o.id = :orderId AND o.user.email = :email")
     Optional<Order> findByIdAndUserEmail(@Param("orderId") UUID orderId, @Param("email") String email);
 
@@ -34,6 +65,8 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     List<Order> findTop5ByOrderByOrderDateDesc();
 
+    Optional<Order> findFirstByOrderByOrderDateAsc();
+
     // Lợi nhuận giả định (ví dụ: 60% doanh thu)
     @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o WHERE YEAR(o.orderDate) = :year AND MONTH(o.orderDate) = :month AND o.orderStatus = :status")
     Double sumTotalAmountByMonth(@Param("year") int year, @Param("month") int month, @Param("status") OrderStatus status);
@@ -46,10 +79,23 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     """)
     Double sumRevenueByCategory(@Param("categoryId") UUID categoryId);
 
-    List<Order> findByOrderStatusAndPaymentMethodInAndOrderDateBefore(
-            OrderStatus orderStatus,
-            List<String> paymentMethods,
-            LocalDateTime time
-    );
+    // ===== Hủy đơn quá hạn thanh toán =====
+    // Khóa các đơn vẫn còn chờ thanh toán (callback thanh toán cũng khóa đơn nên không chạy đua)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT o FROM Order o
+        LEFT JOIN FETCH o.orderItemList
+        LEFT JOIN FETCH o.payment
+        WHERE o.id IN :ids AND o.orderStatus = :status
+    """)
+    List<Order> lockByIdInAndOrderStatus(@Param("ids") Collection<UUID> ids, @Param("status") OrderStatus status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") UUID id);
+
+    // (id, orderDate) để nạp lại hàng đợi hạn thanh toán
+    @Query("SELECT o.id, o.orderDate FROM Order o WHERE o.orderStatus = :status")
+    List<Object[]> findIdAndOrderDateByOrderStatus(@Param("status") OrderStatus status);
 
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.dto.OrderExportRow;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.specification.OrderCursor;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+// Các truy vấn đơn hàng dựng bằng Criteria (cài đặt ở OrderRepositoryCustomImpl)
+public interface OrderRepositoryCustom {
+
+    // Khóa keyset (orderDate, id) của 1 trang đơn, mới nhất trước
+    List<OrderCursor> findKeyPage(Specification<Order> spec, int limit);
+
+    // Đọc tuần tự toàn bộ kết quả cho export; phải đóng Stream và gọi trong transaction
+    Stream<OrderExportRow> streamExportRows(Specification<Order> spec);
+}
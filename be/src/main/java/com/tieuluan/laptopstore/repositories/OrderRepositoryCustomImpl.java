@@ -0,0 +1,91 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.dto.OrderExportRow;
+import com.tieuluan.laptopstore.entities.Address;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.entities.ShippingProvider;
+import com.tieuluan.laptopstore.specification.OrderCursor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    // MySQL Connector/J chỉ stream từng dòng khi fetch size = Integer.MIN_VALUE,
+    // giá trị khác thì driver vẫn đọc hết kết quả vào RAM
+    private static final int STREAM_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderCursor> findKeyPage(Specification<Order> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> root = query.from(Order.class);
+
+        query.multiselect(root.get("orderDate"), root.get("id"));
+        applyFilterAndSort(query, root, cb, spec);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList().stream()
+                .map(t -> new OrderCursor(t.get(0, LocalDateTime.class), t.get(1, UUID.class)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<OrderExportRow> streamExportRows(Specification<Order> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderExportRow> query = cb.createQuery(OrderExportRow.class);
+        Root<Order> root = query.from(Order.class);
+        Join<Order, User> user = root.join("user", JoinType.LEFT);
+        Join<Order, ShippingProvider> shipping = root.join("shippingProvider", JoinType.LEFT);
+        Join<Order, Address> address = root.join("address", JoinType.LEFT);
+
+        // Số dòng hàng: subquery thay vì JOIN để mỗi đơn vẫn đúng 1 dòng
+        Subquery<Long> itemCount = query.subquery(Long.class);
+        Root<OrderItem> item = itemCount.from(OrderItem.class);
+        itemCount.select(cb.count(item)).where(cb.equal(item.get("order"), root));
+
+        query.select(cb.construct(OrderExportRow.class,
+                root.get("id"), root.get("orderDate"), user.get("email"),
+                root.get("orderStatus"), root.get("paymentMethod"), root.get("totalAmount"),
+                itemCount, shipping.get("name"), root.get("shipmentNumber"),
+                address.get("name"), address.get("phoneNumber"), address.get("city")));
+        applyFilterAndSort(query, root, cb, spec);
+
+        // Projection (không phải entity) nên persistence context không phình ra theo số dòng
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private void applyFilterAndSort(CriteriaQuery<?> query, Root<Order> root, CriteriaBuilder cb,
+                                    Specification<Order> spec) {
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+        query.orderBy(cb.desc(root.get("orderDate")), cb.desc(root.get("id")));
+    }
+}
@@ -0,0 +1,56 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.OutboxEvent;
+import com.tieuluan.laptopstore.entities.OutboxStatus;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Khóa các dòng đến hạn của 1 consumer; SKIP LOCKED để nhiều node cùng chạy không chờ nhau
+    // (PROCESSING quá hạn giữ = node trước đã chết, nhận lại)
+    @Query(value = """
+            SELECT * FROM outbox_events
+            WHERE consumer = :consumer
+              AND status IN ('PENDING', 'PROCESSING')
+              AND available_at <= :now
+            ORDER BY available_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockDue(@Param("consumer") String consumer,
+                              @Param("now") LocalDateTime now,
+                              @Param("limit") int limit);
+
+    // Chỉ đánh dấu nếu vẫn đúng lượt nhận này (attempts khớp), tránh ghi đè lượt của node khác
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = com.tieuluan.laptopstore.entities.OutboxStatus.DONE, " +
+           "e.processedAt = :now, e.lastError = null " +
+           "WHERE e.id = :id AND e.attempts = :attempts " +
+           "AND e.status = com.tieuluan.laptopstore.entities.OutboxStatus.PROCESSING")
+    int markDone(@Param("id") UUID id, @Param("attempts") int attempts, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.availableAt = :availableAt, e.lastError = :error " +
+           "WHERE e.id = :id AND e.attempts = :attempts " +
+           "AND e.status = com.tieuluan.laptopstore.entities.OutboxStatus.PROCESSING")
+    int markFailed(@Param("id") UUID id,
+                   @Param("attempts") int attempts,
+                   @Param("status") OutboxStatus status,
+                   @Param("availableAt") LocalDateTime availableAt,
+                   @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = com.tieuluan.laptopstore.entities.OutboxStatus.DONE " +
+           "AND e.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
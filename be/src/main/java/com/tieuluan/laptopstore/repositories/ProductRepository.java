@@ -2,6 +2,7 @@ package com.tieuluan.laptopstore.repositories;
 
 import com.tieuluan.laptopstore.entities.Product;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,7 +16,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
     List<Product> findByCategory_Id(UUID categoryId);
 
     List<Product> findByNameContainingIgnoreCase(String keyword);
@@ -42,4 +43,18 @@ public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpec
     @Transactional // Bắt buộc phải có để thực hiện lệnh UPDATE/DELETE
     @Query("UPDATE Product p SET p.enable = :enable WHERE p.id = :id")
     void updateEnableStatus(UUID id, boolean enable);
+
+    // ===== Bảng giá cho PricingEngine (chỉ các cột cần, không nạp entity) =====
+    @Query("SELECT p.id, p.name, p.enable, p.price, p.discount FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPriceRows(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT v.product.id, v.id, v.price FROM ProductVariant v WHERE v.product.id IN :ids")
+    List<Object[]> findVariantPriceRows(@Param("ids") Collection<UUID> ids);
+
+    // ===== Tồn kho hiện tại, gắn lên cây danh mục đọc từ cache (CategoryService) =====
+    @Query("SELECT p.id, p.stock FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockRows(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT v.id, v.stockQuantity FROM ProductVariant v WHERE v.product.id IN :ids")
+    List<Object[]> findVariantStockRows(@Param("ids") Collection<UUID> ids);
 }
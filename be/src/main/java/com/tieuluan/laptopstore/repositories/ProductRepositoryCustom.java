@@ -0,0 +1,28 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.specification.ProductSort;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Các thao tác không viết được bằng query method của Spring Data (cài đặt ở ProductRepositoryCustomImpl)
+public interface ProductRepositoryCustom {
+
+    // Trừ kho có điều kiện (stock >= qty) cho nhiều sản phẩm trong một JDBC batch.
+    // Trả về id các sản phẩm không trừ được (không tồn tại hoặc không đủ hàng).
+    List<UUID> decrementStock(Map<UUID, Integer> quantities);
+
+    // Cộng lại kho (hủy đơn) cho nhiều sản phẩm trong một JDBC batch
+    void incrementStock(Map<UUID, Integer> quantities);
+
+    // Lấy 1 trang sản phẩm sắp xếp theo (sort, id); offset = 0 khi dùng keyset cursor
+    List<Product> findPage(Specification<Product> spec, ProductSort sort, int offset, int limit);
+
+    // Như findPage nhưng chỉ lấy các cột của ProductSummaryDto trong 1 câu SQL (limit <= 0: không giới hạn)
+    List<ProductSummaryDto> findSummaries(Specification<Product> spec, ProductSort sort, int offset, int limit);
+}
@@ -0,0 +1,168 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
+import com.tieuluan.laptopstore.entities.Brand;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.Resources;
+import com.tieuluan.laptopstore.specification.ProductSort;
+import com.tieuluan.laptopstore.specification.ProductSpecs;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<UUID> decrementStock(Map<UUID, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return List.of();
+
+        List<Map.Entry<UUID, Integer>> lines = sortedLines(quantities);
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setBytes(2, toBytes(line.getKey()));
+                ps.setInt(3, line.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+
+        // UPDATE theo lô vẫn có số dòng từng câu khi bật rewriteBatchedStatements (chỉ INSERT bị gộp)
+        List<UUID> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) failed.add(lines.get(i).getKey());
+        }
+        return failed;
+    }
+
+    @Override
+    public void incrementStock(Map<UUID, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+
+        List<Map.Entry<UUID, Integer>> lines = sortedLines(quantities);
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<UUID, Integer> line = lines.get(i);
+                ps.setInt(1, line.getValue());
+                ps.setBytes(2, toBytes(line.getKey()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return lines.size();
+            }
+        });
+    }
+
+    @Override
+    public List<Product> findPage(Specification<Product> spec, ProductSort sort, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+
+        applyFilterAndSort(query, root, cb, spec, sort);
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductSummaryDto> findSummaries(Specification<Product> spec, ProductSort sort, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryDto> query = cb.createQuery(ProductSummaryDto.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Brand> brand = root.join("brand", JoinType.LEFT);
+
+        // Ảnh đại diện: subquery thay vì JOIN để không nhân dòng khi có nhiều ảnh
+        Subquery<String> thumbnail = query.subquery(String.class);
+        Root<Resources> resource = thumbnail.from(Resources.class);
+        thumbnail.select(cb.least(resource.<String>get("url")))
+                .where(cb.equal(resource.get("product"), root),
+                        cb.isTrue(resource.<Boolean>get("isPrimary")));
+
+        query.select(cb.construct(ProductSummaryDto.class,
+                root.get("id"), root.get("name"), root.get("slug"),
+                root.get("price"), root.get("discount"), root.get("stock"),
+                root.get("rating"), root.get("isNewArrival"), thumbnail, root.get("createdAt"),
+                brand.get("id"), brand.get("name"), brand.get("logoUrl")));
+
+        applyFilterAndSort(query, root, cb, spec, sort);
+
+        TypedQuery<ProductSummaryDto> typed = entityManager.createQuery(query).setFirstResult(offset);
+        if (limit > 0) typed.setMaxResults(limit);
+        return typed.getResultList();
+    }
+
+    private void applyFilterAndSort(CriteriaQuery<?> query, Root<Product> root, CriteriaBuilder cb,
+                                    Specification<Product> spec, ProductSort sort) {
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+
+        // Thêm id vào ORDER BY để thứ tự ổn định khi trùng giá / rating / ngày tạo
+        Expression<?> key = ProductSpecs.sortKey(sort, root, cb);
+        Expression<?> id = root.get("id");
+        query.orderBy(sort.isAscending()
+                ? List.of(cb.asc(key), cb.asc(id))
+                : List.of(cb.desc(key), cb.desc(id)));
+    }
+
+    // Luôn khóa các dòng theo cùng một thứ tự để 2 đơn hàng đồng thời không bị deadlock
+    private static List<Map.Entry<UUID, Integer>> sortedLines(Map<UUID, Integer> quantities) {
+        List<Map.Entry<UUID, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        lines.sort(Map.Entry.comparingByKey());
+        return lines;
+    }
+
+    // Hibernate lưu UUID dưới dạng BINARY(16) trên MySQL
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
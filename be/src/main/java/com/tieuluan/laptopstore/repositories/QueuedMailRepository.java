@@ -0,0 +1,45 @@
+package com.tieuluan.laptopstore.repositories;
+
+import com.tieuluan.laptopstore.entities.MailStatus;
+import com.tieuluan.laptopstore.entities.QueuedMail;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface QueuedMailRepository extends JpaRepository<QueuedMail, UUID> {
+
+    // Khóa các email đến hạn, ưu tiên cao trước; SKIP LOCKED để nhiều node cùng gửi không trùng
+    @Query(value = """
+            SELECT * FROM mail_queue
+            WHERE status IN ('PENDING', 'SENDING')
+              AND available_at <= :now
+            ORDER BY priority DESC, available_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<QueuedMail> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE QueuedMail m SET m.status = :status, m.availableAt = :availableAt, m.lastError = :error, " +
+           "m.sentAt = :sentAt WHERE m.id = :id AND m.attempts = :attempts " +
+           "AND m.status = com.tieuluan.laptopstore.entities.MailStatus.SENDING")
+    int finish(@Param("id") UUID id,
+               @Param("attempts") int attempts,
+               @Param("status") MailStatus status,
+               @Param("availableAt") LocalDateTime availableAt,
+               @Param("error") String error,
+               @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM QueuedMail m WHERE m.status = com.tieuluan.laptopstore.entities.MailStatus.SENT " +
+           "AND m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
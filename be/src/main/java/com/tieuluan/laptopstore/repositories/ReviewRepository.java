@@ -1,10 +1,13 @@
 package com.tieuluan.laptopstore.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.tieuluan.laptopstore.entities.Review;
@@ -16,6 +19,9 @@ public interface ReviewRepository extends JpaRepository<Review, UUID> {
     List<Review> findByProductIdOrderByCreatedAtDesc(UUID productId);
     // 2. Check user đã mua/review chưa (Ok)
     boolean existsByProductIdAndUserIdAndParentIdIsNull(UUID productId, UUID userId);
+    // 2b. Bản gom: trong các sản phẩm này, user đã đánh giá những sản phẩm nào (1 query cho cả trang đơn)
+    @Query("SELECT DISTINCT r.productId FROM Review r WHERE r.userId = :userId AND r.parentId IS NULL AND r.productId IN :productIds")
+    Set<UUID> findReviewedProductIds(@Param("userId") UUID userId, @Param("productIds") Collection<UUID> productIds);
     // 3. Thống kê
     @Query("SELECT COUNT(r), AVG(r.rating) FROM Review r WHERE r.productId = :productId AND r.parentId IS NULL AND r.rating IS NOT NULL")
     Object[][] getRatingStats(UUID productId);
@@ -0,0 +1,451 @@
+package com.tieuluan.laptopstore.search;
+
+import com.tieuluan.laptopstore.dto.ProductFilterRequest;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.ProductSpecification;
+import com.tieuluan.laptopstore.entities.ProductVariant;
+import com.tieuluan.laptopstore.entities.ProductVariantAttribute;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+import com.tieuluan.laptopstore.specification.ProductSort;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.Value;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bộ lọc facet trong bộ nhớ trên thông số (ProductSpecification) và thuộc tính biến thể
+ * (ProductVariantAttribute).
+ * <p>
+ * Mỗi sản phẩm được gán một số nguyên (doc). Mỗi cặp (thuộc tính, giá trị), mỗi danh mục,
+ * loại danh mục và thương hiệu có một {@link RoaringBitmap} các doc tương ứng, nên lọc AND/OR
+ * và đếm số sản phẩm cho từng giá trị chỉ là phép toán trên bitmap, không truy vấn DB.
+ * Giá, điểm đánh giá và ngày tạo có thêm bitmap theo từng giá trị trong TreeMap: lọc khoảng giá
+ * là OR các bucket trong khoảng, phân trang theo thứ tự sắp xếp chỉ duyệt bucket tới khi đủ trang.
+ * Mỗi sản phẩm giữ nguyên doc khi cập nhật; doc của sản phẩm bị gỡ được dùng lại.
+ * Chỉ chứa sản phẩm đang bật; dựng lại khi khởi động và cập nhật từng sản phẩm khi ghi
+ * (node khác cập nhật theo {@link ProductIndexSync}).
+ */
+@Component
+public class ProductFacetIndex implements ProductIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // Kết quả nhỏ hơn ngưỡng này thì sắp xếp thẳng, không duyệt bucket
+    private static final int SMALL_RESULT = 2048;
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // doc -> thông tin sản phẩm (null khi sản phẩm đã bị gỡ, doc nằm trong freeDocs chờ dùng lại)
+    private final List<DocInfo> docs = new ArrayList<>();
+    private final Deque<Integer> freeDocs = new ArrayDeque<>();
+    private final Map<UUID, Integer> docByProductId = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+
+    // Giá trị sắp xếp -> bitmap, dùng cho lọc khoảng giá và phân trang
+    private final TreeMap<Long, RoaringBitmap> byPrice = new TreeMap<>();
+    private final TreeMap<Float, RoaringBitmap> byRating = new TreeMap<>();
+    private final TreeMap<Long, RoaringBitmap> byCreatedAt = new TreeMap<>();
+
+    private final Map<UUID, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<UUID, RoaringBitmap> byType = new HashMap<>();
+    private final Map<UUID, RoaringBitmap> byBrand = new HashMap<>();
+
+    // Tên thuộc tính -> giá trị -> bitmap (TreeMap để facet trả về theo thứ tự ổn định)
+    private final Map<String, Map<String, RoaringBitmap>> facets = new TreeMap<>();
+
+    // =======================================================================
+    //  TRUY VẤN
+    // =======================================================================
+    public FacetResult query(ProductFilterRequest filter, ProductSort sort, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = baseBitmap(filter);
+
+            // OR các giá trị trong cùng 1 thuộc tính
+            Map<String, RoaringBitmap> selected = new HashMap<>();
+            if (filter.getAttributes() != null) {
+                filter.getAttributes().forEach((name, values) -> {
+                    if (values == null || values.isEmpty()) return;
+                    Map<String, RoaringBitmap> valueBitmaps = facets.getOrDefault(name, Map.of());
+                    RoaringBitmap union = new RoaringBitmap();
+                    for (String value : values) {
+                        RoaringBitmap bitmap = valueBitmaps.get(value);
+                        if (bitmap != null) union.or(bitmap);
+                    }
+                    selected.put(name, union);
+                });
+            }
+
+            // AND giữa các thuộc tính
+            RoaringBitmap matched = base.clone();
+            selected.values().forEach(matched::and);
+
+            return new FacetResult(page(matched, sort, offset, limit), matched.getLongCardinality(),
+                    countFacets(base, selected));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Danh mục / loại / thương hiệu / khoảng giá
+    private RoaringBitmap baseBitmap(ProductFilterRequest filter) {
+        RoaringBitmap base = live.clone();
+        if (filter.getCategoryId() != null) base.and(byCategory.getOrDefault(filter.getCategoryId(), new RoaringBitmap()));
+        if (filter.getTypeId() != null) base.and(byType.getOrDefault(filter.getTypeId(), new RoaringBitmap()));
+        if (filter.getBrandId() != null) base.and(byBrand.getOrDefault(filter.getBrandId(), new RoaringBitmap()));
+
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            long min = filter.getMinPrice() != null ? filter.getMinPrice().longValue() : Long.MIN_VALUE;
+            long max = filter.getMaxPrice() != null ? filter.getMaxPrice().longValue() : Long.MAX_VALUE;
+            if (min > max) return new RoaringBitmap();
+
+            NavigableMap<Long, RoaringBitmap> inRange = byPrice.subMap(min, true, max, true);
+            if (inRange.size() <= byPrice.size() / 2) {
+                base.and(RoaringBitmap.or(inRange.values().iterator()));
+            } else {
+                // Khoảng rộng: bỏ phần ngoài khoảng (ít bucket hơn)
+                base.andNot(RoaringBitmap.or(byPrice.headMap(min, false).values().iterator()));
+                base.andNot(RoaringBitmap.or(byPrice.tailMap(max, false).values().iterator()));
+            }
+        }
+        return base;
+    }
+
+    /**
+     * Đếm theo kiểu "disjunctive": số của 1 giá trị được tính với mọi bộ lọc khác
+     * trừ chính thuộc tính đó, để người dùng biết chọn thêm giá trị đó sẽ được bao nhiêu sản phẩm.
+     */
+    private Map<String, Map<String, Integer>> countFacets(RoaringBitmap base, Map<String, RoaringBitmap> selected) {
+        RoaringBitmap allSelected = base.clone();
+        selected.values().forEach(allSelected::and);
+
+        Map<String, Map<String, Integer>> result = new TreeMap<>();
+        facets.forEach((name, values) -> {
+            RoaringBitmap context;
+            if (selected.containsKey(name)) {
+                context = base.clone();
+                selected.forEach((other, bitmap) -> {
+                    if (!other.equals(name)) context.and(bitmap);
+                });
+            } else {
+                context = allSelected;
+            }
+
+            Map<String, Integer> counts = new TreeMap<>();
+            values.forEach((value, bitmap) -> {
+                int count = RoaringBitmap.andCardinality(context, bitmap);
+                if (count > 0) counts.put(value, count);
+            });
+            if (!counts.isEmpty()) result.put(name, counts);
+        });
+        return result;
+    }
+
+    private List<UUID> page(RoaringBitmap matched, ProductSort sort, int offset, int limit) {
+        int total = matched.getCardinality();
+        if (limit <= 0 || offset >= total) return List.of();
+        if (total <= SMALL_RESULT) return sortAll(matched, sort, offset, limit);
+
+        NavigableMap<?, RoaringBitmap> index = switch (sort.getProperty()) {
+            case "price" -> byPrice;
+            case "rating" -> byRating;
+            default -> byCreatedAt;
+        };
+        Iterable<RoaringBitmap> buckets = sort.isAscending() ? index.values() : index.descendingMap().values();
+        // Cùng khóa thì theo id như ProductRepositoryCustomImpl.findPage
+        Comparator<UUID> tieBreak = sort.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder();
+
+        List<UUID> result = new ArrayList<>(limit);
+        int skipped = 0;
+        for (RoaringBitmap bucket : buckets) {
+            if (!RoaringBitmap.intersects(bucket, matched)) continue;
+            RoaringBitmap hits = RoaringBitmap.and(bucket, matched);
+            int count = hits.getCardinality();
+            if (skipped + count <= offset) {
+                skipped += count;
+                continue;
+            }
+            List<UUID> ids = new ArrayList<>(count);
+            hits.forEach((int doc) -> ids.add(docs.get(doc).getProductId()));
+            ids.sort(tieBreak);
+            for (UUID id : ids) {
+                if (skipped++ < offset) continue;
+                result.add(id);
+                if (result.size() == limit) return result;
+            }
+        }
+        return result;
+    }
+
+    private List<UUID> sortAll(RoaringBitmap matched, ProductSort sort, int offset, int limit) {
+        List<DocInfo> infos = new ArrayList<>(matched.getCardinality());
+        matched.forEach((int doc) -> infos.add(docs.get(doc)));
+
+        Comparator<DocInfo> byKey = switch (sort.getProperty()) {
+            case "price" -> Comparator.comparingLong(DocInfo::getPrice);
+            case "rating" -> Comparator.comparingDouble(DocInfo::getRating);
+            default -> Comparator.comparingLong(DocInfo::getCreatedAt);
+        };
+        Comparator<DocInfo> order = byKey.thenComparing(DocInfo::getProductId);
+        infos.sort(sort.isAscending() ? order : order.reversed());
+
+        return infos.stream().skip(offset).limit(limit).map(DocInfo::getProductId).toList();
+    }
+
+    // =======================================================================
+    //  DỰNG LẠI KHI KHỞI ĐỘNG
+    // =======================================================================
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        List<DocInfo> loaded = new ArrayList<>();
+        try {
+            int pageIndex = 0;
+            boolean hasNext = true;
+            while (hasNext) {
+                int current = pageIndex++;
+                hasNext = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    Page<Product> page = productRepository.findAll(PageRequest.of(current, REBUILD_BATCH_SIZE, Sort.by("id")));
+                    for (Product product : page) {
+                        if (product.isEnable()) loaded.add(toDocInfo(product));
+                    }
+                    entityManager.clear();
+                    return page.hasNext();
+                }));
+            }
+        } catch (Exception e) {
+            log.error("Không dựng được bộ lọc facet sản phẩm", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            freeDocs.clear();
+            docByProductId.clear();
+            live.clear();
+            byPrice.clear();
+            byRating.clear();
+            byCreatedAt.clear();
+            byCategory.clear();
+            byType.clear();
+            byBrand.clear();
+            facets.clear();
+            loaded.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Đã dựng bộ lọc facet: {} sản phẩm, {} thuộc tính trong {} ms",
+                loaded.size(), facets.size(), System.currentTimeMillis() - started);
+    }
+
+    // =======================================================================
+    //  CẬP NHẬT TỪNG SẢN PHẨM (gọi trong transaction ghi, áp dụng sau commit)
+    // =======================================================================
+    public void indexAfterCommit(Product product) {
+        if (!product.isEnable()) {
+            removeAfterCommit(product.getId());
+            return;
+        }
+        DocInfo info = toDocInfo(product);
+        afterCommit(() -> apply(info));
+    }
+
+    public void removeAfterCommit(UUID productId) {
+        afterCommit(() -> removeLocal(productId));
+    }
+
+    @Override
+    public void indexLocal(Product product) {
+        if (product.isEnable()) {
+            apply(toDocInfo(product));
+        } else {
+            removeLocal(product.getId());
+        }
+    }
+
+    @Override
+    public void removeLocal(UUID productId) {
+        lock.writeLock().lock();
+        try {
+            remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(DocInfo info) {
+        lock.writeLock().lock();
+        try {
+            put(info);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Gọi khi đang giữ write lock. Sản phẩm đã có thì giữ doc cũ, chưa có thì lấy doc trống.
+    private void put(DocInfo info) {
+        Integer doc = docByProductId.get(info.getProductId());
+        if (doc != null) {
+            unindex(doc, docs.get(doc));
+        } else {
+            doc = freeDocs.isEmpty() ? docs.size() : freeDocs.pop();
+            if (doc == docs.size()) docs.add(null);
+            docByProductId.put(info.getProductId(), doc);
+        }
+        docs.set(doc, info);
+        index(doc, info);
+    }
+
+    // Gọi khi đang giữ write lock
+    private void remove(UUID productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc == null) return;
+
+        unindex(doc, docs.get(doc));
+        docs.set(doc, null);
+        freeDocs.push(doc);
+    }
+
+    private void index(int doc, DocInfo info) {
+        live.add(doc);
+        byPrice.computeIfAbsent(info.getPrice(), k -> new RoaringBitmap()).add(doc);
+        byRating.computeIfAbsent(info.getRating(), k -> new RoaringBitmap()).add(doc);
+        byCreatedAt.computeIfAbsent(info.getCreatedAt(), k -> new RoaringBitmap()).add(doc);
+
+        if (info.getCategoryId() != null) byCategory.computeIfAbsent(info.getCategoryId(), k -> new RoaringBitmap()).add(doc);
+        if (info.getTypeId() != null) byType.computeIfAbsent(info.getTypeId(), k -> new RoaringBitmap()).add(doc);
+        if (info.getBrandId() != null) byBrand.computeIfAbsent(info.getBrandId(), k -> new RoaringBitmap()).add(doc);
+
+        info.getAttributes().forEach((name, values) -> {
+            Map<String, RoaringBitmap> valueBitmaps = facets.computeIfAbsent(name, k -> new TreeMap<>());
+            values.forEach(value -> valueBitmaps.computeIfAbsent(value, k -> new RoaringBitmap()).add(doc));
+        });
+    }
+
+    private void unindex(int doc, DocInfo info) {
+        live.remove(doc);
+        removeFrom(byPrice, info.getPrice(), doc);
+        removeFrom(byRating, info.getRating(), doc);
+        removeFrom(byCreatedAt, info.getCreatedAt(), doc);
+
+        if (info.getCategoryId() != null) removeFrom(byCategory, info.getCategoryId(), doc);
+        if (info.getTypeId() != null) removeFrom(byType, info.getTypeId(), doc);
+        if (info.getBrandId() != null) removeFrom(byBrand, info.getBrandId(), doc);
+
+        info.getAttributes().forEach((name, values) -> {
+            Map<String, RoaringBitmap> valueBitmaps = facets.get(name);
+            if (valueBitmaps == null) return;
+            values.forEach(value -> removeFrom(valueBitmaps, value, doc));
+            if (valueBitmaps.isEmpty()) facets.remove(name);
+        });
+    }
+
+    private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int doc) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) return;
+        bitmap.remove(doc);
+        if (bitmap.isEmpty()) bitmaps.remove(key);
+    }
+
+    private DocInfo toDocInfo(Product product) {
+        Map<String, Set<String>> attributes = new HashMap<>();
+        if (product.getSpecifications() != null) {
+            for (ProductSpecification spec : product.getSpecifications()) {
+                addAttribute(attributes, spec.getName(), spec.getValue());
+            }
+        }
+        if (product.getVariants() != null) {
+            for (ProductVariant variant : product.getVariants()) {
+                if (variant.getAttributes() == null) continue;
+                for (ProductVariantAttribute attr : variant.getAttributes()) {
+                    addAttribute(attributes, attr.getAttributeName(), attr.getAttributeValue());
+                }
+            }
+        }
+
+        return new DocInfo(
+                product.getId(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategoryType() != null ? product.getCategoryType().getId() : null,
+                product.getBrand() != null ? product.getBrand().getId() : null,
+                product.getPrice() != null ? product.getPrice().longValue() : 0L,
+                product.getRating() != null ? product.getRating() : 0f,
+                product.getCreatedAt() != null ? product.getCreatedAt().getTime() : 0L,
+                attributes);
+    }
+
+    private static void addAttribute(Map<String, Set<String>> attributes, String name, String value) {
+        if (name == null || value == null || name.isBlank() || value.isBlank()) return;
+        attributes.computeIfAbsent(name.trim(), k -> new LinkedHashSet<>()).add(value.trim());
+    }
+
+    // Ảnh chụp các giá trị cần để lọc / sắp xếp 1 sản phẩm
+    @Value
+    private static class DocInfo {
+        UUID productId;
+        UUID categoryId;
+        UUID typeId;
+        UUID brandId;
+        long price;
+        float rating;
+        long createdAt;
+        Map<String, Set<String>> attributes;
+    }
+
+    @Value
+    public static class FacetResult {
+        List<UUID> productIds;  // id của trang hiện tại, đã sắp xếp
+        long total;
+        Map<String, Map<String, Integer>> facets;
+    }
+}
@@ -0,0 +1,19 @@
+package com.tieuluan.laptopstore.search;
+
+import com.tieuluan.laptopstore.entities.Product;
+
+import java.util.UUID;
+
+/**
+ * Chỉ mục sản phẩm trong bộ nhớ của từng node. {@link ProductIndexSync} gọi các hàm "local"
+ * khi node khác báo sản phẩm đổi, và {@link #rebuild()} theo định kỳ làm lưới an toàn.
+ */
+public interface ProductIndex {
+
+    // Cập nhật ngay trên node này (gọi trong transaction đã nạp product; sản phẩm tắt thì gỡ)
+    void indexLocal(Product product);
+
+    void removeLocal(UUID productId);
+
+    void rebuild();
+}
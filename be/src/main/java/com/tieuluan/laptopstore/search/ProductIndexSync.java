@@ -0,0 +1,94 @@
+package com.tieuluan.laptopstore.search;
+
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Đồng bộ các chỉ mục sản phẩm trong bộ nhớ ({@link ProductIndex}) giữa các node.
+ * <p>
+ * Node ghi cập nhật chỉ mục của mình rồi phát id sản phẩm lên Redis sau commit; node khác
+ * nạp lại sản phẩm từ DB (1 lần cho mọi chỉ mục) và cập nhật chỉ mục của nó. Lỡ mất tin
+ * pub/sub (Redis mất kết nối...) thì lần dựng lại định kỳ sẽ sửa.
+ */
+@Component
+public class ProductIndexSync {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexSync.class);
+
+    public static final String CHANNEL = "search:product-changed";
+
+    // Phân biệt tin của chính node này trên kênh Redis
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired private List<ProductIndex> indexes;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private StringRedisTemplate stringRedisTemplate;
+    @Autowired private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    void init() {
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf(':');
+            if (separator < 0 || nodeId.equals(body.substring(0, separator))) return;
+            try {
+                reindex(UUID.fromString(body.substring(separator + 1)));
+            } catch (Exception e) {
+                log.warn("Không cập nhật được chỉ mục sản phẩm theo tin {}", body, e);
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    /** Gọi trong transaction ghi sản phẩm, sau khi đã cập nhật chỉ mục của node này. */
+    public void publishAfterCommit(UUID productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(productId);
+                }
+            });
+        } else {
+            publish(productId);
+        }
+    }
+
+    private void publish(UUID productId) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + ":" + productId);
+        } catch (Exception e) {
+            // Node khác sẽ theo kịp ở lần dựng lại định kỳ
+            log.warn("Không gửi được thông báo đổi sản phẩm {} lên Redis", productId, e);
+        }
+    }
+
+    private void reindex(UUID productId) {
+        transactionTemplate.executeWithoutResult(status -> productRepository.findById(productId)
+                .ifPresentOrElse(
+                        product -> indexes.forEach(index -> index.indexLocal(product)),
+                        () -> indexes.forEach(index -> index.removeLocal(productId))));
+    }
+
+    // Lưới an toàn cho tin pub/sub bị mất; chạy trên mọi node (mỗi node có chỉ mục riêng)
+    @Scheduled(cron = "${search.index.resync-cron:0 0 * * * *}")
+    public void resync() {
+        indexes.forEach(ProductIndex::rebuild);
+    }
+}
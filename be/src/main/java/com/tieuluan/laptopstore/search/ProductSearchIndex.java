@@ -0,0 +1,343 @@
+package com.tieuluan.laptopstore.search;
+
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.ProductSpecification;
+import com.tieuluan.laptopstore.entities.ProductVariant;
+import com.tieuluan.laptopstore.entities.ProductVariantAttribute;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Chỉ mục full-text (Lucene, trong RAM) cho tìm kiếm sản phẩm.
+ * <p>
+ * Đánh chỉ mục tên, thương hiệu, danh mục, thông số và thuộc tính biến thể; xếp hạng BM25,
+ * bỏ dấu tiếng Việt và khớp tiền tố cho từ cuối (gõ tới đâu gợi ý tới đó).
+ * Dựng lại toàn bộ khi khởi động, sau đó cập nhật từng sản phẩm khi thêm / sửa / xóa
+ * (node khác cập nhật theo {@link ProductIndexSync}, và được dựng lại định kỳ).
+ * Chỉ chứa sản phẩm đang bật (enable = true).
+ */
+@Component
+public class ProductSearchIndex implements ProductIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private static final String F_ID = "id";
+    private static final String F_NAME = "name";
+    private static final String F_BRAND = "brand";
+    private static final String F_CATEGORY = "category";
+    private static final String F_SPECS = "specs";
+
+    // Trọng số theo trường: khớp tên quan trọng hơn khớp thông số
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            F_NAME, 3f,
+            F_BRAND, 2f,
+            F_CATEGORY, 1.5f,
+            F_SPECS, 1f);
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Analyzer analyzer = new VietnameseFoldingAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    // Chưa dựng xong chỉ mục thì service dùng lại truy vấn LIKE cũ
+    private volatile boolean ready = false;
+
+    public ProductSearchIndex() throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        // BM25 cũng là mặc định của IndexSearcher, ghi rõ để norms khi index khớp với lúc chấm điểm
+        config.setSimilarity(new BM25Similarity());
+        this.writer = new IndexWriter(new ByteBuffersDirectory(), config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // =======================================================================
+    //  TÌM KIẾM
+    // =======================================================================
+    /** Trả về id sản phẩm theo thứ tự liên quan giảm dần (tối đa {@code limit}). */
+    public List<UUID> search(String keyword, int limit) {
+        List<String> terms = analyze(keyword);
+        if (terms.isEmpty()) return List.of();
+
+        // Mọi từ đều phải khớp (ở bất kỳ trường nào); từ cuối khớp theo tiền tố
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            query.add(termAcrossFields(terms.get(i), i == terms.size() - 1), BooleanClause.Occur.MUST);
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            ScoreDoc[] hits = searcher.search(query.build(), limit).scoreDocs;
+
+            List<UUID> ids = new ArrayList<>(hits.length);
+            for (ScoreDoc hit : hits) {
+                ids.add(UUID.fromString(searcher.storedFields().document(hit.doc).get(F_ID)));
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    private Query termAcrossFields(String term, boolean prefix) {
+        BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+        FIELD_BOOSTS.forEach((field, boost) -> {
+            anyField.add(new BoostQuery(new TermQuery(new Term(field, term)), boost), BooleanClause.Occur.SHOULD);
+            if (prefix) {
+                // Khớp đủ từ được điểm cao hơn khớp tiền tố
+                anyField.add(new BoostQuery(new PrefixQuery(new Term(field, term)), boost * 0.5f), BooleanClause.Occur.SHOULD);
+            }
+        });
+        return anyField.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) return terms;
+
+        try (TokenStream stream = analyzer.tokenStream(F_NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    // =======================================================================
+    //  DỰNG LẠI KHI KHỞI ĐỘNG / ĐỊNH KỲ
+    // =======================================================================
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            // Lần đầu thì xóa sạch; các lần sau ghi đè từng sản phẩm (sản phẩm chỉ xóa mềm)
+            // để cập nhật lẻ chen vào giữa không làm lộ chỉ mục dở dang
+            if (!ready) writer.deleteAll();
+            int pageIndex = 0;
+            boolean hasNext = true;
+            while (hasNext) {
+                int current = pageIndex++;
+                hasNext = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    Page<Product> page = productRepository.findAll(PageRequest.of(current, REBUILD_BATCH_SIZE, Sort.by("id")));
+                    for (Product product : page) {
+                        if (product.isEnable()) {
+                            addOrReplace(toDocument(product));
+                        } else {
+                            delete(product.getId());
+                        }
+                    }
+                    // Giải phóng entity đã đọc, tránh giữ cả catalog trong persistence context
+                    entityManager.clear();
+                    return page.hasNext();
+                }));
+            }
+            writer.commit();
+            searcherManager.maybeRefresh();
+            ready = true;
+            log.info("Đã dựng chỉ mục tìm kiếm sản phẩm: {} tài liệu trong {} ms",
+                    writer.getDocStats().numDocs, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Không dựng được chỉ mục tìm kiếm, tạm dùng truy vấn LIKE", e);
+        }
+    }
+
+    // =======================================================================
+    //  CẬP NHẬT TỪNG SẢN PHẨM (gọi trong transaction ghi)
+    // =======================================================================
+    /**
+     * Đọc dữ liệu sản phẩm ngay (khi collection LAZY còn nạp được) nhưng chỉ ghi vào chỉ mục
+     * sau khi transaction commit, để rollback không để lại dữ liệu sai trong chỉ mục.
+     */
+    public void indexAfterCommit(Product product) {
+        // Sản phẩm đã vô hiệu hóa không xuất hiện trong kết quả tìm kiếm
+        if (!product.isEnable()) {
+            removeAfterCommit(product.getId());
+            return;
+        }
+        Document document = toDocument(product);
+        afterCommit(() -> {
+            addOrReplace(document);
+            refresh();
+        });
+    }
+
+    public void removeAfterCommit(UUID productId) {
+        afterCommit(() -> removeLocal(productId));
+    }
+
+    @Override
+    public void indexLocal(Product product) {
+        if (!product.isEnable()) {
+            removeLocal(product.getId());
+            return;
+        }
+        addOrReplace(toDocument(product));
+        refresh();
+    }
+
+    @Override
+    public void removeLocal(UUID productId) {
+        delete(productId);
+        refresh();
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("Không cập nhật được chỉ mục tìm kiếm", e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safe.run();
+                }
+            });
+        } else {
+            safe.run();
+        }
+    }
+
+    private void addOrReplace(Document document) {
+        try {
+            writer.updateDocument(new Term(F_ID, document.get(F_ID)), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(UUID productId) {
+        try {
+            writer.deleteDocuments(new Term(F_ID, productId.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Document toDocument(Product product) {
+        Document doc = new Document();
+        doc.add(new StringField(F_ID, product.getId().toString(), Field.Store.YES));
+        doc.add(new TextField(F_NAME, nullToEmpty(product.getName()), Field.Store.NO));
+
+        if (product.getBrand() != null) {
+            doc.add(new TextField(F_BRAND, nullToEmpty(product.getBrand().getName()), Field.Store.NO));
+        }
+
+        StringJoiner category = new StringJoiner(" ");
+        if (product.getCategory() != null) category.add(nullToEmpty(product.getCategory().getName()));
+        if (product.getCategoryType() != null) category.add(nullToEmpty(product.getCategoryType().getName()));
+        doc.add(new TextField(F_CATEGORY, category.toString(), Field.Store.NO));
+
+        // Thông số + thuộc tính biến thể gộp chung: "RAM 16GB", "CPU i7-13700H"...
+        StringJoiner specs = new StringJoiner(" ");
+        if (product.getSpecifications() != null) {
+            for (ProductSpecification spec : product.getSpecifications()) {
+                specs.add(nullToEmpty(spec.getName())).add(nullToEmpty(spec.getValue()));
+            }
+        }
+        if (product.getVariants() != null) {
+            for (ProductVariant variant : product.getVariants()) {
+                if (variant.getAttributes() == null) continue;
+                for (ProductVariantAttribute attr : variant.getAttributes()) {
+                    specs.add(nullToEmpty(attr.getAttributeName())).add(nullToEmpty(attr.getAttributeValue()));
+                }
+            }
+        }
+        doc.add(new TextField(F_SPECS, specs.toString(), Field.Store.NO));
+        return doc;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private void release(IndexSearcher searcher) {
+        if (searcher == null) return;
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Không trả được IndexSearcher", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        analyzer.close();
+    }
+}
@@ -0,0 +1,196 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.entities.FlashSale;
+import com.tieuluan.laptopstore.entities.FlashSaleItem;
+import com.tieuluan.laptopstore.repositories.FlashSaleItemRepository;
+import com.tieuluan.laptopstore.repositories.FlashSaleRepository;
+
+import lombok.Builder;
+import lombok.Value;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Chỉ mục Flash Sale trong bộ nhớ: productId -> suất Sale đang chạy.
+ * <p>
+ * Nạp một lần các Flash Sale đang chạy / sắp chạy (status = 1, chưa kết thúc), sau đó
+ * tự bật/tắt từng suất đúng thời điểm startDate/endDate bằng {@link TaskScheduler}
+ * mà không cần hỏi lại DB. Khi admin lưu/xóa Flash Sale thì nạp lại sau commit;
+ * ngoài ra nạp lại định kỳ để đồng bộ với các node khác.
+ */
+@Component
+public class ActiveFlashSaleIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveFlashSaleIndex.class);
+
+    private static final ZoneId CURRENT_ZONE = ZoneId.systemDefault();
+
+    @Autowired private FlashSaleRepository flashSaleRepository;
+    @Autowired private FlashSaleItemRepository flashSaleItemRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private TaskScheduler taskScheduler;
+
+    // Toàn bộ suất đã nạp (đang chạy + sắp chạy), sắp theo startDate
+    private volatile List<Entry> loaded = List.of();
+
+    // productId -> suất đang chạy. Luôn thay nguyên map (không sửa tại chỗ) nên đọc không cần khóa
+    private volatile Map<UUID, Entry> active = Map.of();
+
+    private ScheduledFuture<?> nextSwitch;
+
+    // =======================================================================
+    //  ĐỌC (O(1), không truy vấn DB)
+    // =======================================================================
+    public Optional<Entry> get(UUID productId) {
+        Entry entry = active.get(productId);
+        // Chặn độ trễ vài ms của scheduler ở đúng mốc bắt đầu/kết thúc
+        if (entry == null || !entry.isActiveAt(LocalDateTime.now(CURRENT_ZONE))) {
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    // =======================================================================
+    //  NẠP LẠI TỪ DB
+    // =======================================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+
+    // Đồng bộ định kỳ: bắt được thay đổi từ node khác / sửa tay trong DB
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void periodicReload() {
+        reload();
+    }
+
+    /** Nạp lại ngay sau khi transaction hiện tại commit (dùng cho save/delete Flash Sale). */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    public void reload() {
+        try {
+            List<Entry> entries = transactionTemplate.execute(status -> loadEntries());
+            synchronized (this) {
+                loaded = entries != null ? entries : List.of();
+                refresh();
+            }
+        } catch (Exception e) {
+            // Giữ nguyên chỉ mục cũ, lần nạp định kỳ sau sẽ thử lại
+            log.error("Không nạp được chỉ mục Flash Sale", e);
+        }
+    }
+
+    private List<Entry> loadEntries() {
+        LocalDateTime now = LocalDateTime.now(CURRENT_ZONE);
+        List<FlashSale> sales = flashSaleRepository.findByStatusAndEndDateAfterOrderByStartDateAsc(1, now);
+        if (sales.isEmpty()) return List.of();
+
+        Map<UUID, FlashSale> saleById = sales.stream()
+                .collect(Collectors.toMap(FlashSale::getId, fs -> fs));
+
+        return flashSaleItemRepository.findByFlashSaleIdIn(saleById.keySet()).stream()
+                .map(item -> toEntry(item, saleById.get(item.getFlashSale().getId())))
+                .sorted(Comparator.comparing(Entry::getStartDate))
+                .collect(Collectors.toList());
+    }
+
+    // =======================================================================
+    //  BẬT/TẮT THEO MỐC THỜI GIAN
+    // =======================================================================
+    // Tính lại map đang chạy từ dữ liệu đã nạp rồi hẹn giờ cho mốc kế tiếp
+    private synchronized void refresh() {
+        LocalDateTime now = LocalDateTime.now(CURRENT_ZONE);
+
+        Map<UUID, Entry> current = new HashMap<>();
+        LocalDateTime nextBoundary = null;
+
+        for (Entry entry : loaded) {
+            // Trùng sản phẩm ở 2 đợt Sale chồng nhau: giữ đợt bắt đầu sớm hơn
+            if (entry.isActiveAt(now)) {
+                current.putIfAbsent(entry.getProductId(), entry);
+            }
+            nextBoundary = earliestAfter(nextBoundary, entry.getStartDate(), now);
+            nextBoundary = earliestAfter(nextBoundary, entry.getEndDate(), now);
+        }
+
+        active = Map.copyOf(current);
+        // Bỏ các suất đã kết thúc để danh sách không phình ra giữa 2 lần nạp
+        loaded = loaded.stream().filter(e -> e.getEndDate().isAfter(now)).collect(Collectors.toList());
+
+        if (nextSwitch != null) {
+            nextSwitch.cancel(false);
+            nextSwitch = null;
+        }
+        if (nextBoundary != null) {
+            nextSwitch = taskScheduler.schedule(this::refresh, nextBoundary.atZone(CURRENT_ZONE).toInstant());
+        }
+    }
+
+    private LocalDateTime earliestAfter(LocalDateTime current, LocalDateTime candidate, LocalDateTime now) {
+        if (!candidate.isAfter(now)) return current;
+        return current == null || candidate.isBefore(current) ? candidate : current;
+    }
+
+    private Entry toEntry(FlashSaleItem item, FlashSale sale) {
+        return Entry.builder()
+                .itemId(item.getId())
+                .flashSaleId(sale.getId())
+                .productId(item.getProduct().getId())
+                .discountPercent(item.getDiscountPercent())
+                .quantity(item.getQuantity())
+                .sold(item.getSold())
+                .startDate(sale.getStartDate())
+                .endDate(sale.getEndDate())
+                .build();
+    }
+
+    /** Ảnh chụp bất biến của 1 suất Flash Sale (sold là giá trị trong DB lúc nạp). */
+    @Value
+    @Builder
+    public static class Entry {
+        UUID itemId;
+        UUID flashSaleId;
+        UUID productId;
+        Double discountPercent;
+        int quantity;
+        int sold;
+        LocalDateTime startDate;
+        LocalDateTime endDate;
+
+        public boolean isActiveAt(LocalDateTime time) {
+            return !time.isBefore(startDate) && !time.isAfter(endDate);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.tieuluan.laptopstore.services;
 
-import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
+import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 import com.tieuluan.laptopstore.dto.AddressRequest;
 import com.tieuluan.laptopstore.entities.Address;
 import com.tieuluan.laptopstore.repositories.AddressRepository;
@@ -20,8 +21,11 @@ public class AddressService {
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private UserDetailRepository userDetailRepository;
+
     public Address createAddress(AddressRequest addressRequest, Principal principal){
-        User user= (User) userDetailsService.loadUserByUsername(principal.getName());
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
         Address address = Address.builder()
                 .name(addressRequest.getName())
                 .street(addressRequest.getStreet())
@@ -29,7 +33,7 @@ public class AddressService {
                 .state(addressRequest.getState())
                 .zipCode(addressRequest.getZipCode())
                 .phoneNumber(addressRequest.getPhoneNumber())
-                .user(user)
+                .user(userDetailRepository.getReferenceById(user.getId()))
                 .build();
         return addressRepository.save(address);
     }
@@ -39,7 +43,7 @@ public class AddressService {
     }
 
     public Address updateAddress(UUID id, AddressRequest addressRequest, Principal principal) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
 
         Address address = addressRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Address not found"));
@@ -6,8 +6,11 @@ import java.util.UUID;
 import com.tieuluan.laptopstore.repositories.BrandRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import com.tieuluan.laptopstore.cache.CacheNames;
 import com.tieuluan.laptopstore.dto.BrandDto;
 import com.tieuluan.laptopstore.entities.Brand;
 import com.tieuluan.laptopstore.exceptions.ResourceNotFoundEx;
@@ -31,15 +34,19 @@ public class BrandService {
         return brand.orElse(null);
     }
 
+    @Cacheable(cacheNames = CacheNames.BRANDS, key = "'all'")
     public List<Brand> getAllBrand() {
         return brandRepository.findAll();
     }
 
+    @CacheEvict(cacheNames = CacheNames.BRANDS, allEntries = true)
     public Brand createBrand(BrandDto brandDto){
         Brand brand = brandMapper.mapToEntity(brandDto);
         return brandRepository.save(brand);
     }
 
+    // ProductDto và cây danh mục có nhúng thương hiệu nên xóa theo
+    @CacheEvict(cacheNames = {CacheNames.BRANDS, CacheNames.PRODUCT_BY_ID, CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
     public Brand updateBrand(BrandDto brandDto, UUID brandId) {
         Brand brand = brandRepository.findById(brandId)
                 .orElseThrow(()-> new ResourceNotFoundEx("Brand not found with Id "+brandDto.getId()));
@@ -60,6 +67,7 @@ public class BrandService {
         return  brandRepository.save(brand);
     }
 
+    @CacheEvict(cacheNames = {CacheNames.BRANDS, CacheNames.PRODUCT_BY_ID, CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
     public void deleteBrand(UUID brandId) {
         brandRepository.deleteById(brandId);
     }
@@ -0,0 +1,90 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.cache.CacheNames;
+import com.tieuluan.laptopstore.dto.CategoryDto;
+import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.mapper.CategoryMapper;
+import com.tieuluan.laptopstore.mapper.ProductMapper;
+import com.tieuluan.laptopstore.repositories.CategoryRepository;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Đọc DTO catalog qua cache (Caffeine + Redis).
+ * <p>
+ * Tách riêng khỏi service để lời gọi đi qua proxy @Cacheable. Giá trị trong cache là DTO
+ * gốc, KHÔNG có Flash Sale: service gắn Flash Sale lên bản sao sau khi đọc cache, nên
+ * giá Sale không bao giờ bị lưu lại quá hạn. Tồn kho trong cây danh mục cũng được
+ * CategoryService đọc lại và gắn lên bản sao, nên đặt / hủy đơn không phải xóa cây danh mục. Giá trị trả về dùng chung giữa các request,
+ * không được sửa trực tiếp.
+ */
+@Component
+public class CatalogCache {
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductMapper productMapper;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private CategoryMapper categoryMapper;
+    @Autowired private CacheManager cacheManager;
+
+    // =======================================================================
+    //  SẢN PHẨM
+    // =======================================================================
+    @Cacheable(cacheNames = CacheNames.PRODUCT_SLUG, unless = "#result == null")
+    @Transactional(readOnly = true)
+    public UUID findProductIdBySlug(String slug) {
+        return productRepository.findBySlugWithSpecifications(slug)
+                .map(Product::getId)
+                .orElse(null);
+    }
+
+    @Cacheable(cacheNames = CacheNames.PRODUCT_BY_ID, unless = "#result == null")
+    @Transactional(readOnly = true)
+    public ProductDto getProduct(UUID id) {
+        return productRepository.findById(id)
+                .map(productMapper::mapToProductDto)
+                .orElse(null);
+    }
+
+    /**
+     * Xóa sản phẩm khỏi cache (sau commit nếu đang trong transaction), vd. khi tồn kho đổi.
+     * Cây danh mục không cần xóa: tồn kho được gắn lại sau khi đọc cache.
+     */
+    public void evictProducts(Collection<UUID> productIds) {
+        if (productIds.isEmpty()) return;
+
+        Cache products = cacheManager.getCache(CacheNames.PRODUCT_BY_ID);
+        if (products != null) productIds.forEach(products::evict);
+    }
+
+    // =======================================================================
+    //  DANH MỤC
+    // =======================================================================
+    @Cacheable(cacheNames = CacheNames.CATEGORY_TREE, key = "'all'")
+    @Transactional(readOnly = true)
+    public List<CategoryDto> getCategoryTree() {
+        return categoryRepository.findAll().stream()
+                .map(categoryMapper::mapToDto)
+                .collect(Collectors.toList());
+    }
+
+    @Cacheable(cacheNames = CacheNames.CATEGORY_BY_ID, unless = "#result == null")
+    @Transactional(readOnly = true)
+    public CategoryDto getCategory(UUID categoryId) {
+        return categoryRepository.findById(categoryId)
+                .map(categoryMapper::mapToDto)
+                .orElse(null);
+    }
+}
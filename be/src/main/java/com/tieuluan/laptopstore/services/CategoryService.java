@@ -1,19 +1,27 @@
 package com.tieuluan.laptopstore.services;
 
+import com.tieuluan.laptopstore.cache.CacheNames;
 import com.tieuluan.laptopstore.dto.CategoryDto;
+import com.tieuluan.laptopstore.dto.CategoryTypeDto;
+import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductVariantDto;
 import com.tieuluan.laptopstore.entities.Category;
 import com.tieuluan.laptopstore.entities.CategoryType;
 import com.tieuluan.laptopstore.exceptions.ResourceNotFoundEx;
 import com.tieuluan.laptopstore.mapper.CategoryMapper;
 import com.tieuluan.laptopstore.repositories.CategoryRepository;
 import com.tieuluan.laptopstore.repositories.CategoryTypeRepository;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -28,14 +36,26 @@ public class CategoryService {
     @Autowired
     private CategoryMapper categoryMapper;
 
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
     // --- GET ONE (Return DTO) ---
     public CategoryDto getCategoryDto(UUID categoryId){
-        Optional<Category> category = categoryRepository.findById(categoryId);
-        // Map Entity -> DTO
-        return category.map(value -> categoryMapper.mapToDto(value)).orElse(null);
+        CategoryDto cached = catalogCache.getCategory(categoryId);
+        if (cached == null) return null;
+        CategoryDto dto = copyOf(cached);
+        enrich(List.of(dto));
+        return dto;
     }
 
     // --- CREATE (Return DTO) ---
+    @CacheEvict(cacheNames = {CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
     public CategoryDto createCategory(CategoryDto categoryDto){
         Category category = categoryMapper.mapToEntity(categoryDto);
         Category savedCategory = categoryRepository.save(category);
@@ -45,11 +65,68 @@ public class CategoryService {
 
     // --- GET ALL (Return List<DTO>) ---
     public List<CategoryDto> getAllCategoryDtos() {
-        List<Category> categories = categoryRepository.findAll();
-        // Stream: Convert List<Entity> -> List<DTO>
-        return categories.stream()
-                .map(category -> categoryMapper.mapToDto(category))
+        // Cây danh mục lấy từ cache, tồn kho và Flash Sale gắn lên bản sao
+        List<CategoryDto> dtos = catalogCache.getCategoryTree().stream()
+                .map(this::copyOf)
                 .collect(Collectors.toList());
+        enrich(dtos);
+        return dtos;
+    }
+
+    // Sao chép tới tầng sản phẩm / biến thể (chỗ gắn tồn kho, Flash Sale), phần còn lại dùng chung với cache
+    private CategoryDto copyOf(CategoryDto category) {
+        if (category.getCategoryTypes() == null) return category.toBuilder().build();
+        List<CategoryTypeDto> types = category.getCategoryTypes().stream()
+                .map(type -> type.toBuilder()
+                        .products(type.getProducts() == null ? null : type.getProducts().stream()
+                                .map(p -> p == null ? null : p.toBuilder()
+                                        .variants(p.getVariants() == null ? null : p.getVariants().stream()
+                                                .map(v -> v == null ? null : v.toBuilder().build())
+                                                .collect(Collectors.toList()))
+                                        .build())
+                                .collect(Collectors.toList()))
+                        .build())
+                .collect(Collectors.toList());
+        return category.toBuilder().categoryTypes(types).build();
+    }
+
+    // Gom sản phẩm của mọi loại danh mục rồi gắn tồn kho và Flash Sale 1 lần
+    private void enrich(List<CategoryDto> categories) {
+        List<ProductDto> products = categories.stream()
+                .filter(c -> c.getCategoryTypes() != null)
+                .flatMap(c -> c.getCategoryTypes().stream())
+                .filter(t -> t.getProducts() != null)
+                .flatMap(t -> t.getProducts().stream())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        overlayStock(products);
+        flashSaleService.enrichProducts(products);
+    }
+
+    // Tồn kho đổi theo từng đơn nên không lưu trong cache danh mục: đọc lại 2 câu SQL theo id
+    private void overlayStock(List<ProductDto> products) {
+        if (products.isEmpty()) return;
+        List<UUID> productIds = products.stream().map(ProductDto::getId).distinct().collect(Collectors.toList());
+
+        Map<UUID, Integer> stock = new HashMap<>();
+        for (Object[] row : productRepository.findStockRows(productIds)) {
+            stock.put((UUID) row[0], (Integer) row[1]);
+        }
+        Map<UUID, Integer> variantStock = new HashMap<>();
+        for (Object[] row : productRepository.findVariantStockRows(productIds)) {
+            variantStock.put((UUID) row[0], (Integer) row[1]);
+        }
+
+        for (ProductDto product : products) {
+            Integer current = stock.get(product.getId());
+            if (current != null) product.setStock(current);
+            if (product.getVariants() == null) continue;
+            for (ProductVariantDto variant : product.getVariants()) {
+                if (variant != null && variantStock.containsKey(variant.getId())) {
+                    variant.setStockQuantity(variantStock.get(variant.getId()));
+                }
+            }
+        }
     }
     
     // Helper method for internal use (giữ nguyên nếu cần dùng nội bộ)
@@ -59,6 +136,8 @@ public class CategoryService {
     }
 
     // --- UPDATE (Return DTO) ---
+    // ProductDto có nhúng danh mục nên xóa luôn cache chi tiết sản phẩm
+    @CacheEvict(cacheNames = {CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID, CacheNames.PRODUCT_BY_ID}, allEntries = true)
     public CategoryDto updateCategory(CategoryDto categoryDto, UUID categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(()-> new ResourceNotFoundEx("Category not found with Id "+categoryDto.getId()));
@@ -77,6 +156,7 @@ public class CategoryService {
         return categoryMapper.mapToDto(updatedCategory);
     }
 
+    @CacheEvict(cacheNames = {CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID, CacheNames.PRODUCT_BY_ID}, allEntries = true)
     public void deleteCategory(UUID categoryId) {
         categoryRepository.deleteById(categoryId);
     }
@@ -0,0 +1,145 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.repositories.DailySalesRepository;
+import com.tieuluan.laptopstore.repositories.DailySalesRepositoryCustom.Delta;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Duy trì bảng tổng hợp daily_sales.
+ * <p>
+ * {@link #recordCreated} / {@link #recordStatusChange} được gọi từ consumer ANALYTICS của outbox
+ * đơn hàng, chung transaction với việc đánh dấu sự kiện đã xử lý nên mỗi sự kiện chỉ cộng 1 lần.
+ * Delta cộng dồn nên thứ tự xử lý các sự kiện của cùng đơn không quan trọng. Mỗi đêm tính lại
+ * các ngày gần đây từ dữ liệu gốc để sửa mọi sai lệch (sửa tay trong DB, lỗi giữa chừng...).
+ */
+@Service
+public class DailySalesService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailySalesService.class);
+
+    private static final String REBUILD_JOB = "DailySalesService.rebuild";
+
+    // Cùng thứ tự với MIN(product_id) trên cột BINARY(16) của MySQL (so sánh byte không dấu)
+    private static final Comparator<UUID> BINARY_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Autowired private DailySalesRepository dailySalesRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // Số ngày gần nhất được đối soát mỗi đêm (đơn có thể đổi trạng thái vài tuần sau khi đặt)
+    @Value("${analytics.daily-sales.reconcile-days:45}")
+    private int reconcileDays;
+
+    // =======================================================================
+    //  CẬP NHẬT DẦN THEO ĐƠN HÀNG
+    // =======================================================================
+    public void recordCreated(Order order, OrderStatus status) {
+        dailySalesRepository.applyDeltas(deltas(order, status, 1));
+    }
+
+    // Chuyển các dòng của đơn từ trạng thái cũ sang trạng thái mới
+    public void recordStatusChange(Order order, OrderStatus from, OrderStatus to) {
+        if (from == to) return;
+        List<Delta> deltas = new ArrayList<>(deltas(order, from, -1));
+        deltas.addAll(deltas(order, to, 1));
+        dailySalesRepository.applyDeltas(deltas);
+    }
+
+    // Gom dòng hàng theo sản phẩm; sign = -1 để trừ khỏi trạng thái cũ
+    private List<Delta> deltas(Order order, OrderStatus status, int sign) {
+        List<OrderItem> items = order.getOrderItemList();
+        if (items == null || items.isEmpty() || order.getOrderDate() == null) return List.of();
+
+        double subtotal = items.stream().mapToDouble(i -> i.getItemPrice() * i.getQuantity()).sum();
+        double total = order.getTotalAmount() != null ? order.getTotalAmount() : 0;
+        UUID firstProduct = items.stream().map(i -> i.getProduct().getId()).min(BINARY_ORDER).orElseThrow();
+
+        Map<UUID, long[]> quantities = new LinkedHashMap<>();
+        Map<UUID, double[]> amounts = new LinkedHashMap<>();
+        Map<UUID, UUID> categories = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            Product product = item.getProduct();
+            double lineValue = item.getItemPrice() * item.getQuantity();
+            quantities.computeIfAbsent(product.getId(), k -> new long[1])[0] += item.getQuantity();
+            double[] amount = amounts.computeIfAbsent(product.getId(), k -> new double[2]);
+            amount[0] += lineValue;
+            amount[1] += subtotal > 0 ? total * lineValue / subtotal : 0;
+            categories.putIfAbsent(product.getId(), product.getCategory().getId());
+        }
+
+        LocalDate saleDate = order.getOrderDate().toLocalDate();
+        List<Delta> deltas = new ArrayList<>(quantities.size());
+        for (Map.Entry<UUID, long[]> e : quantities.entrySet()) {
+            UUID productId = e.getKey();
+            double[] amount = amounts.get(productId);
+            deltas.add(new Delta(saleDate, productId, status, categories.get(productId),
+                    sign * e.getValue()[0],
+                    sign * amount[0],
+                    sign * amount[1],
+                    productId.equals(firstProduct) ? sign : 0));
+        }
+        return deltas;
+    }
+
+    // =======================================================================
+    //  ĐỐI SOÁT
+    // =======================================================================
+    // Chung tên lease với backfill: 2 lần tính lại không chạy chồng nhau trên các node
+    @Scheduled(cron = "${analytics.daily-sales.reconcile-cron:0 30 2 * * *}")
+    @ClusterSingleton(value = REBUILD_JOB, leaseSeconds = 300)
+    public void reconcileRecentDays() {
+        LocalDate today = LocalDate.now();
+        JobLease.recordItems(rebuild(today.minusDays(reconcileDays), today));
+    }
+
+    // Lần đầu chạy (bảng trống) thì dựng lại toàn bộ lịch sử
+    @EventListener(ApplicationReadyEvent.class)
+    @ClusterSingleton(value = REBUILD_JOB, leaseSeconds = 300)
+    public void backfillIfEmpty() {
+        try {
+            if (dailySalesRepository.count() > 0) return;
+            orderRepository.findFirstByOrderByOrderDateAsc()
+                    .ifPresent(first -> rebuild(first.getOrderDate().toLocalDate(), LocalDate.now()));
+        } catch (Exception e) {
+            log.error("Không dựng được bảng daily_sales lúc khởi động", e);
+        }
+    }
+
+    public int rebuild(LocalDate from, LocalDate to) {
+        long start = System.currentTimeMillis();
+        // REPEATABLE READ để INSERT ... SELECT khóa các đơn đã đọc (xem DailySalesRepositoryCustom)
+        TransactionTemplate rebuildTx = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        rebuildTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Integer rows = rebuildTx.execute(status -> dailySalesRepository.rebuild(from, to));
+        log.info("Đã tính lại daily_sales {} -> {}: {} dòng trong {} ms",
+                from, to, rows, System.currentTimeMillis() - start);
+        return rows != null ? rows : 0;
+    }
+}
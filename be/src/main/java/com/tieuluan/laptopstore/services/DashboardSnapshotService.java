@@ -0,0 +1,312 @@
+package com.tieuluan.laptopstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tieuluan.laptopstore.async.AsyncConfig;
+import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
+import com.tieuluan.laptopstore.auth.services.UserRegisteredEvent;
+import com.tieuluan.laptopstore.dto.DashboardSnapshot;
+import com.tieuluan.laptopstore.dto.OrderDetails;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import com.tieuluan.laptopstore.mapper.OrderMapper;
+import com.tieuluan.laptopstore.outbox.OrderEvent;
+import com.tieuluan.laptopstore.repositories.DailySalesRepository;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Giữ số liệu dashboard admin trong bộ nhớ thay vì chạy 5 query mỗi lần tải trang.
+ * <p>
+ * Sự kiện đơn hàng (qua outbox) và user mới; sau commit, node xử lý áp delta vào
+ * snapshot của mình và phát delta lên Redis để các node khác áp theo. Dashboard đang mở nhận
+ * thay đổi qua SSE. Định kỳ đọc lại toàn bộ từ DB để sửa sai lệch (lỡ mất tin pub/sub,
+ * sửa tay trong DB, delta đến đúng lúc đang đọc lại...).
+ */
+@Service
+public class DashboardSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardSnapshotService.class);
+
+    public static final String DELTA_CHANNEL = "dashboard:delta";
+
+    // Doanh thu dashboard chỉ tính đơn đang giao + đã giao
+    private static final Set<OrderStatus> REVENUE_STATUSES = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.SHIPPED);
+
+    // Phân biệt tin của chính node này trên kênh Redis
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired private UserDetailRepository userDetailRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private DailySalesRepository dailySalesRepository;
+    @Autowired private OrderMapper orderMapper;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private StringRedisTemplate stringRedisTemplate;
+    @Autowired private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${dashboard.snapshot.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private volatile DashboardSnapshot snapshot;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // Gửi SSE trên pool riêng (1 thread) để client chậm không giữ thread đang xử lý sự kiện
+    @Autowired
+    @Qualifier(AsyncConfig.SSE_EXECUTOR)
+    private AsyncTaskExecutor sseExecutor;
+
+    @PostConstruct
+    void init() {
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                Delta delta = objectMapper.readValue(message.getBody(), Delta.class);
+                if (!nodeId.equals(delta.getOrigin())) {
+                    apply(delta);
+                }
+            } catch (Exception e) {
+                log.warn("Bỏ qua delta dashboard không đọc được", e);
+            }
+        }, new ChannelTopic(DELTA_CHANNEL));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    // =======================================================================
+    //  ĐỌC
+    // =======================================================================
+    public DashboardSnapshot current() {
+        DashboardSnapshot current = snapshot;
+        return current != null ? current : resync();
+    }
+
+    // =======================================================================
+    //  ĐỒNG BỘ LẠI TỪ DB
+    // =======================================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            resync();
+        } catch (Exception e) {
+            log.error("Không dựng được snapshot dashboard lúc khởi động", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.snapshot.resync-ms:300000}",
+               initialDelayString = "${dashboard.snapshot.resync-ms:300000}")
+    public void scheduledResync() {
+        DashboardSnapshot before = snapshot;
+        DashboardSnapshot after = resync();
+        if (before != null && !before.getEtag().equals(after.getEtag())) {
+            broadcast(after, true);
+        }
+    }
+
+    public synchronized DashboardSnapshot resync() {
+        long totalUsers = userDetailRepository.count();
+        long totalOrders = orderRepository.count();
+        Double totalRevenue = dailySalesRepository.sumNetAmountByStatuses(REVENUE_STATUSES);
+        long cancelledOrders = dailySalesRepository.countOrdersByStatus(OrderStatus.CANCELLED);
+
+        DashboardSnapshot previous = snapshot;
+        snapshot = build(previous != null ? previous.getVersion() + 1 : 1,
+                totalUsers, totalOrders, totalRevenue != null ? totalRevenue : 0.0, cancelledOrders,
+                loadRecentOrders());
+        return snapshot;
+    }
+
+    private List<OrderDetails> loadRecentOrders() {
+        return transactionTemplate.execute(status ->
+                orderMapper.mapToOrderDetailsList(orderRepository.findTop5ByOrderByOrderDateDesc()));
+    }
+
+    // =======================================================================
+    //  CẬP NHẬT THEO SỰ KIỆN
+    // =======================================================================
+    // Gọi từ consumer DASHBOARD của outbox đơn hàng (đã sau commit)
+    public void onOrderEvent(OrderEvent event) {
+        Delta delta = new Delta(nodeId, 0, 0, 0.0, 0, false);
+        if (event.isPlaced()) {
+            delta.setOrders(1);
+            delta.setRecentChanged(true);
+        } else {
+            // Đơn đổi trạng thái chỉ làm đổi danh sách gần đây nếu nó đang nằm trong đó
+            DashboardSnapshot current = snapshot;
+            delta.setRecentChanged(current == null || current.getRecentOrders().stream()
+                    .anyMatch(o -> event.getOrderId().equals(o.getId())));
+        }
+        if (REVENUE_STATUSES.contains(event.getTo())) delta.setRevenue(delta.getRevenue() + event.getTotalAmount());
+        if (REVENUE_STATUSES.contains(event.getFrom())) delta.setRevenue(delta.getRevenue() - event.getTotalAmount());
+        if (event.getTo() == OrderStatus.CANCELLED) delta.setCancelled(delta.getCancelled() + 1);
+        if (event.getFrom() == OrderStatus.CANCELLED) delta.setCancelled(delta.getCancelled() - 1);
+
+        applyAndPublish(delta);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        applyAndPublish(new Delta(nodeId, 1, 0, 0.0, 0, false));
+    }
+
+    private void applyAndPublish(Delta delta) {
+        try {
+            apply(delta);
+        } catch (Exception e) {
+            // Đơn đã commit; snapshot sẽ đúng lại ở lần đồng bộ kế tiếp
+            log.warn("Không cập nhật được snapshot dashboard", e);
+        }
+        try {
+            stringRedisTemplate.convertAndSend(DELTA_CHANNEL, objectMapper.writeValueAsString(delta));
+        } catch (Exception e) {
+            log.warn("Không gửi được delta dashboard lên Redis", e);
+        }
+    }
+
+    private void apply(Delta delta) {
+        DashboardSnapshot next;
+        synchronized (this) {
+            DashboardSnapshot current = snapshot;
+            if (current == null) {
+                // Chưa có snapshot thì đọc thẳng từ DB (đã gồm thay đổi vừa commit)
+                resync();
+                return;
+            }
+            next = build(current.getVersion() + 1,
+                    current.getTotalUsers() + delta.getUsers(),
+                    current.getTotalOrders() + delta.getOrders(),
+                    current.getTotalRevenue() + delta.getRevenue(),
+                    current.getCancelledOrders() + delta.getCancelled(),
+                    delta.isRecentChanged() ? loadRecentOrders() : current.getRecentOrders());
+            snapshot = next;
+        }
+        broadcast(next, delta.isRecentChanged());
+    }
+
+    private static DashboardSnapshot build(long version, long users, long orders, double revenue,
+                                           long cancelled, List<OrderDetails> recentOrders) {
+        StringBuilder key = new StringBuilder()
+                .append(users).append('|').append(orders).append('|')
+                .append(String.format(Locale.ROOT, "%.2f", revenue)).append('|').append(cancelled);
+        for (OrderDetails order : recentOrders) {
+            key.append('|').append(order.getId()).append(':').append(order.getOrderStatus());
+        }
+        return DashboardSnapshot.builder()
+                .version(version)
+                .totalUsers(users)
+                .totalOrders(orders)
+                .totalRevenue(revenue)
+                .cancelledOrders(cancelled)
+                .recentOrders(List.copyOf(recentOrders))
+                .etag("\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"")
+                .build();
+    }
+
+    // =======================================================================
+    //  SSE
+    // =======================================================================
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+
+        DashboardSnapshot current = current();
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").id(String.valueOf(current.getVersion())).data(current));
+        } catch (IOException e) {
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    // Chỉ gửi các trường có thể đã đổi; danh sách đơn gần đây chỉ gửi khi thật sự đổi
+    private void broadcast(DashboardSnapshot next, boolean includeRecentOrders) {
+        if (emitters.isEmpty()) return;
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("totalUsers", next.getTotalUsers());
+        changes.put("totalOrders", next.getTotalOrders());
+        changes.put("totalRevenue", next.getTotalRevenue());
+        changes.put("cancelledOrders", next.getCancelledOrders());
+        if (includeRecentOrders) {
+            changes.put("recentOrders", next.getRecentOrders());
+        }
+        sendToAll(SseEmitter.event().name("delta").id(String.valueOf(next.getVersion())).data(changes));
+    }
+
+    // Giữ kết nối qua proxy/load balancer khi lâu không có đơn mới
+    @Scheduled(fixedRateString = "${dashboard.snapshot.heartbeat-ms:25000}")
+    public void heartbeat() {
+        if (emitters.isEmpty()) return;
+        sendToAll(SseEmitter.event().comment("ping"));
+    }
+
+    private void sendToAll(SseEmitter.SseEventBuilder event) {
+        try {
+            sseExecutor.execute(() -> {
+                for (SseEmitter emitter : emitters) {
+                    try {
+                        emitter.send(event);
+                    } catch (Exception e) {
+                        // Client đã đóng tab
+                        emitters.remove(emitter);
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Hàng đợi đầy (client quá chậm): bỏ lượt này, lượt sau gửi giá trị mới nhất
+            log.warn("Bỏ qua 1 lượt đẩy SSE dashboard: {}", e.getMessage());
+        }
+    }
+
+    // Thay đổi gửi giữa các node qua Redis
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Delta {
+        private String origin;
+        private long users;
+        private long orders;
+        private double revenue;
+        private long cancelled;
+        private boolean recentChanged;
+    }
+}
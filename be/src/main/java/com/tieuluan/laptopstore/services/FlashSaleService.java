@@ -2,6 +2,7 @@ package com.tieuluan.laptopstore.services;
 
 import com.tieuluan.laptopstore.dto.FlashSaleDtos;
 import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,6 +15,9 @@ public interface FlashSaleService {
     // Gắn thông tin Sale vào danh sách sản phẩm (Trang chủ, Search)
     void enrichProducts(List<ProductDto> productDtos);
 
+    // Như trên cho bản tóm tắt (lưới sản phẩm view=summary)
+    void enrichSummaries(List<ProductSummaryDto> summaries);
+
     // Gắn thông tin Sale vào 1 sản phẩm (Trang chi tiết)
     void enrichSingleProduct(ProductDto productDto);
 
@@ -2,8 +2,10 @@ package com.tieuluan.laptopstore.services;
 
 import com.tieuluan.laptopstore.dto.FlashSaleDtos;
 import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
 import com.tieuluan.laptopstore.entities.FlashSale;
 import com.tieuluan.laptopstore.entities.FlashSaleItem;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
 import com.tieuluan.laptopstore.mapper.ProductMapper;
 import com.tieuluan.laptopstore.repositories.FlashSaleItemRepository;
 import com.tieuluan.laptopstore.repositories.FlashSaleRepository;
@@ -21,7 +23,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,44 +35,65 @@ public class FlashSaleServiceImpl implements FlashSaleService {
     @Autowired private ProductMapper productMapper;
     @Autowired private FlashSaleRepository flashSaleRepository;
     @Autowired private ProductRepository productRepository;
+    @Autowired private ActiveFlashSaleIndex activeFlashSaleIndex;
+    @Autowired private FlashSaleStockService flashSaleStockService;
 
     // Tự động lấy múi giờ hệ thống (Khắc phục việc phải set cứng Asia/Ho_Chi_Minh)
     private static final ZoneId CURRENT_ZONE = ZoneId.systemDefault();
 
     // --- 1. ENRICH PRODUCT LIST (User View) ---
+    // Đọc từ chỉ mục trong bộ nhớ, không truy vấn DB; số đã bán lấy 1 lần MGET trên Redis
     @Override
     public void enrichProducts(List<ProductDto> productDtos) {
-        if (productDtos == null || productDtos.isEmpty()) return;
-
-        List<UUID> productIds = productDtos.stream().map(ProductDto::getId).collect(Collectors.toList());
-        
-        // Sử dụng giờ hệ thống
-        LocalDateTime now = LocalDateTime.now(CURRENT_ZONE);
-
-        List<FlashSaleItem> activeSales = flashSaleItemRepository.findActiveSalesByProductIds(productIds, now);
-        if (activeSales.isEmpty()) return;
-
-        Map<UUID, FlashSaleItem> saleMap = activeSales.stream()
-                .collect(Collectors.toMap(
-                        item -> item.getProduct().getId(),
-                        item -> item,
-                        (existing, replacement) -> existing
-                ));
+        enrich(productDtos, ProductDto::getId, ProductDto::setFlashSale);
+    }
 
-        for (ProductDto dto : productDtos) {
-            if (saleMap.containsKey(dto.getId())) {
-                dto.setFlashSale(productMapper.mapToFlashSaleInfo(saleMap.get(dto.getId())));
-            }
-        }
+    @Override
+    public void enrichSummaries(List<ProductSummaryDto> summaries) {
+        enrich(summaries, ProductSummaryDto::getId, ProductSummaryDto::setFlashSale);
     }
 
     // --- 2. ENRICH SINGLE PRODUCT (Detail View) ---
     @Override
     public void enrichSingleProduct(ProductDto dto) {
         if (dto == null) return;
-        LocalDateTime now = LocalDateTime.now(CURRENT_ZONE);
-        Optional<FlashSaleItem> saleItem = flashSaleItemRepository.findActiveSaleByProductId(dto.getId(), now);
-        saleItem.ifPresent(item -> dto.setFlashSale(productMapper.mapToFlashSaleInfo(item)));
+        enrichProducts(List.of(dto));
+    }
+
+    private <T> void enrich(List<T> items, Function<T, UUID> productId,
+                            BiConsumer<T, FlashSaleDtos.ProductFlashSaleInfo> setter) {
+        if (items == null || items.isEmpty()) return;
+
+        // 1 sản phẩm có thể xuất hiện nhiều lần (vd: nhiều đơn hàng) nên giữ theo cặp, không dùng map theo DTO
+        List<T> matchedItems = new ArrayList<>();
+        List<ActiveFlashSaleIndex.Entry> matchedEntries = new ArrayList<>();
+        for (T item : items) {
+            activeFlashSaleIndex.get(productId.apply(item)).ifPresent(entry -> {
+                matchedItems.add(item);
+                matchedEntries.add(entry);
+            });
+        }
+        if (matchedItems.isEmpty()) return;
+
+        Map<UUID, Integer> liveSold = flashSaleStockService.currentSold(matchedEntries.stream()
+                .map(ActiveFlashSaleIndex.Entry::getItemId)
+                .distinct()
+                .collect(Collectors.toList()));
+
+        for (int i = 0; i < matchedItems.size(); i++) {
+            setter.accept(matchedItems.get(i), toFlashSaleInfo(matchedEntries.get(i), liveSold));
+        }
+    }
+
+    private FlashSaleDtos.ProductFlashSaleInfo toFlashSaleInfo(ActiveFlashSaleIndex.Entry entry, Map<UUID, Integer> liveSold) {
+        return FlashSaleDtos.ProductFlashSaleInfo.builder()
+                .id(entry.getFlashSaleId())
+                .discountPercent(entry.getDiscountPercent())
+                .quantity(entry.getQuantity())
+                .sold(liveSold.getOrDefault(entry.getItemId(), entry.getSold()))
+                .startDate(entry.getStartDate())
+                .endDate(entry.getEndDate())
+                .build();
     }
 
     // --- 3. ADMIN: GET ALL ---
@@ -104,6 +128,9 @@ public class FlashSaleServiceImpl implements FlashSaleService {
                     .build())
             .collect(Collectors.toList());
 
+        // Gắn thông tin Sale cho cả danh sách trong 1 truy vấn
+        enrichProducts(itemDtos.stream().map(FlashSaleDtos.ItemResponse::getProduct).collect(Collectors.toList()));
+
         return FlashSaleDtos.DetailResponse.builder()
                 .id(fs.getId())
                 .name(fs.getName())
@@ -173,28 +200,35 @@ public class FlashSaleServiceImpl implements FlashSaleService {
         List<FlashSaleItem> itemsToSave = new ArrayList<>();
         List<UUID> incomingProductIds = new ArrayList<>();
 
+        // Số đã bán mới nhất (Redis), chưa có key thì dùng số trong DB
+        Map<UUID, Integer> liveSold = flashSaleStockService.currentSold(dbItems.stream()
+                .map(FlashSaleItem::getId)
+                .collect(Collectors.toList()));
+
         if (req.getItems() != null) {
             for (FlashSaleDtos.UpsertRequest.ItemRequest itemReq : req.getItems()) {
                 incomingProductIds.add(itemReq.getProductId());
-                FlashSaleItem itemEntity;
 
                 if (dbItemMap.containsKey(itemReq.getProductId())) {
-                    // Update Item cũ
-                    itemEntity = dbItemMap.get(itemReq.getProductId());
-                    itemEntity.setDiscountPercent(itemReq.getDiscountPercent());
-                    itemEntity.setQuantity(itemReq.getQuantity());
+                    // Update Item cũ: chỉ sửa % giảm và tổng suất, sold đang được bộ đếm Redis ghi
+                    FlashSaleItem dbItem = dbItemMap.get(itemReq.getProductId());
+                    int sold = liveSold.getOrDefault(dbItem.getId(), dbItem.getSold());
+                    if (itemReq.getQuantity() < sold) {
+                        throw new BadRequestEx("Số suất của '" + dbItem.getProduct().getName()
+                                + "' không được nhỏ hơn số đã bán (" + sold + ")");
+                    }
+                    flashSaleItemRepository.updateTerms(dbItem.getId(), itemReq.getDiscountPercent(), itemReq.getQuantity());
                 } else {
                     // Tạo Item mới
-                    itemEntity = FlashSaleItem.builder()
+                    itemsToSave.add(FlashSaleItem.builder()
                             // LƯU Ý: Không set ID thủ công
                             .flashSale(savedSale)
                             .product(productRepository.getReferenceById(itemReq.getProductId()))
                             .discountPercent(itemReq.getDiscountPercent())
                             .quantity(itemReq.getQuantity())
                             .sold(0)
-                            .build();
+                            .build());
                 }
-                itemsToSave.add(itemEntity);
             }
         }
 
@@ -204,14 +238,23 @@ public class FlashSaleServiceImpl implements FlashSaleService {
 
         flashSaleItemRepository.deleteAll(itemsToDelete);
         flashSaleItemRepository.saveAll(itemsToSave);
+        flashSaleStockService.evictAfterCommit(itemsToDelete.stream().map(FlashSaleItem::getId).collect(Collectors.toList()));
+
+        activeFlashSaleIndex.reloadAfterCommit();
     }
 
     // --- 6. ADMIN: DELETE ---
     @Override
     @Transactional
     public void deleteFlashSale(UUID id) {
+        List<UUID> itemIds = flashSaleItemRepository.findByFlashSaleIdIn(List.of(id)).stream()
+                .map(FlashSaleItem::getId)
+                .collect(Collectors.toList());
         flashSaleItemRepository.deleteByFlashSaleId(id);
+        flashSaleStockService.evictAfterCommit(itemIds);
         flashSaleRepository.deleteById(id);
+
+        activeFlashSaleIndex.reloadAfterCommit();
     }
 
     private int calculateStatus(LocalDateTime start, LocalDateTime end) {
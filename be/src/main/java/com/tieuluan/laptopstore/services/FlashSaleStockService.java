@@ -0,0 +1,279 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.entities.FlashSaleItem;
+import com.tieuluan.laptopstore.repositories.FlashSaleItemRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Giữ suất Flash Sale bằng bộ đếm nguyên tử trên Redis.
+ * <p>
+ * Mỗi {@link FlashSaleItem} có một key "FLASH_SALE:SOLD:{id}" chứa số đã bán. Việc
+ * kiểm tra "sold + qty <= quantity" và cộng dồn chạy trong một script Lua nên không
+ * thể bán vượt dù nhiều request (nhiều node) cùng đặt hàng. Cột sold trong
+ * flash_sale_items được ghi lại theo lô bởi {@link #flushSoldCounters()}.
+ * <p>
+ * Key chưa có (lần đầu đặt, Redis mất dữ liệu) thì khởi tạo từ cột sold đọc lại trong DB,
+ * không dùng số trong {@link ActiveFlashSaleIndex} vì có thể đã cũ. Key hết hạn sau khi Sale
+ * kết thúc {@link #SOLD_KEY_GRACE} và bị xóa khi Sale / suất bị xóa.
+ */
+@Service
+public class FlashSaleStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleStockService.class);
+
+    private static final String SOLD_KEY_PREFIX = "FLASH_SALE:SOLD:";
+    private static final String DIRTY_SET_KEY = "FLASH_SALE:DIRTY";
+    private static final int FLUSH_BATCH_SIZE = 200;
+
+    // Giữ key thêm 1 ngày sau khi Sale kết thúc (đơn hủy muộn vẫn hoàn suất qua Redis)
+    private static final Duration SOLD_KEY_GRACE = Duration.ofDays(1);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Script trả về khi key chưa có và chưa truyền số đã bán trong DB
+    private static final long NEED_SEED = -2;
+
+    // KEYS[1] = key sold, KEYS[2] = set các item cần ghi DB
+    // ARGV[1] = số lượng đặt, ARGV[2] = tổng suất, ARGV[3] = sold trong DB ("" = chưa đọc),
+    // ARGV[4] = id item, ARGV[5] = thời điểm hết hạn key (epoch ms)
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local sold = redis.call('GET', KEYS[1]) "
+            + "if not sold then "
+            + "  if ARGV[3] == '' then return -2 end "
+            + "  sold = ARGV[3]; redis.call('SET', KEYS[1], sold) "
+            + "end "
+            + "redis.call('PEXPIREAT', KEYS[1], ARGV[5]) "
+            + "if tonumber(sold) + tonumber(ARGV[1]) > tonumber(ARGV[2]) then return -1 end "
+            + "local newSold = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+            + "redis.call('SADD', KEYS[2], ARGV[4]) "
+            + "return newSold", Long.class);
+
+    // ARGV[1] = số lượng hoàn, ARGV[2] = sold trong DB ("" = key mất thì bỏ qua), ARGV[3] = id item,
+    // ARGV[4] = thời điểm hết hạn key (epoch ms). DECRBY giữ nguyên TTL của key
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then "
+            + "  if ARGV[2] == '' then return -2 end "
+            + "  redis.call('SET', KEYS[1], ARGV[2]) "
+            + "  redis.call('PEXPIREAT', KEYS[1], ARGV[4]) "
+            + "end "
+            + "local newSold = redis.call('DECRBY', KEYS[1], ARGV[1]) "
+            + "if newSold < 0 then redis.call('INCRBY', KEYS[1], -newSold); newSold = 0 end "
+            + "redis.call('SADD', KEYS[2], ARGV[3]) "
+            + "return newSold", Long.class);
+
+    @Autowired private StringRedisTemplate stringRedisTemplate;
+    @Autowired private FlashSaleItemRepository flashSaleItemRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // =======================================================================
+    //  GIỮ SUẤT (gọi trong transaction tạo đơn)
+    // =======================================================================
+    /**
+     * Cộng {@code quantity} vào số đã bán nếu còn đủ suất.
+     * Nếu transaction hiện tại rollback, suất đã giữ được trả lại tự động.
+     *
+     * @return false nếu hết suất Flash Sale
+     */
+    public boolean reserve(FlashSaleItem item, int quantity) {
+        return reserve(item.getId(), item.getQuantity(), item.getFlashSale().getEndDate(), quantity);
+    }
+
+    // Dùng với ActiveFlashSaleIndex.Entry, không cần load FlashSaleItem từ DB
+    public boolean reserve(UUID itemId, int totalQuantity, LocalDateTime endDate, int quantity) {
+        long expireAt = expireAt(endDate);
+        Long result = executeReserve(itemId, totalQuantity, "", quantity, expireAt);
+        if (result != null && result == NEED_SEED) {
+            // Chỉ đọc DB khi chưa có bộ đếm; SET trong script chỉ chạy nếu key vẫn chưa có
+            int dbSold = flashSaleItemRepository.findSoldById(itemId).orElse(0);
+            result = executeReserve(itemId, totalQuantity, String.valueOf(dbSold), quantity, expireAt);
+        }
+
+        if (result == null || result < 0) {
+            return false;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        // Key vừa được cộng nên còn đó; đã mất thì suất này cũng không còn được tính
+                        doRelease(itemId, quantity, "", expireAt);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    private Long executeReserve(UUID itemId, int totalQuantity, String dbSold, int quantity, long expireAt) {
+        return stringRedisTemplate.execute(RESERVE_SCRIPT,
+                List.of(soldKey(itemId), DIRTY_SET_KEY),
+                String.valueOf(quantity),
+                String.valueOf(totalQuantity),
+                dbSold,
+                itemId.toString(),
+                String.valueOf(expireAt));
+    }
+
+    // =======================================================================
+    //  HOÀN SUẤT (hủy đơn / quá hạn thanh toán)
+    // =======================================================================
+    /**
+     * Trả lại {@code quantity} suất. Trong transaction thì chỉ trả sau khi commit,
+     * tránh trường hợp hoàn suất nhưng đơn hàng vẫn không bị hủy.
+     */
+    public void release(FlashSaleItem item, int quantity) {
+        UUID itemId = item.getId();
+        String dbSold = String.valueOf(item.getSold());
+        long expireAt = expireAt(item.getFlashSale().getEndDate());
+
+        if (expireAt <= System.currentTimeMillis()) {
+            // Sale đã kết thúc quá lâu, key không còn: ghi thẳng vào DB
+            flashSaleItemRepository.updateSold(itemId, Math.max(item.getSold() - quantity, 0));
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRelease(itemId, quantity, dbSold, expireAt);
+                }
+            });
+        } else {
+            doRelease(itemId, quantity, dbSold, expireAt);
+        }
+    }
+
+    /** Trả suất theo id suất Flash Sale -> số lượng; đọc số đã bán trong DB bằng 1 truy vấn. */
+    public void release(Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) return;
+        for (FlashSaleItem item : flashSaleItemRepository.findWithFlashSaleByIdIn(quantities.keySet())) {
+            release(item, quantities.get(item.getId()));
+        }
+    }
+
+    private void doRelease(UUID itemId, int quantity, String dbSold, long expireAt) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    List.of(soldKey(itemId), DIRTY_SET_KEY),
+                    String.valueOf(quantity),
+                    dbSold,
+                    itemId.toString(),
+                    String.valueOf(expireAt));
+        } catch (Exception e) {
+            log.error("Không hoàn được suất Flash Sale {} (qty={})", itemId, quantity, e);
+        }
+    }
+
+    // =======================================================================
+    //  XÓA BỘ ĐẾM (xóa Flash Sale / bỏ sản phẩm khỏi Sale)
+    // =======================================================================
+    /** Xóa key số đã bán của các suất sau khi transaction xóa suất commit. */
+    public void evictAfterCommit(Collection<UUID> itemIds) {
+        if (itemIds.isEmpty()) return;
+        List<String> keys = itemIds.stream().map(this::soldKey).toList();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteKeys(keys);
+                }
+            });
+        } else {
+            deleteKeys(keys);
+        }
+    }
+
+    private void deleteKeys(List<String> keys) {
+        try {
+            stringRedisTemplate.delete(keys);
+        } catch (Exception e) {
+            // Key vẫn tự hết hạn theo TTL
+            log.warn("Không xóa được bộ đếm Flash Sale {}", keys, e);
+        }
+    }
+
+    // =======================================================================
+    //  ĐỌC SỐ ĐÃ BÁN HIỆN TẠI (hiển thị "đã bán x/y")
+    // =======================================================================
+    /**
+     * Số đã bán mới nhất trên Redis của các item, 1 lần MGET cho cả danh sách.
+     * Item chưa có key (chưa ai đặt) hoặc Redis lỗi thì không có trong map,
+     * khi đó dùng giá trị sold trong DB.
+     */
+    public Map<UUID, Integer> currentSold(List<UUID> itemIds) {
+        Map<UUID, Integer> result = new HashMap<>();
+        if (itemIds.isEmpty()) return result;
+
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                    .multiGet(itemIds.stream().map(this::soldKey).toList());
+            if (values == null) return result;
+            for (int i = 0; i < itemIds.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(itemIds.get(i), Integer.parseInt(values.get(i)));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Không đọc được số đã bán Flash Sale từ Redis, dùng số liệu DB", e);
+        }
+        return result;
+    }
+
+    // =======================================================================
+    //  GHI SỐ ĐÃ BÁN XUỐNG DB THEO LÔ
+    // =======================================================================
+    @Scheduled(fixedDelay = 2000)
+    @ClusterSingleton(leaseSeconds = 30)
+    public void flushSoldCounters() {
+        List<String> dirtyIds = stringRedisTemplate.opsForSet().pop(DIRTY_SET_KEY, FLUSH_BATCH_SIZE);
+        if (dirtyIds == null || dirtyIds.isEmpty()) return;
+        JobLease.recordItems(dirtyIds.size());
+
+        List<String> soldValues = stringRedisTemplate.opsForValue()
+                .multiGet(dirtyIds.stream().map(id -> SOLD_KEY_PREFIX + id).toList());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < dirtyIds.size(); i++) {
+                    String sold = soldValues != null ? soldValues.get(i) : null;
+                    if (sold == null) continue;
+                    flashSaleItemRepository.updateSold(UUID.fromString(dirtyIds.get(i)), Integer.parseInt(sold));
+                }
+            });
+        } catch (Exception e) {
+            // Đưa lại vào hàng đợi để lần sau ghi tiếp
+            stringRedisTemplate.opsForSet().add(DIRTY_SET_KEY, dirtyIds.toArray(new String[0]));
+            log.error("Ghi số lượng Flash Sale xuống DB thất bại, sẽ thử lại", e);
+        }
+    }
+
+    private String soldKey(UUID itemId) {
+        return SOLD_KEY_PREFIX + itemId;
+    }
+
+    private static long expireAt(LocalDateTime endDate) {
+        return endDate.plus(SOLD_KEY_GRACE).atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,174 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.dto.InventoryAudit;
+import com.tieuluan.laptopstore.entities.InventoryMovementType;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepository;
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepositoryCustom.Held;
+import com.tieuluan.laptopstore.repositories.InventoryMovementRepositoryCustom.Movement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Tồn kho theo biến thể (product_variants.stock_quantity) kèm sổ kho inventory_movements.
+ * <p>
+ * Tồn kho bán được là cột stock_quantity, trừ / cộng bằng UPDATE có điều kiện theo lô như
+ * Product.stock nên mọi node thấy cùng 1 số. Mỗi thay đổi ghi thêm dòng sổ kho (JDBC batch)
+ * trong cùng transaction, nên mốc ({@code inventory_checkpoints}) + sổ kho luôn bằng tồn kho;
+ * {@link #audit()} chỉ cần so 2 bên. Đơn chờ thanh toán online giữ hàng đến hạn thanh toán
+ * ({@code holdUntil}), quá hạn thì UnpaidOrderExpiryJob hủy đơn và {@link #release} trả hàng.
+ * <p>
+ * Các hàm ghi phải chạy trong transaction của người gọi.
+ */
+@Service
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    @Autowired private InventoryMovementRepository inventoryMovementRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // Dòng sổ kho cũ hơn N ngày được gộp vào mốc
+    @Value("${inventory.ledger.retention-days:90}")
+    private int retentionDays;
+
+    // =======================================================================
+    //  ĐƠN HÀNG
+    // =======================================================================
+    /**
+     * Giữ hàng cho các dòng có biến thể của đơn (đơn đã lưu, có id).
+     *
+     * @param holdUntil hạn giữ hàng của đơn chờ thanh toán online, null nếu không hết hạn
+     * @return id các biến thể không đủ hàng; khác rỗng thì người gọi phải rollback
+     */
+    public List<UUID> reserve(Order order, LocalDateTime holdUntil) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        Map<UUID, UUID> products = new LinkedHashMap<>();
+        for (OrderItem item : order.getOrderItemList()) {
+            if (item.getProductVariantId() == null) continue;
+            quantities.merge(item.getProductVariantId(), item.getQuantity(), Integer::sum);
+            products.putIfAbsent(item.getProductVariantId(), item.getProduct().getId());
+        }
+        if (quantities.isEmpty()) return List.of();
+
+        List<UUID> failed = inventoryMovementRepository.decrementVariantStock(quantities);
+        if (!failed.isEmpty()) return failed;
+
+        List<Movement> movements = new ArrayList<>(quantities.size());
+        quantities.forEach((variantId, quantity) -> movements.add(new Movement(
+                variantId, products.get(variantId), order.getId(),
+                InventoryMovementType.RESERVE, quantity, -quantity, holdUntil)));
+        inventoryMovementRepository.appendMovements(movements);
+        return List.of();
+    }
+
+    // Hàng đang giữ thành hàng đã bán (đơn COD lúc đặt, đơn online khi thanh toán xong)
+    public void commit(Order order) {
+        List<Movement> movements = inventoryMovementRepository.findHeld(List.of(order.getId())).stream()
+                .map(held -> movement(held, InventoryMovementType.COMMIT, 0))
+                .collect(Collectors.toList());
+        inventoryMovementRepository.appendMovements(movements);
+    }
+
+    // Trả hàng các đơn đang giữ về kho, gom cả lô vào 1 lần cập nhật.
+    // Đơn đặt trước khi có sổ kho không có dòng giữ hàng nên không cộng gì.
+    public void release(List<Order> orders) {
+        if (orders.isEmpty()) return;
+
+        List<Held> held = inventoryMovementRepository.findHeld(
+                orders.stream().map(Order::getId).collect(Collectors.toList()));
+        if (held.isEmpty()) return;
+
+        Map<UUID, Integer> returns = new LinkedHashMap<>();
+        List<Movement> movements = new ArrayList<>(held.size());
+        for (Held h : held) {
+            returns.merge(h.getVariantId(), h.getQuantity(), Integer::sum);
+            movements.add(movement(h, InventoryMovementType.RELEASE, h.getQuantity()));
+        }
+        inventoryMovementRepository.incrementVariantStock(returns);
+        inventoryMovementRepository.appendMovements(movements);
+    }
+
+    private static Movement movement(Held held, InventoryMovementType type, int stockDelta) {
+        return new Movement(held.getVariantId(), held.getProductId(), held.getOrderId(),
+                type, held.getQuantity(), stockDelta, null);
+    }
+
+    // =======================================================================
+    //  ADMIN CHỈNH KHO
+    // =======================================================================
+    /**
+     * Cộng / trừ tồn kho các biến thể đã có theo số admin chỉnh (JPA không ghi cột
+     * stock_quantity khi update nên hàng đang được giữ không bị ghi đè).
+     */
+    public void adjust(UUID productId, Map<UUID, Integer> deltas) {
+        Map<UUID, Integer> increments = new LinkedHashMap<>();
+        Map<UUID, Integer> decrements = new LinkedHashMap<>();
+        deltas.forEach((variantId, delta) -> {
+            if (delta > 0) increments.put(variantId, delta);
+            if (delta < 0) decrements.put(variantId, -delta);
+        });
+
+        if (!inventoryMovementRepository.decrementVariantStock(decrements).isEmpty()) {
+            throw new BadRequestEx("Tồn kho biến thể không đủ để giảm (đang có đơn giữ hàng)");
+        }
+        inventoryMovementRepository.incrementVariantStock(increments);
+        recordRestock(productId, deltas);
+    }
+
+    // Chỉ ghi sổ kho RESTOCK; dùng trực tiếp cho biến thể mới (tồn kho ban đầu đã INSERT cùng biến thể)
+    public void recordRestock(UUID productId, Map<UUID, Integer> deltas) {
+        List<Movement> movements = new ArrayList<>(deltas.size());
+        deltas.forEach((variantId, delta) -> {
+            if (delta != null && delta != 0) {
+                movements.add(new Movement(variantId, productId, null,
+                        InventoryMovementType.RESTOCK, Math.abs(delta), delta, null));
+            }
+        });
+        inventoryMovementRepository.appendMovements(movements);
+    }
+
+    // =======================================================================
+    //  ĐỐI SOÁT & GỘP SỔ KHO
+    // =======================================================================
+    // Biến thể chưa có mốc được tạo mốc khớp tồn kho hiện tại trước khi so
+    public InventoryAudit audit() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            inventoryMovementRepository.createMissingCheckpoints();
+            return InventoryAudit.builder()
+                    .checkedAt(now)
+                    .drifts(inventoryMovementRepository.findDrifts())
+                    .overdueHolds(inventoryMovementRepository.findOverdueHolds(now))
+                    .build();
+        });
+    }
+
+    @Scheduled(cron = "${inventory.ledger.compact-cron:0 15 4 * * *}")
+    @ClusterSingleton(leaseSeconds = 300)
+    public void compact() {
+        long start = System.currentTimeMillis();
+        Integer folded = transactionTemplate.execute(status ->
+                inventoryMovementRepository.compact(LocalDateTime.now().minusDays(retentionDays)));
+        JobLease.recordItems(folded != null ? folded : 0);
+        log.info("Đã gộp {} dòng sổ kho vào mốc trong {} ms", folded, System.currentTimeMillis() - start);
+    }
+}
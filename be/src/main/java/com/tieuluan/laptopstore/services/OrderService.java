@@ -1,142 +1,167 @@
 package com.tieuluan.laptopstore.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tieuluan.laptopstore.auth.dto.OrderResponse;
-import com.tieuluan.laptopstore.auth.entities.User;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
 import com.tieuluan.laptopstore.auth.entities.UserDiscount;
+import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
 import com.tieuluan.laptopstore.auth.repositories.UserDiscountRepository;
-import com.tieuluan.laptopstore.auth.services.EmailService;
 import com.tieuluan.laptopstore.dto.*;
 import com.tieuluan.laptopstore.entities.*;
 import com.tieuluan.laptopstore.exceptions.BadRequestEx;
 import com.tieuluan.laptopstore.exceptions.ResourceNotFoundEx;
 import com.tieuluan.laptopstore.mapper.OrderMapper;
-import com.tieuluan.laptopstore.repositories.FlashSaleItemRepository;
+import com.tieuluan.laptopstore.outbox.OrderEvent;
+import com.tieuluan.laptopstore.outbox.OrderEventType;
+import com.tieuluan.laptopstore.outbox.OrderOutbox;
+import com.tieuluan.laptopstore.repositories.AddressRepository;
 import com.tieuluan.laptopstore.repositories.OrderRepository;
 import com.tieuluan.laptopstore.repositories.ProductRepository;
+import com.tieuluan.laptopstore.repositories.ReviewRepository;
 import com.tieuluan.laptopstore.repositories.ShippingProviderRepository;
 import com.tieuluan.laptopstore.repositories.PaymentRepository;
+import com.tieuluan.laptopstore.specification.OrderCursor;
+import com.tieuluan.laptopstore.specification.OrderSpecs;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
+    // Lịch sử đơn: số đơn mỗi trang
+    private static final int HISTORY_DEFAULT_SIZE = 10;
+    private static final int HISTORY_MAX_SIZE = 50;
+
+    // Danh sách đơn của admin: số đơn mỗi trang; export flush sau mỗi N dòng
+    private static final int ADMIN_DEFAULT_SIZE = 20;
+    private static final int ADMIN_MAX_SIZE = 100;
+    private static final int EXPORT_FLUSH_EVERY = 500;
+
     @Autowired private UserDetailsService userDetailsService;
+    @Autowired private UserDetailRepository userDetailRepository;
+    @Autowired private AddressRepository addressRepository;
     @Autowired private OrderRepository orderRepository;
     @Autowired private ProductRepository productRepository;
-    @Autowired private ProductService productService;
     @Autowired private OrderMapper orderMapper;
     @Autowired private ShippingProviderRepository shippingProviderRepository;
-    @Autowired private EmailService emailService;
-    @Autowired private FlashSaleItemRepository flashSaleItemRepository;
     @Autowired private UserDiscountRepository userDiscountRepository;
     @Autowired private PaymentRepository paymentRepository; 
+    @Autowired private FlashSaleStockService flashSaleStockService;
+    @Autowired private CatalogCache catalogCache;
+    @Autowired private ProductService productService;
+    @Autowired private ReviewRepository reviewRepository;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private OrderOutbox orderOutbox;
+    @Autowired private PaymentDeadlineQueue paymentDeadlineQueue;
+    @Autowired private PricingEngine pricingEngine;
+    @Autowired private InventoryLedger inventoryLedger;
+
     // =======================================================================
     //  TẠO ĐƠN HÀNG
     // =======================================================================
     @Transactional(rollbackFor = Exception.class) 
     public OrderResponse createOrder(OrderRequest orderRequest, Principal principal) {
         
-        // 1. Lấy User & Validate Address/Shipping (Giữ nguyên)
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
-        Address address = user.getAddressList().stream()
-                .filter(addr -> orderRequest.getAddressId().equals(addr.getId()))
-                .findFirst().orElseThrow(() -> new BadRequestEx("Địa chỉ không hợp lệ"));
+        // 1. Lấy User (snapshot trong cache) & Validate Address/Shipping
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
+        // Chỉ nạp đúng địa chỉ được chọn, đồng thời kiểm tra địa chỉ thuộc về user
+        Address address = addressRepository.findByIdAndUserId(orderRequest.getAddressId(), user.getId())
+                .orElseThrow(() -> new BadRequestEx("Địa chỉ không hợp lệ"));
         ShippingProvider shippingProvider = shippingProviderRepository.findById(orderRequest.getShippingProviderId())
                 .orElseThrow(() -> new BadRequestEx("Đơn vị vận chuyển không hợp lệ"));
 
-        double subTotal = 0.0;
-        List<OrderItem> orderItems = new ArrayList<>();
+        // 2. Mã giảm giá (kiểm tra trước khi giữ suất / trừ kho)
+        UserDiscount userDiscountToUse = pricingEngine.resolveCoupon(user.getId(), orderRequest.getDiscountId());
+        Discount discount = userDiscountToUse != null ? userDiscountToUse.getDiscount() : null;
 
-        // 2. Xử lý sản phẩm (Stock & Flash Sale)
-        for (var itemReq : orderRequest.getOrderItemRequests()) {
-            Product product = productService.getProductEntityById(itemReq.getProductId());
-            if (product == null) throw new BadRequestEx("Sản phẩm không tồn tại");
+        // 3. Giá do server tính (bỏ qua itemPrice / totalAmount client gửi lên)
+        PriceQuote quote = pricingEngine.quote(orderRequest.getOrderItemRequests(), discount);
 
-            int requestQuantity = itemReq.getQuantity();
-            
-            // --- XỬ LÝ FLASH SALE ---
-            Optional<FlashSaleItem> flashSaleItemOpt = flashSaleItemRepository
-                .findActiveSaleByProductId(product.getId(), LocalDateTime.now());
-
-            if (flashSaleItemOpt.isPresent()) {
-                FlashSaleItem fsItem = flashSaleItemOpt.get();
-                if (fsItem.getSold() + requestQuantity > fsItem.getQuantity()) {
-                    throw new BadRequestEx("Sản phẩm '" + product.getName() + "' đã hết suất Flash Sale!");
+        List<OrderItem> orderItems = new ArrayList<>();
+        Map<UUID, Integer> stockRequests = new LinkedHashMap<>();
+
+        // 4. Xử lý sản phẩm (giữ suất Flash Sale & gom số lượng cần trừ kho)
+        for (PriceQuote.Line line : quote.getLines()) {
+            // Chỉ cần reference để gắn vào OrderItem, không load cả graph Product
+            Product product = productRepository.getReferenceById(line.getProductId());
+            int requestQuantity = line.getQuantity();
+
+            // --- FLASH SALE: giữ suất đúng suất đã dùng để tính giá ---
+            ActiveFlashSaleIndex.Entry sale = line.getFlashSaleEntry();
+            if (sale != null) {
+                // Giữ suất nguyên tử trên Redis (tự hoàn lại nếu đơn rollback)
+                if (!flashSaleStockService.reserve(sale.getItemId(), sale.getQuantity(), sale.getEndDate(), requestQuantity)) {
+                    throw new BadRequestEx("Sản phẩm '" + line.getName() + "' đã hết suất Flash Sale!");
                 }
-                fsItem.setSold(fsItem.getSold() + requestQuantity);
-                flashSaleItemRepository.saveAndFlush(fsItem);
-            }
-
-            // --- XỬ LÝ KHO TỔNG ---
-            if (product.getStock() < requestQuantity) {
-                throw new BadRequestEx("Sản phẩm '" + product.getName() + "' không đủ số lượng.");
             }
-            product.setStock(product.getStock() - requestQuantity);
-            productRepository.save(product); 
 
-            // --- TÍNH TIỀN ---
-            double finalItemPrice = itemReq.getItemPrice(); 
-            subTotal += finalItemPrice * requestQuantity;
+            stockRequests.merge(line.getProductId(), requestQuantity, Integer::sum);
 
             orderItems.add(OrderItem.builder()
                     .product(product)
-                    .productVariantId(itemReq.getProductVariantId())
+                    .productVariantId(line.getProductVariantId())
                     .quantity(requestQuantity)
-                    .itemPrice(finalItemPrice)
+                    .itemPrice(line.getUnitPrice().doubleValue())
+                    .flashSaleItemId(sale != null ? sale.getItemId() : null)
                     .build());
         }
 
-        // 3. Xử lý Mã giảm giá
-        Discount discount = null;
-        UserDiscount userDiscountToUse = null;
-        
-        if (orderRequest.getDiscountId() != null) {
-            UserDiscount userDiscount = userDiscountRepository.findByUserIdAndDiscountId(user.getId(), orderRequest.getDiscountId())
-                    .orElseThrow(() -> new BadRequestEx("Mã giảm giá không hợp lệ!"));
-
-            if (userDiscount.isUsed()) throw new BadRequestEx("Mã này đã được sử dụng!");
-            
-            // Validate ngày tháng... (Giữ nguyên logic của bạn)
-            Date now = new Date();
-            Discount d = userDiscount.getDiscount();
-            if (!d.isActive() || (d.getEndDate() != null && d.getEndDate().before(now))) {
-                throw new BadRequestEx("Mã giảm giá đã hết hạn.");
-            }
-            
-            discount = d;
-            userDiscountToUse = userDiscount;
+        // --- XỬ LÝ KHO TỔNG: UPDATE ... WHERE stock >= qty, cả giỏ trong 1 batch ---
+        List<UUID> outOfStock = productRepository.decrementStock(stockRequests);
+        if (!outOfStock.isEmpty()) {
+            String productName = productRepository.findById(outOfStock.get(0))
+                    .map(Product::getName)
+                    .orElseThrow(() -> new BadRequestEx("Sản phẩm không tồn tại"));
+            throw new BadRequestEx("Sản phẩm '" + productName + "' không đủ số lượng.");
         }
+        // Tồn kho hiển thị ở trang chi tiết đổi -> bỏ cache sau khi đơn commit
+        catalogCache.evictProducts(stockRequests.keySet());
 
-        // 4. Set Status
+        // 5. Set Status
         OrderStatus initialStatus = OrderStatus.PENDING;
         if ("VNPAY".equalsIgnoreCase(orderRequest.getPaymentMethod()) || "CARD".equalsIgnoreCase(orderRequest.getPaymentMethod())) {
             initialStatus = OrderStatus.PENDING_PAYMENT;
         }
 
-        // 5. Build Order & Save
+        // 6. Build Order & Save
         Order order = Order.builder()
-                .user(user)
+                .user(userDetailRepository.getReferenceById(user.getId()))
                 .address(address)
                 .shippingProvider(shippingProvider)
-                .totalAmount(orderRequest.getTotalAmount())
+                .totalAmount(quote.getTotalAmount().doubleValue())
                 .discount(discount)
                 .orderDate(LocalDateTime.now())
                 .expectedDeliveryDate(orderRequest.getExpectedDeliveryDate())
@@ -161,15 +186,39 @@ public class OrderService {
 
         Order savedOrder = orderRepository.save(order);
 
-        // 6. UPDATE MÃ GIẢM GIÁ (FIX BUG COD)
+        // --- KHO BIẾN THỂ: giữ hàng + ghi sổ kho (đơn online giữ đến hạn thanh toán) ---
+        LocalDateTime holdUntil = initialStatus == OrderStatus.PENDING_PAYMENT
+                ? paymentDeadlineQueue.deadlineOf(savedOrder.getOrderDate())
+                : null;
+        List<UUID> variantsOutOfStock = inventoryLedger.reserve(savedOrder, holdUntil);
+        if (!variantsOutOfStock.isEmpty()) {
+            String productName = quote.getLines().stream()
+                    .filter(line -> variantsOutOfStock.get(0).equals(line.getProductVariantId()))
+                    .map(PriceQuote.Line::getName)
+                    .findFirst()
+                    .orElse("");
+            throw new BadRequestEx("Phiên bản sản phẩm '" + productName + "' không đủ số lượng.");
+        }
+        if (holdUntil == null) {
+            // COD: không có hạn giữ, chốt luôn
+            inventoryLedger.commit(savedOrder);
+        }
+
+        // 7. UPDATE MÃ GIẢM GIÁ (FIX BUG COD)
         if (userDiscountToUse != null) {
             userDiscountToUse.setUsed(true);
             userDiscountToUse.setUsedDate(new Date());
             userDiscountRepository.saveAndFlush(userDiscountToUse); 
         }
 
-        // 7. Gửi Email (Async)
-        sendEmailAsync(savedOrder, "Đặt hàng thành công", "Đơn hàng đang chờ xử lý.");
+        // 8. Email, thống kê, dashboard: ghi sự kiện vào outbox, xử lý sau commit
+        orderOutbox.record(OrderEvent.placed(savedOrder)
+                .withEmail("Đặt hàng thành công", "Đơn hàng đang chờ xử lý."));
+
+        // 9. Đơn online: hẹn giờ hủy nếu quá hạn thanh toán (thêm vào hàng đợi sau commit)
+        if (initialStatus == OrderStatus.PENDING_PAYMENT) {
+            paymentDeadlineQueue.schedule(savedOrder.getId(), savedOrder.getOrderDate());
+        }
 
         return OrderResponse.builder()
                 .paymentMethod(orderRequest.getPaymentMethod())
@@ -179,15 +228,16 @@ public class OrderService {
     }
 
     // =======================================================================
-    //  HỖ TRỢ: GỬI EMAIL ASYNC 
+    //  BÁO GIÁ GIỎ HÀNG (cùng PricingEngine với createOrder)
     // =======================================================================
-    @Async // Cần @EnableAsync ở class Application
-    public void sendEmailAsync(Order order, String subject, String content) {
-        try {
-            emailService.sendOrderStatusEmail(order, subject, content);
-        } catch (Exception e) {
-            System.err.println("Gửi email thất bại: " + e.getMessage());
+    // Không mở transaction: giỏ không dùng mã, bảng giá đã có trong cache thì không cần kết nối DB
+    public PriceQuote quote(OrderRequest orderRequest, Principal principal) {
+        Discount discount = null;
+        if (orderRequest.getDiscountId() != null) {
+            UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
+            discount = pricingEngine.resolveCoupon(user.getId(), orderRequest.getDiscountId()).getDiscount();
         }
+        return pricingEngine.quote(orderRequest.getOrderItemRequests(), discount);
     }
 
     // =======================================================================
@@ -195,19 +245,31 @@ public class OrderService {
     // =======================================================================
     @Transactional
     public void updateOrderStatusAfterPayment(UUID orderId, String responseCode) {
-        Order order = orderRepository.findById(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
+        // Khóa đơn: không chạy đua với việc hủy đơn quá hạn thanh toán
+        Order order = orderRepository.findByIdForUpdate(orderId).orElseThrow(() -> new RuntimeException("Order not found"));
         Payment payment = order.getPayment(); 
         
-        if (payment == null) 
+        if (payment == null) throw new ResourceNotFoundEx("Không tìm thấy thanh toán của đơn hàng");
+
+        // Chỉ đơn còn chờ thanh toán mới đổi trạng thái / kho. Callback lặp lại thì bỏ qua;
+        // thanh toán thành công nhưng đơn đã bị hủy (quá hạn) thì từ chối, cần hoàn tiền
+        if (order.getOrderStatus() != OrderStatus.PENDING_PAYMENT) {
+            if ("00".equals(responseCode) && order.getOrderStatus() == OrderStatus.CANCELLED) {
+                log.warn("Đơn {} đã bị hủy nhưng VNPay báo thanh toán thành công, cần hoàn tiền", orderId);
+                throw new BadRequestEx("Đơn hàng đã bị hủy do quá hạn thanh toán");
+            }
+            return;
+        }
 
         if ("00".equals(responseCode)) {
             payment.setPaymentStatus(PaymentStatus.COMPLETED);
             payment.setPaymentDate(new Date());
-            order.setOrderStatus(OrderStatus.IN_PROGRESS);
+            changeStatus(order, OrderStatus.IN_PROGRESS, OrderEventType.ORDER_PAID,
+                    "Thanh toán thành công", "Đã thanh toán.");
+            inventoryLedger.commit(order);
             
             paymentRepository.save(payment);
             orderRepository.save(order);
-            sendEmailAsync(order, "Thanh toán thành công", "Đã thanh toán.");
         } else {
             payment.setPaymentStatus(PaymentStatus.FAILED);
             payment.setPaymentDate(new Date());
@@ -215,29 +277,150 @@ public class OrderService {
 
             returnStockAndCoupon(order);
             
-            order.setOrderStatus(OrderStatus.CANCELLED);
+            changeStatus(order, OrderStatus.CANCELLED, OrderEventType.ORDER_CANCELLED, null, null);
             orderRepository.save(order);
         }
     }
 
     // =======================================================================
-    //  ADMIN — LẤY TOÀN BỘ ĐƠN HÀNG
+    //  ADMIN — DANH SÁCH ĐƠN HÀNG (lọc + keyset, mới nhất trước)
+    // =======================================================================
+    @Transactional(readOnly = true)
+    public PageResponse<OrderHistoryDto> getOrders(OrderFilterRequest request) {
+        int pageSize = request.getSize() == null ? ADMIN_DEFAULT_SIZE
+                : Math.min(Math.max(request.getSize(), 1), ADMIN_MAX_SIZE);
+        Specification<Order> filter = OrderSpecs.filter(request);
+        Specification<Order> spec = StringUtils.isNotBlank(request.getCursor())
+                ? filter.and(OrderSpecs.afterCursor(OrderCursor.decode(request.getCursor())))
+                : filter;
+
+        // Lấy dư 1 khóa để biết còn trang sau hay không
+        List<OrderCursor> keys = orderRepository.findKeyPage(spec, pageSize + 1);
+        boolean hasNext = keys.size() > pageSize;
+        if (hasNext) keys = keys.subList(0, pageSize);
+
+        List<UUID> orderIds = keys.stream().map(OrderCursor::getId).collect(Collectors.toList());
+        return PageResponse.<OrderHistoryDto>builder()
+                .items(loadOrderRows(orderIds, null))
+                .size(pageSize)
+                .total(request.isWithCount() ? orderRepository.count(filter) : null)
+                .nextCursor(hasNext ? keys.get(keys.size() - 1).encode() : null)
+                .build();
+    }
+
+    // =======================================================================
+    //  ADMIN — XUẤT ĐƠN HÀNG (CSV / NDJSON, đọc tuần tự, bộ nhớ không phụ thuộc số đơn)
     // =======================================================================
-    public List<OrderDetails> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(orderMapper::mapToOrderDetailsAdmin)
-                .collect(Collectors.toList());
+    public enum ExportFormat { CSV, NDJSON }
+
+    private static final String CSV_HEADER = "id,orderDate,email,status,paymentMethod,totalAmount,itemCount,"
+            + "shippingProvider,shipmentNumber,receiverName,phoneNumber,city";
+
+    // Gọi từ StreamingResponseBody (thread async) nên transaction mở ở đây, qua proxy
+    @Transactional(readOnly = true)
+    public long exportOrders(OrderFilterRequest request, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+        if (format == ExportFormat.CSV) {
+            // BOM để Excel nhận đúng UTF-8 (tiếng Việt)
+            writer.write('\uFEFF');
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(OrderSpecs.filter(request))) {
+            Iterator<OrderExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                OrderExportRow row = it.next();
+                writer.write(format == ExportFormat.CSV ? toCsvLine(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+                if (++count % EXPORT_FLUSH_EVERY == 0) writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String toCsvLine(OrderExportRow row) {
+        return String.join(",",
+                csv(row.getId()), csv(row.getOrderDate()), csv(row.getEmailUser()), csv(row.getOrderStatus()),
+                csv(row.getPaymentMethod()), csv(row.getTotalAmount()), csv(row.getItemCount()),
+                csv(row.getShippingProvider()), csv(row.getShipmentNumber()), csv(row.getReceiverName()),
+                csv(row.getPhoneNumber()), csv(row.getCity()));
+    }
+
+    // Bọc ngoặc kép khi có dấu phẩy / ngoặc kép / xuống dòng (RFC 4180)
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
     }
 
     // =======================================================================
     //  USER — LẤY ĐƠN HÀNG THEO USER HIỆN TẠI
     // =======================================================================
     public List<OrderDetails> getOrdersByUser(Principal principal) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
-        return orderRepository.findByUser(user)
-                .stream()
-                .map(order -> orderMapper.mapToOrderDetails(order, user))
-                .collect(Collectors.toList());
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
+        return orderMapper.mapToOrderDetailsList(orderRepository.findByUser(userDetailRepository.getReferenceById(user.getId())));
+    }
+
+    // =======================================================================
+    //  USER — LỊCH SỬ ĐƠN HÀNG (phân trang, số query cố định mỗi trang)
+    // =======================================================================
+    // 1 trang id -> đơn (fetch join) -> dòng hàng (projection) -> summary sản phẩm -> cờ đã đánh giá
+    @Transactional(readOnly = true)
+    public PageResponse<OrderHistoryDto> getOrderHistory(Principal principal, int page, Integer size, boolean withCount) {
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
+        int pageSize = size == null ? HISTORY_DEFAULT_SIZE : Math.min(Math.max(size, 1), HISTORY_MAX_SIZE);
+        int pageIndex = Math.max(page, 0);
+
+        // Slice tự lấy dư 1 dòng để biết còn trang sau, không cần COUNT
+        Slice<UUID> idSlice = orderRepository.findIdsByUserId(user.getId(), PageRequest.of(pageIndex, pageSize));
+        List<UUID> orderIds = idSlice.getContent();
+
+        List<OrderHistoryDto> history = loadOrderRows(orderIds, user.getId());
+
+        return PageResponse.<OrderHistoryDto>builder()
+                .items(history)
+                .page(pageIndex)
+                .size(pageSize)
+                .total(withCount ? orderRepository.countByUserId(user.getId()) : null)
+                .nextCursor(idSlice.hasNext() ? String.valueOf(pageIndex + 1) : null)
+                .build();
+    }
+
+    // Dựng các đơn theo đúng thứ tự orderIds với số query cố định:
+    // đơn (fetch join) -> dòng hàng (projection) -> summary sản phẩm -> cờ đã đánh giá (reviewerId null: bỏ qua)
+    private List<OrderHistoryDto> loadOrderRows(List<UUID> orderIds, UUID reviewerId) {
+        if (orderIds.isEmpty()) return new ArrayList<>();
+
+        Map<UUID, Order> orders = orderRepository.findHistoryByIdIn(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, o -> o));
+
+        List<OrderHistoryItemDto> items = orderRepository.findHistoryItems(orderIds);
+        List<UUID> productIds = items.stream().map(OrderHistoryItemDto::getProductId).distinct().collect(Collectors.toList());
+
+        Map<UUID, ProductSummaryDto> products = productService.getProductSummariesByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductSummaryDto::getId, p -> p));
+        Set<UUID> reviewed = reviewerId == null || productIds.isEmpty() ? Set.of()
+                : reviewRepository.findReviewedProductIds(reviewerId, productIds);
+
+        Map<UUID, List<OrderHistoryItemDto>> itemsByOrder = new LinkedHashMap<>();
+        for (OrderHistoryItemDto item : items) {
+            item.setProduct(products.get(item.getProductId()));
+            item.setReviewed(reviewed.contains(item.getProductId()));
+            itemsByOrder.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(item);
+        }
+
+        List<OrderHistoryDto> rows = new ArrayList<>(orderIds.size());
+        for (UUID orderId : orderIds) {
+            Order order = orders.get(orderId);
+            if (order == null) continue;
+            rows.add(orderMapper.toOrderHistoryDto(order, itemsByOrder.getOrDefault(orderId, List.of())));
+        }
+        return rows;
     }
 
     // =======================================================================
@@ -254,11 +437,12 @@ public class OrderService {
     // =======================================================================
     @Transactional
     public void cancelOrder(UUID id, Principal principal) {
-        User user = (User) userDetailsService.loadUserByUsername(principal.getName());
-        Order order = orderRepository.findById(id)
+        UserSnapshot user = (UserSnapshot) userDetailsService.loadUserByUsername(principal.getName());
+        // Khóa đơn: không hoàn kho / mã 2 lần khi chạy đua với job hủy đơn quá hạn thanh toán
+        Order order = orderRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        boolean isAdmin = user.getAuthorities().stream().anyMatch(auth -> auth.getAuthority().equals("ADMIN"));
+        boolean isAdmin = user.hasRole("ADMIN");
         boolean isOwner = order.getUser().getId().equals(user.getId());
 
         if (!isAdmin && !isOwner) {
@@ -273,24 +457,20 @@ public class OrderService {
 
         returnStockAndCoupon(order);
 
-        order.setOrderStatus(OrderStatus.CANCELLED);
-        Order savedOrder = orderRepository.save(order);
-
-        new Thread(() -> {
-            emailService.sendOrderStatusEmail(savedOrder, "Đơn hàng đã bị hủy",
-                    "Đơn hàng của bạn đã được hủy thành công theo yêu cầu.");
-        }).start();
+        changeStatus(order, OrderStatus.CANCELLED, OrderEventType.ORDER_CANCELLED,
+                "Đơn hàng đã bị hủy", "Đơn hàng của bạn đã được hủy thành công theo yêu cầu.");
+        orderRepository.save(order);
     }
 
     @Transactional
     public OrderDetails updateOrder(UUID orderId, OrderRequest updateRequest) {
-        Order order = orderRepository.findById(orderId)
+        // Khóa đơn: không hoàn kho / mã 2 lần khi chạy đua với job hủy đơn quá hạn thanh toán
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundEx("Không tìm thấy đơn hàng"));
 
         if (updateRequest.getNote() != null) order.setNote(updateRequest.getNote());
         if (updateRequest.getExpectedDeliveryDate() != null) order.setExpectedDeliveryDate(updateRequest.getExpectedDeliveryDate());
 
-        boolean statusChanged = false;
         if (updateRequest.getOrderStatus() != null) {
             try {
                 OrderStatus newStatus = OrderStatus.valueOf(updateRequest.getOrderStatus().toUpperCase());
@@ -302,8 +482,10 @@ public class OrderService {
                         returnStockAndCoupon(order);
                     }
 
-                    order.setOrderStatus(newStatus);
-                    statusChanged = true;
+                    String msg = "Trạng thái đơn hàng của bạn đã được cập nhật sang: " + translateStatus(newStatus);
+                    changeStatus(order, newStatus,
+                            newStatus == OrderStatus.CANCELLED ? OrderEventType.ORDER_CANCELLED : OrderEventType.ORDER_STATUS_CHANGED,
+                            "Cập nhật đơn hàng", msg);
                 }
             } catch (IllegalArgumentException e) {
                 throw new BadRequestEx("Trạng thái đơn hàng không hợp lệ: " + updateRequest.getOrderStatus());
@@ -312,38 +494,40 @@ public class OrderService {
 
         Order saved = orderRepository.save(order);
 
-        if (statusChanged) {
-            new Thread(() -> {
-                String msg = "Trạng thái đơn hàng của bạn đã được cập nhật sang: " + translateStatus(saved.getOrderStatus());
-                emailService.sendOrderStatusEmail(saved, "Cập nhật đơn hàng", msg);
-            }).start();
-        }
-
         return orderMapper.mapToOrderDetailsAdmin(saved);
     }
 
     private void returnStockAndCoupon(Order order) {
+        returnStockAndCoupon(List.of(order));
+    }
+
+    // Gom số lượng trả kho của nhiều đơn vào 1 lần cập nhật
+    private void returnStockAndCoupon(List<Order> orders) {
+        Map<UUID, Integer> stockReturns = new LinkedHashMap<>();
+        Map<UUID, Integer> flashSaleReturns = new LinkedHashMap<>();
+
+        for (Order order : orders) {
+            returnFlashSaleAndCoupon(order, stockReturns, flashSaleReturns);
+        }
+
+        // Hoàn suất Flash Sale theo id suất đã lưu lúc đặt (trả sau commit)
+        flashSaleStockService.release(flashSaleReturns);
+
+        // Cộng lại kho bằng UPDATE stock = stock + qty (không ghi đè giá trị cũ trong entity)
+        productRepository.incrementStock(stockReturns);
+        inventoryLedger.release(orders);
+        catalogCache.evictProducts(stockReturns.keySet());
+    }
+
+    private void returnFlashSaleAndCoupon(Order order, Map<UUID, Integer> stockReturns,
+                                          Map<UUID, Integer> flashSaleReturns) {
         for (OrderItem item : order.getOrderItemList()) {
             Product product = item.getProduct();
             if (product != null) {
-                product.setStock(product.getStock() + item.getQuantity());
-                productRepository.save(product);
-
-                try {
-                    Optional<FlashSaleItem> fsItemOpt = flashSaleItemRepository.findActiveSaleByProductId(
-                            product.getId(), order.getOrderDate()); 
-                    
-                    if (fsItemOpt.isPresent()) {
-                        FlashSaleItem fsItem = fsItemOpt.get();
-                        if (item.getItemPrice() < product.getPrice().doubleValue()) {
-                            int newSold = Math.max(fsItem.getSold() - item.getQuantity(), 0);
-                            fsItem.setSold(newSold);
-                            flashSaleItemRepository.save(fsItem);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Không hoàn được FlashSale count cho sp: " + product.getId());
-                }
+                stockReturns.merge(product.getId(), item.getQuantity(), Integer::sum);
+            }
+            if (item.getFlashSaleItemId() != null) {
+                flashSaleReturns.merge(item.getFlashSaleItemId(), item.getQuantity(), Integer::sum);
             }
         }
 
@@ -354,11 +538,27 @@ public class OrderService {
                     ud.setUsed(false);
                     ud.setUsedDate(null);
                     userDiscountRepository.saveAndFlush(ud);
-                    System.out.println("Đã hoàn mã giảm giá cho User: " + order.getUser().getId());
+                    log.info("Đã hoàn mã giảm giá {} cho user {}", discount.getId(), order.getUser().getId());
                 });
         }
     }
 
+    // Đổi trạng thái đơn và ghi sự kiện vào outbox trong cùng transaction
+    // (thống kê, dashboard, email cho khách nếu có emailSubject đều xử lý sau commit)
+    private void changeStatus(Order order, OrderStatus newStatus, OrderEventType type,
+                              String emailSubject, String emailContent) {
+        OrderStatus oldStatus = order.getOrderStatus();
+        order.setOrderStatus(newStatus);
+        if (oldStatus == OrderStatus.PENDING_PAYMENT && newStatus != OrderStatus.PENDING_PAYMENT) {
+            // Đã thanh toán / đã hủy: bỏ hẹn giờ hủy đơn
+            paymentDeadlineQueue.remove(List.of(order.getId()));
+        }
+        if (oldStatus != newStatus) {
+            orderOutbox.record(OrderEvent.transition(type, order, oldStatus, newStatus)
+                    .withEmail(emailSubject, emailContent));
+        }
+    }
+
     private String translateStatus(OrderStatus status) {
         switch (status) {
             case PENDING_PAYMENT: return "Chờ thanh toán Online";
@@ -377,37 +577,30 @@ public class OrderService {
         return prefix + "-" + LocalDate.now() + "-" + random;
     }
 
-    // Chạy mỗi 5 phút (300000)
-    @Scheduled(fixedRate = 60000)
-    public void autoCancelUnpaidOrders() {
-        LocalDateTime expiredTime = LocalDateTime.now().minusMinutes(15);
-        List<Order> expiredOrders = orderRepository.findByOrderStatusAndPaymentMethodInAndOrderDateBefore(
-                OrderStatus.PENDING_PAYMENT, List.of("CARD", "VNPAY"), expiredTime);
+    // =======================================================================
+    //  HỦY ĐƠN QUÁ HẠN THANH TOÁN (gọi từ UnpaidOrderExpiryJob theo lô)
+    // =======================================================================
+    /**
+     * Hủy các đơn trong lô còn ở PENDING_PAYMENT, trả kho/mã giảm giá, 1 transaction cho cả lô.
+     * Đơn vừa được thanh toán hoặc đã hủy thì bỏ qua.
+     *
+     * @return số đơn đã hủy
+     */
+    @Transactional
+    public int expireUnpaidOrders(Collection<UUID> orderIds) {
+        List<Order> orders = orderRepository.lockByIdInAndOrderStatus(orderIds, OrderStatus.PENDING_PAYMENT);
+        if (orders.isEmpty()) return 0;
 
-        if (!expiredOrders.isEmpty()) {
-            System.out.println("Found " + expiredOrders.size() + " expired orders. Processing...");
-        }
+        returnStockAndCoupon(orders);
 
-        for (Order order : expiredOrders) {
-            try {
-                processCancelSingleOrder(order);
-            } catch (Exception e) {
-                System.err.println("Lỗi hủy đơn " + order.getId() + ": " + e.getMessage());
+        for (Order order : orders) {
+            changeStatus(order, OrderStatus.CANCELLED, OrderEventType.ORDER_CANCELLED,
+                    "Đơn hàng bị hủy", "Hủy do quá hạn thanh toán.");
+            if (order.getPayment() != null) {
+                order.getPayment().setPaymentStatus(PaymentStatus.FAILED);
             }
         }
+        orderRepository.saveAll(orders);
+        return orders.size();
     }
-
-    // Helper method chạy transaction riêng lẻ
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void processCancelSingleOrder(Order order) {
-        returnStockAndCoupon(order);
-
-        order.setOrderStatus(OrderStatus.CANCELLED);
-        if (order.getPayment() != null) {
-            order.getPayment().setPaymentStatus(PaymentStatus.FAILED);
-        }
-        orderRepository.save(order);
-        
-        sendEmailAsync(order, "Đơn hàng bị hủy", "Hủy do quá hạn thanh toán.");
-    }
-}
\ No newline at end of file
+}
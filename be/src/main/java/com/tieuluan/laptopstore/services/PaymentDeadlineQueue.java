@@ -0,0 +1,123 @@
+package com.tieuluan.laptopstore.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hàng đợi hạn thanh toán của đơn online: Redis sorted set "ORDER:PAYMENT_DEADLINE",
+ * member = orderId, score = thời điểm hết hạn (epoch ms).
+ * <p>
+ * Đơn PENDING_PAYMENT được thêm vào sau khi tạo đơn commit và bị xóa khi rời trạng thái đó.
+ * {@link #claimDue(int)} lấy các đơn đến hạn và đẩy score lên thêm 1 khoảng giữ trong cùng
+ * script Lua, nên nhiều node cùng quét không nhận trùng; node chết giữa chừng thì đơn
+ * tự đến hạn lại sau khoảng giữ. Redis mất dữ liệu thì {@link #addIfAbsent(Map)} nạp lại từ DB.
+ */
+@Component
+public class PaymentDeadlineQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentDeadlineQueue.class);
+
+    private static final String DEADLINE_KEY = "ORDER:PAYMENT_DEADLINE";
+    private static final ZoneId CURRENT_ZONE = ZoneId.systemDefault();
+
+    // KEYS[1] = zset, ARGV[1] = now, ARGV[2] = số đơn tối đa, ARGV[3] = score mới (hết hạn giữ)
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2])) "
+            + "for _, id in ipairs(ids) do redis.call('ZADD', KEYS[1], ARGV[3], id) end "
+            + "return ids", List.class);
+
+    @Autowired private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${order.payment-timeout-minutes:15}")
+    private long paymentTimeoutMinutes;
+
+    @Value("${order.payment-deadline.lease-seconds:60}")
+    private long leaseSeconds;
+
+    public LocalDateTime deadlineOf(LocalDateTime orderDate) {
+        return orderDate.plusMinutes(paymentTimeoutMinutes);
+    }
+
+    // =======================================================================
+    //  THÊM / XÓA (sau commit nếu đang trong transaction)
+    // =======================================================================
+    public void schedule(UUID orderId, LocalDateTime orderDate) {
+        long score = toEpochMillis(deadlineOf(orderDate));
+        afterCommit(() -> stringRedisTemplate.opsForZSet().add(DEADLINE_KEY, orderId.toString(), score));
+    }
+
+    public void remove(Collection<UUID> orderIds) {
+        if (orderIds.isEmpty()) return;
+        Object[] members = orderIds.stream().map(UUID::toString).toArray();
+        afterCommit(() -> stringRedisTemplate.opsForZSet().remove(DEADLINE_KEY, members));
+    }
+
+    /** Nạp lại các đơn còn chờ thanh toán (orderId -> orderDate); đơn đã có trong hàng (kể cả đang giữ) giữ nguyên. */
+    public void addIfAbsent(Map<UUID, LocalDateTime> orderDates) {
+        if (orderDates.isEmpty()) return;
+        Set<TypedTuple<String>> tuples = new HashSet<>();
+        orderDates.forEach((id, orderDate) ->
+                tuples.add(new DefaultTypedTuple<>(id.toString(), (double) toEpochMillis(deadlineOf(orderDate)))));
+        stringRedisTemplate.opsForZSet().addIfAbsent(DEADLINE_KEY, tuples);
+    }
+
+    // =======================================================================
+    //  NHẬN ĐƠN ĐẾN HẠN
+    // =======================================================================
+    /** Các đơn đã quá hạn, tối đa {@code limit}; đơn nào không được {@link #remove} sẽ đến hạn lại sau khoảng giữ. */
+    @SuppressWarnings("unchecked")
+    public List<UUID> claimDue(int limit) {
+        long now = System.currentTimeMillis();
+        List<String> ids = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(DEADLINE_KEY),
+                String.valueOf(now),
+                String.valueOf(limit),
+                String.valueOf(now + leaseSeconds * 1000));
+        if (ids == null) return List.of();
+        return ids.stream().map(UUID::fromString).toList();
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                // Đối soát định kỳ từ DB sẽ bù lại
+                log.warn("Không cập nhật được hàng đợi hạn thanh toán trên Redis", e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safe.run();
+                }
+            });
+        } else {
+            safe.run();
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(CURRENT_ZONE).toInstant().toEpochMilli();
+    }
+}
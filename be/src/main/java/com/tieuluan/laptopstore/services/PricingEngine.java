@@ -0,0 +1,182 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.auth.entities.UserDiscount;
+import com.tieuluan.laptopstore.auth.repositories.UserDiscountRepository;
+import com.tieuluan.laptopstore.cache.CacheNames;
+import com.tieuluan.laptopstore.dto.OrderItemRequest;
+import com.tieuluan.laptopstore.dto.PriceQuote;
+import com.tieuluan.laptopstore.dto.ProductPriceTable;
+import com.tieuluan.laptopstore.entities.Discount;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tính giá giỏ hàng phía server; báo giá ({@code POST /api/order/quote}) và tạo đơn dùng chung.
+ * <p>
+ * Giá 1 sản phẩm = giá biến thể (hoặc giá sản phẩm) trừ % Flash Sale đang chạy, không có Sale
+ * thì trừ % giảm thường của sản phẩm; làm tròn tới đồng. Mã giảm giá trừ trên tổng tiền hàng,
+ * tối đa maxDiscountAmount. Bảng giá từng sản phẩm nằm trong cache PRODUCT_PRICE (xóa khi sửa
+ * sản phẩm), Flash Sale tra {@link ActiveFlashSaleIndex}: giỏ đã có trong cache không tốn
+ * truy vấn DB nào; sản phẩm chưa có thì nạp cả lô bằng 2 câu SQL.
+ */
+@Service
+public class PricingEngine {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserDiscountRepository userDiscountRepository;
+    @Autowired private ActiveFlashSaleIndex activeFlashSaleIndex;
+    @Autowired private CacheManager cacheManager;
+
+    // =======================================================================
+    //  BÁO GIÁ
+    // =======================================================================
+    public PriceQuote quote(List<OrderItemRequest> items, Discount coupon) {
+        if (items == null || items.isEmpty()) throw new BadRequestEx("Giỏ hàng trống");
+
+        Set<UUID> productIds = new LinkedHashSet<>();
+        for (OrderItemRequest item : items) {
+            if (item.getProductId() == null) throw new BadRequestEx("Sản phẩm không tồn tại");
+            if (item.getQuantity() == null || item.getQuantity() < 1) throw new BadRequestEx("Số lượng không hợp lệ");
+            productIds.add(item.getProductId());
+        }
+        Map<UUID, ProductPriceTable> tables = priceTables(productIds);
+
+        List<PriceQuote.Line> lines = new ArrayList<>(items.size());
+        BigDecimal subTotal = BigDecimal.ZERO;
+        for (OrderItemRequest item : items) {
+            PriceQuote.Line line = priceLine(tables.get(item.getProductId()), item);
+            lines.add(line);
+            subTotal = subTotal.add(line.getLineTotal());
+        }
+
+        BigDecimal couponDiscount = BigDecimal.ZERO;
+        if (coupon != null) {
+            couponDiscount = subTotal.multiply(BigDecimal.valueOf(coupon.getPercentage()))
+                    .divide(HUNDRED, 0, RoundingMode.HALF_UP)
+                    .min(BigDecimal.valueOf(coupon.getMaxDiscountAmount()).setScale(0, RoundingMode.HALF_UP));
+        }
+        BigDecimal shippingFee = BigDecimal.ZERO;
+
+        return PriceQuote.builder()
+                .lines(lines)
+                .subTotal(subTotal)
+                .discountId(coupon != null ? coupon.getId() : null)
+                .couponDiscount(couponDiscount)
+                .shippingFee(shippingFee)
+                .totalAmount(subTotal.subtract(couponDiscount).add(shippingFee).max(BigDecimal.ZERO))
+                .build();
+    }
+
+    private PriceQuote.Line priceLine(ProductPriceTable table, OrderItemRequest item) {
+        if (table == null || !table.isEnable()) throw new BadRequestEx("Sản phẩm không tồn tại hoặc đã ngừng bán");
+
+        BigDecimal originalPrice = table.getBasePrice();
+        if (item.getProductVariantId() != null) {
+            originalPrice = table.getVariantPrices().get(item.getProductVariantId());
+            if (originalPrice == null) {
+                throw new BadRequestEx("Phiên bản không thuộc sản phẩm '" + table.getName() + "'");
+            }
+        }
+
+        // Flash Sale ưu tiên hơn giảm giá thường
+        ActiveFlashSaleIndex.Entry sale = activeFlashSaleIndex.get(table.getProductId()).orElse(null);
+        BigDecimal percent = sale != null
+                ? BigDecimal.valueOf(sale.getDiscountPercent() != null ? sale.getDiscountPercent() : 0)
+                : table.getDiscountPercent();
+        if (percent == null) percent = BigDecimal.ZERO;
+
+        BigDecimal unitPrice = originalPrice.multiply(HUNDRED.subtract(percent))
+                .divide(HUNDRED, 0, RoundingMode.HALF_UP)
+                .max(BigDecimal.ZERO);
+
+        return PriceQuote.Line.builder()
+                .productId(table.getProductId())
+                .productVariantId(item.getProductVariantId())
+                .name(table.getName())
+                .quantity(item.getQuantity())
+                .originalPrice(originalPrice)
+                .unitPrice(unitPrice)
+                .discountPercent(percent)
+                .flashSale(sale != null)
+                .lineTotal(unitPrice.multiply(BigDecimal.valueOf(item.getQuantity())))
+                .flashSaleEntry(sale)
+                .build();
+    }
+
+    // =======================================================================
+    //  MÃ GIẢM GIÁ
+    // =======================================================================
+    /** Mã giảm giá user đang sở hữu và còn dùng được, null nếu không chọn mã. */
+    public UserDiscount resolveCoupon(UUID userId, UUID discountId) {
+        if (discountId == null) return null;
+
+        UserDiscount userDiscount = userDiscountRepository.findByUserIdAndDiscountId(userId, discountId)
+                .orElseThrow(() -> new BadRequestEx("Mã giảm giá không hợp lệ!"));
+        if (userDiscount.isUsed()) throw new BadRequestEx("Mã này đã được sử dụng!");
+
+        Date now = new Date();
+        Discount d = userDiscount.getDiscount();
+        if (!d.isActive()
+                || (d.getStartDate() != null && d.getStartDate().after(now))
+                || (d.getEndDate() != null && d.getEndDate().before(now))) {
+            throw new BadRequestEx("Mã giảm giá đã hết hạn.");
+        }
+        return userDiscount;
+    }
+
+    // =======================================================================
+    //  BẢNG GIÁ (cache PRODUCT_PRICE)
+    // =======================================================================
+    private Map<UUID, ProductPriceTable> priceTables(Collection<UUID> productIds) {
+        Cache cache = cacheManager.getCache(CacheNames.PRODUCT_PRICE);
+        Map<UUID, ProductPriceTable> tables = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : productIds) {
+            ProductPriceTable table = cache != null ? cache.get(id, ProductPriceTable.class) : null;
+            if (table != null) {
+                tables.put(id, table);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return tables;
+
+        Map<UUID, Map<UUID, BigDecimal>> variantPrices = new HashMap<>();
+        for (Object[] row : productRepository.findVariantPriceRows(missing)) {
+            variantPrices.computeIfAbsent((UUID) row[0], k -> new HashMap<>()).put((UUID) row[1], (BigDecimal) row[2]);
+        }
+        for (Object[] row : productRepository.findPriceRows(missing)) {
+            UUID id = (UUID) row[0];
+            ProductPriceTable table = ProductPriceTable.builder()
+                    .productId(id)
+                    .name((String) row[1])
+                    .enable((Boolean) row[2])
+                    .basePrice((BigDecimal) row[3])
+                    .discountPercent((BigDecimal) row[4])
+                    .variantPrices(variantPrices.getOrDefault(id, Map.of()))
+                    .build();
+            tables.put(id, table);
+            if (cache != null) cache.put(id, table);
+        }
+        return tables;
+    }
+}
@@ -1,13 +1,18 @@
 package com.tieuluan.laptopstore.services;
 
+import com.tieuluan.laptopstore.dto.PageResponse;
+import com.tieuluan.laptopstore.dto.ProductFilterRequest;
+import com.tieuluan.laptopstore.dto.ProductFilterResponse;
 import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductPageRequest;
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
 import com.tieuluan.laptopstore.entities.Product;
 import java.util.List;
 import java.util.UUID;
 
 public interface ProductService {
     ProductDto addProduct(ProductDto productDto);
-    List<ProductDto> getAllProducts(UUID categoryId, UUID typeId);
+    PageResponse<ProductDto> getAllProducts(ProductPageRequest request);
     ProductDto getProductBySlug(String slug);
     ProductDto getProductDtoById(UUID id);
     ProductDto updateProduct(ProductDto productDto, UUID id);
@@ -17,4 +22,13 @@ public interface ProductService {
     ProductDto deleteProduct(UUID id);
     List<ProductDto> getProductsByIds(List<UUID> ids);
     void updateProductStatus(UUID id, boolean enable);
+
+    // Bản tóm tắt cho lưới sản phẩm (view=summary): 1 câu SQL, không nạp variants/specs/resources
+    PageResponse<ProductSummaryDto> getProductSummaries(ProductPageRequest request);
+    List<ProductSummaryDto> searchProductSummaries(String keyword);
+    List<ProductSummaryDto> getProductSummariesByCategory(UUID categoryId);
+    List<ProductSummaryDto> getProductSummariesByIds(List<UUID> ids);
+
+    // Lọc theo danh mục / thương hiệu / giá / thông số kèm số đếm facet (bộ lọc trong bộ nhớ)
+    ProductFilterResponse filterProducts(ProductFilterRequest request);
 }
\ No newline at end of file
@@ -1,20 +1,38 @@
 package com.tieuluan.laptopstore.services;
 
+import com.tieuluan.laptopstore.cache.CacheNames;
+import com.tieuluan.laptopstore.dto.PageResponse;
+import com.tieuluan.laptopstore.dto.ProductFilterRequest;
+import com.tieuluan.laptopstore.dto.ProductFilterResponse;
 import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductPageRequest;
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
 import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.ProductVariant;
 import com.tieuluan.laptopstore.exceptions.ResourceNotFoundEx;
 import com.tieuluan.laptopstore.mapper.ProductMapper;
 import com.tieuluan.laptopstore.repositories.ProductRepository;
+import com.tieuluan.laptopstore.search.ProductFacetIndex;
+import com.tieuluan.laptopstore.search.ProductIndexSync;
+import com.tieuluan.laptopstore.search.ProductSearchIndex;
+import com.tieuluan.laptopstore.specification.ProductCursor;
+import com.tieuluan.laptopstore.specification.ProductSort;
 import com.tieuluan.laptopstore.specification.ProductSpecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +41,10 @@ public class ProductServiceImpl implements ProductService {
 
     private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int SEARCH_LIMIT = 50;
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -33,44 +55,116 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private FlashSaleService flashSaleService;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductIndexSync productIndexSync;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
     // =========================================================================
     // CÁC HÀM GET - TỰ ĐỘNG GỌI FLASH SALE SERVICE
     // =========================================================================
 
     @Override
-    public List<ProductDto> getAllProducts(UUID categoryId, UUID typeId) {
-        Specification<Product> spec = Specification
-                .where(categoryId != null ? ProductSpecs.hasCategoryId(categoryId) : null)
-                .and(typeId != null ? ProductSpecs.hasCategoryTypeId(typeId) : null);
+    public PageResponse<ProductDto> getAllProducts(ProductPageRequest request) {
+        PageWindow window = new PageWindow(request);
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<Product> products = productRepository.findPage(window.spec, window.sort, window.offset, window.size + 1);
+        boolean hasNext = products.size() > window.size;
+        if (hasNext) products = products.subList(0, window.size);
 
-        List<Product> products = productRepository.findAll(spec);
         List<ProductDto> dtos = productMapper.mapToProductDtos(products);
 
         // Gắn Sale
         flashSaleService.enrichProducts(dtos);
 
-        return dtos;
+        String nextCursor = hasNext ? ProductCursor.of(window.sort, products.get(products.size() - 1)).encode() : null;
+        return window.toResponse(dtos, nextCursor, request.isWithCount());
+    }
+
+    @Override
+    public PageResponse<ProductSummaryDto> getProductSummaries(ProductPageRequest request) {
+        PageWindow window = new PageWindow(request);
+
+        List<ProductSummaryDto> summaries = productRepository.findSummaries(window.spec, window.sort, window.offset, window.size + 1);
+        boolean hasNext = summaries.size() > window.size;
+        if (hasNext) summaries = summaries.subList(0, window.size);
+
+        // Gắn Sale (đọc từ chỉ mục trong bộ nhớ)
+        flashSaleService.enrichSummaries(summaries);
+
+        String nextCursor = hasNext ? ProductCursor.of(window.sort, summaries.get(summaries.size() - 1)).encode() : null;
+        return window.toResponse(summaries, nextCursor, request.isWithCount());
+    }
+
+    // Gom phần tính filter / sort / offset / keyset dùng chung cho 2 kiểu view
+    private class PageWindow {
+        final ProductSort sort;
+        final int size;
+        final Specification<Product> filter;
+        final Specification<Product> spec;
+        final Integer page;
+        final int offset;
+
+        PageWindow(ProductPageRequest request) {
+            sort = ProductSort.parse(request.getSort());
+            size = request.getSize() == null ? DEFAULT_PAGE_SIZE
+                    : Math.min(Math.max(request.getSize(), 1), MAX_PAGE_SIZE);
+
+            filter = Specification
+                    .where(request.getCategoryId() != null ? ProductSpecs.hasCategoryId(request.getCategoryId()) : null)
+                    .and(request.getTypeId() != null ? ProductSpecs.hasCategoryTypeId(request.getTypeId()) : null);
+
+            // Có cursor thì đi theo keyset (không OFFSET), ngược lại phân trang theo page
+            if (request.getCursor() != null && !request.getCursor().isBlank()) {
+                spec = filter.and(ProductSpecs.afterCursor(ProductCursor.decode(request.getCursor(), sort)));
+                page = null;
+                offset = 0;
+            } else {
+                spec = filter;
+                page = Math.max(request.getPage(), 0);
+                offset = page * size;
+            }
+        }
+
+        <T> PageResponse<T> toResponse(List<T> items, String nextCursor, boolean withCount) {
+            return PageResponse.<T>builder()
+                    .items(items)
+                    .page(page)
+                    .size(size)
+                    .total(withCount ? productRepository.count(filter) : null)
+                    .nextCursor(nextCursor)
+                    .build();
+        }
     }
 
     @Override
     public ProductDto getProductBySlug(String slug) {
-        Product product = productRepository.findBySlugWithSpecifications(slug)
-                .orElseThrow(() -> new ResourceNotFoundEx("Product Not Found!"));
-        ProductDto dto = productMapper.mapToProductDto(product);
-        
-        // Gắn Sale
-        flashSaleService.enrichSingleProduct(dto);
-        
-        return dto;
+        UUID id = catalogCache.findProductIdBySlug(slug);
+        if (id == null) {
+            throw new ResourceNotFoundEx("Product Not Found!");
+        }
+        return getProductDtoById(id);
     }
 
     @Override
     public ProductDto getProductDtoById(UUID id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundEx("Product Not Found!"));
-        ProductDto dto = productMapper.mapToProductDto(product);
-
-        // Gắn Sale
+        ProductDto cached = catalogCache.getProduct(id);
+        if (cached == null) {
+            throw new ResourceNotFoundEx("Product Not Found!");
+        }
+        // Bản trong cache dùng chung giữa các request: gắn Sale lên bản sao
+        ProductDto dto = cached.toBuilder().build();
         flashSaleService.enrichSingleProduct(dto);
         
         return dto;
@@ -78,7 +172,14 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<ProductDto> searchProductsByName(String keyword) {
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(keyword);
+        List<Product> products;
+        if (productSearchIndex.isReady()) {
+            // Chỉ mục trả id theo độ liên quan, nạp lại đúng thứ tự đó
+            List<UUID> ids = productSearchIndex.search(keyword, SEARCH_LIMIT);
+            products = orderByIds(productRepository.findByIdIn(ids), ids, Product::getId);
+        } else {
+            products = productRepository.findByNameContainingIgnoreCase(keyword);
+        }
         List<ProductDto> dtos = productMapper.mapToProductDtos(products);
         
         // Gắn Sale
@@ -108,6 +209,62 @@ public class ProductServiceImpl implements ProductService {
         return dtos;
     }
     
+    @Override
+    public List<ProductSummaryDto> searchProductSummaries(String keyword) {
+        if (!productSearchIndex.isReady()) {
+            return summaries(ProductSpecs.nameContains(keyword));
+        }
+        List<UUID> ids = productSearchIndex.search(keyword, SEARCH_LIMIT);
+        if (ids.isEmpty()) return List.of();
+        return orderByIds(summaries(ProductSpecs.idIn(ids)), ids, ProductSummaryDto::getId);
+    }
+
+    @Override
+    public ProductFilterResponse filterProducts(ProductFilterRequest request) {
+        ProductSort sort = ProductSort.parse(request.getSort());
+        int size = request.getSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.min(Math.max(request.getSize(), 1), MAX_PAGE_SIZE);
+        int page = Math.max(request.getPage(), 0);
+
+        ProductFacetIndex.FacetResult result = productFacetIndex.query(request, sort, page * size, size);
+
+        // Chỉ nạp từ DB đúng các sản phẩm của trang hiện tại
+        List<ProductSummaryDto> items = result.getProductIds().isEmpty()
+                ? List.of()
+                : orderByIds(summaries(ProductSpecs.idIn(result.getProductIds())), result.getProductIds(), ProductSummaryDto::getId);
+
+        return ProductFilterResponse.builder()
+                .items(items)
+                .page(page)
+                .size(size)
+                .total(result.getTotal())
+                .facets(result.getFacets())
+                .build();
+    }
+
+    // Sắp lại kết quả từ DB (IN không giữ thứ tự) theo thứ tự id của chỉ mục
+    private <T> List<T> orderByIds(List<T> items, List<UUID> ids, Function<T, UUID> idOf) {
+        Map<UUID, T> byId = items.stream().collect(Collectors.toMap(idOf, item -> item, (a, b) -> a));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ProductSummaryDto> getProductSummariesByCategory(UUID categoryId) {
+        return summaries(ProductSpecs.hasCategoryId(categoryId));
+    }
+
+    @Override
+    public List<ProductSummaryDto> getProductSummariesByIds(List<UUID> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        return summaries(ProductSpecs.idIn(ids));
+    }
+
+    private List<ProductSummaryDto> summaries(Specification<Product> spec) {
+        List<ProductSummaryDto> summaries = productRepository.findSummaries(spec, ProductSort.DEFAULT, 0, 0);
+        flashSaleService.enrichSummaries(summaries);
+        return summaries;
+    }
+
     @Override
     public Product getProductEntityById(UUID id) {
         return productRepository.findById(id)
@@ -120,26 +277,73 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     @Transactional 
+    @CacheEvict(cacheNames = {CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
     public ProductDto addProduct(ProductDto productDto) {
         Product product = productMapper.mapToProductEntity(productDto);
         Product saved = productRepository.save(product);
+        recordVariantStock(saved, Map.of());
+        productSearchIndex.indexAfterCommit(saved);
+        productFacetIndex.indexAfterCommit(saved);
+        productIndexSync.publishAfterCommit(saved.getId());
         return productMapper.mapToProductDto(saved);
     }
 
+    private static Map<UUID, Integer> variantStock(Product product) {
+        Map<UUID, Integer> stock = new LinkedHashMap<>();
+        if (product.getVariants() != null) {
+            for (ProductVariant variant : product.getVariants()) {
+                stock.put(variant.getId(), variant.getStockQuantity());
+            }
+        }
+        return stock;
+    }
+
+    // Biến thể đã có: cộng / trừ phần chênh qua sổ kho; biến thể mới: ghi tồn kho ban đầu
+    private void recordVariantStock(Product product, Map<UUID, Integer> stockBefore) {
+        Map<UUID, Integer> adjustments = new LinkedHashMap<>();
+        Map<UUID, Integer> initialStock = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Integer> e : variantStock(product).entrySet()) {
+            Integer before = stockBefore.get(e.getKey());
+            if (before == null) {
+                initialStock.put(e.getKey(), e.getValue());
+            } else if (e.getValue() != null && !before.equals(e.getValue())) {
+                adjustments.put(e.getKey(), e.getValue() - before);
+            }
+        }
+        inventoryLedger.adjust(product.getId(), adjustments);
+        inventoryLedger.recordRestock(product.getId(), initialStock);
+    }
+
     @Override
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_BY_ID, CacheNames.PRODUCT_PRICE}, key = "#id"),
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_SLUG, CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
+    })
     public ProductDto updateProduct(ProductDto productDto, UUID id) {
         Product existing = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundEx("Product Not Found!"));
 
+        Map<UUID, Integer> stockBefore = variantStock(existing);
         productMapper.updateProductFromDto(productDto, existing);
-        Product updated = productRepository.save(existing);
+        // Flush để biến thể mới có id trước khi ghi sổ kho
+        Product updated = productRepository.saveAndFlush(existing);
+        recordVariantStock(updated, stockBefore);
         log.info("Updated product with id: {}", updated.getId());
-        return productMapper.mapToProductDto(updated);
+        productSearchIndex.indexAfterCommit(updated);
+        productFacetIndex.indexAfterCommit(updated);
+        productIndexSync.publishAfterCommit(updated.getId());
+        ProductDto dto = productMapper.mapToProductDto(updated);
+        flashSaleService.enrichSingleProduct(dto);
+        return dto;
     }
 
     @Override
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_BY_ID, CacheNames.PRODUCT_PRICE}, key = "#id"),
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_SLUG, CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
+    })
     public ProductDto deleteProduct(UUID id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundEx("Không tìm thấy sản phẩm với ID: " + id));
@@ -150,15 +354,35 @@ public class ProductServiceImpl implements ProductService {
 
         product.setEnable(false); 
         Product updated = productRepository.save(product);
+        productSearchIndex.removeAfterCommit(updated.getId());
+        productFacetIndex.removeAfterCommit(updated.getId());
+        productIndexSync.publishAfterCommit(updated.getId());
 
         return productMapper.mapToProductDto(updated);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_BY_ID, CacheNames.PRODUCT_PRICE}, key = "#id"),
+            @CacheEvict(cacheNames = {CacheNames.PRODUCT_SLUG, CacheNames.CATEGORY_TREE, CacheNames.CATEGORY_BY_ID}, allEntries = true)
+    })
     public void updateProductStatus(UUID id, boolean enable) {
         if (!productRepository.existsById(id)) {
             throw new ResourceNotFoundEx("Product not found with id: " + id);
         }
         productRepository.updateEnableStatus(id, enable);
+
+        if (enable) {
+            productRepository.findById(id).ifPresent(product -> {
+                product.setEnable(true); // entity có thể đã nằm trong persistence context trước khi UPDATE
+                productSearchIndex.indexAfterCommit(product);
+                productFacetIndex.indexAfterCommit(product);
+                productIndexSync.publishAfterCommit(product.getId());
+            });
+        } else {
+            productSearchIndex.removeAfterCommit(id);
+            productFacetIndex.removeAfterCommit(id);
+            productIndexSync.publishAfterCommit(id);
+        }
     }
 }
\ No newline at end of file
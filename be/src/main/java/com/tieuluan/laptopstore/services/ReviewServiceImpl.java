@@ -3,6 +3,7 @@ package com.tieuluan.laptopstore.services;
 import com.tieuluan.laptopstore.auth.dto.User.UserPublicDto;
 import com.tieuluan.laptopstore.auth.entities.User;
 import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
+import com.tieuluan.laptopstore.cache.CacheNames;
 import com.tieuluan.laptopstore.dto.ReviewRequestDto;
 import com.tieuluan.laptopstore.dto.ReviewResponseDto;
 import com.tieuluan.laptopstore.entities.Product;
@@ -10,6 +11,7 @@ import com.tieuluan.laptopstore.entities.Review;
 import com.tieuluan.laptopstore.repositories.ProductRepository;
 import com.tieuluan.laptopstore.repositories.ReviewRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +35,7 @@ public class ReviewServiceImpl implements ReviewService {
     // --- 1. TẠO REVIEW & TỰ ĐỘNG CẬP NHẬT RATING ---
     @Override
     @Transactional // Đảm bảo tính toàn vẹn dữ liệu (Rollback nếu lỗi)
+    @CacheEvict(cacheNames = CacheNames.PRODUCT_BY_ID, key = "#request.productId") // rating/reviewCount đổi
     public ReviewResponseDto addReview(ReviewRequestDto request) {
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new RuntimeException("Product not found"));
@@ -125,8 +128,8 @@ public class ReviewServiceImpl implements ReviewService {
                 .build();
     }
 
-    // Helper: Gom nhóm cha con
-    private List<ReviewResponseDto> buildReviewTree(List<ReviewResponseDto> allReviews) {
+    // Helper: Gom nhóm cha con (package-private cho benchmark)
+    List<ReviewResponseDto> buildReviewTree(List<ReviewResponseDto> allReviews) {
         Map<UUID, ReviewResponseDto> map = new HashMap<>();
         List<ReviewResponseDto> roots = new ArrayList<>();
 
@@ -1,9 +1,14 @@
 package com.tieuluan.laptopstore.services;
 
+import com.tieuluan.laptopstore.cache.CacheNames;
 import com.tieuluan.laptopstore.dto.ShippingProviderDto;
 import com.tieuluan.laptopstore.entities.ShippingProvider;
+import com.tieuluan.laptopstore.id.UuidV7;
 import com.tieuluan.laptopstore.repositories.ShippingProviderRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +24,7 @@ public class ShippingProviderService {
 
     // Get all
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.SHIPPING_PROVIDERS, key = "'all'")
     public List<ShippingProviderDto> getAllShippingProviders() {
         return repository.findAll().stream()
                 .map(this::mapToDto)
@@ -27,6 +33,7 @@ public class ShippingProviderService {
 
     // Get by id
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheNames.SHIPPING_PROVIDER_BY_ID)
     public ShippingProviderDto getShippingProviderById(UUID id) {
         ShippingProvider sp = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ShippingProvider not found"));
@@ -35,9 +42,10 @@ public class ShippingProviderService {
 
     // Create
     @Transactional
+    @CacheEvict(cacheNames = CacheNames.SHIPPING_PROVIDERS, allEntries = true)
     public ShippingProviderDto createShippingProvider(ShippingProviderDto dto) {
         ShippingProvider sp = ShippingProvider.builder()
-                .id(dto.getId() != null ? dto.getId() : UUID.randomUUID())
+                .id(dto.getId() != null ? dto.getId() : UuidV7.next())
                 .name(dto.getName())
                 .imgShip(dto.getImgShip())
                 .contactInfo(dto.getContactInfo())
@@ -49,6 +57,10 @@ public class ShippingProviderService {
 
     // Update
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.SHIPPING_PROVIDER_BY_ID, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.SHIPPING_PROVIDERS, allEntries = true)
+    })
     public ShippingProviderDto updateShippingProvider(UUID id, ShippingProviderDto dto) {
         ShippingProvider sp = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ShippingProvider not found"));
@@ -64,6 +76,10 @@ public class ShippingProviderService {
 
     // Delete
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.SHIPPING_PROVIDER_BY_ID, key = "#id"),
+            @CacheEvict(cacheNames = CacheNames.SHIPPING_PROVIDERS, allEntries = true)
+    })
     public void deleteShippingProvider(UUID id) {
         ShippingProvider sp = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ShippingProvider not found"));
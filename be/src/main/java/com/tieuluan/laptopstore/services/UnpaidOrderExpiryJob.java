@@ -0,0 +1,107 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.cluster.ClusterSingleton;
+import com.tieuluan.laptopstore.cluster.JobLease;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hủy đơn online quá hạn thanh toán theo {@link PaymentDeadlineQueue}.
+ * <p>
+ * Quét Redis mỗi {@code order.payment-deadline.poll-ms} (mặc định 500ms) nên đơn bị hủy và trả
+ * kho gần như đúng lúc hết hạn. Đơn đến hạn được hủy theo lô, mỗi lô 1 transaction; lô lỗi
+ * thì thử lại từng đơn để 1 đơn hỏng không giữ cả lô. Lúc khởi động và định kỳ, nạp lại
+ * các đơn PENDING_PAYMENT từ DB phòng khi Redis mất dữ liệu. Mỗi lượt chỉ 1 node chạy
+ * ({@link ClusterSingleton}); mất lease giữa chừng thì dừng, các đơn còn lại đến hạn lại sau.
+ */
+@Component
+public class UnpaidOrderExpiryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(UnpaidOrderExpiryJob.class);
+
+    @Autowired private PaymentDeadlineQueue paymentDeadlineQueue;
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orderRepository;
+
+    @Value("${order.payment-deadline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${order.payment-deadline.chunk-size:50}")
+    private int chunkSize;
+
+    @Scheduled(fixedDelayString = "${order.payment-deadline.poll-ms:500}")
+    @ClusterSingleton(leaseSeconds = 30)
+    public void expireDueOrders() {
+        List<UUID> due;
+        try {
+            due = paymentDeadlineQueue.claimDue(batchSize);
+        } catch (Exception e) {
+            log.warn("Không đọc được hàng đợi hạn thanh toán trên Redis", e);
+            return;
+        }
+        if (due.isEmpty()) return;
+
+        int cancelled = 0;
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            JobLease.checkHeld();
+            List<UUID> chunk = due.subList(from, Math.min(from + chunkSize, due.size()));
+            try {
+                cancelled += orderService.expireUnpaidOrders(chunk);
+                paymentDeadlineQueue.remove(chunk);
+            } catch (Exception e) {
+                log.error("Lỗi hủy lô {} đơn quá hạn, thử lại từng đơn", chunk.size(), e);
+                cancelled += expireOneByOne(chunk);
+            }
+        }
+        JobLease.recordItems(cancelled);
+        log.info("Đã hủy {}/{} đơn quá hạn thanh toán", cancelled, due.size());
+    }
+
+    private int expireOneByOne(List<UUID> orderIds) {
+        int cancelled = 0;
+        for (UUID orderId : orderIds) {
+            try {
+                cancelled += orderService.expireUnpaidOrders(List.of(orderId));
+                paymentDeadlineQueue.remove(List.of(orderId));
+            } catch (Exception e) {
+                // Vẫn trong hàng đợi, đến hạn lại sau khoảng giữ
+                log.error("Lỗi hủy đơn quá hạn {}", orderId, e);
+            }
+        }
+        return cancelled;
+    }
+
+    // =======================================================================
+    //  KHÔI PHỤC TỪ DB
+    // =======================================================================
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${order.payment-deadline.reconcile-cron:0 */10 * * * *}")
+    @ClusterSingleton
+    public void reconcile() {
+        try {
+            Map<UUID, LocalDateTime> pending = new HashMap<>();
+            for (Object[] row : orderRepository.findIdAndOrderDateByOrderStatus(OrderStatus.PENDING_PAYMENT)) {
+                pending.put((UUID) row[0], (LocalDateTime) row[1]);
+            }
+            paymentDeadlineQueue.addIfAbsent(pending);
+            JobLease.recordItems(pending.size());
+        } catch (Exception e) {
+            log.error("Không nạp lại được hàng đợi hạn thanh toán", e);
+        }
+    }
+}
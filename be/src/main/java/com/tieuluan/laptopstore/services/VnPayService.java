@@ -50,6 +50,13 @@ public class VnPayService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        return buildPaymentUrl(order, bankCode);
+    }
+
+    // Dựng URL + chữ ký từ đơn đã nạp (tách riêng để benchmark không cần DB)
+    String buildPaymentUrl(Order order, String bankCode) throws Exception {
+        UUID orderId = order.getId();
+
         // TIỀN CHUẨN DUY NHẤT
         long amount = order.getTotalAmount().longValue(); 
         long vnpAmount = amount * 100;
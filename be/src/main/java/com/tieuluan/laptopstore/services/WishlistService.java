@@ -2,7 +2,6 @@ package com.tieuluan.laptopstore.services;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
@@ -28,10 +27,7 @@ public class WishlistService {
     private final WishlistMapper wishlistMapper;
 
     public List<WishlistDto> getWishlist(UUID userId) {
-        return wishlistRepository.findByUserId(userId)
-                .stream()
-                .map(wishlistMapper::toWishlistDto)
-                .collect(Collectors.toList());
+        return wishlistMapper.toWishlistDtos(wishlistRepository.findByUserId(userId));
     }
 
     public void addToWishlist(UUID userId, UUID productId) {
@@ -0,0 +1,49 @@
+package com.tieuluan.laptopstore.specification;
+
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset cursor cho danh sách đơn hàng (orderDate DESC, id DESC):
+ * ngày đặt + id của đơn cuối trang trước, mã hóa base64.
+ */
+public class OrderCursor {
+
+    private final LocalDateTime orderDate;
+    private final UUID id;
+
+    public OrderCursor(LocalDateTime orderDate, UUID id) {
+        this.orderDate = orderDate;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = orderDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) throw new BadRequestEx("Cursor không hợp lệ");
+            return new OrderCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (BadRequestEx e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BadRequestEx("Cursor không hợp lệ", e);
+        }
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+}
@@ -0,0 +1,66 @@
+package com.tieuluan.laptopstore.specification;
+
+import com.tieuluan.laptopstore.dto.OrderFilterRequest;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+
+import jakarta.persistence.criteria.Expression;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class OrderSpecs {
+
+    public static Specification<Order> hasStatus(OrderStatus status) {
+        return (root, query, cb) -> cb.equal(root.get("orderStatus"), status);
+    }
+
+    public static Specification<Order> orderedFrom(LocalDate from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("orderDate"), from.atStartOfDay());
+    }
+
+    // "đến ngày" tính cả ngày đó: < 0h ngày hôm sau
+    public static Specification<Order> orderedTo(LocalDate to) {
+        return (root, query, cb) -> cb.lessThan(root.get("orderDate"), to.plusDays(1).atStartOfDay());
+    }
+
+    public static Specification<Order> hasPaymentMethod(String paymentMethod) {
+        return (root, query, cb) -> cb.equal(root.get("paymentMethod"), paymentMethod);
+    }
+
+    // Tiền tố (LIKE 'abc%') để vẫn dùng được index unique của email;
+    // % và _ người dùng nhập là ký tự thường, không phải ký tự đại diện
+    public static Specification<Order> userEmailStartsWith(String email) {
+        String prefix = email.trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return (root, query, cb) -> cb.like(root.get("user").get("email"), prefix + "%", '\\');
+    }
+
+    public static Specification<Order> filter(OrderFilterRequest request) {
+        return Specification
+                .where(request.getStatus() != null ? hasStatus(request.getStatus()) : null)
+                .and(request.getFrom() != null ? orderedFrom(request.getFrom()) : null)
+                .and(request.getTo() != null ? orderedTo(request.getTo()) : null)
+                .and(hasText(request.getPaymentMethod()) ? hasPaymentMethod(request.getPaymentMethod()) : null)
+                .and(hasText(request.getEmail()) ? userEmailStartsWith(request.getEmail()) : null);
+    }
+
+    // Keyset theo (orderDate DESC, id DESC): chỉ lấy các đơn đứng sau cursor
+    public static Specification<Order> afterCursor(OrderCursor cursor) {
+        return (root, query, cb) -> {
+            Expression<LocalDateTime> orderDate = root.get("orderDate");
+            Expression<UUID> id = root.get("id");
+            return cb.or(
+                    cb.lessThan(orderDate, cursor.getOrderDate()),
+                    cb.and(cb.equal(orderDate, cursor.getOrderDate()), cb.lessThan(id, cursor.getId())));
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
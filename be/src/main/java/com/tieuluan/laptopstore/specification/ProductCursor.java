@@ -0,0 +1,86 @@
+package com.tieuluan.laptopstore.specification;
+
+import com.tieuluan.laptopstore.dto.ProductSummaryDto;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Keyset cursor: giá trị cột sắp xếp + id của dòng cuối trang trước.
+ * Client chỉ thấy chuỗi base64 và gửi lại nguyên vẹn.
+ */
+public class ProductCursor {
+
+    private final ProductSort sort;
+    private final String value;
+    private final UUID id;
+
+    private ProductCursor(ProductSort sort, String value, UUID id) {
+        this.sort = sort;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ProductCursor of(ProductSort sort, Product last) {
+        return of(sort, last.getId(), last.getPrice(), last.getRating(), last.getCreatedAt());
+    }
+
+    public static ProductCursor of(ProductSort sort, ProductSummaryDto last) {
+        return of(sort, last.getId(), last.getPrice(), last.getRating(), last.getCreatedAt());
+    }
+
+    private static ProductCursor of(ProductSort sort, UUID id, BigDecimal price, Float rating, Date createdAt) {
+        String value = switch (sort.getProperty()) {
+            case "price" -> price.toPlainString();
+            case "rating" -> String.valueOf(rating != null ? rating : 0f);
+            default -> String.valueOf(createdAt.getTime());
+        };
+        return new ProductCursor(sort, value, id);
+    }
+
+    public String encode() {
+        String raw = sort.name() + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Cursor phải được tạo với đúng kiểu sắp xếp đang yêu cầu
+    public static ProductCursor decode(String cursor, ProductSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            ProductSort sort = ProductSort.valueOf(parts[0]);
+            if (parts.length != 3 || sort != expectedSort) {
+                throw new BadRequestEx("Cursor không khớp với kiểu sắp xếp");
+            }
+            ProductCursor decoded = new ProductCursor(sort, parts[1], UUID.fromString(parts[2]));
+            decoded.typedValue(); // kiểm tra định dạng giá trị
+            return decoded;
+        } catch (BadRequestEx e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BadRequestEx("Cursor không hợp lệ", e);
+        }
+    }
+
+    public ProductSort getSort() {
+        return sort;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    // BigDecimal (price) / Float (rating) / Date (createdAt)
+    public Object typedValue() {
+        return switch (sort.getProperty()) {
+            case "price" -> new BigDecimal(value);
+            case "rating" -> Float.valueOf(value);
+            default -> new Date(Long.parseLong(value));
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.tieuluan.laptopstore.specification;
+
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+
+// Các kiểu sắp xếp danh sách sản phẩm hỗ trợ keyset (luôn kèm id để thứ tự ổn định)
+public enum ProductSort {
+    PRICE_ASC("price", true),
+    PRICE_DESC("price", false),
+    RATING_ASC("rating", true),
+    RATING_DESC("rating", false),
+    CREATED_AT_ASC("createdAt", true),
+    CREATED_AT_DESC("createdAt", false);
+
+    public static final ProductSort DEFAULT = CREATED_AT_DESC;
+
+    private final String property;
+    private final boolean ascending;
+
+    ProductSort(String property, boolean ascending) {
+        this.property = property;
+        this.ascending = ascending;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // Parse dạng "price,asc" / "rating" (mặc định desc)
+    public static ProductSort parse(String value) {
+        if (value == null || value.isBlank()) return DEFAULT;
+
+        String[] parts = value.split(",");
+        String property = parts[0].trim();
+        boolean asc = parts.length > 1 && "asc".equalsIgnoreCase(parts[1].trim());
+
+        for (ProductSort sort : values()) {
+            if (sort.property.equalsIgnoreCase(property) && sort.ascending == asc) {
+                return sort;
+            }
+        }
+        throw new BadRequestEx("Không hỗ trợ sắp xếp theo: " + value);
+    }
+}
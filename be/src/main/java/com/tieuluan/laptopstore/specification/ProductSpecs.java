@@ -2,7 +2,15 @@ package com.tieuluan.laptopstore.specification;
 
 import com.tieuluan.laptopstore.entities.Product;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
 import java.util.UUID;
 
 public class ProductSpecs {
@@ -15,4 +23,43 @@ public class ProductSpecs {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("categoryType").get("id"),typeId);
     }
 
+    public static Specification<Product> nameContains(String keyword){
+        return (root, query, criteriaBuilder) -> criteriaBuilder.like(
+                criteriaBuilder.lower(root.get("name")), "%" + keyword.toLowerCase() + "%");
+    }
+
+    public static Specification<Product> idIn(Collection<UUID> ids){
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    // Biểu thức dùng cho ORDER BY (rating có thể null nên quy về 0 để keyset so sánh được)
+    public static Expression<?> sortKey(ProductSort sort, Root<Product> root, CriteriaBuilder cb) {
+        return switch (sort.getProperty()) {
+            case "price" -> root.<BigDecimal>get("price");
+            case "rating" -> cb.coalesce(root.<Float>get("rating"), 0f);
+            default -> root.<Date>get("createdAt");
+        };
+    }
+
+    // Keyset: chỉ lấy các dòng đứng sau cursor theo (cột sắp xếp, id)
+    public static Specification<Product> afterCursor(ProductCursor cursor) {
+        ProductSort sort = cursor.getSort();
+        Object value = cursor.typedValue();
+
+        return (root, query, cb) -> switch (sort.getProperty()) {
+            case "price" -> keyset(cb, root, root.<BigDecimal>get("price"), (BigDecimal) value, sort.isAscending(), cursor.getId());
+            case "rating" -> keyset(cb, root, cb.coalesce(root.<Float>get("rating"), 0f), (Float) value, sort.isAscending(), cursor.getId());
+            default -> keyset(cb, root, root.<Date>get("createdAt"), (Date) value, sort.isAscending(), cursor.getId());
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Predicate keyset(CriteriaBuilder cb, Root<Product> root,
+                                                                      Expression<T> key, T value,
+                                                                      boolean ascending, UUID lastId) {
+        Expression<UUID> id = root.get("id");
+        Predicate beyond = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+        Predicate tie = cb.and(cb.equal(key, value),
+                ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId));
+        return cb.or(beyond, tie);
+    }
 }
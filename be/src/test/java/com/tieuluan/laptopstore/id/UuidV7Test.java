@@ -0,0 +1,71 @@
+package com.tieuluan.laptopstore.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UUID v7 phải đúng định dạng RFC 9562 và tăng dần theo thứ tự byte (thứ tự của BINARY(16)
+ * trong MySQL), kể cả khi sinh dồn dập trong cùng 1 ms từ nhiều thread.
+ */
+class UuidV7Test {
+
+    @Test
+    void hasVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(UuidV7.timestamp(id)).isBetween(before, after + 1);
+    }
+
+    @Test
+    void increasesInBinaryOrder() {
+        byte[] previous = toBytes(UuidV7.next());
+        for (int i = 0; i < 100_000; i++) {
+            byte[] current = toBytes(UuidV7.next());
+            assertThat(Arrays.compareUnsigned(current, previous)).isPositive();
+            previous = current;
+        }
+    }
+
+    @Test
+    void uniqueAcrossThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 50_000; i++) ids.add(UuidV7.next());
+                    return ids;
+                }));
+            }
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> f : futures) all.addAll(f.get());
+            assertThat(all).hasSize(200_000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
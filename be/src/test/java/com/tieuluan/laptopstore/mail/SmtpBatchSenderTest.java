@@ -0,0 +1,88 @@
+package com.tieuluan.laptopstore.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Gửi lô email qua SMTP giả (GreenMail): cả lô đi trên 1 kết nối dùng lại, nội dung render
+ * từ template đã biên dịch; máy chủ không kết nối được thì cả lô vào nhóm thử lại.
+ */
+class SmtpBatchSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final MailTemplate OTP = MailTemplate.compile("otp",
+            "<p>Xin chào <b>{{fullName}}</b>, mã OTP: {{otp}}</p>");
+
+    private SmtpConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    private SmtpBatchSender sender(int port) {
+        pool = new SmtpConnectionPool(Session.getInstance(new Properties()), "smtp",
+                "localhost", port, null, null, 1, 60_000);
+        return new SmtpBatchSender(pool, "noreply@laptopstore.test", "LaptopStore Support", 1_000);
+    }
+
+    private static List<OutgoingMail> batch(int size) {
+        List<OutgoingMail> mails = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String html = OTP.render(Map.of("fullName", "Khách <" + i + ">", "otp", "12345" + i));
+            mails.add(new OutgoingMail(UUID.randomUUID(), "user" + i + "@laptopstore.test", "Mã OTP " + i, html));
+        }
+        return mails;
+    }
+
+    @Test
+    void sendsWholeBatchOverOnePooledConnection() throws Exception {
+        SmtpBatchSender sender = sender(ServerSetupTest.SMTP.getPort());
+        List<OutgoingMail> mails = batch(5);
+
+        SmtpBatchSender.Result first = sender.send(mails.subList(0, 3));
+        // Lô sau mượn lại kết nối vừa trả (pool chỉ có 1 kết nối)
+        SmtpBatchSender.Result second = sender.send(mails.subList(3, 5));
+
+        assertThat(first.getSent()).hasSize(3);
+        assertThat(second.getSent()).hasSize(2);
+        assertThat(first.getRetry()).isEmpty();
+        assertThat(first.getRejected()).isEmpty();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(5);
+        String body = GreenMailUtil.getBody(received[0]);
+        // Biến {{...}} được escape HTML
+        assertThat(body).contains("&lt;0&gt;").doesNotContain("<0>").contains("123450");
+    }
+
+    @Test
+    void unreachableServerPutsBatchIntoRetry() {
+        // Không có máy chủ nào lắng nghe ở cổng này
+        SmtpBatchSender sender = sender(ServerSetupTest.SMTP.getPort() + 97);
+        List<OutgoingMail> mails = batch(3);
+
+        SmtpBatchSender.Result result = sender.send(mails);
+
+        assertThat(result.getSent()).isEmpty();
+        assertThat(result.getRejected()).isEmpty();
+        assertThat(result.getRetry()).containsOnlyKeys(mails.stream().map(OutgoingMail::getId).toList());
+    }
+}
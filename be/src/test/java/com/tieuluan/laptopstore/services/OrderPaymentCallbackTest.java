@@ -0,0 +1,132 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.entities.OrderStatus;
+import com.tieuluan.laptopstore.entities.Payment;
+import com.tieuluan.laptopstore.entities.PaymentStatus;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.exceptions.BadRequestEx;
+import com.tieuluan.laptopstore.outbox.OrderOutbox;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+import com.tieuluan.laptopstore.repositories.PaymentRepository;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Callback VNPay chỉ có tác dụng với đơn còn PENDING_PAYMENT: đơn đã bị hủy do quá hạn thì
+ * không được chuyển sang IN_PROGRESS / chốt kho, và không trả kho, suất Flash Sale lần hai.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderPaymentCallbackTest {
+
+    @Mock private OrderRepository orderRepository;
+    @Mock private PaymentRepository paymentRepository;
+    @Mock private ProductRepository productRepository;
+    @Mock private FlashSaleStockService flashSaleStockService;
+    @Mock private InventoryLedger inventoryLedger;
+    @Mock private CatalogCache catalogCache;
+    @Mock private OrderOutbox orderOutbox;
+    @Mock private PaymentDeadlineQueue paymentDeadlineQueue;
+
+    @InjectMocks private OrderService orderService;
+
+    private Order order;
+
+    @BeforeEach
+    void pendingOnlineOrder() {
+        Payment payment = new Payment();
+        payment.setPaymentStatus(PaymentStatus.PENDING_PAYMENT);
+
+        List<OrderItem> items = new ArrayList<>();
+        items.add(OrderItem.builder()
+                .product(Product.builder().id(UUID.randomUUID()).build())
+                .quantity(2)
+                .itemPrice(1_000_000.0)
+                .flashSaleItemId(UUID.randomUUID())
+                .build());
+
+        order = Order.builder()
+                .id(UUID.randomUUID())
+                .orderStatus(OrderStatus.PENDING_PAYMENT)
+                .orderDate(LocalDateTime.now().minusMinutes(20))
+                .totalAmount(2_000_000.0)
+                .paymentMethod("VNPAY")
+                .orderItemList(items)
+                .payment(payment)
+                .build();
+        payment.setOrder(order);
+    }
+
+    private void expire() {
+        when(orderRepository.lockByIdInAndOrderStatus(List.of(order.getId()), OrderStatus.PENDING_PAYMENT))
+                .thenReturn(List.of(order));
+        assertThat(orderService.expireUnpaidOrders(List.of(order.getId()))).isEqualTo(1);
+    }
+
+    @Test
+    void successfulPaymentAfterExpiryIsRejected() {
+        expire();
+        when(orderRepository.findByIdForUpdate(order.getId())).thenReturn(Optional.of(order));
+
+        assertThatThrownBy(() -> orderService.updateOrderStatusAfterPayment(order.getId(), "00"))
+                .isInstanceOf(BadRequestEx.class);
+
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(order.getPayment().getPaymentStatus()).isEqualTo(PaymentStatus.FAILED);
+        verify(inventoryLedger, never()).commit(any());
+        // Chỉ có sự kiện hủy lúc hết hạn, không có ORDER_PAID
+        verify(orderOutbox, times(1)).record(any());
+    }
+
+    @Test
+    void failedPaymentAfterExpiryDoesNotReturnStockTwice() {
+        expire();
+        when(orderRepository.findByIdForUpdate(order.getId())).thenReturn(Optional.of(order));
+
+        orderService.updateOrderStatusAfterPayment(order.getId(), "24");
+
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CANCELLED);
+        verify(productRepository, times(1)).incrementStock(anyMap());
+        verify(inventoryLedger, times(1)).release(anyList());
+        verify(flashSaleStockService, times(1)).release(anyMap());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void repeatedSuccessCallbackCommitsStockOnce() {
+        when(orderRepository.findByIdForUpdate(order.getId())).thenReturn(Optional.of(order));
+
+        orderService.updateOrderStatusAfterPayment(order.getId(), "00");
+        orderService.updateOrderStatusAfterPayment(order.getId(), "00");
+
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.IN_PROGRESS);
+        assertThat(order.getPayment().getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        verify(inventoryLedger, times(1)).commit(order);
+        verify(paymentDeadlineQueue, times(1)).remove(List.of(order.getId()));
+        verify(productRepository, never()).incrementStock(any(Map.class));
+    }
+}
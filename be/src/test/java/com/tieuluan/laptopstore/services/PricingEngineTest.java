@@ -0,0 +1,263 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.auth.dto.OrderResponse;
+import com.tieuluan.laptopstore.auth.dto.User.UserSnapshot;
+import com.tieuluan.laptopstore.auth.entities.UserDiscount;
+import com.tieuluan.laptopstore.auth.repositories.UserDetailRepository;
+import com.tieuluan.laptopstore.auth.repositories.UserDiscountRepository;
+import com.tieuluan.laptopstore.cache.CacheNames;
+import com.tieuluan.laptopstore.dto.OrderItemRequest;
+import com.tieuluan.laptopstore.dto.OrderRequest;
+import com.tieuluan.laptopstore.dto.PriceQuote;
+import com.tieuluan.laptopstore.entities.Address;
+import com.tieuluan.laptopstore.entities.Discount;
+import com.tieuluan.laptopstore.entities.Order;
+import com.tieuluan.laptopstore.entities.OrderItem;
+import com.tieuluan.laptopstore.entities.ShippingProvider;
+import com.tieuluan.laptopstore.outbox.OrderOutbox;
+import com.tieuluan.laptopstore.repositories.AddressRepository;
+import com.tieuluan.laptopstore.repositories.OrderRepository;
+import com.tieuluan.laptopstore.repositories.ProductRepository;
+import com.tieuluan.laptopstore.repositories.ShippingProviderRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Giá do {@link PricingEngine} tính: giá biến thể, Flash Sale ưu tiên hơn giảm giá thường, mã
+ * giảm giá có trần, làm tròn tới đồng như {@code Math.round} cũ; báo giá và tạo đơn phải ra
+ * cùng một tổng tiền.
+ */
+@ExtendWith(MockitoExtension.class)
+class PricingEngineTest {
+
+    @Mock private ProductRepository productRepository;
+    @Mock private UserDiscountRepository userDiscountRepository;
+    @Mock private ActiveFlashSaleIndex activeFlashSaleIndex;
+    @Spy private CacheManager cacheManager = new ConcurrentMapCacheManager(CacheNames.PRODUCT_PRICE);
+
+    @InjectMocks private PricingEngine pricingEngine;
+
+    // Phía tạo đơn: OrderService dùng chính pricingEngine ở trên
+    @Mock private UserDetailsService userDetailsService;
+    @Mock private UserDetailRepository userDetailRepository;
+    @Mock private AddressRepository addressRepository;
+    @Mock private ShippingProviderRepository shippingProviderRepository;
+    @Mock private OrderRepository orderRepository;
+    @Mock private FlashSaleStockService flashSaleStockService;
+    @Mock private CatalogCache catalogCache;
+    @Mock private OrderOutbox orderOutbox;
+    @Mock private PaymentDeadlineQueue paymentDeadlineQueue;
+    @Mock private InventoryLedger inventoryLedger;
+
+    @InjectMocks private OrderService orderService;
+
+    private final UUID productId = UUID.randomUUID();
+    private final UUID variantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderService, "pricingEngine", pricingEngine);
+    }
+
+    private void laptop() {
+        // Giá gốc 20.000.000, giảm thường 10%, 1 biến thể 25.000.000
+        when(productRepository.findPriceRows(anyCollection())).thenReturn(rows(
+                new Object[] {productId, "Laptop", true, new BigDecimal("20000000"), new BigDecimal("10")}));
+        when(productRepository.findVariantPriceRows(anyCollection())).thenReturn(rows(
+                new Object[] {productId, variantId, new BigDecimal("25000000")}));
+    }
+
+    @Test
+    void variantPriceReplacesBasePrice() {
+        laptop();
+        PriceQuote quote = pricingEngine.quote(List.of(item(null, 1), item(variantId, 2)), null);
+
+        PriceQuote.Line base = quote.getLines().get(0);
+        assertThat(base.getOriginalPrice()).isEqualByComparingTo("20000000");
+        assertThat(base.getUnitPrice()).isEqualByComparingTo("18000000");
+
+        PriceQuote.Line variant = quote.getLines().get(1);
+        assertThat(variant.getOriginalPrice()).isEqualByComparingTo("25000000");
+        assertThat(variant.getUnitPrice()).isEqualByComparingTo("22500000");
+        assertThat(variant.getLineTotal()).isEqualByComparingTo("45000000");
+        assertThat(variant.isFlashSale()).isFalse();
+
+        assertThat(quote.getTotalAmount()).isEqualByComparingTo("63000000");
+    }
+
+    @Test
+    void flashSaleTakesPriorityOverProductDiscount() {
+        laptop();
+        ActiveFlashSaleIndex.Entry sale = flashSale(25.0);
+        when(activeFlashSaleIndex.get(productId)).thenReturn(Optional.of(sale));
+
+        PriceQuote.Line line = pricingEngine.quote(List.of(item(variantId, 1)), null).getLines().get(0);
+
+        // 25% của Flash Sale, không cộng dồn 10% giảm thường
+        assertThat(line.getDiscountPercent()).isEqualByComparingTo("25");
+        assertThat(line.getUnitPrice()).isEqualByComparingTo("18750000");
+        assertThat(line.isFlashSale()).isTrue();
+        assertThat(line.getFlashSaleEntry()).isSameAs(sale);
+    }
+
+    @Test
+    void couponTakesPercentageOfSubTotalUpToItsCap() {
+        laptop();
+        Discount underCap = coupon(5, 5_000_000);
+        PriceQuote quote = pricingEngine.quote(List.of(item(null, 1)), underCap);
+        assertThat(quote.getSubTotal()).isEqualByComparingTo("18000000");
+        assertThat(quote.getCouponDiscount()).isEqualByComparingTo("900000");
+        assertThat(quote.getTotalAmount()).isEqualByComparingTo("17100000");
+        assertThat(quote.getDiscountId()).isEqualTo(underCap.getId());
+
+        Discount capped = coupon(20, 500_000);
+        quote = pricingEngine.quote(List.of(item(null, 1)), capped);
+        assertThat(quote.getCouponDiscount()).isEqualByComparingTo("500000");
+        assertThat(quote.getTotalAmount()).isEqualByComparingTo("17500000");
+    }
+
+    @Test
+    void roundsToTheNearestDongLikeMathRound() {
+        UUID cheapId = UUID.randomUUID();
+        when(productRepository.findPriceRows(anyCollection())).thenReturn(rows(
+                new Object[] {cheapId, "Chuột", true, new BigDecimal("12345"), new BigDecimal("10")}));
+        when(productRepository.findVariantPriceRows(anyCollection())).thenReturn(List.of());
+
+        PriceQuote quote = pricingEngine.quote(List.of(OrderItemRequest.builder()
+                .productId(cheapId).quantity(1).build()), coupon(5, 1_000_000));
+
+        // 12.345 x 90% = 11.110,5 -> 11.111 (làm tròn nửa lên, như Math.round)
+        assertThat(quote.getLines().get(0).getUnitPrice())
+                .isEqualByComparingTo(BigDecimal.valueOf(Math.round(12345 * 90 / 100.0)))
+                .isEqualByComparingTo("11111");
+        // 11.111 x 5% = 555,55 -> 556
+        assertThat(quote.getCouponDiscount())
+                .isEqualByComparingTo(BigDecimal.valueOf(Math.round(11111 * 5 / 100.0)))
+                .isEqualByComparingTo("556");
+        assertThat(quote.getTotalAmount()).isEqualByComparingTo("10555");
+    }
+
+    @Test
+    void priceTableIsLoadedOnceThenServedFromCache() {
+        laptop();
+        pricingEngine.quote(List.of(item(variantId, 1)), null);
+        pricingEngine.quote(List.of(item(null, 3)), null);
+
+        verify(productRepository, times(1)).findPriceRows(anyCollection());
+        verify(productRepository, times(1)).findVariantPriceRows(anyCollection());
+    }
+
+    // =======================================================================
+    //  BÁO GIÁ VÀ TẠO ĐƠN CÙNG MỘT TỔNG TIỀN
+    // =======================================================================
+    @Test
+    void quoteEndpointAndCreateOrderChargeTheSameTotal() {
+        laptop();
+        UserSnapshot user = new UserSnapshot(UUID.randomUUID(), "khach@laptopstore.vn", "", "Khách", "Hàng",
+                true, List.of(), List.of());
+        Principal principal = user::getEmail;
+        Discount discount = coupon(7, 2_000_000);
+        ShippingProvider provider = ShippingProvider.builder().id(UUID.randomUUID()).name("Giao Nhanh").build();
+        Address address = Address.builder().id(UUID.randomUUID()).build();
+        ActiveFlashSaleIndex.Entry sale = flashSale(15.0);
+
+        when(userDetailsService.loadUserByUsername(user.getEmail())).thenReturn(user);
+        when(userDiscountRepository.findByUserIdAndDiscountId(user.getId(), discount.getId()))
+                .thenReturn(Optional.of(UserDiscount.builder().discount(discount).build()));
+        when(activeFlashSaleIndex.get(productId)).thenReturn(Optional.of(sale));
+        when(addressRepository.findByIdAndUserId(address.getId(), user.getId())).thenReturn(Optional.of(address));
+        when(shippingProviderRepository.findById(provider.getId())).thenReturn(Optional.of(provider));
+        when(flashSaleStockService.reserve(sale.getItemId(), sale.getQuantity(), sale.getEndDate(), 1)).thenReturn(true);
+        when(flashSaleStockService.reserve(sale.getItemId(), sale.getQuantity(), sale.getEndDate(), 2)).thenReturn(true);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderRequest request = OrderRequest.builder()
+                .addressId(address.getId())
+                .shippingProviderId(provider.getId())
+                .discountId(discount.getId())
+                .paymentMethod("COD")
+                // Giá / tổng client gửi lên bị bỏ qua
+                .totalAmount(1.0)
+                .orderItemRequests(List.of(
+                        OrderItemRequest.builder().productId(productId).productVariantId(variantId)
+                                .quantity(1).itemPrice(1.0).build(),
+                        OrderItemRequest.builder().productId(productId).quantity(2).itemPrice(1.0).build()))
+                .build();
+
+        PriceQuote quote = orderService.quote(request, principal);
+        OrderResponse response = orderService.createOrder(request, principal);
+
+        // 25.000.000 x 85% + 2 x 20.000.000 x 85% = 55.250.000; mã 7% = 3.867.500 -> trần 2.000.000
+        assertThat(quote.getTotalAmount()).isEqualByComparingTo("53250000");
+        assertThat(response.getTotalAmount()).isEqualTo(quote.getTotalAmount().doubleValue());
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(saved.capture());
+        assertThat(saved.getValue().getPayment().getAmount()).isEqualTo(quote.getTotalAmount().doubleValue());
+        assertThat(saved.getValue().getOrderItemList()).extracting(OrderItem::getItemPrice)
+                .containsExactly(quote.getLines().get(0).getUnitPrice().doubleValue(),
+                        quote.getLines().get(1).getUnitPrice().doubleValue());
+    }
+
+    // =======================================================================
+    //  DỮ LIỆU MẪU
+    // =======================================================================
+    private OrderItemRequest item(UUID productVariantId, int quantity) {
+        return OrderItemRequest.builder()
+                .productId(productId)
+                .productVariantId(productVariantId)
+                .quantity(quantity)
+                .build();
+    }
+
+    private ActiveFlashSaleIndex.Entry flashSale(double discountPercent) {
+        return ActiveFlashSaleIndex.Entry.builder()
+                .itemId(UUID.randomUUID())
+                .flashSaleId(UUID.randomUUID())
+                .productId(productId)
+                .discountPercent(discountPercent)
+                .quantity(10)
+                .startDate(LocalDateTime.now().minusHours(1))
+                .endDate(LocalDateTime.now().plusHours(1))
+                .build();
+    }
+
+    private static Discount coupon(double percentage, double maxDiscountAmount) {
+        return Discount.builder()
+                .id(UUID.randomUUID())
+                .percentage(percentage)
+                .maxDiscountAmount(maxDiscountAmount)
+                .active(true)
+                .build();
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,179 @@
+package com.tieuluan.laptopstore.services;
+
+import com.tieuluan.laptopstore.dto.PageResponse;
+import com.tieuluan.laptopstore.dto.ProductDto;
+import com.tieuluan.laptopstore.dto.ProductPageRequest;
+import com.tieuluan.laptopstore.entities.Brand;
+import com.tieuluan.laptopstore.entities.Category;
+import com.tieuluan.laptopstore.entities.CategoryType;
+import com.tieuluan.laptopstore.entities.FlashSale;
+import com.tieuluan.laptopstore.entities.FlashSaleItem;
+import com.tieuluan.laptopstore.entities.Product;
+import com.tieuluan.laptopstore.entities.ProductSpecification;
+import com.tieuluan.laptopstore.entities.ProductVariant;
+import com.tieuluan.laptopstore.entities.ProductVariantAttribute;
+import com.tieuluan.laptopstore.entities.Resources;
+import com.tieuluan.laptopstore.mapper.BrandMapper;
+import com.tieuluan.laptopstore.mapper.CategoryMapper;
+import com.tieuluan.laptopstore.mapper.CategoryTypeMapper;
+import com.tieuluan.laptopstore.mapper.ProductMapper;
+import com.tieuluan.laptopstore.search.ProductFacetIndex;
+import com.tieuluan.laptopstore.search.ProductIndexSync;
+import com.tieuluan.laptopstore.search.ProductSearchIndex;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chặn hồi quy N+1 trên trang danh sách sản phẩm: số câu SQL khi liệt kê 500 sản phẩm
+ * phải là hằng số (không tăng theo số sản phẩm / số sản phẩm đang Flash Sale).
+ * Thông tin Flash Sale đọc từ {@link ActiveFlashSaleIndex} nên không tốn truy vấn nào.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog;MODE=MySQL;NON_KEYWORDS=VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        ProductServiceImpl.class, ProductMapper.class, FlashSaleServiceImpl.class, ActiveFlashSaleIndex.class,
+        ProductListingQueryCountTest.SchedulerConfig.class,
+        BrandService.class, BrandMapper.class,
+        CategoryService.class, CategoryMapper.class, CategoryTypeMapper.class
+})
+class ProductListingQueryCountTest {
+
+    private static final int PRODUCT_COUNT = 500;
+    private static final int PAGE_SIZE = 200;
+
+    // Giới hạn trên cho mọi câu lệnh JDBC (sản phẩm + nạp theo lô các collection LAZY).
+    // Với batch size 100, 500 sản phẩm cần khoảng 30 câu; N+1 sẽ là hàng nghìn câu.
+    private static final int MAX_STATEMENTS = 45;
+
+    @Autowired private EntityManager entityManager;
+    @Autowired private ProductService productService;
+    @Autowired private ActiveFlashSaleIndex activeFlashSaleIndex;
+
+    // Không có Redis trong test: số đã bán lấy theo DB
+    @MockitoBean private FlashSaleStockService flashSaleStockService;
+    @MockitoBean private ProductSearchIndex productSearchIndex;
+    @MockitoBean private ProductFacetIndex productFacetIndex;
+    @MockitoBean private ProductIndexSync productIndexSync;
+    // Danh sách sản phẩm không đi qua cache catalog
+    @MockitoBean private CatalogCache catalogCache;
+    // Danh sách sản phẩm không ghi kho
+    @MockitoBean private InventoryLedger inventoryLedger;
+
+    @TestConfiguration
+    static class SchedulerConfig {
+        @Bean
+        TaskScheduler taskScheduler() {
+            ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+            scheduler.initialize();
+            return scheduler;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Brand brand = Brand.builder().name("Dell").code("DELL").description("Dell").logoUrl("dell.png").build();
+        entityManager.persist(brand);
+
+        Category category = Category.builder().name("Laptop").code("LAPTOP").description("Laptop").build();
+        entityManager.persist(category);
+
+        CategoryType type = CategoryType.builder().name("Gaming").code("GAMING").description("Gaming")
+                .imgCategory("gaming.png").category(category).build();
+        entityManager.persist(type);
+
+        FlashSale flashSale = FlashSale.builder().name("Sale test")
+                .startDate(LocalDateTime.now().minusHours(1))
+                .endDate(LocalDateTime.now().plusHours(1))
+                .status(1).build();
+        entityManager.persist(flashSale);
+
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Product product = Product.builder()
+                    .name("Laptop " + i).slug("laptop-" + i).description("Mô tả " + i)
+                    .price(BigDecimal.valueOf(20_000_000L + i)).discount(BigDecimal.ZERO)
+                    .stock(10).rating(4.5f).reviewCount(0).isNewArrival(false).enable(true)
+                    .brand(brand).category(category).categoryType(type)
+                    .build();
+
+            product.setResources(new ArrayList<>(List.of(Resources.builder()
+                    .name("thumb").url("https://img/" + i).type("image").isPrimary(true).product(product).build())));
+            product.setSpecifications(new ArrayList<>(List.of(ProductSpecification.builder()
+                    .name("CPU").value("i7").product(product).build())));
+
+            ProductVariant variant = ProductVariant.builder()
+                    .sku("SKU-" + i).price(product.getPrice()).stockQuantity(5).product(product).build();
+            variant.setAttributes(new ArrayList<>(List.of(ProductVariantAttribute.builder()
+                    .attributeName("RAM").attributeValue("16GB").variant(variant).build())));
+            product.setVariants(new ArrayList<>(List.of(variant)));
+
+            entityManager.persist(product);
+
+            // Một nửa số sản phẩm đang Flash Sale
+            if (i % 2 == 0) {
+                entityManager.persist(FlashSaleItem.builder().flashSale(flashSale).product(product)
+                        .discountPercent(10.0).quantity(100).sold(0).build());
+            }
+        }
+
+        entityManager.flush();
+        activeFlashSaleIndex.reload();
+        entityManager.clear();
+    }
+
+    @Test
+    void listingUsesConstantNumberOfStatements() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Duyệt hết 500 sản phẩm bằng keyset cursor, trang lớn nhất 200
+        List<ProductDto> products = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PageResponse<ProductDto> page = productService.getAllProducts(ProductPageRequest.builder()
+                    .size(PAGE_SIZE).sort("price,asc").cursor(cursor).build());
+            products.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(products).hasSize(PRODUCT_COUNT);
+        assertThat(products).extracting(ProductDto::getId).doesNotHaveDuplicates();
+        assertThat(products).filteredOn(p -> p.getFlashSale() != null).hasSize(PRODUCT_COUNT / 2);
+
+        // Mỗi trang đúng 1 truy vấn sản phẩm (không COUNT); Flash Sale đọc từ chỉ mục trong bộ nhớ
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(pages);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+}
@@ -1,17 +1,25 @@
 import axios from "axios";
 import { API_BASE_URL, API_URLS, getHeaders } from "../constant"
 
-export const getAllProducts = async (id,typeId)=>{
-    let url = API_BASE_URL + API_URLS.GET_PRODUCTS + `?categoryId=${id}`;
-    if(typeId){
-        url = url + `&typeId=${typeId}`;
-    }
+// GET /api/products trả theo trang (tối đa 200 sản phẩm/trang):
+// đi theo header X-Next-Cursor cho tới trang cuối để lấy đủ danh sách
+export const getAllProductPages = async (params = {}) => {
+    const url = API_BASE_URL + API_URLS.GET_PRODUCTS;
+    const products = [];
+    let cursor;
+    do {
+        const result = await axios.get(url, {
+            params: { ...params, size: 200, withCount: false, cursor }
+        });
+        products.push(...(result?.data || []));
+        cursor = result?.headers?.["x-next-cursor"];
+    } while (cursor);
+    return products;
+}
 
+export const getAllProducts = async (id,typeId)=>{
     try{
-        const result = await axios(url,{
-            method:"GET"
-        });
-        return result?.data;
+        return await getAllProductPages({ categoryId: id, typeId: typeId || undefined });
     }
     catch(err){
         console.error(err);
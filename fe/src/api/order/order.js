@@ -12,13 +12,20 @@ export const createOrderAPI = async (orderRequest) => {
   }
 };
 
-// 🧾 Lấy danh sách đơn hàng
-export const getAllOrdersAPI = async () => {
+// 🧾 Lấy danh sách đơn hàng (admin): lọc + phân trang theo cursor, mới nhất trước
+// params: { status, email, from, to, paymentMethod, size, cursor }
+// Trả về { items, nextCursor, total } (total chỉ có ở trang đầu, khi không gửi cursor)
+export const getAllOrdersAPI = async (params = {}) => {
   const url = API_BASE_URL + API_URLS.GET_ORDERS;
   try {
-    const response = await axios.get(url, { headers: getHeaders() });
-    // 🔒 đảm bảo luôn trả về mảng (tránh lỗi undefined trong React)
-    return Array.isArray(response.data) ? response.data : [];
+    const response = await axios.get(url, { headers: getHeaders(), params });
+    const total = response.headers?.["x-total-count"];
+    return {
+      // 🔒 đảm bảo luôn trả về mảng (tránh lỗi undefined trong React)
+      items: Array.isArray(response.data) ? response.data : [],
+      nextCursor: response.headers?.["x-next-cursor"] || null,
+      total: total != null ? Number(total) : null,
+    };
   } catch (err) {
     console.error("getAllOrdersAPI error:", err.response || err);
     throw err;
@@ -1,14 +1,10 @@
 import axios from "axios";
 import { API_BASE_URL, API_URLS, getHeaders } from "../constant";
+import { getAllProductPages } from "../fetch/fetchProducts";
 
 export const getAllProductsHome = async ()=>{
-    let url = API_BASE_URL + API_URLS.GET_PRODUCTS;
-
     try{
-        const result = await axios(url,{
-            method:"GET"
-        });
-        return result?.data;
+        return await getAllProductPages();
     }
     catch(err){
         console.error(err);
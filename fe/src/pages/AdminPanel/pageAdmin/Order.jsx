@@ -15,21 +15,44 @@ const Order = () => {
   const [showModal, setShowModal] = useState(false);
   const [currentPage, setCurrentPage] = useState(1);
   const [pageSize] = useState(10);
+  // API phân trang theo cursor: cursors[i] là cursor của trang i + 1 (trang đầu không có)
+  const [cursors, setCursors] = useState([null]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [totalOrders, setTotalOrders] = useState(0);
+  // Bộ lọc gửi lên server
+  const [statusFilter, setStatusFilter] = useState("all");
+  const [searchTerm, setSearchTerm] = useState("");
+  const [emailFilter, setEmailFilter] = useState("");
 
-  const fetchOrders = useCallback(async () => {
+  // Ngừng gõ 400ms mới lọc lại theo email
+  useEffect(() => {
+    const timer = setTimeout(() => setEmailFilter(searchTerm.trim()), 400);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
+
+  const fetchOrders = useCallback(async (page, cursor) => {
     try {
-      setLoading(true);
-      const data = await getAllOrdersAPI();
-      setOrders(Array.isArray(data) ? data : []);
+      const data = await getAllOrdersAPI({
+        size: pageSize,
+        cursor: cursor || undefined,
+        status: statusFilter === "all" ? undefined : statusFilter,
+        email: emailFilter || undefined,
+      });
+      setOrders(data.items);
+      setNextCursor(data.nextCursor);
+      if (data.total != null) setTotalOrders(data.total);
+      setCurrentPage(page);
     } catch (error) {
       showCustomToast("error", "Không thể tải danh sách đơn hàng!");
     } finally {
       setLoading(false);
     }
-  }, []);
+  }, [pageSize, statusFilter, emailFilter]);
 
+  // Đổi bộ lọc thì quay về trang đầu
   useEffect(() => {
-    fetchOrders();
+    setCursors([null]);
+    fetchOrders(1, null);
   }, [fetchOrders]);
 
   // Cập nhật đơn hàng
@@ -58,17 +81,18 @@ const Order = () => {
     }
   };
 
-  // Dữ liệu hiển thị theo trang
-  const totalPages = Math.ceil(orders.length / pageSize);
-  const paginatedOrders = orders.slice(
-    (currentPage - 1) * pageSize,
-    currentPage * pageSize
-  );
+  const totalPages = Math.max(1, Math.ceil(totalOrders / pageSize));
+  const hasNextPage = !!nextCursor;
 
-  // Chuyển trang
+  // Chuyển trang: trang sau dùng nextCursor, trang trước dùng cursor đã lưu
   const handlePageChange = (newPage) => {
-    if (newPage >= 1 && newPage <= totalPages) {
-      setCurrentPage(newPage);
+    if (newPage < 1) return;
+    if (newPage > currentPage) {
+      if (!hasNextPage) return;
+      setCursors((prev) => [...prev.slice(0, currentPage), nextCursor]);
+      fetchOrders(newPage, nextCursor);
+    } else {
+      fetchOrders(newPage, cursors[newPage - 1]);
     }
   };
 
@@ -77,11 +101,11 @@ const Order = () => {
   return (
     <div>
       <OrderManagement
-        orders={paginatedOrders}
-        totalOrders={orders.length}
-        currentPage={currentPage}
-        pageSize={pageSize}
-        onPageChange={handlePageChange}
+        orders={orders}
+        searchTerm={searchTerm}
+        onSearchChange={setSearchTerm}
+        statusFilter={statusFilter}
+        onStatusChange={setStatusFilter}
         onEdit={(order) => {
           setSelectedOrder(order);
           setShowModal(true);
@@ -90,7 +114,7 @@ const Order = () => {
       />
 
       {/* Pagination Control */}
-      {orders.length > pageSize && (
+      {(currentPage > 1 || hasNextPage) && (
         <div className="flex justify-center items-center mt-6 space-x-3">
           <button
             onClick={() => handlePageChange(currentPage - 1)}
@@ -110,9 +134,9 @@ const Order = () => {
 
           <button
             onClick={() => handlePageChange(currentPage + 1)}
-            disabled={currentPage === totalPages}
+            disabled={!hasNextPage}
             className={`px-4 py-2 rounded-lg text-sm font-semibold ${
-              currentPage === totalPages
+              !hasNextPage
                 ? "bg-gray-200 text-gray-500 cursor-not-allowed"
                 : "bg-blue-500 text-white hover:bg-blue-600"
             }`}
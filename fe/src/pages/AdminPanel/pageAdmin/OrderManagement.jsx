@@ -7,9 +7,16 @@ import {
   Edit as EditIcon,
 } from "@mui/icons-material";
 
-const OrderManagement = ({ orders, onEdit, onDelete }) => {
-  const [searchTerm, setSearchTerm] = useState("");
-  const [statusFilter, setStatusFilter] = useState("all");
+// Lọc (trạng thái, tiền tố email) chạy phía server ở Order.jsx; bảng chỉ hiển thị trang hiện tại
+const OrderManagement = ({
+  orders,
+  searchTerm,
+  onSearchChange,
+  statusFilter,
+  onStatusChange,
+  onEdit,
+  onDelete,
+}) => {
   const [activeDropdown, setActiveDropdown] = useState(null);
   const dropdownRef = useRef(null);
 
@@ -33,16 +40,6 @@ const OrderManagement = ({ orders, onEdit, onDelete }) => {
     CANCELLED: "Đã hủy",
   };
 
-  const filteredOrders = orders.filter((order) => {
-    const matchesSearch =
-      order.id.toLowerCase().includes(searchTerm.toLowerCase()) ||
-      (order.emailUser &&
-        order.emailUser.toLowerCase().includes(searchTerm.toLowerCase()));
-    const matchesStatus =
-      statusFilter === "all" || order.orderStatus === statusFilter;
-    return matchesSearch && matchesStatus;
-  });
-
   return (
     <div className="flex flex-col h-[calc(100vh-200px)] bg-gray-50">
       {/* Header */}
@@ -56,20 +53,21 @@ const OrderManagement = ({ orders, onEdit, onDelete }) => {
           <SearchIcon className="absolute left-3 top-1/2 transform -translate-y-1/2 text-gray-400" />
           <input
             type="text"
-            placeholder="Tìm kiếm đơn hàng..."
+            placeholder="Tìm theo email khách hàng..."
             className="pl-10 pr-4 py-2 border border-gray-300 rounded-lg focus:ring-2 focus:ring-blue-500 w-full"
             value={searchTerm}
-            onChange={(e) => setSearchTerm(e.target.value)}
+            onChange={(e) => onSearchChange(e.target.value)}
           />
         </div>
         <div className="flex items-center gap-2">
           <FilterIcon className="text-gray-400" />
           <select
             value={statusFilter}
-            onChange={(e) => setStatusFilter(e.target.value)}
+            onChange={(e) => onStatusChange(e.target.value)}
             className="px-3 py-2 border border-gray-300 rounded-lg"
           >
             <option value="all">Tất cả trạng thái</option>
+            <option value="PENDING_PAYMENT">Chờ thanh toán (CARD)</option>
             <option value="PENDING">Chờ xác nhận</option>
             <option value="IN_PROGRESS">Đã xác nhận</option>
             <option value="SHIPPED">Đang giao</option>
@@ -102,7 +100,7 @@ const OrderManagement = ({ orders, onEdit, onDelete }) => {
             </tr>
           </thead>
           <tbody>
-            {filteredOrders.map((order) => (
+            {orders.map((order) => (
               <tr key={order.id} className="hover:bg-gray-50 relative">
                 <td className="px-4 py-3 text-gray-700 max-w-[260px]">
                   <div className="line-clamp-1 break-words">{order.id}</div>
@@ -169,7 +167,7 @@ const OrderManagement = ({ orders, onEdit, onDelete }) => {
           </tbody>
         </table>
 
-        {filteredOrders.length === 0 && (
+        {orders.length === 0 && (
           <div className="text-center py-10 text-gray-500">
             Không có đơn hàng nào
           </div>